@@ -20,6 +20,8 @@ import tech.pegasys.pantheon.cli.EthNetworkConfig;
 import tech.pegasys.pantheon.cli.PantheonControllerBuilder;
 import tech.pegasys.pantheon.controller.PantheonController;
 import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration.Builder;
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -55,6 +57,8 @@ public class ThreadPantheonNodeRunner implements PantheonNodeRunner {
       pantheonController =
           builder.build(
               new Builder().build(),
+              RocksDbConfiguration.builder().build(),
+              PrunerConfiguration.builder().build(),
               node.homeDirectory(),
               ethNetworkConfig,
               false,
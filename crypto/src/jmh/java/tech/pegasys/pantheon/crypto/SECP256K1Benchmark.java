@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.crypto;
+
+import tech.pegasys.pantheon.crypto.SECP256K1.KeyPair;
+import tech.pegasys.pantheon.crypto.SECP256K1.PublicKey;
+import tech.pegasys.pantheon.crypto.SECP256K1.Signature;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.Optional;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the native libsecp256k1 backend of {@link SECP256K1} with the Java one.
+ *
+ * <p>The backend can't be switched back to native once disabled, so this relies on every parameter
+ * running in its own fork.
+ */
+@State(Scope.Thread)
+public class SECP256K1Benchmark {
+
+  @Param({"native", "java"})
+  public String backend;
+
+  private KeyPair keyPair;
+  private Bytes32 dataHash;
+  private Signature signature;
+
+  @Setup
+  public void prepare() {
+    if (backend.equals("java")) {
+      SECP256K1.disableNative();
+    } else if (!SECP256K1.isNative()) {
+      throw new IllegalStateException("libsecp256k1 could not be loaded");
+    }
+    keyPair = KeyPair.generate();
+    dataHash = Hash.keccak256(BytesValue.of(1, 2, 3));
+    signature = SECP256K1.sign(dataHash, keyPair);
+  }
+
+  @Benchmark
+  public Signature sign() {
+    return SECP256K1.sign(dataHash, keyPair);
+  }
+
+  @Benchmark
+  public boolean verify() {
+    return SECP256K1.verify(dataHash, signature, keyPair.getPublicKey());
+  }
+
+  @Benchmark
+  public Optional<PublicKey> recover() {
+    return PublicKey.recoverFromSignature(dataHash, signature);
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.crypto;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bindings to the native <a href="https://github.com/bitcoin-core/secp256k1">libsecp256k1</a>
+ * library, with its recovery module enabled.
+ *
+ * <p>The library is looked up on the JNA library path when this class is first used. If it can't be
+ * loaded, {@link #CONTEXT} is null and callers must fall back to the Java implementation.
+ *
+ * <p>The opaque structures of the library are passed around as byte arrays of the sizes below.
+ * Sizes are declared as {@code long}, so the bindings are only used where {@code size_t} is 64 bits
+ * wide.
+ */
+final class LibSecp256k1 {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  static final int SECP256K1_CONTEXT_VERIFY = 0x0101;
+  static final int SECP256K1_CONTEXT_SIGN = 0x0201;
+  static final int SECP256K1_EC_UNCOMPRESSED = 0x0002;
+
+  static final int PUBKEY_SIZE = 64;
+  static final int SIGNATURE_SIZE = 64;
+  static final int RECOVERABLE_SIGNATURE_SIZE = 65;
+  static final int SERIALIZED_PUBKEY_SIZE = 65;
+
+  /** A context for signing and verifying, or null if the library isn't available. */
+  static final Pointer CONTEXT = createContext();
+
+  private LibSecp256k1() {}
+
+  private static Pointer createContext() {
+    try {
+      if (Native.SIZE_T_SIZE != 8) {
+        LOG.info("Native secp256k1 is only supported on 64 bit platforms, using the Java backend");
+        return null;
+      }
+      Native.register(LibSecp256k1.class, "secp256k1");
+      final Pointer context =
+          secp256k1_context_create(SECP256K1_CONTEXT_VERIFY | SECP256K1_CONTEXT_SIGN);
+      LOG.info("Using the native secp256k1 backend");
+      return context;
+    } catch (final LinkageError e) {
+      // Either JNA or the library itself is missing.
+      LOG.info("Native secp256k1 is not available, using the Java backend: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  static boolean isAvailable() {
+    return CONTEXT != null;
+  }
+
+  static native Pointer secp256k1_context_create(int flags);
+
+  static native int secp256k1_ec_pubkey_parse(
+      Pointer ctx, byte[] pubkey, byte[] input, long inputlen);
+
+  static native int secp256k1_ec_pubkey_serialize(
+      Pointer ctx, byte[] output, long[] outputlen, byte[] pubkey, int flags);
+
+  static native int secp256k1_ecdsa_signature_parse_compact(
+      Pointer ctx, byte[] sig, byte[] input64);
+
+  static native int secp256k1_ecdsa_signature_normalize(Pointer ctx, byte[] sigout, byte[] sigin);
+
+  static native int secp256k1_ecdsa_verify(Pointer ctx, byte[] sig, byte[] msg32, byte[] pubkey);
+
+  static native int secp256k1_ecdsa_sign_recoverable(
+      Pointer ctx, byte[] sig, byte[] msg32, byte[] seckey, Pointer noncefp, Pointer ndata);
+
+  static native int secp256k1_ecdsa_recoverable_signature_parse_compact(
+      Pointer ctx, byte[] sig, byte[] input64, int recid);
+
+  static native int secp256k1_ecdsa_recoverable_signature_serialize_compact(
+      Pointer ctx, byte[] output64, int[] recid, byte[] sig);
+
+  static native int secp256k1_ecdsa_recover(Pointer ctx, byte[] pubkey, byte[] sig, byte[] msg32);
+}
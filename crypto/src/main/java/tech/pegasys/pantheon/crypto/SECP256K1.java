@@ -40,12 +40,13 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.UnaryOperator;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
-import org.bouncycastle.asn1.sec.SECNamedCurves;
 import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.asn1.x9.X9IntegerConverter;
 import org.bouncycastle.crypto.agreement.ECDHBasicAgreement;
 import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
 import org.bouncycastle.crypto.params.ECDomainParameters;
 import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
 import org.bouncycastle.crypto.params.ECPublicKeyParameters;
@@ -66,6 +67,12 @@ import org.bouncycastle.math.ec.custom.sec.SecP256K1Curve;
  *
  * Adapted from the web3j (Apache 2 License) implementations:
  * https://github.com/web3j/web3j/crypto/src/main/java/org/web3j/crypto/*.java
+ *
+ *
+ * Signing, verification and public key recovery use the native libsecp256k1 when it can be loaded,
+ * see LibSecp256k1, and the Bouncy Castle implementation otherwise. The native library is only
+ * trusted with inputs it accepts: whenever it rejects one, the Java implementation decides, so
+ * that both backends fail in exactly the same way.
  */
 public class SECP256K1 {
 
@@ -79,10 +86,15 @@ public class SECP256K1 {
   private static final KeyPairGenerator KEY_PAIR_GENERATOR;
   private static final BigInteger CURVE_ORDER;
 
+  // Read by every signing, verification and recovery thread, so a change must be visible to all.
+  private static volatile boolean useNative = LibSecp256k1.isAvailable();
+
   static {
     Security.addProvider(new BouncyCastleProvider());
 
-    final X9ECParameters params = SECNamedCurves.getByName(CURVE_NAME);
+    // The custom curve has dedicated field arithmetic and uses the GLV endomorphism, which makes
+    // point multiplication several times faster than on the generic curve.
+    final X9ECParameters params = CustomNamedCurves.getByName(CURVE_NAME);
     CURVE = new ECDomainParameters(params.getCurve(), params.getG(), params.getN(), params.getH());
     CURVE_ORDER = CURVE.getN();
     HALF_CURVE_ORDER = CURVE_ORDER.shiftRight(1);
@@ -99,6 +111,25 @@ public class SECP256K1 {
     }
   }
 
+  /**
+   * Makes all subsequent operations use the Java implementation, even if the native library is
+   * available.
+   */
+  public static void disableNative() {
+    useNative = false;
+  }
+
+  /** Makes all subsequent operations use the native library again, if it is available. */
+  @VisibleForTesting
+  static void enableNative() {
+    useNative = LibSecp256k1.isAvailable();
+  }
+
+  /** @return whether the native libsecp256k1 is used for signing, verification and recovery */
+  public static boolean isNative() {
+    return useNative;
+  }
+
   /** Decompress a compressed public key (x co-ord and low-bit of y-coord). */
   private static ECPoint decompressKey(final BigInteger xBN, final boolean yBit) {
     final X9IntegerConverter x9 = new X9IntegerConverter();
@@ -153,10 +184,8 @@ public class SECP256K1 {
     // two possibilities. So it's encoded in the recId.
     final ECPoint R = decompressKey(x, (recId & 1) == 1);
     // 1.4. If nR != point at infinity, then do another iteration of Step 1 (callers
-    // responsibility).
-    if (!R.multiply(n).isInfinity()) {
-      return null;
-    }
+    // responsibility). The cofactor of secp256k1 is 1, so every point on the curve has order n and
+    // the check can't fail.
     // 1.5. Compute e from M using Steps 2 and 3 of ECDSA signature verification.
     final BigInteger e = asUnsignedBigInteger(dataHash);
     // 1.6. For k from 1 to 2 do the following. (loop is outside this function via
@@ -188,7 +217,111 @@ public class SECP256K1 {
     return new BigInteger(1, Arrays.copyOfRange(qBytes, 1, qBytes.length));
   }
 
+  /**
+   * Recovers the public key from a signature using the native library.
+   *
+   * @return the public key, or empty if the native library rejected the signature
+   */
+  private static Optional<PublicKey> recoverFromSignatureNative(
+      final Bytes32 dataHash, final Signature signature) {
+    final byte[] recoverableSignature = new byte[LibSecp256k1.RECOVERABLE_SIGNATURE_SIZE];
+    if (LibSecp256k1.secp256k1_ecdsa_recoverable_signature_parse_compact(
+            LibSecp256k1.CONTEXT, recoverableSignature, compact(signature), signature.getRecId())
+        == 0) {
+      return Optional.empty();
+    }
+    final byte[] pubKey = new byte[LibSecp256k1.PUBKEY_SIZE];
+    if (LibSecp256k1.secp256k1_ecdsa_recover(
+            LibSecp256k1.CONTEXT, pubKey, recoverableSignature, dataHash.getArrayUnsafe())
+        == 0) {
+      return Optional.empty();
+    }
+    final byte[] serialized = new byte[LibSecp256k1.SERIALIZED_PUBKEY_SIZE];
+    LibSecp256k1.secp256k1_ec_pubkey_serialize(
+        LibSecp256k1.CONTEXT,
+        serialized,
+        new long[] {serialized.length},
+        pubKey,
+        LibSecp256k1.SECP256K1_EC_UNCOMPRESSED);
+    // We remove the prefix
+    return Optional.of(PublicKey.create(BytesValue.wrap(serialized, 1, PublicKey.BYTE_LENGTH)));
+  }
+
+  /** The signature in the 64 bytes compact form of the native library, r followed by s. */
+  private static byte[] compact(final Signature signature) {
+    return signature.encodedBytes().slice(0, 64).extractArray();
+  }
+
+  /**
+   * Signs using the native library, which also computes the recovery id.
+   *
+   * @return the signature, or empty if the native library rejected the private key
+   */
+  private static Optional<Signature> signNative(final Bytes32 dataHash, final KeyPair keyPair) {
+    final byte[] recoverableSignature = new byte[LibSecp256k1.RECOVERABLE_SIGNATURE_SIZE];
+    // Without a nonce function the nonce is derived as per RFC 6979, as for the Java signer, and
+    // the signature is normalized to the lower S value.
+    if (LibSecp256k1.secp256k1_ecdsa_sign_recoverable(
+            LibSecp256k1.CONTEXT,
+            recoverableSignature,
+            dataHash.getArrayUnsafe(),
+            keyPair.getPrivateKey().getEncodedBytes().getArrayUnsafe(),
+            null,
+            null)
+        == 0) {
+      return Optional.empty();
+    }
+    final byte[] compact = new byte[64];
+    final int[] recId = new int[1];
+    LibSecp256k1.secp256k1_ecdsa_recoverable_signature_serialize_compact(
+        LibSecp256k1.CONTEXT, compact, recId, recoverableSignature);
+    final BytesValue bytes = BytesValue.wrap(compact);
+    return Optional.of(
+        new Signature(
+            asUnsignedBigInteger(bytes.slice(0, 32)),
+            asUnsignedBigInteger(bytes.slice(32, 32)),
+            (byte) recId[0]));
+  }
+
+  /**
+   * Verifies a signature of a 32 bytes hash using the native library.
+   *
+   * @return whether the signature is valid, or empty if the native library rejected the public key
+   *     or the signature
+   */
+  private static Optional<Boolean> verifyNative(
+      final BytesValue data, final Signature signature, final PublicKey pub) {
+    final byte[] pubKey = new byte[LibSecp256k1.PUBKEY_SIZE];
+    final byte[] serialized =
+        BytesValues.concatenate(BytesValue.of(0x04), pub.getEncodedBytes()).extractArray();
+    if (LibSecp256k1.secp256k1_ec_pubkey_parse(
+            LibSecp256k1.CONTEXT, pubKey, serialized, serialized.length)
+        == 0) {
+      return Optional.empty();
+    }
+    final byte[] nativeSignature = new byte[LibSecp256k1.SIGNATURE_SIZE];
+    if (LibSecp256k1.secp256k1_ecdsa_signature_parse_compact(
+            LibSecp256k1.CONTEXT, nativeSignature, compact(signature))
+        == 0) {
+      return Optional.empty();
+    }
+    // The native library only accepts signatures with the lower S value, the Java one accepts both.
+    LibSecp256k1.secp256k1_ecdsa_signature_normalize(
+        LibSecp256k1.CONTEXT, nativeSignature, nativeSignature);
+    return Optional.of(
+        LibSecp256k1.secp256k1_ecdsa_verify(
+                LibSecp256k1.CONTEXT, nativeSignature, data.getArrayUnsafe(), pubKey)
+            == 1);
+  }
+
   public static Signature sign(final Bytes32 dataHash, final KeyPair keyPair) {
+    if (useNative) {
+      final Optional<Signature> signature = signNative(dataHash, keyPair);
+      if (signature.isPresent()) {
+        return signature.get();
+      }
+    }
+
     final ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(new SHA256Digest()));
 
     final ECPrivateKeyParameters privKey =
@@ -237,8 +370,7 @@ public class SECP256K1 {
   /**
    * Verifies the given ECDSA signature against the message bytes using the public key bytes.
    *
-   * <p>When using native ECDSA verification, data must be 32 bytes, and no element may be larger
-   * than 520 bytes.
+   * <p>The native library is only used when the data is 32 bytes long.
    *
    * @param data Hash of the data to verify.
    * @param signature ASN.1 encoded signature.
@@ -247,6 +379,13 @@ public class SECP256K1 {
    */
   public static boolean verify(
       final BytesValue data, final Signature signature, final PublicKey pub) {
+    if (useNative && data.size() == Bytes32.SIZE) {
+      final Optional<Boolean> verified = verifyNative(data, signature, pub);
+      if (verified.isPresent()) {
+        return verified.get();
+      }
+    }
+
     final ECDSASigner signer = new ECDSASigner();
     final BytesValue toDecode = BytesValue.wrap(BytesValue.of((byte) 4), pub.getEncodedBytes());
     final ECPublicKeyParameters params =
@@ -444,6 +583,13 @@ public class SECP256K1 {
 
     public static Optional<PublicKey> recoverFromSignature(
         final Bytes32 dataHash, final Signature signature) {
+      if (useNative) {
+        final Optional<PublicKey> publicKey = recoverFromSignatureNative(dataHash, signature);
+        if (publicKey.isPresent()) {
+          return publicKey;
+        }
+      }
+
       final BigInteger publicKeyBI =
           SECP256K1.recoverFromSignature(
               signature.getRecId(), signature.getR(), signature.getS(), dataHash);
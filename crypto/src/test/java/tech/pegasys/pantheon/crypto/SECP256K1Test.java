@@ -14,6 +14,7 @@ package tech.pegasys.pantheon.crypto;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -28,9 +29,13 @@ import java.math.BigInteger;
 import java.net.URL;
 import java.nio.file.Files;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import com.google.common.io.Resources;
+import org.junit.After;
+import org.junit.Assume;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -54,6 +59,11 @@ public class SECP256K1Test {
     return suiteName;
   }
 
+  @After
+  public void restoreNative() {
+    SECP256K1.enableNative();
+  }
+
   @Test(expected = NullPointerException.class)
   public void createPrivateKey_NullEncoding() {
     SECP256K1.PrivateKey.create((Bytes32) null);
@@ -282,4 +292,69 @@ public class SECP256K1Test {
     Files.write(tempFile.toPath(), "not\n\nvalid".getBytes(UTF_8));
     SECP256K1.PrivateKey.load(tempFile);
   }
+
+  @Test
+  public void nativeAndJavaImplementationsGiveTheSameResults() {
+    Assume.assumeTrue("libsecp256k1 is not available", SECP256K1.isNative());
+    final List<Object> nativeResults = signVerifyAndRecover();
+
+    SECP256K1.disableNative();
+    final List<Object> javaResults = signVerifyAndRecover();
+
+    assertEquals(nativeResults, javaResults);
+  }
+
+  @Test
+  public void fallsBackToJavaImplementationWhenNativeIsDisabled() {
+    SECP256K1.disableNative();
+    assertFalse(SECP256K1.isNative());
+
+    final SECP256K1.KeyPair keyPair =
+        SECP256K1.KeyPair.create(
+            SECP256K1.PrivateKey.create(
+                new BigInteger(
+                    "c85ef7d79691fe79573b1a7064c19c1a9819ebdbd1faaab1a8ec92344438aaf4", 16)));
+    final BytesValue data =
+        BytesValue.wrap("This is an example of a signed message.".getBytes(UTF_8));
+    final Bytes32 dataHash = keccak256(data);
+
+    final SECP256K1.Signature signature = SECP256K1.sign(dataHash, keyPair);
+    assertEquals(
+        SECP256K1.Signature.create(
+            new BigInteger("d2ce488f4da29e68f22cb05cac1b19b75df170a12b4ad1bdd4531b8e9115c6fb", 16),
+            new BigInteger("75c1fe50a95e8ccffcbb5482a1e42fbbdd6324131dfe75c3b3b7f9a7c721eccb", 16),
+            (byte) 1),
+        signature);
+    assertTrue(SECP256K1.verify(dataHash, signature, keyPair.getPublicKey()));
+    assertEquals(
+        keyPair.getPublicKey(),
+        SECP256K1.PublicKey.recoverFromSignature(dataHash, signature).get());
+  }
+
+  private static List<Object> signVerifyAndRecover() {
+    final List<Object> results = new ArrayList<>();
+    final SECP256K1.PublicKey otherPublicKey =
+        SECP256K1.KeyPair.create(SECP256K1.PrivateKey.create(BigInteger.ONE)).getPublicKey();
+    for (int i = 1; i <= 20; i++) {
+      final SECP256K1.KeyPair keyPair =
+          SECP256K1.KeyPair.create(SECP256K1.PrivateKey.create(keccak256(BytesValue.of((byte) i))));
+      final Bytes32 dataHash = keccak256(BytesValue.of((byte) i, (byte) i));
+
+      final SECP256K1.Signature signature = SECP256K1.sign(dataHash, keyPair);
+      results.add(signature);
+      results.add(SECP256K1.verify(dataHash, signature, keyPair.getPublicKey()));
+      results.add(SECP256K1.verify(dataHash, signature, otherPublicKey));
+      results.add(SECP256K1.PublicKey.recoverFromSignature(dataHash, signature));
+
+      // The native library only verifies low s values, so it has to normalize this one first.
+      final SECP256K1.Signature highS =
+          SECP256K1.Signature.create(
+              signature.getR(),
+              SECP256K1.CURVE.getN().subtract(signature.getS()),
+              (byte) (1 - signature.getRecId()));
+      results.add(SECP256K1.verify(dataHash, highS, keyPair.getPublicKey()));
+      results.add(SECP256K1.PublicKey.recoverFromSignature(dataHash, highS));
+    }
+    return results;
+  }
 }
@@ -13,6 +13,7 @@
 package tech.pegasys.pantheon.ethereum.blockcreation;
 
 import tech.pegasys.pantheon.ethereum.ProtocolContext;
+import tech.pegasys.pantheon.ethereum.blockcreation.BlockTransactionSelector.TransactionSelectionResults;
 import tech.pegasys.pantheon.ethereum.core.Address;
 import tech.pegasys.pantheon.ethereum.core.Block;
 import tech.pegasys.pantheon.ethereum.core.BlockBody;
@@ -21,6 +22,7 @@ import tech.pegasys.pantheon.ethereum.core.BlockHeaderBuilder;
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.MutableAccount;
 import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
+import tech.pegasys.pantheon.ethereum.core.PendingTransactionListener;
 import tech.pegasys.pantheon.ethereum.core.PendingTransactions;
 import tech.pegasys.pantheon.ethereum.core.ProcessableBlockHeader;
 import tech.pegasys.pantheon.ethereum.core.SealableBlockHeader;
@@ -36,7 +38,10 @@ import tech.pegasys.pantheon.util.uint.UInt256;
 
 import java.math.BigInteger;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
@@ -52,6 +57,9 @@ public abstract class AbstractBlockCreator<C> implements AsyncBlockCreator {
   }
 
   private static final Logger LOG = LogManager.getLogger();
+  // How often a block being prepared picks up the transactions added to the pool in the meantime.
+  private static final long TRANSACTION_SELECTION_INTERVAL_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(250);
 
   protected final Address coinbase;
 
@@ -66,6 +74,11 @@ public abstract class AbstractBlockCreator<C> implements AsyncBlockCreator {
   protected final BlockHeader parentHeader;
 
   private final AtomicBoolean isCancelled = new AtomicBoolean(false);
+  // Set whenever a transaction is added to the pool while a block is being prepared.
+  private final AtomicBoolean transactionsAdded = new AtomicBoolean(false);
+  // Released to wake up a block being prepared when block creation is cancelled.
+  private final Semaphore cancelled = new Semaphore(0);
+  private Optional<PendingBlock> pendingBlock = Optional.empty();
 
   public AbstractBlockCreator(
       final Address coinbase,
@@ -88,6 +101,59 @@ public abstract class AbstractBlockCreator<C> implements AsyncBlockCreator {
     this.parentHeader = parentHeader;
   }
 
+  /**
+   * Executes the pending transactions into a block with the given timestamp until that block can be
+   * mined, so that {@link #createBlock(long)} is left with little more than sealing the block.
+   * Transactions added to the pool in the meantime are executed in batches, at most once per
+   * selection interval, rather than each as it arrives.
+   *
+   * @param timestamp the timestamp of the block that is going to be created
+   * @param millisecondsUntilValid how long to keep preparing the block for
+   * @throws InterruptedException if interrupted while waiting for transactions
+   * @throws CancellationException if block creation is cancelled
+   */
+  public void prepareBlock(final long timestamp, final long millisecondsUntilValid)
+      throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millisecondsUntilValid);
+    final PendingTransactionListener listener = transaction -> transactionsAdded.set(true);
+    pendingTransactions.addTransactionListener(listener);
+    try {
+      final PendingBlock block =
+          new PendingBlock(createPendingBlockHeader(timestamp), duplicateWorldStateAtParent());
+      pendingBlock = Optional.of(block);
+      do {
+        transactionsAdded.set(false);
+        throwIfStopped();
+        selectTransactions(block.header, block.worldState, block.transactionResults);
+      } while (awaitTransactionsAdded(deadline));
+    } finally {
+      pendingTransactions.removeTransactionListener(listener);
+    }
+    throwIfStopped();
+  }
+
+  /**
+   * Waits for the end of a selection interval in which transactions were added to the pool.
+   *
+   * @param deadline the {@link System#nanoTime()} at which to stop waiting
+   * @return false if the deadline passed, or block creation was cancelled, first
+   * @throws InterruptedException if interrupted while waiting
+   */
+  private boolean awaitTransactionsAdded(final long deadline) throws InterruptedException {
+    long remaining = deadline - System.nanoTime();
+    while (remaining > 0) {
+      if (cancelled.tryAcquire(
+          Math.min(remaining, TRANSACTION_SELECTION_INTERVAL_NANOS), TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+      if (transactionsAdded.get()) {
+        return true;
+      }
+      remaining = deadline - System.nanoTime();
+    }
+    return false;
+  }
+
   /**
    * Create block will create a new block at the head of the blockchain specified in the
    * protocolContext.
@@ -103,16 +169,17 @@ public abstract class AbstractBlockCreator<C> implements AsyncBlockCreator {
    *
    * <p>The constructed block is then returned.
    *
+   * <p>If the block was prepared with {@link #prepareBlock(long, long)} for the same timestamp, the
+   * transactions executed then are kept, and only the transactions added since are selected.
+   *
    * @return a block with appropriately selected transactions, seals and ommers.
    */
   @Override
   public Block createBlock(final long timestamp) {
     try {
-      final ProcessableBlockHeader processableBlockHeader = createPendingBlockHeader(timestamp);
-
-      throwIfStopped();
-
-      final MutableWorldState disposableWorldState = duplicateWorldStateAtParent();
+      final PendingBlock block = takePendingBlock(timestamp);
+      final ProcessableBlockHeader processableBlockHeader = block.header;
+      final MutableWorldState disposableWorldState = block.worldState;
 
       throwIfStopped();
 
@@ -120,8 +187,9 @@ public abstract class AbstractBlockCreator<C> implements AsyncBlockCreator {
 
       throwIfStopped();
 
-      final BlockTransactionSelector.TransactionSelectionResults transactionResults =
-          selectTransactions(processableBlockHeader, disposableWorldState);
+      final TransactionSelectionResults transactionResults =
+          selectTransactions(
+              processableBlockHeader, disposableWorldState, block.transactionResults);
 
       throwIfStopped();
 
@@ -168,9 +236,22 @@ public abstract class AbstractBlockCreator<C> implements AsyncBlockCreator {
     }
   }
 
-  private BlockTransactionSelector.TransactionSelectionResults selectTransactions(
+  private PendingBlock takePendingBlock(final long timestamp) {
+    final Optional<PendingBlock> preparedBlock =
+        pendingBlock.filter(block -> block.header.getTimestamp() == timestamp);
+    pendingBlock = Optional.empty();
+    if (preparedBlock.isPresent()) {
+      return preparedBlock.get();
+    }
+    final ProcessableBlockHeader processableBlockHeader = createPendingBlockHeader(timestamp);
+    throwIfStopped();
+    return new PendingBlock(processableBlockHeader, duplicateWorldStateAtParent());
+  }
+
+  private TransactionSelectionResults selectTransactions(
       final ProcessableBlockHeader processableBlockHeader,
-      final MutableWorldState disposableWorldState)
+      final MutableWorldState disposableWorldState,
+      final TransactionSelectionResults previousResults)
       throws RuntimeException {
     final long blockNumber = processableBlockHeader.getNumber();
 
@@ -190,7 +271,8 @@ public abstract class AbstractBlockCreator<C> implements AsyncBlockCreator {
             transactionReceiptFactory,
             minTransactionGasPrice,
             isCancelled::get,
-            miningBeneficiary);
+            miningBeneficiary,
+            previousResults);
 
     return selector.buildTransactionListForBlock();
   }
@@ -229,6 +311,8 @@ public abstract class AbstractBlockCreator<C> implements AsyncBlockCreator {
   @Override
   public void cancel() {
     isCancelled.set(true);
+    // Wakes up a block being prepared.
+    cancelled.release();
   }
 
   protected void throwIfStopped() throws CancellationException {
@@ -277,4 +361,21 @@ public abstract class AbstractBlockCreator<C> implements AsyncBlockCreator {
 
   protected abstract BlockHeader createFinalBlockHeader(
       final SealableBlockHeader sealableBlockHeader);
+
+  /**
+   * A block under construction: its header before sealing and the world state with the selected
+   * transactions applied.
+   */
+  private static class PendingBlock {
+
+    private final ProcessableBlockHeader header;
+    private final MutableWorldState worldState;
+    private final TransactionSelectionResults transactionResults =
+        new TransactionSelectionResults();
+
+    private PendingBlock(final ProcessableBlockHeader header, final MutableWorldState worldState) {
+      this.header = header;
+      this.worldState = worldState;
+    }
+  }
 }
@@ -24,15 +24,6 @@ public abstract class AbstractBlockScheduler {
     this.clock = clock;
   }
 
-  public long waitUntilNextBlockCanBeMined(final BlockHeader parentHeader)
-      throws InterruptedException {
-    final BlockCreationTimeResult result = getNextTimestamp(parentHeader);
-
-    Thread.sleep(result.millisecondsUntilValid);
-
-    return result.timestampForHeader;
-  }
-
   public abstract BlockCreationTimeResult getNextTimestamp(final BlockHeader parentHeader);
 
   public static class BlockCreationTimeResult {
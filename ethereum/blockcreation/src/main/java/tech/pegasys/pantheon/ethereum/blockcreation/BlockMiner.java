@@ -13,6 +13,7 @@
 package tech.pegasys.pantheon.ethereum.blockcreation;
 
 import tech.pegasys.pantheon.ethereum.ProtocolContext;
+import tech.pegasys.pantheon.ethereum.blockcreation.AbstractBlockScheduler.BlockCreationTimeResult;
 import tech.pegasys.pantheon.ethereum.chain.MinedBlockObserver;
 import tech.pegasys.pantheon.ethereum.core.Block;
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
@@ -84,7 +85,11 @@ public class BlockMiner<C, M extends AbstractBlockCreator<C>> implements Runnabl
     // Ensure the block is allowed to be mined - i.e. the timestamp on the new block is sufficiently
     // ahead of the parent, and still within allowable clock tolerance.
     LOG.trace("Started a mining operation.");
-    final long newBlockTimestamp = scheduler.waitUntilNextBlockCanBeMined(parentHeader);
+    final BlockCreationTimeResult nextBlockTime = scheduler.getNextTimestamp(parentHeader);
+    final long newBlockTimestamp = nextBlockTime.getTimestampForHeader();
+
+    // Rather than idling until then, execute the transactions that are going into the block.
+    blockCreator.prepareBlock(newBlockTimestamp, nextBlockTime.getMillisecondsUntilValid());
 
     LOG.trace("Mining a new block with timestamp {}", newBlockTimestamp);
     final Block block = blockCreator.createBlock(newBlockTimestamp);
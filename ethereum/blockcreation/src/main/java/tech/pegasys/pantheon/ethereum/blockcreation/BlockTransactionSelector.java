@@ -26,7 +26,9 @@ import tech.pegasys.pantheon.ethereum.mainnet.MainnetBlockProcessor.TransactionR
 import tech.pegasys.pantheon.ethereum.mainnet.TransactionProcessor;
 import tech.pegasys.pantheon.ethereum.vm.BlockHashLookup;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.function.Supplier;
 
@@ -53,6 +55,9 @@ import org.apache.logging.log4j.Logger;
  *
  * Once "used" this class must be discarded and another created. This class contains state which is
  * not cleared between executions of buildTransactionListForBlock().
+ *
+ * <p>A selection can carry on from the results of an earlier one for the same block and world
+ * state, in which case only the transactions that weren't selected already are evaluated.
  */
 public class BlockTransactionSelector {
 
@@ -64,15 +69,23 @@ public class BlockTransactionSelector {
   public static class TransactionSelectionResults {
     private final List<Transaction> transactions = Lists.newArrayList();
     private final List<TransactionReceipt> receipts = Lists.newArrayList();
+    private final Map<Address, Long> highestNonceBySender = new HashMap<>();
     private long cumulativeGasUsed = 0;
 
     private void update(
         final Transaction transaction, final TransactionReceipt receipt, final long gasUsed) {
       transactions.add(transaction);
       receipts.add(receipt);
+      highestNonceBySender.put(transaction.getSender(), transaction.getNonce());
       cumulativeGasUsed += gasUsed;
     }
 
+    // Also covers transactions that replaced one already selected with the same nonce.
+    private boolean isNonceUsed(final Transaction transaction) {
+      final Long highestNonce = highestNonceBySender.get(transaction.getSender());
+      return highestNonce != null && transaction.getNonce() <= highestNonce;
+    }
+
     public List<Transaction> getTransactions() {
       return transactions;
     }
@@ -95,8 +108,7 @@ public class BlockTransactionSelector {
   private final TransactionReceiptFactory transactionReceiptFactory;
   private final Address miningBeneficiary;
 
-  private final TransactionSelectionResults transactionSelectionResult =
-      new TransactionSelectionResults();
+  private final TransactionSelectionResults transactionSelectionResult;
 
   public BlockTransactionSelector(
       final TransactionProcessor transactionProcessor,
@@ -108,6 +120,34 @@ public class BlockTransactionSelector {
       final Wei minTransactionGasPrice,
       final Supplier<Boolean> isCancelled,
       final Address miningBeneficiary) {
+    this(
+        transactionProcessor,
+        blockchain,
+        worldState,
+        pendingTransactions,
+        processableBlockHeader,
+        transactionReceiptFactory,
+        minTransactionGasPrice,
+        isCancelled,
+        miningBeneficiary,
+        new TransactionSelectionResults());
+  }
+
+  /**
+   * Creates a selector that carries on from the results of an earlier selection, which must have
+   * been made on the given world state for the same block.
+   */
+  public BlockTransactionSelector(
+      final TransactionProcessor transactionProcessor,
+      final Blockchain blockchain,
+      final MutableWorldState worldState,
+      final PendingTransactions pendingTransactions,
+      final ProcessableBlockHeader processableBlockHeader,
+      final TransactionReceiptFactory transactionReceiptFactory,
+      final Wei minTransactionGasPrice,
+      final Supplier<Boolean> isCancelled,
+      final Address miningBeneficiary,
+      final TransactionSelectionResults previousResults) {
     this.transactionProcessor = transactionProcessor;
     this.blockchain = blockchain;
     this.worldState = worldState;
@@ -117,6 +157,7 @@ public class BlockTransactionSelector {
     this.isCancelled = isCancelled;
     this.minTransactionGasPrice = minTransactionGasPrice;
     this.miningBeneficiary = miningBeneficiary;
+    this.transactionSelectionResult = previousResults;
   }
 
   /*
@@ -144,11 +185,15 @@ public class BlockTransactionSelector {
       throw new CancellationException("Cancelled during transaction selection.");
     }
 
+    if (transactionSelectionResult.isNonceUsed(transaction)) {
+      return TransactionSelectionResult.CONTINUE;
+    }
+
     if (transactionTooLargeForBlock(transaction)) {
       if (blockOccupancyAboveThreshold()) {
         return TransactionSelectionResult.COMPLETE_OPERATION;
       } else {
-        return TransactionSelectionResult.CONTINUE;
+        return TransactionSelectionResult.SKIP_SENDER_AND_CONTINUE;
       }
     }
 
@@ -20,6 +20,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import tech.pegasys.pantheon.ethereum.ProtocolContext;
+import tech.pegasys.pantheon.ethereum.blockcreation.AbstractBlockScheduler.BlockCreationTimeResult;
 import tech.pegasys.pantheon.ethereum.chain.MinedBlockObserver;
 import tech.pegasys.pantheon.ethereum.core.Block;
 import tech.pegasys.pantheon.ethereum.core.BlockBody;
@@ -60,7 +61,7 @@ public class BlockMinerTest {
 
     final MinedBlockObserver observer = mock(MinedBlockObserver.class);
     final DefaultBlockScheduler scheduler = mock(DefaultBlockScheduler.class);
-    when(scheduler.waitUntilNextBlockCanBeMined(any())).thenReturn(5L);
+    when(scheduler.getNextTimestamp(any())).thenReturn(new BlockCreationTimeResult(5, 0));
     final BlockMiner<Void, EthHashBlockCreator> miner =
         new EthHashBlockMiner(
             blockCreator,
@@ -71,6 +72,7 @@ public class BlockMinerTest {
             headerBuilder.buildHeader()); // parent header is arbitrary for the test.
 
     miner.run();
+    verify(blockCreator).prepareBlock(5, 0);
     verify(blockImporter).importBlock(protocolContext, blockToCreate, HeaderValidationMode.FULL);
     verify(observer, times(1)).blockMined(blockToCreate);
   }
@@ -98,7 +100,7 @@ public class BlockMinerTest {
 
     final MinedBlockObserver observer = mock(MinedBlockObserver.class);
     final DefaultBlockScheduler scheduler = mock(DefaultBlockScheduler.class);
-    when(scheduler.waitUntilNextBlockCanBeMined(any())).thenReturn(5L);
+    when(scheduler.getNextTimestamp(any())).thenReturn(new BlockCreationTimeResult(5, 0));
     final BlockMiner<Void, EthHashBlockCreator> miner =
         new EthHashBlockMiner(
             blockCreator,
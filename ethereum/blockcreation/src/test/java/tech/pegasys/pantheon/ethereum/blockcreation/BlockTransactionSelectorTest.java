@@ -16,6 +16,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static tech.pegasys.pantheon.ethereum.mainnet.TransactionValidator.TransactionInvalidReason.NONCE_TOO_LOW;
 
@@ -367,8 +369,10 @@ public class BlockTransactionSelectorTest {
 
     final TransactionTestFixture txTestFixture = new TransactionTestFixture();
     // Add 3 transactions to the Pending Transactions, 79% of block, 100% of block and 10% of block
-    // should end up selecting the first and third only.
+    // from another, lower priced, sender should end up selecting the first and third only. A 10%
+    // transaction following the one that's too large can't be executed, so isn't selected either.
     // NOTE - PendingTransactions outputs these in nonce order
+    final KeyPair otherKeyPair = KeyPair.generate();
     final List<Transaction> transactionsToInject = Lists.newArrayList();
     transactionsToInject.add(
         txTestFixture
@@ -377,6 +381,12 @@ public class BlockTransactionSelectorTest {
             .createTransaction(keyPair));
     transactionsToInject.add(
         txTestFixture.gasLimit(blockHeader.getGasLimit()).nonce(2).createTransaction(keyPair));
+    transactionsToInject.add(
+        new TransactionTestFixture()
+            .gasPrice(Wei.of(1))
+            .gasLimit((long) (blockHeader.getGasLimit() * 0.1))
+            .nonce(1)
+            .createTransaction(otherKeyPair));
     transactionsToInject.add(
         txTestFixture
             .gasLimit((long) (blockHeader.getGasLimit() * 0.1))
@@ -543,6 +553,68 @@ public class BlockTransactionSelectorTest {
     assertThat(pendingTransactions.getTransactionByHash(invalidTransaction.hash())).isNotPresent();
   }
 
+  @Test
+  public void selectionCarryingOnFromEarlierResultsOnlyAddsNewTransactions() {
+    final PendingTransactions pendingTransactions = new PendingTransactions(10);
+    final TransactionProcessor transactionProcessor = mock(TransactionProcessor.class);
+    when(transactionProcessor.processTransaction(any(), any(), any(), any(), any(), any()))
+        .thenReturn(
+            Result.successful(LogSeries.empty(), 0, BytesValue.EMPTY, ValidationResult.valid()));
+    final Blockchain blockchain = new TestBlockchain();
+    final DefaultMutableWorldState worldState = inMemoryWorldState();
+    final Supplier<Boolean> isCancelled = () -> false;
+
+    final ProcessableBlockHeader blockHeader =
+        BlockHeaderBuilder.create()
+            .parentHash(Hash.EMPTY)
+            .coinbase(Address.fromHexString(String.format("%020x", 1)))
+            .difficulty(UInt256.ONE)
+            .number(1)
+            .gasLimit(5000)
+            .timestamp(Instant.now().toEpochMilli())
+            .buildProcessableBlockHeader();
+
+    final Address miningBeneficiary = AddressHelpers.ofValue(1);
+    final BlockTransactionSelector.TransactionSelectionResults results =
+        new BlockTransactionSelector.TransactionSelectionResults();
+
+    final Transaction first = createTransaction(0);
+    final Transaction second = createTransaction(1);
+    pendingTransactions.addRemoteTransaction(first);
+    new BlockTransactionSelector(
+            transactionProcessor,
+            blockchain,
+            worldState,
+            pendingTransactions,
+            blockHeader,
+            this::createReceipt,
+            Wei.ZERO,
+            isCancelled,
+            miningBeneficiary,
+            results)
+        .buildTransactionListForBlock();
+
+    pendingTransactions.addRemoteTransaction(second);
+    new BlockTransactionSelector(
+            transactionProcessor,
+            blockchain,
+            worldState,
+            pendingTransactions,
+            blockHeader,
+            this::createReceipt,
+            Wei.ZERO,
+            isCancelled,
+            miningBeneficiary,
+            results)
+        .buildTransactionListForBlock();
+
+    assertThat(results.getTransactions()).containsExactly(first, second);
+    assertThat(results.getReceipts().size()).isEqualTo(2);
+    assertThat(results.getCumulativeGasUsed()).isEqualTo(200L);
+    verify(transactionProcessor, times(2))
+        .processTransaction(any(), any(), any(), any(), any(), any());
+  }
+
   private Transaction createTransaction(final int transactionNumber) {
     return Transaction.builder()
         .gasLimit(100)
@@ -46,20 +46,23 @@ public class EthHashBlockCreatorTest {
           .protocolSchedule(MainnetProtocolSchedule.create(2, 3, 10, 11, 12, -1, 42))
           .build();
 
+  private EthHashBlockCreator createBlockCreator() {
+    final EthHashSolver solver = new EthHashSolver(Lists.newArrayList(BLOCK_1_NONCE), new Light());
+    return new EthHashBlockCreator(
+        BLOCK_1_COINBASE,
+        parent -> BLOCK_1_EXTRA_DATA,
+        new PendingTransactions(1),
+        executionContextTestFixture.getProtocolContext(),
+        executionContextTestFixture.getProtocolSchedule(),
+        gasLimit -> gasLimit,
+        solver,
+        Wei.ZERO,
+        executionContextTestFixture.getBlockchain().getChainHeadHeader());
+  }
+
   @Test
   public void createMainnetBlock1() throws IOException {
-    final EthHashSolver solver = new EthHashSolver(Lists.newArrayList(BLOCK_1_NONCE), new Light());
-    final EthHashBlockCreator blockCreator =
-        new EthHashBlockCreator(
-            BLOCK_1_COINBASE,
-            parent -> BLOCK_1_EXTRA_DATA,
-            new PendingTransactions(1),
-            executionContextTestFixture.getProtocolContext(),
-            executionContextTestFixture.getProtocolSchedule(),
-            gasLimit -> gasLimit,
-            solver,
-            Wei.ZERO,
-            executionContextTestFixture.getBlockchain().getChainHeadHeader());
+    final EthHashBlockCreator blockCreator = createBlockCreator();
 
     // A Hashrate should not exist in the block creator prior to creating a block
     Assertions.assertThat(blockCreator.getHashesPerSecond().isPresent()).isFalse();
@@ -70,4 +73,14 @@ public class EthHashBlockCreatorTest {
     Assertions.assertThat(actualBlock).isEqualTo(expectedBlock);
     Assertions.assertThat(blockCreator.getHashesPerSecond().isPresent()).isTrue();
   }
+
+  @Test
+  public void createMainnetBlock1FromPreparedBlock() throws Exception {
+    final EthHashBlockCreator blockCreator = createBlockCreator();
+
+    blockCreator.prepareBlock(BLOCK_1_TIMESTAMP, 0);
+    final Block actualBlock = blockCreator.createBlock(BLOCK_1_TIMESTAMP);
+
+    Assertions.assertThat(actualBlock).isEqualTo(ValidationTestUtils.readBlock(1));
+  }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm.operations;
+
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValues;
+import tech.pegasys.pantheon.util.bytes.MutableBytes32;
+import tech.pegasys.pantheon.util.uint.UInt256Bytes;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the arithmetic behind the EVM operations, which works on the limbs of the operands, with
+ * the {@link BigInteger} round trip it used to make.
+ */
+@State(Scope.Thread)
+public class ArithmeticOperationBenchmark {
+
+  private static final BigInteger P256 = BigInteger.ONE.shiftLeft(256);
+
+  @Param({"MUL", "DIV", "MOD", "ADDMOD", "MULMOD", "EXP"})
+  public String operation;
+
+  private final MutableBytes32 result = MutableBytes32.create();
+  private Bytes32 first;
+  private Bytes32 second;
+  private Bytes32 third;
+
+  @Setup
+  public void prepare() {
+    final Random random = new Random(1);
+    first = UInt256Bytes.of(new BigInteger(256, random));
+    // A divisor about half the width of the dividend, as is typical of fixed point arithmetic, and
+    // a large exponent that still fits a long.
+    second =
+        UInt256Bytes.of(
+            operation.equals("EXP") ? BigInteger.valueOf(1L << 60) : new BigInteger(128, random));
+    third = UInt256Bytes.of(new BigInteger(200, random));
+  }
+
+  @Benchmark
+  public Bytes32 limbs() {
+    switch (operation) {
+      case "MUL":
+        UInt256Bytes.multiply(first, second, result);
+        break;
+      case "DIV":
+        UInt256Bytes.divide(first, second, result);
+        break;
+      case "MOD":
+        UInt256Bytes.modulo(first, second, result);
+        break;
+      case "ADDMOD":
+        UInt256Bytes.addModulo(first, second, third, result);
+        break;
+      case "MULMOD":
+        UInt256Bytes.multiplyModulo(first, second, third, result);
+        break;
+      default:
+        UInt256Bytes.exponent(first, second, result);
+        break;
+    }
+    return result;
+  }
+
+  @Benchmark
+  public Bytes32 bigInteger() {
+    final BigInteger v0 = BytesValues.asUnsignedBigInteger(first);
+    final BigInteger v1 = BytesValues.asUnsignedBigInteger(second);
+    final BigInteger v2 = BytesValues.asUnsignedBigInteger(third);
+    final BigInteger value;
+    switch (operation) {
+      case "MUL":
+        value = v0.multiply(v1);
+        break;
+      case "DIV":
+        value = v0.divide(v1);
+        break;
+      case "MOD":
+        value = v0.mod(v1);
+        break;
+      case "ADDMOD":
+        value = v0.add(v1).mod(v2);
+        break;
+      case "MULMOD":
+        value = v0.multiply(v1).mod(v2);
+        break;
+      default:
+        value = v0.modPow(v1, P256);
+        break;
+    }
+    return UInt256Bytes.of(value.mod(P256));
+  }
+}
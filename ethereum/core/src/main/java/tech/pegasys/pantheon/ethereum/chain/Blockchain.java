@@ -12,6 +12,8 @@
  */
 package tech.pegasys.pantheon.ethereum.chain;
 
+import static java.util.stream.Collectors.toList;
+
 import tech.pegasys.pantheon.ethereum.core.Block;
 import tech.pegasys.pantheon.ethereum.core.BlockBody;
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
@@ -122,6 +124,40 @@ public interface Blockchain {
    */
   Optional<List<TransactionReceipt>> getTxReceipts(Hash blockHeaderHash);
 
+  /**
+   * Returns the block headers at the given heights on the canonical chain. Implementations may look
+   * them up in batches, which is cheaper than a {@link #getBlockHeader(long)} per block.
+   *
+   * @param blockNumbers The block numbers whose headers we want to retrieve.
+   * @return The block headers corresponding to the block numbers, in the same order.
+   */
+  default List<Optional<BlockHeader>> getBlockHeadersByNumber(final List<Long> blockNumbers) {
+    return blockNumbers.stream().map(this::getBlockHeader).collect(toList());
+  }
+
+  /**
+   * Returns the block bodies for the given block header hashes. Associated blocks are not
+   * necessarily on the canonical chain.
+   *
+   * @param blockHeaderHashes The block header hashes identifying the blocks.
+   * @return The block bodies corresponding to the hashes, in the same order.
+   */
+  default List<Optional<BlockBody>> getBlockBodies(final List<Hash> blockHeaderHashes) {
+    return blockHeaderHashes.stream().map(this::getBlockBody).collect(toList());
+  }
+
+  /**
+   * Returns the transaction receipts for the given block header hashes. Associated blocks are not
+   * necessarily on the canonical chain.
+   *
+   * @param blockHeaderHashes The header hashes of the blocks we're querying.
+   * @return The transaction receipts corresponding to the hashes, in the same order.
+   */
+  default List<Optional<List<TransactionReceipt>>> getTxReceipts(
+      final List<Hash> blockHeaderHashes) {
+    return blockHeaderHashes.stream().map(this::getTxReceipts).collect(toList());
+  }
+
   /**
    * Retrieves the header hash of the block at the given height in the canonical chain.
    *
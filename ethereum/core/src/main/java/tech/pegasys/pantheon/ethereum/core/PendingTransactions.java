@@ -17,35 +17,77 @@ import static java.util.Comparator.comparing;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.OptionalLong;
-import java.util.SortedMap;
-import java.util.SortedSet;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+import com.google.common.util.concurrent.Striped;
 
 /**
  * Holds the current set of pending transactions with the ability to iterate them based on priority
  * for mining or look-up by hash.
  *
- * <p>This class is safe for use across multiple threads.
+ * <p>The transactions of each sender are kept in nonce order. Those with a nonce that follows on
+ * from the nonce of the sender's account at the chain head without a gap are ready to be mined, the
+ * others are queued until the gap is filled. The account nonce is given along with each transaction
+ * and updated as blocks are added, and transactions it has moved past are dropped. Only when a
+ * transaction is added without the account nonce is the lowest pending nonce of the sender taken to
+ * be the next nonce of the account.
+ *
+ * <p>Ready transactions are selected for mining by gas price, highest first, though never ahead of
+ * a transaction from the same sender with a lower nonce. When the pool is full, only the highest
+ * nonce transaction of a sender is evicted, so that the rest of its sequence stays minable. Of
+ * those, queued transactions are evicted before ready ones and the lowest priced before the higher
+ * priced, and transactions received from a local source are only evicted when there is nothing else
+ * left to evict.
+ *
+ * <p>This class is safe for use across multiple threads. The transactions of a sender are guarded
+ * by a lock striped by sender address, so transactions from different senders can mostly be added
+ * and removed concurrently, and selecting transactions for mining doesn't hold any lock while the
+ * transactions are evaluated.
  */
 public class PendingTransactions {
   public static final int MAX_PENDING_TRANSACTIONS = 30_000;
 
-  private final Map<Hash, TransactionInfo> pendingTransactions = new HashMap<>();
-  private final SortedSet<TransactionInfo> prioritizedTransactions =
+  private static final int SENDER_LOCK_STRIPES = 64;
+
+  // The order in which the next transaction of each sender is selected for mining.
+  private static final Comparator<TransactionInfo> MINING_ORDER =
+      comparing(TransactionInfo::isReceivedFromLocalSource)
+          .thenComparing(TransactionInfo::getGasPrice)
+          .thenComparing(TransactionInfo::getSequence)
+          .reversed();
+
+  private final Map<Hash, TransactionInfo> pendingTransactions = new ConcurrentHashMap<>();
+  // The nonce maps are only accessed while holding the lock of their sender.
+  private final Map<Address, NavigableMap<Long, TransactionInfo>> transactionsBySender =
+      new ConcurrentHashMap<>();
+  // The account nonces of the senders with pending transactions, where known. Accessed while
+  // holding the lock of the sender.
+  private final Map<Address, Long> accountNonces = new ConcurrentHashMap<>();
+  private final Striped<Lock> senderLocks = Striped.lock(SENDER_LOCK_STRIPES);
+  // Each sender's candidate is replaced while holding the lock of the sender.
+  private final Map<Address, EvictionCandidate> evictionCandidates = new ConcurrentHashMap<>();
+  // Guarded by its own monitor, which is only ever held briefly and never while taking another
+  // lock.
+  private final NavigableSet<EvictionCandidate> evictionOrder =
       new TreeSet<>(
-          comparing(TransactionInfo::isReceivedFromLocalSource)
-              .thenComparing(TransactionInfo::getSequence)
-              .reversed());
-  private final Map<Address, SortedMap<Long, TransactionInfo>> transactionsBySender =
-      new HashMap<>();
+          comparing(EvictionCandidate::isReceivedFromLocalSource)
+              .thenComparing(EvictionCandidate::isReady)
+              .thenComparing(EvictionCandidate::getGasPrice)
+              .thenComparing(comparing(EvictionCandidate::getSequence).reversed()));
 
   private final Collection<PendingTransactionListener> listeners =
       newSetFromMap(new ConcurrentHashMap<>());
@@ -57,108 +99,272 @@ public class PendingTransactions {
   }
 
   public boolean addRemoteTransaction(final Transaction transaction) {
-    final TransactionInfo transactionInfo = new TransactionInfo(transaction, false);
-    return addTransaction(transactionInfo);
+    return addTransaction(new TransactionInfo(transaction, false), OptionalLong.empty());
+  }
+
+  /**
+   * Adds a transaction received from another node.
+   *
+   * @param transaction the transaction to add
+   * @param accountNonce the nonce of the sender's account at the chain head
+   * @return true if the transaction was added
+   */
+  public boolean addRemoteTransaction(final Transaction transaction, final long accountNonce) {
+    return addTransaction(new TransactionInfo(transaction, false), OptionalLong.of(accountNonce));
   }
 
   boolean addLocalTransaction(final Transaction transaction) {
-    return addTransaction(new TransactionInfo(transaction, true));
+    return addTransaction(new TransactionInfo(transaction, true), OptionalLong.empty());
+  }
+
+  boolean addLocalTransaction(final Transaction transaction, final long accountNonce) {
+    return addTransaction(new TransactionInfo(transaction, true), OptionalLong.of(accountNonce));
+  }
+
+  /**
+   * Updates the nonce of a sender's account after the chain head has changed. Pending transactions
+   * with a lower nonce can no longer be mined, so are removed.
+   *
+   * @param sender the sender whose account nonce changed
+   * @param accountNonce the nonce of the sender's account at the new chain head
+   */
+  public void updateAccountNonce(final Address sender, final long accountNonce) {
+    final Lock lock = senderLocks.get(sender);
+    lock.lock();
+    try {
+      final NavigableMap<Long, TransactionInfo> transactionsForSender =
+          transactionsBySender.get(sender);
+      if (transactionsForSender == null) {
+        return;
+      }
+      accountNonces.put(sender, accountNonce);
+      for (final TransactionInfo transactionInfo :
+          new ArrayList<>(transactionsForSender.headMap(accountNonce, false).values())) {
+        removeTransaction(transactionInfo);
+      }
+      if (transactionsBySender.containsKey(sender)) {
+        classifyTransactions(sender, transactionsForSender);
+        updateEvictionCandidate(sender);
+      }
+    } finally {
+      lock.unlock();
+    }
   }
 
   public void removeTransaction(final Transaction transaction) {
-    synchronized (pendingTransactions) {
-      final TransactionInfo removedTransactionInfo = pendingTransactions.remove(transaction.hash());
-      if (removedTransactionInfo != null) {
-        prioritizedTransactions.remove(removedTransactionInfo);
-        Optional.ofNullable(transactionsBySender.get(transaction.getSender()))
-            .ifPresent(
-                transactionsForSender -> {
-                  transactionsForSender.remove(transaction.getNonce());
-                  if (transactionsForSender.isEmpty()) {
-                    transactionsBySender.remove(transaction.getSender());
-                  }
-                });
+    // Looked up first, so that the sender of transactions that aren't pending isn't recovered.
+    final TransactionInfo transactionInfo = pendingTransactions.get(transaction.hash());
+    if (transactionInfo == null) {
+      return;
+    }
+    final Lock lock = senderLocks.get(transactionInfo.getSender());
+    lock.lock();
+    try {
+      removeTransaction(transactionInfo);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void removeTransaction(final TransactionInfo removedTransactionInfo) {
+    if (pendingTransactions.remove(removedTransactionInfo.getHash(), removedTransactionInfo)) {
+      final NavigableMap<Long, TransactionInfo> transactionsForSender =
+          transactionsBySender.get(removedTransactionInfo.getSender());
+      transactionsForSender.remove(removedTransactionInfo.getNonce());
+      if (transactionsForSender.isEmpty()) {
+        transactionsBySender.remove(removedTransactionInfo.getSender());
+        accountNonces.remove(removedTransactionInfo.getSender());
+      } else if (removedTransactionInfo.isReady()) {
+        // The transactions after the gap are no longer ready.
+        classifyTransactions(removedTransactionInfo.getSender(), transactionsForSender);
       }
+      updateEvictionCandidate(removedTransactionInfo.getSender());
     }
   }
 
   /*
-   * The BlockTransaction selection process (part of block mining) requires synchronised access to
-   * all pendingTransactions - this allows it to iterate over the available transactions without
-   * releasing the lock in between items.
+   * The BlockTransaction selection process (part of block mining) iterates over a snapshot of the
+   * ready transactions of each sender, taken one sender at a time, so transactions can still be
+   * added and removed while the selected transactions are evaluated. Transactions added after the
+   * snapshot was taken are left for the next block.
    *
+   * The next ready transaction of every sender is kept in a heap ordered by gas price, so that the
+   * highest priced transaction that can be executed is always offered next. A sender's next
+   * transaction is only offered once its current one has been selected, as it can't be executed
+   * otherwise.
    */
   public void selectTransactions(final TransactionSelector selector) {
-    synchronized (pendingTransactions) {
-      final Map<Address, AccountTransactionOrder> accountTransactions = new HashMap<>();
-      final List<Transaction> transactionsToRemove = new ArrayList<>();
-      for (final TransactionInfo transactionInfo : prioritizedTransactions) {
-        final AccountTransactionOrder accountTransactionOrder =
-            accountTransactions.computeIfAbsent(
-                transactionInfo.getSender(), this::createSenderTransactionOrder);
-
-        for (final Transaction transactionToProcess :
-            accountTransactionOrder.transactionsToProcess(transactionInfo.getTransaction())) {
-          final TransactionSelectionResult result =
-              selector.evaluateTransaction(transactionToProcess);
-          switch (result) {
-            case DELETE_TRANSACTION_AND_CONTINUE:
-              transactionsToRemove.add(transactionToProcess);
-              break;
-            case CONTINUE:
-              break;
-            case COMPLETE_OPERATION:
-              return;
-            default:
-              throw new RuntimeException("Illegal value for TransactionSelectionResult.");
+    final PriorityQueue<SenderTransactions> senders =
+        new PriorityQueue<>(
+            Math.max(1, transactionsBySender.size()),
+            comparing(SenderTransactions::next, MINING_ORDER));
+    for (final Address sender : transactionsBySender.keySet()) {
+      final List<TransactionInfo> readyTransactions = readyTransactions(sender);
+      if (!readyTransactions.isEmpty()) {
+        senders.add(new SenderTransactions(readyTransactions));
+      }
+    }
+
+    final List<Transaction> transactionsToRemove = new ArrayList<>();
+    selection:
+    while (!senders.isEmpty()) {
+      final SenderTransactions sender = senders.poll();
+      final Transaction transactionToProcess = sender.next().getTransaction();
+      final TransactionSelectionResult result = selector.evaluateTransaction(transactionToProcess);
+      switch (result) {
+        case DELETE_TRANSACTION_AND_CONTINUE:
+          transactionsToRemove.add(transactionToProcess);
+          break;
+        case CONTINUE:
+          if (sender.advance()) {
+            senders.add(sender);
           }
-        }
+          break;
+        case SKIP_SENDER_AND_CONTINUE:
+          break;
+        case COMPLETE_OPERATION:
+          break selection;
+        default:
+          throw new RuntimeException("Illegal value for TransactionSelectionResult.");
       }
-      transactionsToRemove.forEach(this::removeTransaction);
     }
+    transactionsToRemove.forEach(this::removeTransaction);
   }
 
-  private AccountTransactionOrder createSenderTransactionOrder(final Address address) {
-    return new AccountTransactionOrder(
-        transactionsBySender.get(address).values().stream().map(TransactionInfo::getTransaction));
+  private List<TransactionInfo> readyTransactions(final Address sender) {
+    final Lock lock = senderLocks.get(sender);
+    lock.lock();
+    try {
+      final NavigableMap<Long, TransactionInfo> transactionsForSender =
+          transactionsBySender.get(sender);
+      if (transactionsForSender == null) {
+        return Collections.emptyList();
+      }
+      final List<TransactionInfo> readyTransactions = new ArrayList<>();
+      for (final TransactionInfo transactionInfo : transactionsForSender.values()) {
+        if (transactionInfo.isReady()) {
+          readyTransactions.add(transactionInfo);
+        }
+      }
+      return readyTransactions;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  private boolean addTransaction(final TransactionInfo transactionInfo) {
-    synchronized (pendingTransactions) {
+  private boolean addTransaction(
+      final TransactionInfo transactionInfo, final OptionalLong accountNonce) {
+    final Lock lock = senderLocks.get(transactionInfo.getSender());
+    lock.lock();
+    try {
       if (pendingTransactions.containsKey(transactionInfo.getHash())) {
         return false;
       }
 
-      if (!addTransactionForSenderAndNonce(transactionInfo)) {
+      if (!addTransactionForSenderAndNonce(transactionInfo, accountNonce)) {
         return false;
       }
-      prioritizedTransactions.add(transactionInfo);
       pendingTransactions.put(transactionInfo.getHash(), transactionInfo);
+      updateEvictionCandidate(transactionInfo.getSender());
+    } finally {
+      lock.unlock();
+    }
 
-      notifyTransactionAdded(transactionInfo.getTransaction());
-      if (pendingTransactions.size() > maxPendingTransactions) {
-        final TransactionInfo toRemove = prioritizedTransactions.last();
-        removeTransaction(toRemove.getTransaction());
+    evictWhileFull();
+    if (!pendingTransactions.containsKey(transactionInfo.getHash())) {
+      // Everything else in the pool is worth more.
+      return false;
+    }
+    notifyTransactionAdded(transactionInfo.getTransaction());
+    return true;
+  }
+
+  private void evictWhileFull() {
+    while (pendingTransactions.size() > maxPendingTransactions) {
+      final EvictionCandidate candidate;
+      synchronized (evictionOrder) {
+        if (evictionOrder.isEmpty()) {
+          return;
+        }
+        candidate = evictionOrder.first();
+      }
+      final Address sender = candidate.getTransactionInfo().getSender();
+      final Lock lock = senderLocks.get(sender);
+      lock.lock();
+      try {
+        // The sender may have changed since, in which case its new candidate is considered next.
+        if (evictionCandidates.get(sender) == candidate) {
+          removeTransaction(candidate.getTransactionInfo());
+        }
+      } finally {
+        lock.unlock();
       }
-      return true;
     }
   }
 
-  private boolean addTransactionForSenderAndNonce(final TransactionInfo transactionInfo) {
-    final Map<Long, TransactionInfo> transactionsForSender =
-        transactionsBySender.computeIfAbsent(transactionInfo.getSender(), key -> new TreeMap<>());
+  /** Re-indexes the transaction of a sender to evict first, which is the one with highest nonce. */
+  private void updateEvictionCandidate(final Address sender) {
+    final NavigableMap<Long, TransactionInfo> transactionsForSender =
+        transactionsBySender.get(sender);
+    final EvictionCandidate candidate;
+    final EvictionCandidate previousCandidate;
+    if (transactionsForSender == null) {
+      candidate = null;
+      previousCandidate = evictionCandidates.remove(sender);
+    } else {
+      candidate = new EvictionCandidate(transactionsForSender.lastEntry().getValue());
+      previousCandidate = evictionCandidates.put(sender, candidate);
+    }
+    synchronized (evictionOrder) {
+      if (previousCandidate != null) {
+        evictionOrder.remove(previousCandidate);
+      }
+      if (candidate != null) {
+        evictionOrder.add(candidate);
+      }
+    }
+  }
+
+  private boolean addTransactionForSenderAndNonce(
+      final TransactionInfo transactionInfo, final OptionalLong accountNonce) {
     final TransactionInfo existingTransaction =
-        transactionsForSender.get(transactionInfo.getNonce());
+        Optional.ofNullable(transactionsBySender.get(transactionInfo.getSender()))
+            .map(transactionsForSender -> transactionsForSender.get(transactionInfo.getNonce()))
+            .orElse(null);
     if (existingTransaction != null) {
       if (!shouldReplace(existingTransaction, transactionInfo)) {
         return false;
       }
-      removeTransaction(existingTransaction.getTransaction());
+      removeTransaction(existingTransaction);
     }
+    // Looked up again, as removing the last transaction of a sender removes the sender too.
+    final NavigableMap<Long, TransactionInfo> transactionsForSender =
+        transactionsBySender.computeIfAbsent(transactionInfo.getSender(), key -> new TreeMap<>());
     transactionsForSender.put(transactionInfo.getNonce(), transactionInfo);
+    if (accountNonce.isPresent()) {
+      accountNonces.put(transactionInfo.getSender(), accountNonce.getAsLong());
+    }
+    classifyTransactions(transactionInfo.getSender(), transactionsForSender);
     return true;
   }
 
+  /**
+   * Marks the transactions of a sender that follow on from its account nonce without a gap as
+   * ready, and the rest as queued.
+   */
+  private void classifyTransactions(
+      final Address sender, final NavigableMap<Long, TransactionInfo> transactionsForSender) {
+    final Long accountNonce = accountNonces.get(sender);
+    long nextNonce = accountNonce != null ? accountNonce : transactionsForSender.firstKey();
+    for (final TransactionInfo transactionInfo : transactionsForSender.values()) {
+      final boolean ready = transactionInfo.getNonce() == nextNonce;
+      transactionInfo.setReady(ready);
+      if (ready) {
+        nextNonce++;
+      }
+    }
+  }
+
   private boolean shouldReplace(
       final TransactionInfo existingTransaction, final TransactionInfo newTransaction) {
     return newTransaction
@@ -173,30 +379,70 @@ public class PendingTransactions {
   }
 
   public int size() {
-    synchronized (pendingTransactions) {
-      return pendingTransactions.size();
-    }
+    return pendingTransactions.size();
   }
 
   public Optional<Transaction> getTransactionByHash(final Hash transactionHash) {
-    synchronized (pendingTransactions) {
-      return Optional.ofNullable(pendingTransactions.get(transactionHash))
-          .map(TransactionInfo::getTransaction);
-    }
+    return Optional.ofNullable(pendingTransactions.get(transactionHash))
+        .map(TransactionInfo::getTransaction);
   }
 
   public void addTransactionListener(final PendingTransactionListener listener) {
     listeners.add(listener);
   }
 
+  public void removeTransactionListener(final PendingTransactionListener listener) {
+    listeners.remove(listener);
+  }
+
   public OptionalLong getNextNonceForSender(final Address sender) {
-    synchronized (pendingTransactions) {
-      final SortedMap<Long, TransactionInfo> transactionsForSender =
+    final Lock lock = senderLocks.get(sender);
+    lock.lock();
+    try {
+      final NavigableMap<Long, TransactionInfo> transactionsForSender =
           transactionsBySender.get(sender);
       if (transactionsForSender == null) {
         return OptionalLong.empty();
       }
       return OptionalLong.of(transactionsForSender.lastKey() + 1);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param sender the sender to look up
+   * @return the nonce following the sender's transactions that are ready to be mined, or empty if
+   *     none of its transactions are ready
+   */
+  public OptionalLong getNextReadyNonceForSender(final Address sender) {
+    final List<TransactionInfo> readyTransactions = readyTransactions(sender);
+    return readyTransactions.isEmpty()
+        ? OptionalLong.empty()
+        : OptionalLong.of(readyTransactions.get(readyTransactions.size() - 1).getNonce() + 1);
+  }
+
+  /** The ready transactions of a sender that are still to be offered for mining, in nonce order. */
+  private static class SenderTransactions {
+
+    private final Iterator<TransactionInfo> transactions;
+    private TransactionInfo next;
+
+    private SenderTransactions(final List<TransactionInfo> readyTransactions) {
+      this.transactions = readyTransactions.iterator();
+      this.next = transactions.next();
+    }
+
+    private TransactionInfo next() {
+      return next;
+    }
+
+    private boolean advance() {
+      if (!transactions.hasNext()) {
+        return false;
+      }
+      next = transactions.next();
+      return true;
     }
   }
 
@@ -210,6 +456,8 @@ public class PendingTransactions {
     private final Transaction transaction;
     private final boolean receivedFromLocalSource;
     private final long sequence; // Allows prioritization based on order transactions are added
+    // Only accessed while holding the lock of the sender.
+    private boolean ready;
 
     private TransactionInfo(final Transaction transaction, final boolean receivedFromLocalSource) {
       this.transaction = transaction;
@@ -233,18 +481,68 @@ public class PendingTransactions {
       return transaction.getSender();
     }
 
+    public Wei getGasPrice() {
+      return transaction.getGasPrice();
+    }
+
     public boolean isReceivedFromLocalSource() {
       return receivedFromLocalSource;
     }
 
+    public boolean isReady() {
+      return ready;
+    }
+
+    private void setReady(final boolean ready) {
+      this.ready = ready;
+    }
+
     public Hash getHash() {
       return transaction.hash();
     }
   }
 
+  /**
+   * The highest nonce transaction of a sender, which is the only one of its transactions that can
+   * be evicted. Its readiness is captured, as the eviction order must not change while it is
+   * indexed.
+   */
+  private static class EvictionCandidate {
+
+    private final TransactionInfo transactionInfo;
+    private final boolean ready;
+
+    private EvictionCandidate(final TransactionInfo transactionInfo) {
+      this.transactionInfo = transactionInfo;
+      this.ready = transactionInfo.isReady();
+    }
+
+    private TransactionInfo getTransactionInfo() {
+      return transactionInfo;
+    }
+
+    private boolean isReceivedFromLocalSource() {
+      return transactionInfo.isReceivedFromLocalSource();
+    }
+
+    private boolean isReady() {
+      return ready;
+    }
+
+    private Wei getGasPrice() {
+      return transactionInfo.getGasPrice();
+    }
+
+    private long getSequence() {
+      return transactionInfo.getSequence();
+    }
+  }
+
   public enum TransactionSelectionResult {
     DELETE_TRANSACTION_AND_CONTINUE,
     CONTINUE,
+    // The transaction wasn't selected, so nor can the later transactions of its sender be.
+    SKIP_SENDER_AND_CONTINUE,
     COMPLETE_OPERATION
   }
 
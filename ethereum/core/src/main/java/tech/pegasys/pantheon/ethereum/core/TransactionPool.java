@@ -20,6 +20,7 @@ import tech.pegasys.pantheon.ethereum.chain.BlockAddedEvent;
 import tech.pegasys.pantheon.ethereum.chain.BlockAddedObserver;
 import tech.pegasys.pantheon.ethereum.chain.Blockchain;
 import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
+import tech.pegasys.pantheon.ethereum.db.WorldStateArchive;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
 import tech.pegasys.pantheon.ethereum.mainnet.TransactionValidator;
 import tech.pegasys.pantheon.ethereum.mainnet.TransactionValidator.TransactionInvalidReason;
@@ -30,8 +31,14 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import org.apache.logging.log4j.Logger;
 
 /**
@@ -39,34 +46,71 @@ import org.apache.logging.log4j.Logger;
  * removed automatically when they are included in a block on the canonical chain and re-added if a
  * re-org removes them from the canonical chain again.
  *
+ * <p>A transaction may leave a gap of up to {@code maxNonceGap} nonces after the sender's
+ * transactions that are ready to be mined. It is kept as a future transaction until the
+ * transactions filling the gap arrive.
+ *
+ * <p>Transactions are validated against the state of the chain head. The accounts read from that
+ * state are cached until the chain head changes. A node that fast syncs imports blocks without
+ * their world state, so until full sync starts transactions are rejected and the pool only drops
+ * transactions that have been included in blocks.
+ *
  * <p>This class is safe for use across multiple threads.
  */
 public class TransactionPool implements BlockAddedObserver {
   private static final Logger LOG = getLogger();
+  public static final int DEFAULT_MAX_NONCE_GAP = 64;
   private final PendingTransactions pendingTransactions;
   private final ProtocolSchedule<?> protocolSchedule;
   private final ProtocolContext<?> protocolContext;
   private final TransactionBatchAddedListener transactionBatchAddedListener;
+  private final CompletableFuture<Void> fullSyncStarted;
+  private final int maxNonceGap;
+  private volatile ChainHeadState chainHeadState;
 
   public TransactionPool(
       final PendingTransactions pendingTransactions,
       final ProtocolSchedule<?> protocolSchedule,
       final ProtocolContext<?> protocolContext,
       final TransactionBatchAddedListener transactionBatchAddedListener) {
+    this(
+        pendingTransactions,
+        protocolSchedule,
+        protocolContext,
+        transactionBatchAddedListener,
+        CompletableFuture.completedFuture(null),
+        DEFAULT_MAX_NONCE_GAP);
+  }
+
+  public TransactionPool(
+      final PendingTransactions pendingTransactions,
+      final ProtocolSchedule<?> protocolSchedule,
+      final ProtocolContext<?> protocolContext,
+      final TransactionBatchAddedListener transactionBatchAddedListener,
+      final CompletableFuture<Void> fullSyncStarted,
+      final int maxNonceGap) {
     this.pendingTransactions = pendingTransactions;
     this.protocolSchedule = protocolSchedule;
     this.protocolContext = protocolContext;
     this.transactionBatchAddedListener = transactionBatchAddedListener;
+    this.fullSyncStarted = fullSyncStarted;
+    this.maxNonceGap = maxNonceGap;
   }
 
   public ValidationResult<TransactionInvalidReason> addLocalTransaction(
       final Transaction transaction) {
+    if (!isChainHeadStateAvailable()) {
+      return ValidationResult.invalid(
+          TransactionInvalidReason.CHAIN_HEAD_WORLD_STATE_NOT_AVAILABLE);
+    }
     final ValidationResult<TransactionInvalidReason> validationResult =
         validateTransaction(transaction);
 
     validationResult.ifValid(
         () -> {
-          final boolean added = pendingTransactions.addLocalTransaction(transaction);
+          final boolean added =
+              pendingTransactions.addLocalTransaction(
+                  transaction, getAccountNonce(transaction.getSender()));
           if (added) {
             transactionBatchAddedListener.onTransactionsAdded(singletonList(transaction));
           }
@@ -75,12 +119,18 @@ public class TransactionPool implements BlockAddedObserver {
   }
 
   public void addRemoteTransactions(final Collection<Transaction> transactions) {
+    if (!isChainHeadStateAvailable()) {
+      LOG.trace("Discarding {} transactions received before full sync", transactions.size());
+      return;
+    }
     final Set<Transaction> addedTransactions = new HashSet<>();
     for (final Transaction transaction : sortByNonce(transactions)) {
       final ValidationResult<TransactionInvalidReason> validationResult =
           validateTransaction(transaction);
       if (validationResult.isValid()) {
-        final boolean added = pendingTransactions.addRemoteTransaction(transaction);
+        final boolean added =
+            pendingTransactions.addRemoteTransaction(
+                transaction, getAccountNonce(transaction.getSender()));
         if (added) {
           addedTransactions.add(transaction);
         }
@@ -110,13 +160,33 @@ public class TransactionPool implements BlockAddedObserver {
   @Override
   public void onBlockAdded(final BlockAddedEvent event, final Blockchain blockchain) {
     event.getAddedTransactions().forEach(pendingTransactions::removeTransaction);
+    if (!isChainHeadStateAvailable()) {
+      // The block was fast synced, so the accounts needed to update the pool can't be read.
+      return;
+    }
     addRemoteTransactions(event.getRemovedTransactions());
+
+    // Only the accounts of the senders of these transactions have had their nonces changed.
+    final Set<Address> senders = new HashSet<>();
+    event.getAddedTransactions().forEach(transaction -> senders.add(transaction.getSender()));
+    event.getRemovedTransactions().forEach(transaction -> senders.add(transaction.getSender()));
+    senders
+        .stream()
+        .filter(sender -> pendingTransactions.getNextNonceForSender(sender).isPresent())
+        .forEach(sender -> pendingTransactions.updateAccountNonce(sender, getAccountNonce(sender)));
   }
 
-  private TransactionValidator getTransactionValidator() {
-    return protocolSchedule
-        .getByBlockNumber(protocolContext.getBlockchain().getChainHeadBlockNumber())
-        .getTransactionValidator();
+  private boolean isChainHeadStateAvailable() {
+    return fullSyncStarted.isDone();
+  }
+
+  private long getAccountNonce(final Address sender) {
+    final Account account = getChainHeadState().getAccount(sender);
+    return account == null ? 0 : account.getNonce();
+  }
+
+  private TransactionValidator getTransactionValidator(final BlockHeader chainHeadHeader) {
+    return protocolSchedule.getByBlockNumber(chainHeadHeader.getNumber()).getTransactionValidator();
   }
 
   public PendingTransactions getPendingTransactions() {
@@ -125,13 +195,15 @@ public class TransactionPool implements BlockAddedObserver {
 
   private ValidationResult<TransactionInvalidReason> validateTransaction(
       final Transaction transaction) {
+    final ChainHeadState chainHeadState = getChainHeadState();
+    final BlockHeader chainHeadBlockHeader = chainHeadState.getHeader();
+    final TransactionValidator transactionValidator = getTransactionValidator(chainHeadBlockHeader);
     final ValidationResult<TransactionInvalidReason> basicValidationResult =
-        getTransactionValidator().validate(transaction);
+        transactionValidator.validate(transaction);
     if (!basicValidationResult.isValid()) {
       return basicValidationResult;
     }
 
-    final BlockHeader chainHeadBlockHeader = getChainHeadBlockHeader();
     if (transaction.getGasLimit() > chainHeadBlockHeader.getGasLimit()) {
       return ValidationResult.invalid(
           TransactionInvalidReason.EXCEEDS_BLOCK_GAS_LIMIT,
@@ -140,23 +212,56 @@ public class TransactionPool implements BlockAddedObserver {
               transaction.getGasLimit(), chainHeadBlockHeader.getGasLimit()));
     }
 
-    return getTransactionValidator()
-        .validateForSender(
-            transaction,
-            getSenderAccount(transaction, chainHeadBlockHeader),
-            pendingTransactions.getNextNonceForSender(transaction.getSender()));
+    final Address sender = transaction.getSender();
+    final Account account = chainHeadState.getAccount(sender);
+    final long accountNonce = account == null ? 0 : account.getNonce();
+    final long nextReadyNonce =
+        Math.max(accountNonce, pendingTransactions.getNextReadyNonceForSender(sender).orElse(0));
+    return transactionValidator.validateForSender(
+        transaction, account, OptionalLong.of(nextReadyNonce + maxNonceGap));
   }
 
-  private Account getSenderAccount(
-      final Transaction transaction, final BlockHeader chainHeadHeader) {
-    final WorldState worldState =
-        protocolContext.getWorldStateArchive().get(chainHeadHeader.getStateRoot());
-    return worldState.get(transaction.getSender());
+  private ChainHeadState getChainHeadState() {
+    final MutableBlockchain blockchain = protocolContext.getBlockchain();
+    final Hash chainHeadHash = blockchain.getChainHeadHash();
+    final ChainHeadState currentState = chainHeadState;
+    if (currentState != null && currentState.getHeader().getHash().equals(chainHeadHash)) {
+      return currentState;
+    }
+    // Threads racing to replace a stale state each load their own, which is harmless.
+    final BlockHeader chainHeadHeader = blockchain.getBlockHeader(chainHeadHash).get();
+    final ChainHeadState newState =
+        new ChainHeadState(chainHeadHeader, protocolContext.getWorldStateArchive());
+    chainHeadState = newState;
+    return newState;
   }
 
-  private BlockHeader getChainHeadBlockHeader() {
-    final MutableBlockchain blockchain = protocolContext.getBlockchain();
-    return blockchain.getBlockHeader(blockchain.getChainHeadHash()).get();
+  /** The chain head and the accounts read from its world state so far. */
+  private static class ChainHeadState {
+
+    private final BlockHeader header;
+    private final LoadingCache<Address, Optional<Account>> accounts;
+
+    private ChainHeadState(final BlockHeader header, final WorldStateArchive worldStateArchive) {
+      this.header = header;
+      // A world state can't be read from several threads at once, so each lookup reads through a
+      // view of its own. Threads wanting the same account wait for a single lookup.
+      this.accounts =
+          CacheBuilder.newBuilder()
+              .build(
+                  CacheLoader.from(
+                      (final Address address) ->
+                          Optional.ofNullable(
+                              worldStateArchive.get(header.getStateRoot()).get(address))));
+    }
+
+    private BlockHeader getHeader() {
+      return header;
+    }
+
+    private Account getAccount(final Address address) {
+      return accounts.getUnchecked(address).orElse(null);
+    }
   }
 
   public interface TransactionBatchAddedListener {
@@ -41,6 +41,14 @@ public interface BlockchainStorage {
 
   Optional<TransactionLocation> getTransactionLocation(Hash transactionHash);
 
+  List<Optional<BlockHeader>> getBlockHeaders(List<Hash> blockHashes);
+
+  List<Optional<BlockBody>> getBlockBodies(List<Hash> blockHashes);
+
+  List<Optional<List<TransactionReceipt>>> getTransactionReceipts(List<Hash> blockHashes);
+
+  List<Optional<Hash>> getBlockHashes(List<Long> blockNumbers);
+
   Updater updater();
 
   interface Updater {
@@ -18,6 +18,7 @@ import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 
 import tech.pegasys.pantheon.ethereum.chain.BlockAddedEvent;
+import tech.pegasys.pantheon.ethereum.chain.BlockAddedEvent.EventType;
 import tech.pegasys.pantheon.ethereum.chain.BlockAddedObserver;
 import tech.pegasys.pantheon.ethereum.chain.ChainHead;
 import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
@@ -36,58 +37,143 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
+/**
+ * A {@link MutableBlockchain} backed by a {@link BlockchainStorage}.
+ *
+ * <p>The chain head is kept in memory, along with bounded caches of recently used headers and
+ * canonical block numbers, so the most frequent reads don't go to storage. Headers never change
+ * once stored, but the canonical hash at a given number does change on a reorg, so readers only
+ * cache a number if no reorg happened while they were reading it.
+ */
 public class DefaultMutableBlockchain implements MutableBlockchain {
 
+  private static final int HEADER_CACHE_SIZE = 2048;
+  private static final int BLOCK_HASH_CACHE_SIZE = 2048;
+
   private final BlockchainStorage blockchainStorage;
 
   private final Subscribers<BlockAddedObserver> blockAddedObservers = new Subscribers<>();
 
+  private final Cache<Hash, BlockHeader> headerCache =
+      CacheBuilder.newBuilder().maximumSize(HEADER_CACHE_SIZE).build();
+  private final Cache<Long, Hash> blockHashCache =
+      CacheBuilder.newBuilder().maximumSize(BLOCK_HASH_CACHE_SIZE).build();
+  private final AtomicLong reorgCount = new AtomicLong();
+
+  private final AtomicReference<CachedChainHead> cachedChainHead = new AtomicReference<>();
+
   public DefaultMutableBlockchain(
       final Block genesisBlock, final BlockchainStorage blockchainStorage) {
     checkNotNull(genesisBlock);
     this.blockchainStorage = blockchainStorage;
     this.setGenesis(genesisBlock);
+    this.cachedChainHead.set(loadChainHead());
+  }
+
+  private CachedChainHead loadChainHead() {
+    final Hash hash = blockchainStorage.getChainHead().get();
+    return new CachedChainHead(
+        new ChainHead(hash, blockchainStorage.getTotalDifficulty(hash).get()),
+        blockchainStorage.getBlockHeader(hash).get());
   }
 
   @Override
   public ChainHead getChainHead() {
-    return blockchainStorage
-        .getChainHead()
-        .flatMap(h -> blockchainStorage.getTotalDifficulty(h).map(td -> new ChainHead(h, td)))
-        .get();
+    return cachedChainHead.get().chainHead;
   }
 
   @Override
   public Hash getChainHeadHash() {
-    return blockchainStorage.getChainHead().get();
+    return cachedChainHead.get().chainHead.getHash();
   }
 
   @Override
   public long getChainHeadBlockNumber() {
-    // Head should always be set, so we can call get()
-    return blockchainStorage
-        .getChainHead()
-        .flatMap(blockchainStorage::getBlockHeader)
-        .map(BlockHeader::getNumber)
-        .get();
+    return cachedChainHead.get().header.getNumber();
+  }
+
+  @Override
+  public BlockHeader getChainHeadHeader() {
+    return cachedChainHead.get().header;
   }
 
   @Override
   public Optional<BlockHeader> getBlockHeader(final long blockNumber) {
-    return blockchainStorage.getBlockHash(blockNumber).flatMap(blockchainStorage::getBlockHeader);
+    return getBlockHashByNumber(blockNumber).flatMap(this::getBlockHeader);
   }
 
   @Override
   public Optional<BlockHeader> getBlockHeader(final Hash blockHeaderHash) {
-    return blockchainStorage.getBlockHeader(blockHeaderHash);
+    final BlockHeader cached = headerCache.getIfPresent(blockHeaderHash);
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+    final Optional<BlockHeader> header = blockchainStorage.getBlockHeader(blockHeaderHash);
+    header.ifPresent(h -> headerCache.put(blockHeaderHash, h));
+    return header;
+  }
+
+  @Override
+  public List<Optional<BlockHeader>> getBlockHeadersByNumber(final List<Long> blockNumbers) {
+    final long reorgs = reorgCount.get();
+    final List<Optional<Hash>> hashes =
+        getAll(
+            blockNumbers,
+            blockHashCache,
+            blockchainStorage::getBlockHashes,
+            (number, hash) -> cacheBlockHash(number, hash, reorgs));
+    final List<Hash> knownHashes =
+        hashes.stream().filter(Optional::isPresent).map(Optional::get).collect(toList());
+    final Iterator<Optional<BlockHeader>> headers =
+        getAll(knownHashes, headerCache, blockchainStorage::getBlockHeaders, headerCache::put)
+            .iterator();
+    return hashes
+        .stream()
+        .map(hash -> hash.isPresent() ? headers.next() : Optional.<BlockHeader>empty())
+        .collect(toList());
+  }
+
+  /** Looks up the keys in the cache, and loads the ones it doesn't hold in a single batch. */
+  private static <K, V> List<Optional<V>> getAll(
+      final List<K> keys,
+      final Cache<K, V> cache,
+      final Function<List<K>, List<Optional<V>>> loader,
+      final BiConsumer<K, V> cacheLoadedValue) {
+    final List<Optional<V>> values = new ArrayList<>(keys.size());
+    final List<K> missingKeys = new ArrayList<>();
+    final List<Integer> missingIndexes = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      final V cached = cache.getIfPresent(keys.get(i));
+      values.add(Optional.ofNullable(cached));
+      if (cached == null) {
+        missingKeys.add(keys.get(i));
+        missingIndexes.add(i);
+      }
+    }
+    if (!missingKeys.isEmpty()) {
+      final List<Optional<V>> loaded = loader.apply(missingKeys);
+      for (int i = 0; i < missingKeys.size(); i++) {
+        final K key = missingKeys.get(i);
+        loaded.get(i).ifPresent(value -> cacheLoadedValue.accept(key, value));
+        values.set(missingIndexes.get(i), loaded.get(i));
+      }
+    }
+    return values;
   }
 
   @Override
@@ -100,9 +186,35 @@ public class DefaultMutableBlockchain implements MutableBlockchain {
     return blockchainStorage.getTransactionReceipts(blockHeaderHash);
   }
 
+  @Override
+  public List<Optional<BlockBody>> getBlockBodies(final List<Hash> blockHeaderHashes) {
+    return blockchainStorage.getBlockBodies(blockHeaderHashes);
+  }
+
+  @Override
+  public List<Optional<List<TransactionReceipt>>> getTxReceipts(
+      final List<Hash> blockHeaderHashes) {
+    return blockchainStorage.getTransactionReceipts(blockHeaderHashes);
+  }
+
   @Override
   public Optional<Hash> getBlockHashByNumber(final long number) {
-    return blockchainStorage.getBlockHash(number);
+    final Hash cached = blockHashCache.getIfPresent(number);
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+    final long reorgs = reorgCount.get();
+    final Optional<Hash> hash = blockchainStorage.getBlockHash(number);
+    hash.ifPresent(h -> cacheBlockHash(number, h, reorgs));
+    return hash;
+  }
+
+  private void cacheBlockHash(final long number, final Hash hash, final long reorgsBeforeRead) {
+    blockHashCache.put(number, hash);
+    // A reorg may have replaced the hash after we read it, and not see this entry to invalidate it.
+    if (reorgCount.get() != reorgsBeforeRead) {
+      blockHashCache.invalidate(number);
+    }
   }
 
   @Override
@@ -158,6 +270,17 @@ public class DefaultMutableBlockchain implements MutableBlockchain {
     final BlockAddedEvent blockAddedEvent = updateCanonicalChainData(updater, block, td);
 
     updater.commit();
+    headerCache.put(hash, block.getHeader());
+    if (blockAddedEvent.getEventType() == EventType.CHAIN_REORG) {
+      // Readers compare this count before and after caching a block hash, so it must be bumped
+      // before the now stale hashes are dropped.
+      reorgCount.incrementAndGet();
+      blockHashCache.invalidateAll();
+    }
+    if (blockAddedEvent.isNewCanonicalHead()) {
+      blockHashCache.put(block.getHeader().getNumber(), hash);
+      cachedChainHead.set(new CachedChainHead(new ChainHead(hash, td), block.getHeader()));
+    }
 
     return blockAddedEvent;
   }
@@ -193,8 +316,7 @@ public class DefaultMutableBlockchain implements MutableBlockchain {
         updater.setChainHead(newBlockHash);
         indexTransactionForBlock(updater, newBlockHash, newBlock.getBody().getTransactions());
         return BlockAddedEvent.createForHeadAdvancement(newBlock);
-      } else if (totalDifficulty.compareTo(blockchainStorage.getTotalDifficulty(chainHead).get())
-          > 0) {
+      } else if (totalDifficulty.compareTo(getChainHead().getTotalDifficulty()) > 0) {
         // New block represents a chain reorganization
         return handleChainReorg(updater, newBlock);
       } else {
@@ -356,11 +478,11 @@ public class DefaultMutableBlockchain implements MutableBlockchain {
   }
 
   protected boolean blockIsAlreadyTracked(final Block block) {
-    return blockchainStorage.getBlockHeader(block.getHash()).isPresent();
+    return getBlockHeader(block.getHash()).isPresent();
   }
 
   protected boolean blockIsConnected(final Block block) {
-    return blockchainStorage.getBlockHeader(block.getHeader().getParentHash()).isPresent();
+    return getBlockHeader(block.getHeader().getParentHash()).isPresent();
   }
 
   @Override
@@ -382,4 +504,14 @@ public class DefaultMutableBlockchain implements MutableBlockchain {
   private void notifyBlockAdded(final BlockAddedEvent event) {
     blockAddedObservers.forEach(observer -> observer.onBlockAdded(event, this));
   }
+
+  private static class CachedChainHead {
+    private final ChainHead chainHead;
+    private final BlockHeader header;
+
+    private CachedChainHead(final ChainHead chainHead, final BlockHeader header) {
+      this.chainHead = chainHead;
+      this.header = header;
+    }
+  }
 }
@@ -12,6 +12,8 @@
  */
 package tech.pegasys.pantheon.ethereum.db;
 
+import static java.util.stream.Collectors.toList;
+
 import tech.pegasys.pantheon.ethereum.chain.TransactionLocation;
 import tech.pegasys.pantheon.ethereum.core.BlockBody;
 import tech.pegasys.pantheon.ethereum.core.BlockHashFunction;
@@ -30,6 +32,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.google.common.collect.Lists;
 
@@ -102,6 +105,34 @@ public class KeyValueStoragePrefixedKeyBlockchainStorage implements BlockchainSt
         .map(bytesValue -> TransactionLocation.readFrom(RLP.input(bytesValue)));
   }
 
+  @Override
+  public List<Optional<BlockHeader>> getBlockHeaders(final List<Hash> blockHashes) {
+    return getAll(BLOCK_HEADER_PREFIX, blockHashes)
+        .map(o -> o.map(b -> BlockHeader.readFrom(RLP.input(b), blockHashFunction)))
+        .collect(toList());
+  }
+
+  @Override
+  public List<Optional<BlockBody>> getBlockBodies(final List<Hash> blockHashes) {
+    return getAll(BLOCK_BODY_PREFIX, blockHashes)
+        .map(o -> o.map(b -> BlockBody.readFrom(RLP.input(b), blockHashFunction)))
+        .collect(toList());
+  }
+
+  @Override
+  public List<Optional<List<TransactionReceipt>>> getTransactionReceipts(
+      final List<Hash> blockHashes) {
+    return getAll(TRANSACTION_RECEIPTS_PREFIX, blockHashes)
+        .map(o -> o.map(this::rlpDecodeTransactionReceipts))
+        .collect(toList());
+  }
+
+  @Override
+  public List<Optional<Hash>> getBlockHashes(final List<Long> blockNumbers) {
+    final List<BytesValue> keys = blockNumbers.stream().map(UInt256Bytes::of).collect(toList());
+    return getAll(BLOCK_HASH_PREFIX, keys).map(o -> o.map(this::bytesToHash)).collect(toList());
+  }
+
   @Override
   public Updater updater() {
     return new Updater(storage.getStartTransaction());
@@ -119,6 +150,13 @@ public class KeyValueStoragePrefixedKeyBlockchainStorage implements BlockchainSt
     return storage.get(BytesValues.concatenate(prefix, key));
   }
 
+  private Stream<Optional<BytesValue>> getAll(
+      final BytesValue prefix, final List<? extends BytesValue> keys) {
+    return storage
+        .getAll(keys.stream().map(key -> BytesValues.concatenate(prefix, key)).collect(toList()))
+        .stream();
+  }
+
   public static class Updater implements BlockchainStorage.Updater {
 
     private final KeyValueStorage.Transaction transaction;
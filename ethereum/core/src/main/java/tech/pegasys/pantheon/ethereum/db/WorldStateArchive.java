@@ -12,19 +12,43 @@
  */
 package tech.pegasys.pantheon.ethereum.db;
 
+import tech.pegasys.pantheon.ethereum.core.Block;
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
 import tech.pegasys.pantheon.ethereum.core.WorldState;
 import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
 import tech.pegasys.pantheon.ethereum.worldstate.DefaultMutableWorldState;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStatePrefetcher;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStatePrefetcher.Prefetch;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateSnapshot;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.List;
+import java.util.Optional;
 
 public class WorldStateArchive {
   private final WorldStateStorage storage;
+  private final Optional<WorldStateSnapshot> snapshot;
+  private final Optional<WorldStatePrefetcher> prefetcher;
   private static final Hash EMPTY_ROOT_HASH = Hash.wrap(MerklePatriciaTrie.EMPTY_TRIE_ROOT_HASH);
 
   public WorldStateArchive(final WorldStateStorage storage) {
+    this(storage, Optional.empty());
+  }
+
+  public WorldStateArchive(
+      final WorldStateStorage storage, final Optional<WorldStateSnapshot> snapshot) {
+    this(storage, snapshot, Optional.empty());
+  }
+
+  public WorldStateArchive(
+      final WorldStateStorage storage,
+      final Optional<WorldStateSnapshot> snapshot,
+      final Optional<WorldStatePrefetcher> prefetcher) {
     this.storage = storage;
+    this.snapshot = snapshot;
+    this.prefetcher = prefetcher;
   }
 
   public WorldState get(final Hash rootHash) {
@@ -32,7 +56,29 @@ public class WorldStateArchive {
   }
 
   public MutableWorldState getMutable(final Hash rootHash) {
-    return new DefaultMutableWorldState(rootHash, storage);
+    return new DefaultMutableWorldState(rootHash, storage, snapshot);
+  }
+
+  /**
+   * Starts reading the state a block is about to touch in the background, if a prefetcher is
+   * configured.
+   *
+   * @param rootHash the root of the world state the block will be processed on
+   * @param block the block about to be processed
+   * @return a handle that abandons the remaining reads when closed
+   */
+  public Prefetch prefetch(final Hash rootHash, final Block block) {
+    return prefetcher.map(p -> p.prefetch(() -> get(rootHash), block)).orElse(Prefetch.NONE);
+  }
+
+  /**
+   * Looks up trie nodes and code by hash, as requested by peers downloading the world state.
+   *
+   * @param hashes The hashes of the trie nodes or code to look up.
+   * @return the data for each hash, in the same order, empty where it isn't stored
+   */
+  public List<Optional<BytesValue>> getNodeData(final List<Hash> hashes) {
+    return storage.getNodeData(hashes);
   }
 
   public WorldState get() {
@@ -45,6 +45,12 @@ public class BlockHeaderValidator<C> {
         return applyRules(header, parent, protocolContext, Rule::includeInLightValidation);
       case DETACHED_ONLY:
         return applyRules(header, parent, protocolContext, Rule::isDetachedSupported);
+      case LIGHT_DETACHED_ONLY:
+        return applyRules(
+            header,
+            parent,
+            protocolContext,
+            rule -> rule.isDetachedSupported() && rule.includeInLightValidation());
       case SKIP_DETACHED:
         return applyRules(header, parent, protocolContext, rule -> !rule.isDetachedSupported());
       case FULL:
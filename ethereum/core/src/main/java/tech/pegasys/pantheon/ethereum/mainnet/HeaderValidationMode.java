@@ -22,6 +22,9 @@ public enum HeaderValidationMode {
   /** Skip rules that can be applied when the parent is already on the blockchain */
   DETACHED_ONLY,
 
+  /** Skip proof of work validation, as well as rules that need the parent on the blockchain */
+  LIGHT_DETACHED_ONLY,
+
   /** Skip rules that can be applied before the parent is added to the block chain */
   SKIP_DETACHED,
 
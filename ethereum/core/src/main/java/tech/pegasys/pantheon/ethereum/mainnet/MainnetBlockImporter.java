@@ -21,6 +21,7 @@ import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.BlockImporter;
 import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
 import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStatePrefetcher.Prefetch;
 
 import java.util.List;
 import java.util.Optional;
@@ -65,26 +66,32 @@ public class MainnetBlockImporter<C> implements BlockImporter<C> {
     }
     final BlockHeader parentHeader = maybeParentHeader.get();
 
-    if (!blockHeaderValidator.validateHeader(header, parentHeader, context, headerValidationMode)) {
-      return false;
-    }
-
-    final MutableBlockchain blockchain = context.getBlockchain();
-    final MutableWorldState worldState =
-        context.getWorldStateArchive().getMutable(parentHeader.getStateRoot());
-    final BlockProcessor.Result result = blockProcessor.processBlock(blockchain, worldState, block);
-    if (!result.isSuccessful()) {
-      return false;
+    // Warm up the state the block needs while its header is validated and it is processed.
+    try (final Prefetch prefetch =
+        context.getWorldStateArchive().prefetch(parentHeader.getStateRoot(), block)) {
+      if (!blockHeaderValidator.validateHeader(
+          header, parentHeader, context, headerValidationMode)) {
+        return false;
+      }
+
+      final MutableBlockchain blockchain = context.getBlockchain();
+      final MutableWorldState worldState =
+          context.getWorldStateArchive().getMutable(parentHeader.getStateRoot());
+      final BlockProcessor.Result result =
+          blockProcessor.processBlock(blockchain, worldState, block);
+      if (!result.isSuccessful()) {
+        return false;
+      }
+
+      final List<TransactionReceipt> receipts = result.getReceipts();
+      if (!blockBodyValidator.validateBody(
+          context, block, receipts, worldState.rootHash(), ommerValidationMode)) {
+        return false;
+      }
+
+      blockchain.appendBlock(block, receipts);
     }
 
-    final List<TransactionReceipt> receipts = result.getReceipts();
-    if (!blockBodyValidator.validateBody(
-        context, block, receipts, worldState.rootHash(), ommerValidationMode)) {
-      return false;
-    }
-
-    blockchain.appendBlock(block, receipts);
-
     return true;
   }
 
@@ -25,6 +25,7 @@ import tech.pegasys.pantheon.ethereum.core.WorldUpdater;
 import tech.pegasys.pantheon.ethereum.mainnet.TransactionValidator.TransactionInvalidReason;
 import tech.pegasys.pantheon.ethereum.vm.BlockHashLookup;
 import tech.pegasys.pantheon.ethereum.vm.Code;
+import tech.pegasys.pantheon.ethereum.vm.CodeCache;
 import tech.pegasys.pantheon.ethereum.vm.GasCalculator;
 import tech.pegasys.pantheon.ethereum.vm.MessageFrame;
 import tech.pegasys.pantheon.ethereum.vm.OperationTracer;
@@ -120,6 +121,8 @@ public class MainnetTransactionProcessor implements TransactionProcessor {
     }
   }
 
+  private final CodeCache codeCache;
+
   private final boolean clearEmptyAccounts;
 
   public MainnetTransactionProcessor(
@@ -127,11 +130,13 @@ public class MainnetTransactionProcessor implements TransactionProcessor {
       final TransactionValidator transactionValidator,
       final AbstractMessageProcessor contractCreationProcessor,
       final AbstractMessageProcessor messageCallProcessor,
+      final CodeCache codeCache,
       final boolean clearEmptyAccounts) {
     this.gasCalculator = gasCalculator;
     this.transactionValidator = transactionValidator;
     this.contractCreationProcessor = contractCreationProcessor;
     this.messageCallProcessor = messageCallProcessor;
+    this.codeCache = codeCache;
     this.clearEmptyAccounts = clearEmptyAccounts;
   }
 
@@ -235,7 +240,7 @@ public class MainnetTransactionProcessor implements TransactionProcessor {
               .sender(senderAddress)
               .value(transaction.getValue())
               .apparentValue(transaction.getValue())
-              .code(new Code(contract != null ? contract.getCode() : BytesValue.EMPTY))
+              .code(codeCache.getOrCreate(contract))
               .blockHeader(blockHeader)
               .depth(0)
               .completer(c -> {})
@@ -55,6 +55,7 @@ public interface TransactionValidator {
     NONCE_TOO_LOW,
     INCORRECT_NONCE,
     INTRINSIC_GAS_EXCEEDS_GAS_LIMIT,
-    EXCEEDS_BLOCK_GAS_LIMIT
+    EXCEEDS_BLOCK_GAS_LIMIT,
+    CHAIN_HEAD_WORLD_STATE_NOT_AVAILABLE
   }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.storage;
+
+import tech.pegasys.pantheon.ethereum.db.BlockchainStorage;
+import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateSnapshot;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+
+import java.io.Closeable;
+import java.util.Optional;
+
+/** Creates the storage used by each subsystem and owns the resources backing them. */
+public interface StorageProvider extends Closeable {
+
+  BlockchainStorage createBlockchainStorage(ProtocolSchedule<?> protocolSchedule);
+
+  WorldStateStorage createWorldStateStorage();
+
+  /**
+   * Creates the flat world state snapshot, if this provider supports one. A snapshot tracks its
+   * position in memory, so it must only be created once.
+   *
+   * @return the world state snapshot, or empty if not supported
+   */
+  Optional<WorldStateSnapshot> createWorldStateSnapshot();
+
+  /**
+   * Creates the storage fast sync keeps its progress in, so that an interrupted fast sync can be
+   * resumed.
+   *
+   * @return the fast sync storage
+   */
+  KeyValueStorage createFastSyncStorage();
+}
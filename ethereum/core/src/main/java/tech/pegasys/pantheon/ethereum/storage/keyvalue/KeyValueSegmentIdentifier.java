@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.storage.keyvalue;
+
+import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage.AccessPattern;
+import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage.SegmentIdentifier;
+
+public enum KeyValueSegmentIdentifier implements SegmentIdentifier {
+  BLOCKCHAIN("blockchain", AccessPattern.SEQUENTIAL),
+  WORLD_STATE("worldState", AccessPattern.POINT_LOOKUP),
+  WORLD_STATE_SNAPSHOT("worldStateSnapshot", AccessPattern.POINT_LOOKUP),
+  FAST_SYNC("fastSync", AccessPattern.POINT_LOOKUP);
+
+  private final String name;
+  private final AccessPattern accessPattern;
+
+  KeyValueSegmentIdentifier(final String name, final AccessPattern accessPattern) {
+    this.name = name;
+    this.accessPattern = accessPattern;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public AccessPattern getAccessPattern() {
+    return accessPattern;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.storage.keyvalue;
+
+import tech.pegasys.pantheon.ethereum.db.BlockchainStorage;
+import tech.pegasys.pantheon.ethereum.db.KeyValueStoragePrefixedKeyBlockchainStorage;
+import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
+import tech.pegasys.pantheon.ethereum.mainnet.ScheduleBasedBlockHashFunction;
+import tech.pegasys.pantheon.ethereum.storage.StorageProvider;
+import tech.pegasys.pantheon.ethereum.worldstate.KeyValueStorageWorldStateStorage;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateSnapshot;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+
+import java.io.IOException;
+import java.util.Optional;
+
+public class KeyValueStorageProvider implements StorageProvider {
+
+  private final KeyValueStorage blockchainStorage;
+  private final KeyValueStorage worldStateStorage;
+  private final Optional<KeyValueStorage> worldStateSnapshotStorage;
+  private final KeyValueStorage fastSyncStorage;
+
+  public KeyValueStorageProvider(
+      final KeyValueStorage blockchainStorage, final KeyValueStorage worldStateStorage) {
+    this(blockchainStorage, worldStateStorage, Optional.empty());
+  }
+
+  public KeyValueStorageProvider(
+      final KeyValueStorage blockchainStorage,
+      final KeyValueStorage worldStateStorage,
+      final Optional<KeyValueStorage> worldStateSnapshotStorage) {
+    this(
+        blockchainStorage,
+        worldStateStorage,
+        worldStateSnapshotStorage,
+        new InMemoryKeyValueStorage());
+  }
+
+  public KeyValueStorageProvider(
+      final KeyValueStorage blockchainStorage,
+      final KeyValueStorage worldStateStorage,
+      final Optional<KeyValueStorage> worldStateSnapshotStorage,
+      final KeyValueStorage fastSyncStorage) {
+    this.blockchainStorage = blockchainStorage;
+    this.worldStateStorage = worldStateStorage;
+    this.worldStateSnapshotStorage = worldStateSnapshotStorage;
+    this.fastSyncStorage = fastSyncStorage;
+  }
+
+  @Override
+  public BlockchainStorage createBlockchainStorage(final ProtocolSchedule<?> protocolSchedule) {
+    return new KeyValueStoragePrefixedKeyBlockchainStorage(
+        blockchainStorage, ScheduleBasedBlockHashFunction.create(protocolSchedule));
+  }
+
+  @Override
+  public WorldStateStorage createWorldStateStorage() {
+    return new KeyValueStorageWorldStateStorage(worldStateStorage);
+  }
+
+  @Override
+  public Optional<WorldStateSnapshot> createWorldStateSnapshot() {
+    // The snapshot is rebuilt from the tries directly, so it doesn't churn any cache in front of
+    // them.
+    return worldStateSnapshotStorage.map(
+        storage -> new WorldStateSnapshot(storage, createWorldStateStorage()));
+  }
+
+  @Override
+  public KeyValueStorage createFastSyncStorage() {
+    return fastSyncStorage;
+  }
+
+  @Override
+  public void close() throws IOException {
+    blockchainStorage.close();
+    worldStateStorage.close();
+    if (worldStateSnapshotStorage.isPresent()) {
+      worldStateSnapshotStorage.get().close();
+    }
+    fastSyncStorage.close();
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.storage.keyvalue;
+
+import static tech.pegasys.pantheon.ethereum.storage.keyvalue.KeyValueSegmentIdentifier.BLOCKCHAIN;
+import static tech.pegasys.pantheon.ethereum.storage.keyvalue.KeyValueSegmentIdentifier.FAST_SYNC;
+import static tech.pegasys.pantheon.ethereum.storage.keyvalue.KeyValueSegmentIdentifier.WORLD_STATE;
+import static tech.pegasys.pantheon.ethereum.storage.keyvalue.KeyValueSegmentIdentifier.WORLD_STATE_SNAPSHOT;
+
+import tech.pegasys.pantheon.ethereum.storage.StorageProvider;
+import tech.pegasys.pantheon.services.kvstore.ColumnarRocksDbKeyValueStorage;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
+import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage.SegmentIdentifier;
+import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorageAdapter;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class RocksDbStorageProvider {
+  private static final Logger LOG = LogManager.getLogger();
+
+  public static StorageProvider create(
+      final Path databaseDir, final RocksDbConfiguration rocksDbConfiguration) throws IOException {
+    final ColumnarRocksDbKeyValueStorage columnarStorage =
+        ColumnarRocksDbKeyValueStorage.create(
+            Files.createDirectories(databaseDir),
+            Arrays.asList(BLOCKCHAIN, WORLD_STATE, WORLD_STATE_SNAPSHOT, FAST_SYNC),
+            rocksDbConfiguration);
+    final long migrated =
+        columnarStorage.migrateDefaultColumnFamily(
+            RocksDbStorageProvider::segmentForUnsegmentedKey);
+    if (migrated > 0) {
+      LOG.info("Moved {} database entries into the blockchain and world state segments", migrated);
+    }
+    return new KeyValueStorageProvider(
+        new SegmentedKeyValueStorageAdapter<>(BLOCKCHAIN, columnarStorage),
+        new SegmentedKeyValueStorageAdapter<>(WORLD_STATE, columnarStorage),
+        Optional.of(new SegmentedKeyValueStorageAdapter<>(WORLD_STATE_SNAPSHOT, columnarStorage)),
+        new SegmentedKeyValueStorageAdapter<>(FAST_SYNC, columnarStorage));
+  }
+
+  /**
+   * Databases created before storage was segmented keep the blockchain and world state together.
+   * World state entries are keyed by their 32 byte hash, while blockchain keys all start with a one
+   * byte prefix, so none of them are 32 bytes long.
+   */
+  private static SegmentIdentifier segmentForUnsegmentedKey(final BytesValue key) {
+    return key.size() == Bytes32.SIZE ? WORLD_STATE : BLOCKCHAIN;
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm;
+
+import tech.pegasys.pantheon.ethereum.core.Gas;
+
+/**
+ * An operation whose gas cost is fixed by the fork, whatever the state of the frame it executes in.
+ *
+ * <p>Apart from a stack underflow or overflow, a fixed cost operation that doesn't update the
+ * program counter can't halt and doesn't depend on the gas remaining, so the {@link EVM} may charge
+ * the cost of a run of them, and check the stack, before executing any of them.
+ */
+public abstract class AbstractFixedCostOperation extends AbstractOperation {
+
+  private final Gas fixedCost;
+
+  public AbstractFixedCostOperation(
+      final int opcode,
+      final String name,
+      final int stackItemsConsumed,
+      final int stackItemsProduced,
+      final boolean updatesProgramCounter,
+      final int opSize,
+      final GasCalculator gasCalculator,
+      final Gas fixedCost) {
+    super(
+        opcode,
+        name,
+        stackItemsConsumed,
+        stackItemsProduced,
+        updatesProgramCounter,
+        opSize,
+        gasCalculator);
+    this.fixedCost = fixedCost;
+  }
+
+  @Override
+  public final Gas cost(final MessageFrame frame) {
+    return fixedCost;
+  }
+
+  public Gas getFixedCost() {
+    return fixedCost;
+  }
+}
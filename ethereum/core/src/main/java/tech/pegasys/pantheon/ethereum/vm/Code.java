@@ -12,22 +12,39 @@
  */
 package tech.pegasys.pantheon.ethereum.vm;
 
-import tech.pegasys.pantheon.ethereum.vm.operations.JumpDestOperation;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.bytes.MutableBytes32;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
 import java.util.BitSet;
 
 import com.google.common.base.MoreObjects;
 
-/** Represents EVM code associated with an account. */
+/**
+ * Represents EVM code associated with an account.
+ *
+ * <p>The code is analyzed the first time it is needed: the valid jump destinations are found, the
+ * immediate value of every push is decoded and the code is split into basic blocks. The analysis
+ * only depends on the bytes, so a {@link Code} can be shared by every frame executing the same
+ * code, as {@link CodeCache} does.
+ */
 public class Code {
 
+  private static final int JUMP = 0x56;
+  private static final int JUMPI = 0x57;
+  private static final int JUMPDEST = 0x5b;
+  private static final int PUSH1 = 0x60;
+  private static final int PUSH32 = 0x7f;
+
   /** The bytes representing the code. */
   private final BytesValue bytes;
 
-  /** Used to cache valid jump destinations. */
-  private BitSet validJumpDestinations;
+  /** The analyzed form of the code, which is computed on first use. */
+  private volatile Analysis analysis;
+
+  /** The runs of fixed cost operations, as metered by the EVM that last executed the code. */
+  private volatile MeteredCode meteredCode;
 
   /**
    * Public constructor.
@@ -71,36 +88,134 @@ public class Code {
   /**
    * Determine whether a specified destination is a valid jump target.
    *
-   * @param evm the EVM executing this code
    * @param destination The destination we're checking for validity.
    * @return Whether or not this location is a valid jump destination.
    */
-  public boolean isValidJumpDestination(final EVM evm, final UInt256 destination) {
+  public boolean isValidJumpDestination(final UInt256 destination) {
     if (!destination.fitsInt()) return false;
 
     final int jumpDestination = destination.toInt();
     if (jumpDestination > getSize()) return false;
 
-    if (validJumpDestinations == null) {
-      // Calculate valid jump destinations
-      validJumpDestinations = new BitSet(getSize());
-      evm.forEachOperation(
-          this,
-          (final Operation op, final Integer offset) -> {
-            if (op.getOpcode() == JumpDestOperation.OPCODE) {
-              validJumpDestinations.set(offset);
-            }
-          });
+    return analysis().jumpDestinations.get(jumpDestination);
+  }
+
+  /**
+   * Returns the value pushed by the push operation at the specified offset.
+   *
+   * <p>Immediate bytes that run past the end of the code are treated as zeros, so the value of a
+   * truncated push is shifted left as if the code were padded.
+   *
+   * @param offset The offset of a push operation in the code.
+   * @return The value pushed by the operation.
+   * @throws IllegalArgumentException if there is no push operation at the offset
+   */
+  public Bytes32 getPushValue(final int offset) {
+    final Bytes32[] pushValues = analysis().pushValues;
+    if (offset < 0 || offset >= pushValues.length || pushValues[offset] == null) {
+      throw new IllegalArgumentException("No push operation at offset " + offset);
     }
-    return validJumpDestinations.get(jumpDestination);
+    return pushValues[offset];
+  }
+
+  /**
+   * Determine whether a basic block starts at the specified offset.
+   *
+   * <p>Execution only ever enters a basic block at its start and runs to its end, unless it halts.
+   * A block starts at the beginning of the code, at every jump destination, and after every jump,
+   * conditional jump or operation that halts execution.
+   *
+   * @param offset The offset in the code.
+   * @return Whether or not a basic block starts at the offset.
+   */
+  public boolean isBasicBlockStart(final int offset) {
+    return analysis().blockStarts.get(offset);
+  }
+
+  /**
+   * Returns the offset of the first operation after the basic block containing the specified
+   * offset, which is the size of the code for the last block.
+   *
+   * @param offset The offset in the code.
+   * @return The offset the next basic block starts at.
+   */
+  public int getBasicBlockEnd(final int offset) {
+    final int end = analysis().blockStarts.nextSetBit(offset + 1);
+    return end < 0 ? getSize() : end;
   }
 
   public BytesValue getBytes() {
     return bytes;
   }
 
+  MeteredCode getMeteredCode() {
+    return meteredCode;
+  }
+
+  void setMeteredCode(final MeteredCode meteredCode) {
+    this.meteredCode = meteredCode;
+  }
+
+  private Analysis analysis() {
+    Analysis result = analysis;
+    if (result == null) {
+      // Racing threads compute the same analysis, so there is no need to synchronize.
+      result = new Analysis(bytes);
+      analysis = result;
+    }
+    return result;
+  }
+
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this).add("bytes", bytes).toString();
   }
+
+  private static class Analysis {
+    private final BitSet jumpDestinations;
+    private final Bytes32[] pushValues;
+    private final BitSet blockStarts;
+
+    private Analysis(final BytesValue bytes) {
+      final int size = bytes.size();
+      jumpDestinations = new BitSet(size);
+      pushValues = new Bytes32[size];
+      blockStarts = new BitSet(size);
+      blockStarts.set(0);
+
+      int pc = 0;
+      while (pc < size) {
+        final int opcode = bytes.get(pc) & 0xff;
+        if (opcode >= PUSH1 && opcode <= PUSH32) {
+          final int length = opcode - PUSH1 + 1;
+          final int copyLength = Math.min(length, size - pc - 1);
+          final MutableBytes32 value = MutableBytes32.create();
+          bytes.slice(pc + 1, copyLength).copyTo(value, Bytes32.SIZE - length);
+          pushValues[pc] = value;
+          pc += 1 + length;
+          continue;
+        }
+        if (opcode == JUMPDEST) {
+          jumpDestinations.set(pc);
+          blockStarts.set(pc);
+        } else if (opcode == JUMP || opcode == JUMPI || isHalt(opcode)) {
+          blockStarts.set(pc + 1);
+        }
+        pc++;
+      }
+    }
+
+    private static boolean isHalt(final int opcode) {
+      switch (opcode) {
+        case 0x00: // STOP
+        case 0xf3: // RETURN
+        case 0xfd: // REVERT
+        case 0xfe: // INVALID
+        case 0xff: // SELFDESTRUCT
+          return true;
+        default:
+          return false;
+      }
+    }
+  }
 }
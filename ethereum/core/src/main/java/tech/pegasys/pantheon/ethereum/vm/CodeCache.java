@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm;
+
+import tech.pegasys.pantheon.ethereum.core.Account;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.primitives.Ints;
+
+/**
+ * Keeps the analyzed {@link Code} of recently called accounts, so that a popular contract is only
+ * analyzed once rather than on every call to it.
+ *
+ * <p>Code is addressed by its hash, so a cached entry can never become stale. The cache is bounded
+ * by an estimate of the memory its entries retain, as contracts range from a few bytes to over 24KB
+ * and their analysis takes several times the size of the bytes. Each protocol spec has its own
+ * cache, which its transaction processor and call operations share.
+ */
+public class CodeCache {
+
+  public static final long DEFAULT_MAXIMUM_SIZE_IN_BYTES = 32 * 1024 * 1024L;
+
+  // Rough per-entry cost of the cache entry and the key, code, analysis and metered code objects.
+  private static final int ENTRY_OVERHEAD_IN_BYTES = 256;
+
+  // Rough cost of each byte of code once it is analyzed and metered: the byte itself, its slots in
+  // the push value and run tables, its bits in the jump destination and block start sets, and its
+  // share of the push values and runs, assuming a push every few bytes.
+  private static final int RETAINED_BYTES_PER_CODE_BYTE = 32;
+
+  private static final Code EMPTY = new Code();
+
+  private final Cache<Hash, Code> cache;
+
+  public CodeCache(final long maximumSizeInBytes) {
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maximumSizeInBytes)
+            .weigher((final Hash hash, final Code code) -> weigh(code))
+            .build();
+  }
+
+  /**
+   * Returns the code of an account, analyzing and caching it if it isn't cached already.
+   *
+   * @param account The account to get the code of, which may be {@code null} if it doesn't exist.
+   * @return The code of the account, which is empty if it doesn't exist.
+   */
+  public Code getOrCreate(final Account account) {
+    if (account == null) {
+      return EMPTY;
+    }
+    final Hash codeHash = account.getCodeHash();
+    if (codeHash.equals(Hash.EMPTY)) {
+      return EMPTY;
+    }
+    final Code cached = cache.getIfPresent(codeHash);
+    if (cached != null) {
+      return cached;
+    }
+    final Code code = new Code(account.getCode());
+    cache.put(codeHash, code);
+    return code;
+  }
+
+  @VisibleForTesting
+  static int weigh(final Code code) {
+    return Ints.saturatedCast(
+        ENTRY_OVERHEAD_IN_BYTES + (long) code.getSize() * RETAINED_BYTES_PER_CODE_BYTE);
+  }
+}
@@ -19,6 +19,7 @@ import tech.pegasys.pantheon.ethereum.core.Gas;
 import tech.pegasys.pantheon.ethereum.vm.MessageFrame.State;
 import tech.pegasys.pantheon.ethereum.vm.ehalt.ExceptionalHaltException;
 import tech.pegasys.pantheon.ethereum.vm.ehalt.ExceptionalHaltManager;
+import tech.pegasys.pantheon.ethereum.vm.ehalt.StackOverflowExceptionalHaltPredicate;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.util.EnumSet;
@@ -31,21 +32,58 @@ public class EVM {
   private static final Logger LOG = getLogger();
 
   private static final int STOP_OPCODE = 0x00;
+  private static final int INVALID_OPCODE = 0xfe;
+  private static final int MAX_STACK_SIZE = StackOverflowExceptionalHaltPredicate.MAX_STACK_SIZE;
   private final OperationRegistry operations;
   private final Operation invalidOperation;
 
+  // The stack sizes each opcode can execute with, so the untraced path can check them directly.
+  private final int[] minStackSizes = new int[256];
+  private final int[] maxStackSizes = new int[256];
+  // The gas cost of each fixed cost opcode, or -1 if the cost depends on the frame.
+  private final long[] fixedCosts = new long[256];
+
   public EVM(final OperationRegistry operations, final Operation invalidOperation) {
     this.operations = operations;
     this.invalidOperation = invalidOperation;
+    for (int opcode = 0; opcode < 256; opcode++) {
+      final Operation operation = operations.getOrDefault((byte) opcode, invalidOperation);
+      minStackSizes[opcode] = operation.getStackItemsConsumed();
+      maxStackSizes[opcode] = MAX_STACK_SIZE - operation.getStackSizeChange();
+      fixedCosts[opcode] =
+          operation instanceof AbstractFixedCostOperation
+              ? ((AbstractFixedCostOperation) operation).getFixedCost().toLong()
+              : -1;
+    }
   }
 
   public void runToHalt(final MessageFrame frame, final OperationTracer operationTracer)
       throws ExceptionalHaltException {
+    if (operationTracer == OperationTracer.NO_TRACING) {
+      final MeteredCode meteredCode = LOG.isTraceEnabled() ? null : meteredCode(frame.getCode());
+      while (frame.getState() == MessageFrame.State.CODE_EXECUTING) {
+        final MeteredCode.Run run = meteredCode != null ? meteredCode.runAt(frame.getPC()) : null;
+        if (run == null || !run.execute(frame)) {
+          executeNextOperationUntraced(frame);
+        }
+      }
+      return;
+    }
     while (frame.getState() == MessageFrame.State.CODE_EXECUTING) {
       executeNextOperation(frame, operationTracer);
     }
   }
 
+  private MeteredCode meteredCode(final Code code) {
+    MeteredCode meteredCode = code.getMeteredCode();
+    if (meteredCode == null || !meteredCode.isFor(this)) {
+      // The gas costs differ between forks, so code last executed by another EVM is metered again.
+      meteredCode = new MeteredCode(this, code);
+      code.setMeteredCode(meteredCode);
+    }
+    return meteredCode;
+  }
+
   public void forEachOperation(
       final Code code, final BiConsumer<Operation, Integer> operationDelegate) {
     int pc = 0;
@@ -75,6 +113,62 @@ public class EVM {
         });
   }
 
+  /**
+   * Executes the next operation without allocating halt reasons, optional gas costs or a tracing
+   * callback. The halt conditions are checked with primitive comparisons, and only if one of them
+   * may hold is the operation handed to {@link #executeNextOperation(MessageFrame,
+   * OperationTracer)}, which collects the halt reasons and halts as before. The cost of a fixed
+   * cost operation is read from a table rather than from the operation.
+   */
+  private void executeNextOperationUntraced(final MessageFrame frame)
+      throws ExceptionalHaltException {
+    final Operation operation = operationAtOffset(frame.getCode(), frame.getPC());
+    frame.setCurrentOperation(operation);
+
+    final int opcode = operation.getOpcode();
+    final int stackSize = frame.stackSize();
+    if (opcode == INVALID_OPCODE
+        || stackSize < minStackSizes[opcode]
+        || stackSize > maxStackSizes[opcode]) {
+      executeNextOperation(frame, OperationTracer.NO_TRACING);
+      return;
+    }
+    final long cost = fixedCosts[opcode] >= 0 ? fixedCosts[opcode] : variableCost(frame, operation);
+    if (cost < 0 || cost > frame.getRemainingGasAsLong()) {
+      executeNextOperation(frame, OperationTracer.NO_TRACING);
+      return;
+    }
+
+    if (LOG.isTraceEnabled()) {
+      logState(frame, Optional.of(Gas.of(cost)));
+    }
+    frame.decrementRemainingGas(cost);
+    operation.execute(frame);
+    incrementProgramCounter(frame);
+  }
+
+  /**
+   * Calculates the cost of an operation whose cost depends on the frame, checking that it can't
+   * halt.
+   *
+   * @return the cost, or -1 if it can't be calculated or the operation may halt
+   */
+  private long variableCost(final MessageFrame frame, final Operation operation) {
+    final Gas cost;
+    try {
+      cost = operation.cost(frame);
+    } catch (final IllegalArgumentException e) {
+      return -1;
+    }
+    if (cost == null
+        || operation
+            .exceptionalHaltCondition(frame, frame.getExceptionalHaltReasons(), this)
+            .isPresent()) {
+      return -1;
+    }
+    return cost.toLong();
+  }
+
   private void evaluateExceptionalHaltReasons(final MessageFrame frame) {
     final EnumSet<ExceptionalHaltReason> haltReasons =
         ExceptionalHaltManager.evaluateAll(frame, this);
@@ -135,7 +229,7 @@ public class EVM {
     }
   }
 
-  private Operation operationAtOffset(final Code code, final int offset) {
+  Operation operationAtOffset(final Code code, final int offset) {
     final BytesValue bytecode = code.getBytes();
     // If the length of the program code is shorter than the required offset, halt execution.
     if (offset >= bytecode.size()) {
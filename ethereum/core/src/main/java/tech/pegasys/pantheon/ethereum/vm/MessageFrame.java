@@ -27,6 +27,7 @@ import tech.pegasys.pantheon.ethereum.mainnet.AbstractMessageProcessor;
 import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 import tech.pegasys.pantheon.util.uint.UInt256;
+import tech.pegasys.pantheon.util.uint.UInt256Limbs;
 import tech.pegasys.pantheon.util.uint.UInt256Value;
 
 import java.util.Deque;
@@ -186,7 +187,8 @@ public class MessageFrame {
   private State state;
 
   // Machine state fields.
-  private Gas gasRemaining;
+  // Kept as a primitive, as it changes with every operation.
+  private long gasRemaining;
   private final BlockHashLookup blockHashLookup;
   private int pc;
   private final Memory memory;
@@ -250,7 +252,7 @@ public class MessageFrame {
     this.blockchain = blockchain;
     this.messageFrameStack = messageFrameStack;
     this.worldState = worldState;
-    this.gasRemaining = initialGas;
+    this.gasRemaining = initialGas.toLong();
     this.blockHashLookup = blockHashLookup;
     this.pc = 0;
     this.memory = new Memory();
@@ -297,7 +299,7 @@ public class MessageFrame {
 
   /** Deducts the remainging gas. */
   public void clearGasRemaining() {
-    this.gasRemaining = Gas.ZERO;
+    this.gasRemaining = 0;
   }
 
   /**
@@ -306,7 +308,11 @@ public class MessageFrame {
    * @param amount The amount of gas to deduct
    */
   public void decrementRemainingGas(final Gas amount) {
-    this.gasRemaining = gasRemaining.minus(amount);
+    decrementRemainingGas(amount.toLong());
+  }
+
+  void decrementRemainingGas(final long amount) {
+    this.gasRemaining -= amount;
   }
 
   /**
@@ -315,6 +321,10 @@ public class MessageFrame {
    * @return the amount of remaining gas
    */
   public Gas getRemainingGas() {
+    return Gas.of(gasRemaining);
+  }
+
+  long getRemainingGasAsLong() {
     return gasRemaining;
   }
 
@@ -324,7 +334,7 @@ public class MessageFrame {
    * @param amount The amount of gas to increment
    */
   public void incrementRemainingGas(final Gas amount) {
-    this.gasRemaining = gasRemaining.plus(amount);
+    this.gasRemaining = Gas.of(gasRemaining).plus(amount).toLong();
   }
 
   /**
@@ -333,7 +343,7 @@ public class MessageFrame {
    * @param amount The amount of remainging gas
    */
   public void setGasRemaining(final Gas amount) {
-    this.gasRemaining = amount;
+    this.gasRemaining = amount.toLong();
   }
 
   /**
@@ -434,6 +444,45 @@ public class MessageFrame {
     stack.set(offset, value);
   }
 
+  /**
+   * Pushes a copy of the stack item at the specified offset from the top of the stack.
+   *
+   * @param offset The item's position relative to the top of the stack
+   * @throws IllegalStateException if the stack is full
+   */
+  public void dupStackItem(final int offset) {
+    stack.dup(offset);
+  }
+
+  /**
+   * Swaps the item at the top of the stack with the item at the specified offset.
+   *
+   * @param offset The item's position relative to the top of the stack
+   */
+  public void swapStackItem(final int offset) {
+    stack.swap(offset);
+  }
+
+  /**
+   * Replaces the top two stack items by the result of the operation, without materializing them.
+   *
+   * @param operation The operation to apply, with the top item as its first argument
+   * @throws IllegalStateException if the stack holds less than two items
+   */
+  public void applyToStack(final UInt256Limbs.BinaryOperation operation) {
+    stack.apply(operation);
+  }
+
+  /**
+   * Replaces the top three stack items by the result of the operation, without materializing them.
+   *
+   * @param operation The operation to apply, with the top item as its first argument
+   * @throws IllegalStateException if the stack holds less than three items
+   */
+  public void applyToStack(final UInt256Limbs.TernaryOperation operation) {
+    stack.apply(operation);
+  }
+
   /**
    * Return the current stack size.
    *
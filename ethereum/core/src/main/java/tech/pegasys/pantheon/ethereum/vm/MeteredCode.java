@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm;
+
+import tech.pegasys.pantheon.ethereum.vm.ehalt.StackOverflowExceptionalHaltPredicate;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The runs of fixed cost operations in a piece of code, as charged by a particular {@link EVM}.
+ *
+ * <p>A run never crosses the boundary of a basic block, so execution always enters it at its start.
+ * The gas of a run is charged and the stack is checked once, after which its operations execute
+ * back to back. If the run can't be paid for or the stack would underflow or overflow, the EVM
+ * executes the operations one at a time instead, which halts at the same operation as before.
+ *
+ * <p>A push immediately followed by a jump, or by a conditional jump, to a valid destination is
+ * fused into the run: the destination is never pushed and the jump needs no checks.
+ */
+class MeteredCode {
+
+  private static final int JUMP = 0x56;
+  private static final int JUMPI = 0x57;
+  private static final int PUSH1 = 0x60;
+  private static final int PUSH32 = 0x7f;
+  private static final int MAX_STACK_SIZE = StackOverflowExceptionalHaltPredicate.MAX_STACK_SIZE;
+
+  private final EVM evm;
+  private final Run[] runs;
+
+  MeteredCode(final EVM evm, final Code code) {
+    this.evm = evm;
+    this.runs = new Run[code.getSize()];
+
+    final RunBuilder builder = new RunBuilder();
+    int pc = 0;
+    while (pc < code.getSize()) {
+      if (code.isBasicBlockStart(pc)) {
+        builder.build();
+      }
+      final Operation operation = evm.operationAtOffset(code, pc);
+      if (!isFixedCost(operation)) {
+        builder.build();
+        pc += operation.getOpSize();
+        continue;
+      }
+      builder.add(pc, operation);
+      pc += operation.getOpSize();
+
+      final int opcode = operation.getOpcode();
+      if (opcode >= PUSH1 && opcode <= PUSH32 && pc < code.getSize()) {
+        final Operation next = evm.operationAtOffset(code, pc);
+        final Bytes32 destination = code.getPushValue(builder.lastOffset());
+        if ((next.getOpcode() == JUMP || next.getOpcode() == JUMPI)
+            && code.isValidJumpDestination(destination.asUInt256())) {
+          builder.fuseJump(next, destination.asUInt256().toInt());
+          builder.build();
+          pc += next.getOpSize();
+        }
+      }
+    }
+    builder.build();
+  }
+
+  private static boolean isFixedCost(final Operation operation) {
+    return operation instanceof AbstractFixedCostOperation && !operation.getUpdatesProgramCounter();
+  }
+
+  boolean isFor(final EVM evm) {
+    return this.evm == evm;
+  }
+
+  /**
+   * Returns the run starting at an offset.
+   *
+   * @param offset The offset in the code.
+   * @return The run starting at the offset, or {@code null} if none does.
+   */
+  Run runAt(final int offset) {
+    return offset < runs.length ? runs[offset] : null;
+  }
+
+  private class RunBuilder {
+    private final List<Operation> operations = new ArrayList<>();
+    private final List<Integer> offsets = new ArrayList<>();
+    private long gas;
+    private int stackChange;
+    private int minStackSize;
+    private int maxStackSize = MAX_STACK_SIZE;
+    private Operation jump;
+    private int jumpDestination;
+    private int start;
+    private int end;
+
+    private void add(final int offset, final Operation operation) {
+      if (operations.isEmpty()) {
+        start = offset;
+      }
+      operations.add(operation);
+      offsets.add(offset);
+      gas += ((AbstractFixedCostOperation) operation).getFixedCost().toLong();
+      minStackSize = Math.max(minStackSize, operation.getStackItemsConsumed() - stackChange);
+      stackChange += operation.getStackSizeChange();
+      maxStackSize = Math.min(maxStackSize, MAX_STACK_SIZE - stackChange);
+      end = offset + operation.getOpSize();
+    }
+
+    private int lastOffset() {
+      return offsets.get(offsets.size() - 1);
+    }
+
+    private void fuseJump(final Operation jump, final int destination) {
+      // The push is folded into the jump, which only needs its condition from the stack.
+      final Operation push = operations.remove(operations.size() - 1);
+      offsets.remove(offsets.size() - 1);
+      stackChange -= push.getStackSizeChange();
+      if (jump.getOpcode() == JUMPI) {
+        minStackSize = Math.max(minStackSize, 1 - stackChange);
+      }
+      this.jump = jump;
+      this.jumpDestination = destination;
+      end += jump.getOpSize();
+    }
+
+    private void build() {
+      if (operations.size() > 1 || jump != null) {
+        runs[start] =
+            new Run(
+                operations.toArray(new Operation[0]),
+                offsets.stream().mapToInt(Integer::intValue).toArray(),
+                gas,
+                minStackSize,
+                maxStackSize,
+                jump,
+                jumpDestination,
+                end);
+      }
+      operations.clear();
+      offsets.clear();
+      gas = 0;
+      stackChange = 0;
+      minStackSize = 0;
+      maxStackSize = MAX_STACK_SIZE;
+      jump = null;
+    }
+  }
+
+  static class Run {
+    private final Operation[] operations;
+    private final int[] offsets;
+    private final long gas;
+    private final int minStackSize;
+    private final int maxStackSize;
+    private final Operation jump;
+    private final int jumpDestination;
+    private final int end;
+
+    private Run(
+        final Operation[] operations,
+        final int[] offsets,
+        final long gas,
+        final int minStackSize,
+        final int maxStackSize,
+        final Operation jump,
+        final int jumpDestination,
+        final int end) {
+      this.operations = operations;
+      this.offsets = offsets;
+      this.gas = gas;
+      this.minStackSize = minStackSize;
+      this.maxStackSize = maxStackSize;
+      this.jump = jump;
+      this.jumpDestination = jumpDestination;
+      this.end = end;
+    }
+
+    /**
+     * Executes the run if it can complete without halting.
+     *
+     * @param frame The frame to execute the run in.
+     * @return Whether or not the run was executed.
+     */
+    boolean execute(final MessageFrame frame) {
+      final int stackSize = frame.stackSize();
+      if (stackSize < minStackSize || stackSize > maxStackSize) {
+        return false;
+      }
+      final long cost = jump == null ? gas : gas + jump.cost(frame).toLong();
+      if (cost > frame.getRemainingGasAsLong()) {
+        return false;
+      }
+
+      frame.decrementRemainingGas(cost);
+      for (int i = 0; i < operations.length; i++) {
+        frame.setPC(offsets[i]);
+        operations[i].execute(frame);
+      }
+      if (jump == null) {
+        frame.setPC(end);
+      } else if (jump.getOpcode() == JUMP || !frame.popStackItem().isZero()) {
+        frame.setPC(jumpDestination);
+      } else {
+        frame.setPC(end);
+      }
+      return true;
+    }
+  }
+}
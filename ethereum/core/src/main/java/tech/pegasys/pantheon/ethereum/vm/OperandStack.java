@@ -15,6 +15,7 @@ package tech.pegasys.pantheon.ethereum.vm;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.uint.UInt256Limbs;
 
 /**
  * An operand stack for the Ethereum Virtual machine (EVM).
@@ -83,6 +84,43 @@ public interface OperandStack {
    */
   void set(int index, Bytes32 operand);
 
+  /**
+   * Pushes a copy of the operand located at the offset from the top of the stack.
+   *
+   * @param offset the position relative to the top of the stack of the operand to copy
+   * @throws IndexOutOfBoundsException if the offset is out of range (offset &lt; 0 || offset &gt;=
+   *     {@link #size()})
+   * @throws IllegalStateException when the stack is at capacity (e.g. a stack overflow occurs)
+   */
+  void dup(int offset);
+
+  /**
+   * Swaps the operand at the top of the stack with the operand at the offset.
+   *
+   * @param offset the position relative to the top of the stack of the operand to swap with
+   * @throws IndexOutOfBoundsException if the offset is out of range (offset &lt; 1 || offset &gt;=
+   *     {@link #size()})
+   */
+  void swap(int offset);
+
+  /**
+   * Replaces the top two operands by the result of the operation, with the top operand as its first
+   * argument.
+   *
+   * @param operation the operation to apply
+   * @throws IllegalStateException if the stack holds less than two operands
+   */
+  void apply(UInt256Limbs.BinaryOperation operation);
+
+  /**
+   * Replaces the top three operands by the result of the operation, with the top operand as its
+   * first argument.
+   *
+   * @param operation the operation to apply
+   * @throws IllegalStateException if the stack holds less than three operands
+   */
+  void apply(UInt256Limbs.TernaryOperation operation);
+
   /**
    * Returns the current number of operands in the stack.
    *
@@ -12,19 +12,30 @@
  */
 package tech.pegasys.pantheon.ethereum.vm;
 
+import static tech.pegasys.pantheon.util.uint.UInt256Limbs.LIMBS;
+
 import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.MutableBytes32;
+import tech.pegasys.pantheon.util.uint.UInt256Limbs;
 
 import java.util.Arrays;
 
 /**
- * An {@link OperandStack} implementations whose capacity is pre-allocated.
+ * An {@link OperandStack} implementations whose capacity is bounded.
+ *
+ * <p>The {@code PreAllocatedOperandStack} starts with room for a few operands and doubles its
+ * internal storage as needed, up to the max number it is capable of storing. Few contracts use more
+ * than a small part of the stack, and a stack is created for every message call.
  *
- * <p>The {@code PreAllocatedOperandStack} pre-allocates its internal storage to hold the max number
- * it is capable of storing.
+ * <p>Operands are stored as the {@link UInt256Limbs limbs} of a single array rather than as
+ * individual objects, so that pushing an operand copies it instead of retaining it, and operations
+ * applied through {@link #apply(UInt256Limbs.BinaryOperation)} don't allocate at all.
  */
 public class PreAllocatedOperandStack implements OperandStack {
 
-  private final Bytes32[] entries;
+  static final int INITIAL_CAPACITY = 16;
+
+  private long[] limbs;
 
   private final int maxSize;
 
@@ -35,7 +46,7 @@ public class PreAllocatedOperandStack implements OperandStack {
       throw new IllegalArgumentException(
           String.format("max size (%d) must be non-negative", maxSize));
     }
-    this.entries = new Bytes32[maxSize];
+    this.limbs = new long[Math.min(maxSize, INITIAL_CAPACITY) * LIMBS];
     this.maxSize = maxSize;
     this.top = -1;
   }
@@ -46,7 +57,7 @@ public class PreAllocatedOperandStack implements OperandStack {
       throw new IndexOutOfBoundsException();
     }
 
-    return entries[top - offset];
+    return read(top - offset);
   }
 
   @Override
@@ -55,18 +66,30 @@ public class PreAllocatedOperandStack implements OperandStack {
       throw new IllegalStateException("operand stack underflow");
     }
 
-    final Bytes32 removed = entries[top];
-    entries[top--] = null;
-    return removed;
+    return read(top--);
+  }
+
+  @Override
+  public void bulkPop(final int items) {
+    if (items < 0) {
+      throw new IllegalArgumentException(
+          String.format("requested number of items to bulk pop (%d) is negative", items));
+    }
+    if (items == 0) {
+      throw new IllegalArgumentException("number of items to pop must be greater than 0");
+    }
+    if (items > size()) {
+      throw new IllegalStateException(
+          String.format("requested to bulk pop %d items off a stack of size %d", items, size()));
+    }
+    top -= items;
   }
 
   @Override
   public void push(final Bytes32 operand) {
     final int nextTop = top + 1;
-    if (nextTop == maxSize) {
-      throw new IllegalStateException("operand stack overflow");
-    }
-    entries[nextTop] = operand;
+    ensureCapacity(nextTop);
+    UInt256Limbs.fromBytes(operand, limbs, nextTop * LIMBS);
     top = nextTop;
   }
 
@@ -76,7 +99,52 @@ public class PreAllocatedOperandStack implements OperandStack {
       throw new IndexOutOfBoundsException();
     }
 
-    entries[top - offset] = operand;
+    UInt256Limbs.fromBytes(operand, limbs, (top - offset) * LIMBS);
+  }
+
+  @Override
+  public void dup(final int offset) {
+    if (offset < 0 || offset >= size()) {
+      throw new IndexOutOfBoundsException();
+    }
+    final int nextTop = top + 1;
+    ensureCapacity(nextTop);
+    System.arraycopy(limbs, (top - offset) * LIMBS, limbs, nextTop * LIMBS, LIMBS);
+    top = nextTop;
+  }
+
+  @Override
+  public void swap(final int offset) {
+    if (offset < 1 || offset >= size()) {
+      throw new IndexOutOfBoundsException();
+    }
+    final int i = top * LIMBS;
+    final int j = (top - offset) * LIMBS;
+    for (int k = 0; k < LIMBS; k++) {
+      final long tmp = limbs[i + k];
+      limbs[i + k] = limbs[j + k];
+      limbs[j + k] = tmp;
+    }
+  }
+
+  @Override
+  public void apply(final UInt256Limbs.BinaryOperation operation) {
+    if (top < 1) {
+      throw new IllegalStateException("operand stack underflow");
+    }
+    final int second = (top - 1) * LIMBS;
+    operation.apply(limbs, top * LIMBS, limbs, second, limbs, second);
+    top--;
+  }
+
+  @Override
+  public void apply(final UInt256Limbs.TernaryOperation operation) {
+    if (top < 2) {
+      throw new IllegalStateException("operand stack underflow");
+    }
+    final int third = (top - 2) * LIMBS;
+    operation.apply(limbs, top * LIMBS, limbs, (top - 1) * LIMBS, limbs, third, limbs, third);
+    top -= 2;
   }
 
   @Override
@@ -84,6 +152,21 @@ public class PreAllocatedOperandStack implements OperandStack {
     return top + 1;
   }
 
+  private void ensureCapacity(final int index) {
+    if (index == maxSize) {
+      throw new IllegalStateException("operand stack overflow");
+    }
+    if (index * LIMBS == limbs.length) {
+      limbs = Arrays.copyOf(limbs, Math.min(index * 2, maxSize) * LIMBS);
+    }
+  }
+
+  private Bytes32 read(final int index) {
+    final MutableBytes32 operand = MutableBytes32.create();
+    UInt256Limbs.toBytes(limbs, index * LIMBS, operand);
+    return operand;
+  }
+
   @Override
   public String toString() {
     final StringBuilder builder = new StringBuilder();
@@ -95,7 +178,11 @@ public class PreAllocatedOperandStack implements OperandStack {
 
   @Override
   public int hashCode() {
-    return Arrays.hashCode(entries);
+    int result = 1;
+    for (int i = 0; i < size() * LIMBS; i++) {
+      result = 31 * result + Long.hashCode(limbs[i]);
+    }
+    return result;
   }
 
   @Override
@@ -105,6 +192,14 @@ public class PreAllocatedOperandStack implements OperandStack {
     }
 
     final PreAllocatedOperandStack that = (PreAllocatedOperandStack) other;
-    return Arrays.deepEquals(this.entries, that.entries);
+    if (this.maxSize != that.maxSize || this.top != that.top) {
+      return false;
+    }
+    for (int i = 0; i < size() * LIMBS; i++) {
+      if (this.limbs[i] != that.limbs[i]) {
+        return false;
+      }
+    }
+    return true;
   }
 }
@@ -17,6 +17,7 @@ import tech.pegasys.pantheon.ethereum.core.Address;
 import tech.pegasys.pantheon.ethereum.core.Gas;
 import tech.pegasys.pantheon.ethereum.core.Wei;
 import tech.pegasys.pantheon.ethereum.vm.AbstractCallOperation;
+import tech.pegasys.pantheon.ethereum.vm.CodeCache;
 import tech.pegasys.pantheon.ethereum.vm.GasCalculator;
 import tech.pegasys.pantheon.ethereum.vm.MessageFrame;
 import tech.pegasys.pantheon.ethereum.vm.Words;
@@ -24,8 +25,8 @@ import tech.pegasys.pantheon.util.uint.UInt256;
 
 public class DelegateCallOperation extends AbstractCallOperation {
 
-  public DelegateCallOperation(final GasCalculator gasCalculator) {
-    super(0xF4, "DELEGATECALL", 6, 1, false, 1, gasCalculator);
+  public DelegateCallOperation(final GasCalculator gasCalculator, final CodeCache codeCache) {
+    super(0xF4, "DELEGATECALL", 6, 1, false, 1, gasCalculator, codeCache);
   }
 
   @Override
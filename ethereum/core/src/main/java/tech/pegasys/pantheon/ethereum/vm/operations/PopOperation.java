@@ -12,24 +12,18 @@
  */
 package tech.pegasys.pantheon.ethereum.vm.operations;
 
-import tech.pegasys.pantheon.ethereum.core.Gas;
-import tech.pegasys.pantheon.ethereum.vm.AbstractOperation;
+import tech.pegasys.pantheon.ethereum.vm.AbstractFixedCostOperation;
 import tech.pegasys.pantheon.ethereum.vm.GasCalculator;
 import tech.pegasys.pantheon.ethereum.vm.MessageFrame;
 
-public class PopOperation extends AbstractOperation {
+public class PopOperation extends AbstractFixedCostOperation {
 
   public PopOperation(final GasCalculator gasCalculator) {
-    super(0x50, "POP", 1, 0, false, 1, gasCalculator);
-  }
-
-  @Override
-  public Gas cost(final MessageFrame frame) {
-    return gasCalculator().getBaseTierGasCost();
+    super(0x50, "POP", 1, 0, false, 1, gasCalculator, gasCalculator.getBaseTierGasCost());
   }
 
   @Override
   public void execute(final MessageFrame frame) {
-    frame.popStackItem();
+    frame.popStackItems(1);
   }
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Iterators;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A {@link WorldStateStorage} that keeps recently used trie nodes in memory.
+ *
+ * <p>Trie nodes are addressed by the hash of their content, so a cached node can never become
+ * stale. The cache is bounded by the approximate number of bytes it holds rather than by the number
+ * of nodes, as nodes range from a few bytes to over 500 for a full branch. Nodes written through
+ * {@link #updater()} are added to the cache once they are committed, and nodes removed by {@link
+ * #prune(Predicate)} are dropped from it, so that a pruned state doesn't look available.
+ *
+ * <p>The underlying storage deletes pruned nodes in batches, so a lookup racing the prune can cache
+ * a node after it was dropped but before its deletion is committed. Once pruning completes, cached
+ * nodes that are no longer stored are therefore dropped again, and lookups that overlapped a prune
+ * don't leave their node in the cache. The cache's hit rate is logged after each prune.
+ */
+public class CachingWorldStateStorage implements WorldStateStorage {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  public static final long DEFAULT_MAXIMUM_SIZE_IN_BYTES = 128 * 1024 * 1024L;
+
+  // Rough per-entry cost of the cache entry, the key and value objects and their array headers.
+  private static final int ENTRY_OVERHEAD_IN_BYTES = 96;
+  private static final int PRUNED_NODE_CHECK_BATCH_SIZE = 1000;
+
+  private final WorldStateStorage storage;
+  private final Cache<Bytes32, BytesValue> nodeCache;
+  // Changes when a prune starts and when it completes.
+  private final AtomicLong pruneGeneration = new AtomicLong();
+
+  public CachingWorldStateStorage(final WorldStateStorage storage) {
+    this(storage, DEFAULT_MAXIMUM_SIZE_IN_BYTES);
+  }
+
+  public CachingWorldStateStorage(final WorldStateStorage storage, final long maximumSizeInBytes) {
+    this.storage = storage;
+    this.nodeCache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maximumSizeInBytes)
+            .weigher(
+                (final Bytes32 hash, final BytesValue node) ->
+                    ENTRY_OVERHEAD_IN_BYTES + hash.size() + node.size())
+            .recordStats()
+            .build();
+  }
+
+  @Override
+  public Optional<BytesValue> getCode(final Hash codeHash) {
+    return storage.getCode(codeHash);
+  }
+
+  @Override
+  public Optional<BytesValue> getAccountStateTrieNode(final Bytes32 nodeHash) {
+    return getNode(nodeHash, storage::getAccountStateTrieNode);
+  }
+
+  @Override
+  public Optional<BytesValue> getAccountStorageTrieNode(final Bytes32 nodeHash) {
+    return getNode(nodeHash, storage::getAccountStorageTrieNode);
+  }
+
+  private Optional<BytesValue> getNode(
+      final Bytes32 nodeHash, final Function<Bytes32, Optional<BytesValue>> loader) {
+    final BytesValue cached = nodeCache.getIfPresent(nodeHash);
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+    final long generation = pruneGeneration.get();
+    final Optional<BytesValue> node = loader.apply(nodeHash);
+    node.ifPresent(
+        value -> {
+          nodeCache.put(nodeHash, value);
+          if (pruneGeneration.get() != generation) {
+            // The node may have been pruned since it was loaded.
+            nodeCache.invalidate(nodeHash);
+          }
+        });
+    return node;
+  }
+
+  @Override
+  public List<Optional<BytesValue>> getNodeData(final List<Hash> hashes) {
+    // Data read on behalf of peers bypasses the cache, so serving it can't evict the nodes we use
+    // or skew the cache statistics.
+    return storage.getNodeData(hashes);
+  }
+
+  @Override
+  public Updater updater() {
+    return new CachingUpdater(storage.updater());
+  }
+
+  @Override
+  public long prune(final Predicate<BytesValue> inUseCheck) {
+    pruneGeneration.incrementAndGet();
+    try {
+      return storage.prune(
+          key -> {
+            if (inUseCheck.test(key)) {
+              return true;
+            }
+            if (key.size() == Bytes32.SIZE) {
+              nodeCache.invalidate(Bytes32.wrap(key, 0));
+            }
+            return false;
+          });
+    } finally {
+      pruneGeneration.incrementAndGet();
+      invalidateRemovedNodes();
+      logCacheStats();
+    }
+  }
+
+  private void logCacheStats() {
+    final CacheStats stats = nodeCache.stats();
+    LOG.info(
+        "World state node cache: {} of {} lookups served from memory, {} nodes cached",
+        stats.hitCount(),
+        stats.requestCount(),
+        nodeCache.size());
+  }
+
+  private void invalidateRemovedNodes() {
+    final Iterator<List<Bytes32>> batches =
+        Iterators.partition(nodeCache.asMap().keySet().iterator(), PRUNED_NODE_CHECK_BATCH_SIZE);
+    while (batches.hasNext()) {
+      final List<Hash> hashes =
+          batches.next().stream().map(Hash::wrap).collect(Collectors.toList());
+      final List<Optional<BytesValue>> nodes = storage.getNodeData(hashes);
+      for (int i = 0; i < hashes.size(); i++) {
+        if (!nodes.get(i).isPresent()) {
+          nodeCache.invalidate(hashes.get(i));
+        }
+      }
+    }
+  }
+
+  @Override
+  public long addNodeAddedListener(final NodesAddedListener listener) {
+    return storage.addNodeAddedListener(listener);
+  }
+
+  @Override
+  public void removeNodeAddedListener(final long id) {
+    storage.removeNodeAddedListener(id);
+  }
+
+  /** @return the number of trie node lookups answered from memory */
+  public long getHitCount() {
+    return nodeCache.stats().hitCount();
+  }
+
+  /** @return the number of trie node lookups that had to go to the underlying storage */
+  public long getMissCount() {
+    return nodeCache.stats().missCount();
+  }
+
+  private class CachingUpdater implements Updater {
+
+    private final Updater updater;
+    private final Map<Bytes32, BytesValue> pendingNodes = new HashMap<>();
+
+    private CachingUpdater(final Updater updater) {
+      this.updater = updater;
+    }
+
+    @Override
+    public void putCode(final BytesValue code) {
+      updater.putCode(code);
+    }
+
+    @Override
+    public void putAccountStateTrieNode(final Bytes32 nodeHash, final BytesValue node) {
+      updater.putAccountStateTrieNode(nodeHash, node);
+      pendingNodes.put(nodeHash, node);
+    }
+
+    @Override
+    public void putAccountStorageTrieNode(final Bytes32 nodeHash, final BytesValue node) {
+      updater.putAccountStorageTrieNode(nodeHash, node);
+      pendingNodes.put(nodeHash, node);
+    }
+
+    @Override
+    public void commit() {
+      updater.commit();
+      nodeCache.putAll(pendingNodes);
+      pendingNodes.clear();
+    }
+
+    @Override
+    public void rollback() {
+      updater.rollback();
+      pendingNodes.clear();
+    }
+  }
+}
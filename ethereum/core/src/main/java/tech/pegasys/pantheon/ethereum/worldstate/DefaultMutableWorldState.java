@@ -38,6 +38,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class DefaultMutableWorldState implements MutableWorldState {
@@ -46,7 +47,16 @@ public class DefaultMutableWorldState implements MutableWorldState {
   private final Map<Address, MerklePatriciaTrie<Bytes32, BytesValue>> updatedStorageTries =
       new HashMap<>();
   private final Map<Address, BytesValue> updatedAccountCode = new HashMap<>();
+  // Accounts whose storage trie was modified. They are only written to the account trie once the
+  // root hash is needed, so the storage roots are hashed once per block rather than once per
+  // transaction, and all of them concurrently.
+  private final Map<Address, PendingAccount> pendingAccounts = new HashMap<>();
   private final WorldStateStorage worldStateStorage;
+  private final Optional<WorldStateSnapshot> snapshot;
+  // The root this world state was created at or last persisted to, and the accounts changed since.
+  // Accounts that haven't changed can be read from the snapshot when it is at this root.
+  private Hash baseRootHash;
+  private final Map<Hash, WorldStateSnapshot.AccountUpdate> snapshotUpdates = new HashMap<>();
 
   public DefaultMutableWorldState(final WorldStateStorage storage) {
     this(MerklePatriciaTrie.EMPTY_TRIE_ROOT_HASH, storage);
@@ -54,7 +64,16 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
   public DefaultMutableWorldState(
       final Bytes32 rootHash, final WorldStateStorage worldStateStorage) {
+    this(rootHash, worldStateStorage, Optional.empty());
+  }
+
+  public DefaultMutableWorldState(
+      final Bytes32 rootHash,
+      final WorldStateStorage worldStateStorage,
+      final Optional<WorldStateSnapshot> snapshot) {
     this.worldStateStorage = worldStateStorage;
+    this.snapshot = snapshot;
+    this.baseRootHash = Hash.wrap(rootHash);
     this.accountStateTrie = newAccountStateTrie(rootHash);
   }
 
@@ -68,7 +87,9 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
     final DefaultMutableWorldState other = (DefaultMutableWorldState) worldState;
     this.worldStateStorage = other.worldStateStorage;
-    this.accountStateTrie = newAccountStateTrie(other.accountStateTrie.getRootHash());
+    this.snapshot = other.snapshot;
+    this.baseRootHash = other.rootHash();
+    this.accountStateTrie = newAccountStateTrie(baseRootHash);
   }
 
   private MerklePatriciaTrie<Bytes32, BytesValue> newAccountStateTrie(final Bytes32 rootHash) {
@@ -83,25 +104,78 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
   @Override
   public Hash rootHash() {
+    resolvePendingAccounts();
     return Hash.wrap(accountStateTrie.getRootHash());
   }
 
+  private void resolvePendingAccounts() {
+    if (pendingAccounts.isEmpty()) {
+      return;
+    }
+    // Storage tries are independent of each other, and each is hashed from its own nodes only.
+    final Map<Address, Hash> storageRoots =
+        pendingAccounts
+            .values()
+            .parallelStream()
+            .collect(
+                Collectors.toMap(
+                    pending -> pending.address,
+                    pending -> Hash.wrap(pending.storageTrie.getRootHash())));
+    for (final PendingAccount pending : pendingAccounts.values()) {
+      final BytesValue account =
+          serializeAccount(
+              pending.nonce, pending.balance, pending.codeHash, storageRoots.get(pending.address));
+      accountStateTrie.put(pending.addressHash, account);
+      if (snapshot.isPresent()) {
+        snapshotUpdate(pending.addressHash).setAccount(account);
+      }
+    }
+    pendingAccounts.clear();
+  }
+
   @Override
   public MutableWorldState copy() {
-    return new DefaultMutableWorldState(rootHash(), worldStateStorage);
+    return new DefaultMutableWorldState(rootHash(), worldStateStorage, snapshot);
   }
 
   @Override
   public Account get(final Address address) {
-    final Hash addressHash = Hash.hash(address);
+    return loadAccount(address, Hash.hash(address));
+  }
+
+  private AccountState loadAccount(final Address address, final Hash addressHash) {
+    final PendingAccount pending = pendingAccounts.get(address);
+    if (pending != null) {
+      return new AccountState(pending);
+    }
+    if (snapshot.isPresent() && !snapshotUpdates.containsKey(addressHash)) {
+      final Hash snapshotRootHash = baseRootHash;
+      final Optional<WorldStateSnapshot.Account> account =
+          snapshot.get().getAccount(snapshotRootHash, addressHash);
+      if (account.isPresent()) {
+        return account
+            .get()
+            .getEncoded()
+            .map(
+                bytes ->
+                    deserializeAccount(
+                        address, addressHash, bytes, snapshotRootHash, account.get()))
+            .orElse(null);
+      }
+    }
     return accountStateTrie
-        .get(Hash.hash(address))
-        .map(bytes -> deserializeAccount(address, addressHash, bytes))
+        .get(addressHash)
+        .map(bytes -> deserializeAccount(address, addressHash, bytes, null, null))
         .orElse(null);
   }
 
   private AccountState deserializeAccount(
-      final Address address, final Hash addressHash, final BytesValue encoded) throws RLPException {
+      final Address address,
+      final Hash addressHash,
+      final BytesValue encoded,
+      final Hash snapshotRootHash,
+      final WorldStateSnapshot.Account snapshotAccount)
+      throws RLPException {
     final RLPInput in = RLP.input(encoded);
     in.enterList();
 
@@ -112,7 +186,15 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
     in.leaveList();
 
-    return new AccountState(address, addressHash, nonce, balance, storageRoot, codeHash);
+    return new AccountState(
+        address,
+        addressHash,
+        nonce,
+        balance,
+        storageRoot,
+        codeHash,
+        snapshotRootHash,
+        snapshotAccount);
   }
 
   private static BytesValue serializeAccount(
@@ -159,6 +241,7 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
   @Override
   public void persist() {
+    resolvePendingAccounts();
     final WorldStateStorage.Updater updater = worldStateStorage.updater();
     // Store updated code
     for (final BytesValue code : updatedAccountCode.values()) {
@@ -178,6 +261,18 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
     // Push changes to underlying storage
     updater.commit();
+
+    final Hash rootHash = rootHash();
+    if (snapshot.isPresent() && !rootHash.equals(baseRootHash)) {
+      snapshot.get().update(baseRootHash, rootHash, new HashMap<>(snapshotUpdates));
+    }
+    snapshotUpdates.clear();
+    baseRootHash = rootHash;
+  }
+
+  private WorldStateSnapshot.AccountUpdate snapshotUpdate(final Hash addressHash) {
+    return snapshotUpdates.computeIfAbsent(
+        addressHash, h -> new WorldStateSnapshot.AccountUpdate());
   }
 
   // An immutable class that represents an individual account as stored in
@@ -189,9 +284,14 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
     private final long nonce;
     private final Wei balance;
+    // Null while the account's storage root is pending, see pendingAccounts.
     private final Hash storageRoot;
     private final Hash codeHash;
 
+    // Set when the account was read from the snapshot, whose storage can then be used as well.
+    private final Hash snapshotRootHash;
+    private final WorldStateSnapshot.Account snapshotAccount;
+
     // Lazily initialized since we don't always access storage.
     private volatile MerklePatriciaTrie<Bytes32, BytesValue> storageTrie;
 
@@ -201,7 +301,9 @@ public class DefaultMutableWorldState implements MutableWorldState {
         final long nonce,
         final Wei balance,
         final Hash storageRoot,
-        final Hash codeHash) {
+        final Hash codeHash,
+        final Hash snapshotRootHash,
+        final WorldStateSnapshot.Account snapshotAccount) {
 
       this.address = address;
       this.addressHash = addressHash;
@@ -209,6 +311,25 @@ public class DefaultMutableWorldState implements MutableWorldState {
       this.balance = balance;
       this.storageRoot = storageRoot;
       this.codeHash = codeHash;
+      this.snapshotRootHash = snapshotRootHash;
+      this.snapshotAccount = snapshotAccount;
+    }
+
+    private AccountState(final PendingAccount pending) {
+      this(
+          pending.address,
+          pending.addressHash,
+          pending.nonce,
+          pending.balance,
+          null,
+          pending.codeHash,
+          null,
+          null);
+      this.storageTrie = pending.storageTrie;
+    }
+
+    private Hash getStorageRoot() {
+      return storageRoot != null ? storageRoot : Hash.wrap(storageTrie.getRootHash());
     }
 
     private MerklePatriciaTrie<Bytes32, BytesValue> storageTrie() {
@@ -267,7 +388,17 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
     @Override
     public UInt256 getStorageValue(final UInt256 key) {
-      final Optional<BytesValue> val = storageTrie().get(Hash.hash(key.getBytes()));
+      final Hash slotHash = Hash.hash(key.getBytes());
+      if (snapshotAccount != null
+          && !snapshotUpdates.containsKey(addressHash)
+          && !updatedStorageTries.containsKey(address)) {
+        final Optional<BytesValue> val =
+            snapshot.get().getStorageValue(snapshotRootHash, snapshotAccount, slotHash);
+        if (val.isPresent()) {
+          return val.get().isEmpty() ? UInt256.ZERO : convertToUInt256(val.get());
+        }
+      }
+      final Optional<BytesValue> val = storageTrie().get(slotHash);
       if (!val.isPresent()) {
         return UInt256.ZERO;
       }
@@ -303,12 +434,36 @@ public class DefaultMutableWorldState implements MutableWorldState {
       builder.append("address=").append(getAddress()).append(", ");
       builder.append("nonce=").append(getNonce()).append(", ");
       builder.append("balance=").append(getBalance()).append(", ");
-      builder.append("storageRoot=").append(storageRoot).append(", ");
+      builder.append("storageRoot=").append(getStorageRoot()).append(", ");
       builder.append("codeHash=").append(codeHash);
       return builder.append("}").toString();
     }
   }
 
+  private static class PendingAccount {
+    private final Address address;
+    private final Hash addressHash;
+    private final long nonce;
+    private final Wei balance;
+    private final Hash codeHash;
+    private final MerklePatriciaTrie<Bytes32, BytesValue> storageTrie;
+
+    private PendingAccount(
+        final Address address,
+        final Hash addressHash,
+        final long nonce,
+        final Wei balance,
+        final Hash codeHash,
+        final MerklePatriciaTrie<Bytes32, BytesValue> storageTrie) {
+      this.address = address;
+      this.addressHash = addressHash;
+      this.nonce = nonce;
+      this.balance = balance;
+      this.codeHash = codeHash;
+      this.storageTrie = storageTrie;
+    }
+  }
+
   protected static class Updater
       extends AbstractWorldUpdater<DefaultMutableWorldState, AccountState> {
 
@@ -318,13 +473,7 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
     @Override
     protected AccountState getForMutation(final Address address) {
-      final DefaultMutableWorldState wrapped = wrappedWorldView();
-      final Hash addressHash = Hash.hash(address);
-      return wrapped
-          .accountStateTrie
-          .get(addressHash)
-          .map(bytes -> wrapped.deserializeAccount(address, addressHash, bytes))
-          .orElse(null);
+      return wrappedWorldView().loadAccount(address, Hash.hash(address));
     }
 
     @Override
@@ -345,8 +494,12 @@ public class DefaultMutableWorldState implements MutableWorldState {
       for (final Address address : deletedAccounts()) {
         final Hash addressHash = Hash.hash(address);
         wrapped.accountStateTrie.remove(addressHash);
+        wrapped.pendingAccounts.remove(address);
         wrapped.updatedStorageTries.remove(address);
         wrapped.updatedAccountCode.remove(address);
+        if (wrapped.snapshot.isPresent()) {
+          wrapped.snapshotUpdate(addressHash).delete();
+        }
       }
 
       for (final UpdateTrackingAccount<AccountState> updated : updatedAccounts()) {
@@ -360,10 +513,14 @@ public class DefaultMutableWorldState implements MutableWorldState {
         }
         // ...and storage in the account trie first.
         final boolean freshState = origin == null || updated.getStorageWasCleared();
-        Hash storageRoot = freshState ? Hash.EMPTY_TRIE_HASH : origin.storageRoot;
         if (freshState) {
           wrapped.updatedStorageTries.remove(updated.getAddress());
         }
+        final WorldStateSnapshot.AccountUpdate snapshotUpdate =
+            wrapped.snapshot.isPresent() ? wrapped.snapshotUpdate(updated.getAddressHash()) : null;
+        if (snapshotUpdate != null && freshState) {
+          snapshotUpdate.clearStorage();
+        }
         final SortedMap<UInt256, UInt256> updatedStorage = updated.getUpdatedStorage();
         if (!updatedStorage.isEmpty()) {
           // Apply any storage updates
@@ -375,20 +532,45 @@ public class DefaultMutableWorldState implements MutableWorldState {
           for (final Map.Entry<UInt256, UInt256> entry : updatedStorage.entrySet()) {
             final UInt256 value = entry.getValue();
             final Hash keyHash = Hash.hash(entry.getKey().getBytes());
+            final BytesValue encodedValue =
+                value.isZero()
+                    ? BytesValue.EMPTY
+                    : RLP.encode(out -> out.writeUInt256Scalar(entry.getValue()));
             if (value.isZero()) {
               storageTrie.remove(keyHash);
             } else {
-              storageTrie.put(keyHash, RLP.encode(out -> out.writeUInt256Scalar(entry.getValue())));
+              storageTrie.put(keyHash, encodedValue);
+            }
+            if (snapshotUpdate != null) {
+              snapshotUpdate.putStorage(keyHash, encodedValue);
             }
           }
-          storageRoot = Hash.wrap(storageTrie.getRootHash());
         }
 
-        // Lastly, save the new account.
+        // Lastly, save the new account, or leave it pending if its storage root isn't known yet.
+        final MerklePatriciaTrie<Bytes32, BytesValue> updatedStorageTrie =
+            wrapped.updatedStorageTries.get(updated.getAddress());
+        if (updatedStorageTrie != null) {
+          wrapped.pendingAccounts.put(
+              updated.getAddress(),
+              new PendingAccount(
+                  updated.getAddress(),
+                  updated.getAddressHash(),
+                  updated.getNonce(),
+                  updated.getBalance(),
+                  codeHash,
+                  updatedStorageTrie));
+          continue;
+        }
+        wrapped.pendingAccounts.remove(updated.getAddress());
+        final Hash storageRoot = freshState ? Hash.EMPTY_TRIE_HASH : origin.getStorageRoot();
         final BytesValue account =
             serializeAccount(updated.getNonce(), updated.getBalance(), codeHash, storageRoot);
 
         wrapped.accountStateTrie.put(updated.getAddressHash(), account);
+        if (snapshotUpdate != null) {
+          snapshotUpdate.setAccount(account);
+        }
       }
     }
   }
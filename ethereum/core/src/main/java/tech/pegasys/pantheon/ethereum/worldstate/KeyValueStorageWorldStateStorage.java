@@ -14,14 +14,29 @@ package tech.pegasys.pantheon.ethereum.worldstate;
 
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+import tech.pegasys.pantheon.util.Subscribers;
 import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import com.google.common.collect.Iterators;
 
 public class KeyValueStorageWorldStateStorage implements WorldStateStorage {
 
+  private static final int PRUNE_BATCH_SIZE = 1000;
+
   private final KeyValueStorage keyValueStorage;
+  private final Subscribers<NodesAddedListener> nodeAddedListeners = new Subscribers<>();
+  // Held while committing and while removing pruned entries, so they can't interleave.
+  private final Lock commitLock = new ReentrantLock();
 
   public KeyValueStorageWorldStateStorage(final KeyValueStorage keyValueStorage) {
     this.keyValueStorage = keyValueStorage;
@@ -42,37 +57,95 @@ public class KeyValueStorageWorldStateStorage implements WorldStateStorage {
     return keyValueStorage.get(nodeHash);
   }
 
+  @Override
+  public List<Optional<BytesValue>> getNodeData(final List<Hash> hashes) {
+    return keyValueStorage.getAll(new ArrayList<>(hashes));
+  }
+
   @Override
   public Updater updater() {
     return new Updater(keyValueStorage.getStartTransaction());
   }
 
-  public static class Updater implements WorldStateStorage.Updater {
+  @Override
+  public long prune(final Predicate<BytesValue> inUseCheck) {
+    long prunedCount = 0;
+    try (final Stream<KeyValueStorage.Entry> entries = keyValueStorage.entries()) {
+      final Iterator<List<BytesValue>> batches =
+          Iterators.partition(
+              entries.map(KeyValueStorage.Entry::getKey).iterator(), PRUNE_BATCH_SIZE);
+      while (batches.hasNext() && !Thread.currentThread().isInterrupted()) {
+        prunedCount += removeUnused(batches.next(), inUseCheck);
+      }
+    }
+    return prunedCount;
+  }
+
+  private int removeUnused(final List<BytesValue> keys, final Predicate<BytesValue> inUseCheck) {
+    commitLock.lock();
+    try {
+      final KeyValueStorage.Transaction transaction = keyValueStorage.getStartTransaction();
+      int removedCount = 0;
+      for (final BytesValue key : keys) {
+        if (!inUseCheck.test(key)) {
+          transaction.remove(key);
+          removedCount++;
+        }
+      }
+      transaction.commit();
+      return removedCount;
+    } finally {
+      commitLock.unlock();
+    }
+  }
+
+  @Override
+  public long addNodeAddedListener(final NodesAddedListener listener) {
+    return nodeAddedListeners.subscribe(listener);
+  }
+
+  @Override
+  public void removeNodeAddedListener(final long id) {
+    nodeAddedListeners.unsubscribe(id);
+  }
+
+  public class Updater implements WorldStateStorage.Updater {
 
     private final KeyValueStorage.Transaction transaction;
+    private final List<Bytes32> addedNodes = new ArrayList<>();
 
-    public Updater(final KeyValueStorage.Transaction transaction) {
+    private Updater(final KeyValueStorage.Transaction transaction) {
       this.transaction = transaction;
     }
 
     @Override
     public void putCode(final BytesValue code) {
-      transaction.put(Hash.hash(code), code);
+      final Hash codeHash = Hash.hash(code);
+      transaction.put(codeHash, code);
+      addedNodes.add(codeHash);
     }
 
     @Override
     public void putAccountStateTrieNode(final Bytes32 nodeHash, final BytesValue node) {
       transaction.put(nodeHash, node);
+      addedNodes.add(nodeHash);
     }
 
     @Override
     public void putAccountStorageTrieNode(final Bytes32 nodeHash, final BytesValue node) {
       transaction.put(nodeHash, node);
+      addedNodes.add(nodeHash);
     }
 
     @Override
     public void commit() {
-      transaction.commit();
+      commitLock.lock();
+      try {
+        nodeAddedListeners.forEach(listener -> listener.onNodesAdded(addedNodes));
+        transaction.commit();
+      } finally {
+        commitLock.unlock();
+      }
     }
 
     @Override
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.ethereum.rlp.RLPInput;
+import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.NodeLoader;
+import tech.pegasys.pantheon.ethereum.trie.StoredMerklePatriciaTrie;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Removes the trie nodes and code that are no longer reachable from a set of retained world states.
+ *
+ * <p>A pruning cycle starts with {@link #prepare()}, from which point every node written to storage
+ * is marked as in use. The world state the cycle keeps is then marked with {@link #mark(Hash)}, and
+ * {@link #sweep()} removes everything that wasn't marked. Every state persisted since {@link
+ * #prepare()} is built from the marked state and the nodes written since, so all of them survive
+ * the sweep.
+ *
+ * <p>Marks are held in a bloom filter sized from the previous cycle. A false positive only means a
+ * node that could have been removed is kept until the next cycle, and since the walk never skips a
+ * subtree because its root looks marked, a live node is never removed.
+ */
+public class MarkSweepPruner {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  private static final long MINIMUM_EXPECTED_NODE_COUNT = 10_000_000L;
+  private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+  private static final Funnel<BytesValue> BYTES_FUNNEL =
+      (bytes, sink) -> sink.putBytes(bytes.getArrayUnsafe());
+
+  private final WorldStateStorage worldStateStorage;
+  private final WorldStateStorage markingStorage;
+  private final AtomicLong markedNodeCount = new AtomicLong();
+  private long expectedNodeCount = MINIMUM_EXPECTED_NODE_COUNT;
+  private volatile BloomFilter<BytesValue> markedNodes;
+  private long nodeAddedListenerId = -1;
+
+  /**
+   * Creates a pruner for the given storage.
+   *
+   * @param worldStateStorage the storage to prune
+   */
+  public MarkSweepPruner(final WorldStateStorage worldStateStorage) {
+    this(worldStateStorage, worldStateStorage);
+  }
+
+  /**
+   * Creates a pruner for storage with a {@link CachingWorldStateStorage} in front of it. Nodes are
+   * removed through the cache, so that it drops them too, but marking reads every node of the state
+   * and would push the nodes in use out of the cache, so it goes to the storage directly.
+   *
+   * @param worldStateStorage the storage to prune, including its cache
+   * @param markingStorage the storage behind the cache
+   */
+  public MarkSweepPruner(
+      final WorldStateStorage worldStateStorage, final WorldStateStorage markingStorage) {
+    this.worldStateStorage = worldStateStorage;
+    this.markingStorage = markingStorage;
+  }
+
+  /** Starts a pruning cycle: nodes written from now on are kept by the next sweep. */
+  public void prepare() {
+    cleanup();
+    markedNodes = BloomFilter.create(BYTES_FUNNEL, expectedNodeCount, FALSE_POSITIVE_PROBABILITY);
+    markedNodeCount.set(0);
+    nodeAddedListenerId = worldStateStorage.addNodeAddedListener(this::markNewNodes);
+  }
+
+  /**
+   * Marks the trie nodes and code of a world state as in use.
+   *
+   * @param rootHash the root of the world state to keep
+   */
+  public void mark(final Hash rootHash) {
+    LOG.debug("Marking world state {}", rootHash);
+    createTrie(markingStorage::getAccountStateTrieNode, rootHash)
+        .visitStoredNodes(this::markNode, this::markAccount);
+  }
+
+  /**
+   * Removes every node that wasn't marked during this cycle, and ends the cycle.
+   *
+   * @return the number of nodes removed
+   */
+  public long sweep() {
+    final BloomFilter<BytesValue> marks = markedNodes;
+    final long prunedCount = worldStateStorage.prune(marks::mightContain);
+    final long markedCount = markedNodeCount.get();
+    LOG.info("Pruned {} world state nodes, {} marked nodes kept", prunedCount, markedCount);
+    // Leave headroom for the state to grow before the next cycle.
+    expectedNodeCount = Math.max(MINIMUM_EXPECTED_NODE_COUNT, markedCount + markedCount / 4);
+    cleanup();
+    return prunedCount;
+  }
+
+  /** Abandons the current pruning cycle, if any. */
+  public void cleanup() {
+    if (nodeAddedListenerId >= 0) {
+      worldStateStorage.removeNodeAddedListener(nodeAddedListenerId);
+      nodeAddedListenerId = -1;
+    }
+    markedNodes = null;
+  }
+
+  private void markAccount(final BytesValue account) {
+    final RLPInput in = RLP.input(account);
+    in.enterList();
+    in.skipNext(); // nonce
+    in.skipNext(); // balance
+    final Bytes32 storageRoot = in.readBytes32();
+    final Bytes32 codeHash = in.readBytes32();
+    in.leaveList();
+
+    mark(codeHash);
+    if (!storageRoot.equals(MerklePatriciaTrie.EMPTY_TRIE_ROOT_HASH)) {
+      createTrie(markingStorage::getAccountStorageTrieNode, storageRoot)
+          .visitStoredNodes(this::markNode, value -> {});
+    }
+  }
+
+  private boolean markNode(final Bytes32 nodeHash) {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("World state marking interrupted");
+    }
+    mark(nodeHash);
+    // Always descend: a false positive on the filter must never hide a live subtree.
+    return true;
+  }
+
+  private void markNewNodes(final Collection<Bytes32> nodeHashes) {
+    // Called from the committing thread, which may race with the end of the cycle.
+    final BloomFilter<BytesValue> marks = markedNodes;
+    if (marks != null) {
+      nodeHashes.forEach(marks::put);
+      markedNodeCount.addAndGet(nodeHashes.size());
+    }
+  }
+
+  private void mark(final Bytes32 hash) {
+    markedNodes.put(hash);
+    markedNodeCount.incrementAndGet();
+  }
+
+  private static StoredMerklePatriciaTrie<Bytes32, BytesValue> createTrie(
+      final NodeLoader nodeLoader, final Bytes32 rootHash) {
+    return new StoredMerklePatriciaTrie<>(nodeLoader, rootHash, b -> b, b -> b);
+  }
+}
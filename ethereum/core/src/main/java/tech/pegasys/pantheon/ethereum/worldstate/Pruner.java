@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import tech.pegasys.pantheon.ethereum.chain.BlockAddedEvent;
+import tech.pegasys.pantheon.ethereum.chain.Blockchain;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs {@link MarkSweepPruner} cycles in the background as the chain head advances.
+ *
+ * <p>A cycle starts at the current chain head, from which point new nodes are marked as they are
+ * written. Once the block confirmations have been added on top of it, the world state of the block
+ * the cycle started at is marked, and once the retained number of blocks has been added the
+ * unmarked nodes are swept. This leaves the states of that block and every block descending from
+ * it, since they are all built from the marked state and nodes written since.
+ *
+ * <p>The states of blocks that don't descend from the start of the cycle are not kept. If a reorg
+ * replaces that block before the sweep, the cycle is abandoned and starts again at the new head. A
+ * reorg deeper than the retained blocks requires the fork to be resynchronized.
+ */
+public class Pruner implements AutoCloseable {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  private final MarkSweepPruner pruningStrategy;
+  private final Blockchain blockchain;
+  private final int blocksRetained;
+  private final int blockConfirmations;
+  private final ExecutorService executorService;
+  private final AtomicReference<State> state = new AtomicReference<>(State.IDLE);
+  private volatile BlockHeader markedBlock;
+  private long blockAddedObserverId = -1;
+
+  public Pruner(
+      final MarkSweepPruner pruningStrategy,
+      final Blockchain blockchain,
+      final PrunerConfiguration configuration) {
+    this(
+        pruningStrategy,
+        blockchain,
+        configuration,
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setPriority(Thread.MIN_PRIORITY)
+                .setNameFormat(Pruner.class.getSimpleName())
+                .build()));
+  }
+
+  Pruner(
+      final MarkSweepPruner pruningStrategy,
+      final Blockchain blockchain,
+      final PrunerConfiguration configuration,
+      final ExecutorService executorService) {
+    this.pruningStrategy = pruningStrategy;
+    this.blockchain = blockchain;
+    this.blocksRetained = configuration.blocksRetained();
+    this.blockConfirmations = configuration.blockConfirmations();
+    this.executorService = executorService;
+  }
+
+  public void start() {
+    blockAddedObserverId =
+        blockchain.observeBlockAdded((event, blockchain) -> handleNewBlock(event));
+  }
+
+  private void handleNewBlock(final BlockAddedEvent event) {
+    if (!event.isNewCanonicalHead()) {
+      return;
+    }
+    final BlockHeader header = event.getBlock().getHeader();
+    final State currentState = state.get();
+    if ((currentState == State.PREPARED || currentState == State.MARKED)
+        && !isCanonical(markedBlock)
+        && state.compareAndSet(currentState, State.IDLE)) {
+      // States built on the replaced block may reuse nodes that were written before the cycle
+      // started and aren't reachable from the marked state.
+      LOG.debug("Block {} was replaced by a reorg, restarting pruning", markedBlock.getNumber());
+      pruningStrategy.cleanup();
+    }
+
+    if (state.compareAndSet(State.IDLE, State.PREPARED)) {
+      // Prepare on the importing thread so the nodes of the next block are already marked.
+      markedBlock = header;
+      pruningStrategy.prepare();
+    } else if (header.getNumber() >= markedBlock.getNumber() + blockConfirmations
+        && state.compareAndSet(State.PREPARED, State.MARKING)) {
+      final Hash stateRoot = markedBlock.getStateRoot();
+      execute(
+          () -> {
+            pruningStrategy.mark(stateRoot);
+            state.compareAndSet(State.MARKING, State.MARKED);
+          });
+    } else if (header.getNumber() >= markedBlock.getNumber() + blocksRetained
+        && state.compareAndSet(State.MARKED, State.SWEEPING)) {
+      execute(
+          () -> {
+            pruningStrategy.sweep();
+            state.compareAndSet(State.SWEEPING, State.IDLE);
+          });
+    }
+  }
+
+  private boolean isCanonical(final BlockHeader header) {
+    return blockchain
+        .getBlockHashByNumber(header.getNumber())
+        .map(hash -> hash.equals(header.getHash()))
+        .orElse(false);
+  }
+
+  private void execute(final Runnable action) {
+    executorService.execute(
+        () -> {
+          try {
+            action.run();
+          } catch (final Throwable t) {
+            LOG.error("World state pruning failed, restarting the cycle", t);
+            pruningStrategy.cleanup();
+            state.set(State.IDLE);
+          }
+        });
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    if (blockAddedObserverId >= 0) {
+      blockchain.removeObserver(blockAddedObserverId);
+    }
+    executorService.shutdownNow();
+    executorService.awaitTermination(1, TimeUnit.MINUTES);
+  }
+
+  private enum State {
+    IDLE,
+    PREPARED,
+    MARKING,
+    MARKED,
+    SWEEPING
+  }
+}
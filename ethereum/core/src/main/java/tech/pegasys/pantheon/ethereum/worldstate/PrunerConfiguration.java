@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+public class PrunerConfiguration {
+
+  public static final int DEFAULT_BLOCKS_RETAINED = 1024;
+  public static final int DEFAULT_BLOCK_CONFIRMATIONS = 10;
+
+  private final boolean enabled;
+  private final int blocksRetained;
+  private final int blockConfirmations;
+
+  private PrunerConfiguration(
+      final boolean enabled, final int blocksRetained, final int blockConfirmations) {
+    this.enabled = enabled;
+    this.blocksRetained = blocksRetained;
+    this.blockConfirmations = blockConfirmations;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Whether world states older than the retained blocks are removed from storage.
+   *
+   * @return true if pruning is enabled
+   */
+  public boolean enabled() {
+    return enabled;
+  }
+
+  /**
+   * The number of most recent blocks whose world state is always kept. Up to twice as many may be
+   * on disk between pruning cycles.
+   *
+   * @return the number of blocks retained
+   */
+  public int blocksRetained() {
+    return blocksRetained;
+  }
+
+  /**
+   * The number of blocks added on top of the block a pruning cycle starts at before its world state
+   * is marked. A reorg replacing the block before then only costs restarting the cycle.
+   *
+   * @return the number of block confirmations
+   */
+  public int blockConfirmations() {
+    return blockConfirmations;
+  }
+
+  public static class Builder {
+    private boolean enabled = false;
+    private int blocksRetained = DEFAULT_BLOCKS_RETAINED;
+    private int blockConfirmations = DEFAULT_BLOCK_CONFIRMATIONS;
+
+    public Builder enabled(final boolean enabled) {
+      this.enabled = enabled;
+      return this;
+    }
+
+    public Builder blocksRetained(final int blocksRetained) {
+      checkArgument(blocksRetained > 0, "Blocks retained must be positive.");
+      this.blocksRetained = blocksRetained;
+      return this;
+    }
+
+    public Builder blockConfirmations(final int blockConfirmations) {
+      checkArgument(blockConfirmations >= 0, "Block confirmations must not be negative.");
+      this.blockConfirmations = blockConfirmations;
+      return this;
+    }
+
+    public PrunerConfiguration build() {
+      checkArgument(
+          blockConfirmations < blocksRetained,
+          "Block confirmations must be less than the blocks retained.");
+      return new PrunerConfiguration(enabled, blocksRetained, blockConfirmations);
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import tech.pegasys.pantheon.ethereum.core.Account;
+import tech.pegasys.pantheon.ethereum.core.Address;
+import tech.pegasys.pantheon.ethereum.core.Block;
+import tech.pegasys.pantheon.ethereum.core.Transaction;
+import tech.pegasys.pantheon.ethereum.core.WorldState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reads the accounts a block is about to touch on a pool of worker threads, so that the trie nodes
+ * and code they need are already cached by the time the block is processed.
+ *
+ * <p>Every worker reads through its own world state, as a world state can't be shared between
+ * threads, so only state cached below the world state, such as by {@link CachingWorldStateStorage},
+ * carries over to the block processor. Recovering the transaction senders is part of the work: it
+ * is expensive and the sender is cached by the transaction.
+ *
+ * <p>Prefetching is best effort. Failures are ignored, and whatever hasn't been read by the time
+ * the block has been processed is abandoned.
+ */
+public class WorldStatePrefetcher implements AutoCloseable {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  public static final int DEFAULT_THREADS = 4;
+
+  private final ExecutorService executorService;
+  private final int threads;
+
+  public WorldStatePrefetcher() {
+    this(DEFAULT_THREADS);
+  }
+
+  public WorldStatePrefetcher(final int threads) {
+    this(
+        Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat(WorldStatePrefetcher.class.getSimpleName() + "-%d")
+                .build()),
+        threads);
+  }
+
+  WorldStatePrefetcher(final ExecutorService executorService, final int threads) {
+    this.executorService = executorService;
+    this.threads = threads;
+  }
+
+  /**
+   * Starts reading the senders and recipients of the block's transactions, and the code of the
+   * recipients, along with the block's beneficiary.
+   *
+   * @param worldStates supplies a new instance of the world state the block will be processed on
+   * @param block the block about to be processed
+   * @return a handle that abandons the remaining reads when closed
+   */
+  public Prefetch prefetch(final Supplier<WorldState> worldStates, final Block block) {
+    final List<Transaction> transactions = block.getBody().getTransactions();
+    final AtomicBoolean abandoned = new AtomicBoolean();
+    final List<Future<?>> tasks = new ArrayList<>(threads);
+    tasks.add(
+        executorService.submit(
+            () -> read(worldStates.get(), block.getHeader().getCoinbase(), abandoned)));
+    if (!transactions.isEmpty()) {
+      final int batchSize = (transactions.size() + threads - 1) / threads;
+      for (final List<Transaction> batch : Lists.partition(transactions, batchSize)) {
+        tasks.add(executorService.submit(() -> readAccounts(worldStates, batch, abandoned)));
+      }
+    }
+    return () -> {
+      abandoned.set(true);
+      tasks.forEach(task -> task.cancel(false));
+    };
+  }
+
+  private void readAccounts(
+      final Supplier<WorldState> worldStates,
+      final List<Transaction> transactions,
+      final AtomicBoolean abandoned) {
+    final WorldState worldState = worldStates.get();
+    for (final Transaction transaction : transactions) {
+      if (abandoned.get()) {
+        return;
+      }
+      try {
+        read(worldState, transaction.getSender(), abandoned);
+        if (transaction.getTo().isPresent()) {
+          read(worldState, transaction.getTo().get(), abandoned);
+        }
+      } catch (final RuntimeException e) {
+        // Invalid transactions are reported by the block processor.
+        LOG.trace("Failed to prefetch state for transaction {}", transaction.hash(), e);
+      }
+    }
+  }
+
+  private static void read(
+      final WorldState worldState, final Address address, final AtomicBoolean abandoned) {
+    if (abandoned.get()) {
+      return;
+    }
+    final Account account = worldState.get(address);
+    if (account != null) {
+      account.getCode();
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    executorService.shutdownNow();
+    executorService.awaitTermination(1, TimeUnit.MINUTES);
+  }
+
+  /** The reads started for a single block. */
+  @FunctionalInterface
+  public interface Prefetch extends AutoCloseable {
+
+    Prefetch NONE = () -> {};
+
+    /** Abandons the reads that haven't started or completed yet. */
+    @Override
+    void close();
+  }
+}
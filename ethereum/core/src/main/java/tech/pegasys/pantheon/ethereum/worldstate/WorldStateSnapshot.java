@@ -0,0 +1,533 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.ethereum.rlp.RLPInput;
+import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.StoredMerklePatriciaTrie;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.bytes.MutableBytesValue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A flat copy of the accounts and storage of a single world state, so that they can be read with
+ * one lookup instead of a walk down the account and storage tries.
+ *
+ * <p>The snapshot follows the world states as they are persisted. Every persisted change set is
+ * remembered for a while, along with what it overwrote when it was applied, so the snapshot can
+ * move to a sibling state after importing a block that didn't become the chain head, and follow a
+ * reorg back to the canonical chain. Readers fall back to the tries whenever the snapshot isn't at
+ * the root they ask for.
+ *
+ * <p>If the snapshot can't reach a newly persisted state, such as the first block imported on a
+ * database that predates the snapshot or after fast sync, it is rebuilt in the background by
+ * copying that state out of the tries. Readers keep using the tries until the copy is complete and
+ * the snapshot has caught up with the states persisted in the meantime.
+ *
+ * <p>Storage slots are keyed by account hash, an incarnation number and slot hash. Deleting an
+ * account or clearing its storage bumps the incarnation instead of deleting every slot, which would
+ * need a range scan. The slots of earlier incarnations are left behind on disk.
+ */
+public class WorldStateSnapshot {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  private static final BytesValue ROOT_KEY = BytesValue.wrap("snapshotRoot".getBytes(UTF_8));
+  // Stored as the root while the snapshot is being rebuilt, so no reads are made from it.
+  private static final Hash INCOMPLETE_ROOT_HASH = Hash.ZERO;
+  private static final int RETAINED_STATES = 64;
+  private static final int REBUILD_BATCH_SIZE = 10_000;
+
+  private final KeyValueStorage storage;
+  private final WorldStateStorage worldStateStorage;
+  private final Executor rebuildExecutor;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Map<Hash, Transition> transitions =
+      new LinkedHashMap<Hash, Transition>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Hash, Transition> eldest) {
+          return size() > RETAINED_STATES;
+        }
+      };
+  private final Deque<AppliedTransition> applied = new ArrayDeque<>();
+  private Hash rootHash;
+  private Hash latestRootHash;
+  private boolean rebuilding;
+
+  public WorldStateSnapshot(
+      final KeyValueStorage storage, final WorldStateStorage worldStateStorage) {
+    this(
+        storage,
+        worldStateStorage,
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setPriority(Thread.MIN_PRIORITY)
+                .setNameFormat(WorldStateSnapshot.class.getSimpleName())
+                .build()));
+  }
+
+  WorldStateSnapshot(
+      final KeyValueStorage storage,
+      final WorldStateStorage worldStateStorage,
+      final Executor rebuildExecutor) {
+    this.storage = storage;
+    this.worldStateStorage = worldStateStorage;
+    this.rebuildExecutor = rebuildExecutor;
+    // The root is written along with every change, so a missing root means an empty snapshot.
+    this.rootHash =
+        storage
+            .get(ROOT_KEY)
+            .map(bytes -> Hash.wrap(Bytes32.wrap(bytes, 0)))
+            .orElse(Hash.EMPTY_TRIE_HASH);
+    this.latestRootHash = rootHash;
+  }
+
+  /** @return the root hash of the world state currently held by the snapshot */
+  public Hash getRootHash() {
+    lock.readLock().lock();
+    try {
+      return rootHash;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Looks up an account in the world state with the given root.
+   *
+   * @param rootHash the root of the world state to read from
+   * @param addressHash the hash of the account address
+   * @return the account, or empty if the snapshot isn't at {@code rootHash}
+   */
+  Optional<Account> getAccount(final Hash rootHash, final Hash addressHash) {
+    lock.readLock().lock();
+    try {
+      if (!this.rootHash.equals(rootHash)) {
+        return Optional.empty();
+      }
+      return Optional.of(readAccount(addressHash));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Looks up a storage slot in the world state with the given root.
+   *
+   * @param rootHash the root of the world state to read from
+   * @param account the account owning the slot, as returned by {@link #getAccount(Hash, Hash)}
+   * @param slotHash the hash of the slot key
+   * @return the RLP encoded value, {@link BytesValue#EMPTY} if the slot is unset, or empty if the
+   *     snapshot isn't at {@code rootHash}
+   */
+  Optional<BytesValue> getStorageValue(
+      final Hash rootHash, final Account account, final Hash slotHash) {
+    lock.readLock().lock();
+    try {
+      if (!this.rootHash.equals(rootHash)) {
+        return Optional.empty();
+      }
+      return Optional.of(
+          storage
+              .get(storageKey(account.addressHash, account.incarnation, slotHash))
+              .orElse(BytesValue.EMPTY));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Records a newly persisted world state and moves the snapshot to it, rebuilding the snapshot
+   * from that state if it can't be reached.
+   *
+   * @param parentRootHash the root of the world state the changes were made on
+   * @param rootHash the root of the persisted world state
+   * @param updates the accounts changed between the two states
+   */
+  void update(
+      final Hash parentRootHash, final Hash rootHash, final Map<Hash, AccountUpdate> updates) {
+    lock.writeLock().lock();
+    try {
+      transitions.put(rootHash, new Transition(parentRootHash, updates));
+      latestRootHash = rootHash;
+      if (rebuilding || moveTo(rootHash)) {
+        return;
+      }
+      rebuilding = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    startRebuild(rootHash);
+  }
+
+  private boolean moveTo(final Hash target) {
+    // Walk back from the target until we reach a state we can rewind to.
+    final List<Hash> path = new ArrayList<>();
+    Hash current = target;
+    while (!canRewindTo(current)) {
+      final Transition transition = transitions.get(current);
+      if (transition == null || path.size() > RETAINED_STATES) {
+        LOG.debug("World state snapshot at {} can't reach {}", rootHash, target);
+        return false;
+      }
+      path.add(current);
+      current = transition.parentRootHash;
+    }
+
+    while (!rootHash.equals(current)) {
+      rewind(applied.pop());
+    }
+    for (int i = path.size() - 1; i >= 0; i--) {
+      apply(path.get(i), transitions.get(path.get(i)));
+    }
+    return true;
+  }
+
+  private void startRebuild(final Hash target) {
+    LOG.info("Rebuilding world state snapshot from state {}", target);
+    rebuildExecutor.execute(() -> rebuild(target));
+  }
+
+  private void rebuild(final Hash target) {
+    try {
+      lock.writeLock().lock();
+      try {
+        applied.clear();
+        storage.put(ROOT_KEY, INCOMPLETE_ROOT_HASH);
+        rootHash = INCOMPLETE_ROOT_HASH;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      clear();
+      copyState(target);
+    } catch (final RuntimeException e) {
+      // The state may have been pruned while it was being copied. The next persisted state that
+      // can't be reached starts another rebuild.
+      LOG.warn("Failed to rebuild world state snapshot from state {}", target, e);
+      lock.writeLock().lock();
+      try {
+        rebuilding = false;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      return;
+    }
+
+    final Hash latest;
+    lock.writeLock().lock();
+    try {
+      storage.put(ROOT_KEY, target);
+      rootHash = target;
+      if (moveTo(latestRootHash)) {
+        LOG.info("Rebuilt world state snapshot, now at state {}", rootHash);
+        rebuilding = false;
+        return;
+      }
+      // More states were persisted during the rebuild than are retained, so start again from the
+      // latest one.
+      latest = latestRootHash;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    startRebuild(latest);
+  }
+
+  private void clear() {
+    final RebuildBatch batch = new RebuildBatch();
+    try (final Stream<KeyValueStorage.Entry> entries = storage.entries()) {
+      entries
+          .map(KeyValueStorage.Entry::getKey)
+          .filter(key -> !key.equals(ROOT_KEY))
+          .forEach(batch::remove);
+    }
+    batch.commit();
+  }
+
+  private void copyState(final Hash target) {
+    final RebuildBatch batch = new RebuildBatch();
+    final MerklePatriciaTrie<Bytes32, BytesValue> accountTrie =
+        new StoredMerklePatriciaTrie<>(
+            worldStateStorage::getAccountStateTrieNode, target, b -> b, b -> b);
+    forEachEntry(
+        accountTrie,
+        (addressHash, account) -> {
+          batch.put(addressHash, encodeAccount(0, Optional.of(account)));
+          final Hash storageRoot = readStorageRoot(account);
+          if (!storageRoot.equals(Hash.EMPTY_TRIE_HASH)) {
+            final MerklePatriciaTrie<Bytes32, BytesValue> storageTrie =
+                new StoredMerklePatriciaTrie<>(
+                    worldStateStorage::getAccountStorageTrieNode, storageRoot, b -> b, b -> b);
+            forEachEntry(
+                storageTrie,
+                (slotHash, value) ->
+                    batch.put(storageKey(Hash.wrap(addressHash), 0, Hash.wrap(slotHash)), value));
+          }
+        });
+    batch.commit();
+  }
+
+  private static void forEachEntry(
+      final MerklePatriciaTrie<Bytes32, BytesValue> trie,
+      final BiConsumer<Bytes32, BytesValue> consumer) {
+    Optional<Bytes32> previousKey = Optional.empty();
+    while (true) {
+      // Each page starts with the last entry of the one before, as keys can't be incremented past
+      // the last possible hash.
+      final Map<Bytes32, BytesValue> entries =
+          trie.entriesFrom(previousKey.orElse(Bytes32.ZERO), REBUILD_BATCH_SIZE);
+      for (final Map.Entry<Bytes32, BytesValue> entry : entries.entrySet()) {
+        if (!previousKey.isPresent() || !previousKey.get().equals(entry.getKey())) {
+          consumer.accept(entry.getKey(), entry.getValue());
+        }
+        previousKey = Optional.of(entry.getKey());
+      }
+      if (entries.size() < REBUILD_BATCH_SIZE) {
+        return;
+      }
+    }
+  }
+
+  private static Hash readStorageRoot(final BytesValue account) {
+    final RLPInput in = RLP.input(account);
+    in.enterList();
+    in.skipNext();
+    in.skipNext();
+    final Hash storageRoot = Hash.wrap(in.readBytes32());
+    in.leaveList(true);
+    return storageRoot;
+  }
+
+  private boolean canRewindTo(final Hash target) {
+    if (rootHash.equals(target)) {
+      return true;
+    }
+    for (final AppliedTransition transition : applied) {
+      if (transition.parentRootHash.equals(target)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void apply(final Hash target, final Transition transition) {
+    final Map<BytesValue, Optional<BytesValue>> overwritten = new HashMap<>();
+    final KeyValueStorage.Transaction tx = storage.getStartTransaction();
+    for (final Map.Entry<Hash, AccountUpdate> entry : transition.updates.entrySet()) {
+      final Hash addressHash = entry.getKey();
+      final AccountUpdate update = entry.getValue();
+      final Optional<BytesValue> previous = storage.get(addressHash);
+      final long previousIncarnation =
+          previous.map(bytes -> decodeAccount(addressHash, bytes).incarnation).orElse(0L);
+      final long incarnation =
+          update.storageCleared ? previousIncarnation + 1 : previousIncarnation;
+
+      overwritten.put(addressHash, previous);
+      tx.put(addressHash, encodeAccount(incarnation, update.account));
+
+      for (final Map.Entry<Hash, BytesValue> slot : update.storage.entrySet()) {
+        final BytesValue key = storageKey(addressHash, incarnation, slot.getKey());
+        overwritten.put(key, storage.get(key));
+        if (slot.getValue().isEmpty()) {
+          tx.remove(key);
+        } else {
+          tx.put(key, slot.getValue());
+        }
+      }
+    }
+    overwritten.put(ROOT_KEY, storage.get(ROOT_KEY));
+    tx.put(ROOT_KEY, target);
+    tx.commit();
+
+    applied.push(new AppliedTransition(rootHash, overwritten));
+    if (applied.size() > RETAINED_STATES) {
+      applied.removeLast();
+    }
+    rootHash = target;
+  }
+
+  private void rewind(final AppliedTransition transition) {
+    final KeyValueStorage.Transaction tx = storage.getStartTransaction();
+    for (final Map.Entry<BytesValue, Optional<BytesValue>> entry :
+        transition.overwritten.entrySet()) {
+      if (entry.getValue().isPresent()) {
+        tx.put(entry.getKey(), entry.getValue().get());
+      } else {
+        tx.remove(entry.getKey());
+      }
+    }
+    tx.commit();
+    rootHash = transition.parentRootHash;
+  }
+
+  private Account readAccount(final Hash addressHash) {
+    return storage
+        .get(addressHash)
+        .map(bytes -> decodeAccount(addressHash, bytes))
+        .orElseGet(() -> new Account(addressHash, 0, Optional.empty()));
+  }
+
+  private static BytesValue encodeAccount(
+      final long incarnation, final Optional<BytesValue> account) {
+    return RLP.encode(
+        out -> {
+          out.startList();
+          out.writeLongScalar(incarnation);
+          out.writeBytesValue(account.orElse(BytesValue.EMPTY));
+          out.endList();
+        });
+  }
+
+  private static Account decodeAccount(final Hash addressHash, final BytesValue encoded) {
+    final RLPInput in = RLP.input(encoded);
+    in.enterList();
+    final long incarnation = in.readLongScalar();
+    final BytesValue account = in.readBytesValue();
+    in.leaveList();
+    return new Account(
+        addressHash,
+        incarnation,
+        account.isEmpty() ? Optional.empty() : Optional.of(account.copy()));
+  }
+
+  private static BytesValue storageKey(
+      final Hash addressHash, final long incarnation, final Hash slotHash) {
+    final MutableBytesValue key = MutableBytesValue.create(Bytes32.SIZE * 2 + Long.BYTES);
+    addressHash.copyTo(key, 0);
+    key.setLong(Bytes32.SIZE, incarnation);
+    slotHash.copyTo(key, Bytes32.SIZE + Long.BYTES);
+    return key;
+  }
+
+  /** Writes the entries of a rebuild in transactions of a bounded size. */
+  private class RebuildBatch {
+    private KeyValueStorage.Transaction transaction = storage.getStartTransaction();
+    private int size;
+
+    private void put(final BytesValue key, final BytesValue value) {
+      transaction.put(key, value);
+      commitIfFull();
+    }
+
+    private void remove(final BytesValue key) {
+      transaction.remove(key);
+      commitIfFull();
+    }
+
+    private void commitIfFull() {
+      if (++size >= REBUILD_BATCH_SIZE) {
+        commit();
+        transaction = storage.getStartTransaction();
+        size = 0;
+      }
+    }
+
+    private void commit() {
+      transaction.commit();
+    }
+  }
+
+  /** An account as held by the snapshot. */
+  static class Account {
+    private final Hash addressHash;
+    private final long incarnation;
+    private final Optional<BytesValue> encoded;
+
+    private Account(
+        final Hash addressHash, final long incarnation, final Optional<BytesValue> encoded) {
+      this.addressHash = addressHash;
+      this.incarnation = incarnation;
+      this.encoded = encoded;
+    }
+
+    /** @return the RLP encoded account, or empty if the account doesn't exist */
+    Optional<BytesValue> getEncoded() {
+      return encoded;
+    }
+  }
+
+  /** The changes made to a single account between two world states. */
+  static class AccountUpdate {
+    private Optional<BytesValue> account = Optional.empty();
+    private boolean storageCleared;
+    private final Map<Hash, BytesValue> storage = new HashMap<>();
+
+    void setAccount(final BytesValue account) {
+      this.account = Optional.of(account);
+    }
+
+    void delete() {
+      account = Optional.empty();
+      clearStorage();
+    }
+
+    void clearStorage() {
+      storageCleared = true;
+      storage.clear();
+    }
+
+    /**
+     * @param slotHash the hash of the slot key
+     * @param value the RLP encoded value, or {@link BytesValue#EMPTY} to unset the slot
+     */
+    void putStorage(final Hash slotHash, final BytesValue value) {
+      storage.put(slotHash, value);
+    }
+  }
+
+  private static class Transition {
+    private final Hash parentRootHash;
+    private final Map<Hash, AccountUpdate> updates;
+
+    private Transition(final Hash parentRootHash, final Map<Hash, AccountUpdate> updates) {
+      this.parentRootHash = parentRootHash;
+      this.updates = updates;
+    }
+  }
+
+  private static class AppliedTransition {
+    private final Hash parentRootHash;
+    private final Map<BytesValue, Optional<BytesValue>> overwritten;
+
+    private AppliedTransition(
+        final Hash parentRootHash, final Map<BytesValue, Optional<BytesValue>> overwritten) {
+      this.parentRootHash = parentRootHash;
+      this.overwritten = overwritten;
+    }
+  }
+}
@@ -16,7 +16,10 @@ import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 public interface WorldStateStorage {
 
@@ -26,8 +29,42 @@ public interface WorldStateStorage {
 
   Optional<BytesValue> getAccountStorageTrieNode(Bytes32 nodeHash);
 
+  /**
+   * Looks up trie nodes and code by hash in a single batched read, without needing to know which
+   * kind of data each hash refers to.
+   *
+   * @param hashes The hashes of the trie nodes or code to look up.
+   * @return the data for each hash, in the same order, empty where it isn't stored
+   */
+  List<Optional<BytesValue>> getNodeData(List<Hash> hashes);
+
   Updater updater();
 
+  /**
+   * Removes every trie node and every piece of code for which {@code inUseCheck} returns false. The
+   * check is made while no updater can commit, so a node can't be removed just after it has been
+   * written again. Stops early if the calling thread is interrupted.
+   *
+   * @param inUseCheck Tests whether the node or code with the given hash must be kept.
+   * @return the number of entries removed
+   */
+  long prune(Predicate<BytesValue> inUseCheck);
+
+  /**
+   * Registers a listener notified of the trie nodes and code written by each updater, just before
+   * they are committed.
+   *
+   * @param listener The listener to notify.
+   * @return the ID of the listener, used to remove it
+   */
+  long addNodeAddedListener(NodesAddedListener listener);
+
+  void removeNodeAddedListener(long id);
+
+  interface NodesAddedListener {
+    void onNodesAdded(Collection<Bytes32> nodeHashes);
+  }
+
   interface Updater {
 
     void putCode(BytesValue code);
@@ -40,6 +40,14 @@ public class TestCodeExecutor {
 
   public MessageFrame executeCode(
       final String code, final long gasLimit, final Consumer<MutableAccount> accountSetup) {
+    return executeCode(code, gasLimit, accountSetup, OperationTracer.NO_TRACING);
+  }
+
+  public MessageFrame executeCode(
+      final String code,
+      final long gasLimit,
+      final Consumer<MutableAccount> accountSetup,
+      final OperationTracer operationTracer) {
     final ProtocolSpec<Void> protocolSpec = fixture.getProtocolSchedule().getByBlockNumber(0);
     final WorldUpdater worldState =
         createInitialWorldState(accountSetup, fixture.getStateArchive());
@@ -79,7 +87,7 @@ public class TestCodeExecutor {
     messageFrameStack.addFirst(initialFrame);
 
     while (!messageFrameStack.isEmpty()) {
-      messageCallProcessor.process(messageFrameStack.peekFirst(), OperationTracer.NO_TRACING);
+      messageCallProcessor.process(messageFrameStack.peekFirst(), operationTracer);
     }
     return initialFrame;
   }
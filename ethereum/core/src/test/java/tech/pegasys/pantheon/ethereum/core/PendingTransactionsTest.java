@@ -23,6 +23,9 @@ import tech.pegasys.pantheon.ethereum.core.PendingTransactions.TransactionSelect
 import java.util.ArrayList;
 import java.util.List;
 import java.util.OptionalLong;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.Lists;
 import org.junit.Test;
@@ -61,17 +64,66 @@ public class PendingTransactionsTest {
   }
 
   @Test
-  public void shouldDropOldestTransactionWhenLimitExceeded() {
-    final Transaction oldestTransaction = createTransaction(0);
-    transactions.addRemoteTransaction(oldestTransaction);
+  public void shouldDropLowestPricedTransactionWhenLimitExceeded() {
+    final Transaction cheapestTransaction = transactionWithNonceSenderAndGasPrice(0, KEYS2, 1);
+    transactions.addRemoteTransaction(cheapestTransaction);
     for (int i = 1; i < MAX_TRANSACTIONS; i++) {
-      transactions.addRemoteTransaction(createTransaction(i));
+      transactions.addRemoteTransaction(transactionWithNonceSenderAndGasPrice(i - 1, KEYS1, 2));
     }
     assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
 
-    transactions.addRemoteTransaction(createTransaction(MAX_TRANSACTIONS + 1));
+    final Transaction transaction =
+        transactionWithNonceSenderAndGasPrice(MAX_TRANSACTIONS - 1, KEYS1, 2);
+    assertThat(transactions.addRemoteTransaction(transaction)).isTrue();
+    assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
+    assertTransactionNotPending(cheapestTransaction);
+    assertTransactionPending(transaction);
+  }
+
+  @Test
+  public void shouldDropQueuedTransactionsBeforeReadyOnes() {
+    final Transaction queuedTransaction = transactionWithNonceSenderAndGasPrice(7, KEYS2, 5);
+    transactions.addRemoteTransaction(transactionWithNonceSenderAndGasPrice(5, KEYS2, 5));
+    transactions.addRemoteTransaction(queuedTransaction);
+    for (int i = 2; i <= MAX_TRANSACTIONS; i++) {
+      transactions.addRemoteTransaction(transactionWithNonceSenderAndGasPrice(i, KEYS1, 1));
+    }
+
+    assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
+    assertTransactionNotPending(queuedTransaction);
+  }
+
+  @Test
+  public void shouldDropHighestNonceOfSenderRatherThanItsCheapestTransaction() {
+    final Transaction cheapestTransaction = transactionWithNonceSenderAndGasPrice(0, KEYS1, 1);
+    final Transaction secondTransaction = transactionWithNonceSenderAndGasPrice(1, KEYS1, 3);
+    final Transaction lastTransaction = transactionWithNonceSenderAndGasPrice(2, KEYS1, 3);
+    transactions.addRemoteTransaction(cheapestTransaction);
+    transactions.addRemoteTransaction(secondTransaction);
+    transactions.addRemoteTransaction(lastTransaction);
+    for (int i = 0; i < 3; i++) {
+      transactions.addRemoteTransaction(transactionWithNonceSenderAndGasPrice(i, KEYS2, 4));
+    }
+
+    assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
+    assertTransactionNotPending(lastTransaction);
+    assertTransactionPending(cheapestTransaction);
+    assertTransactionPending(secondTransaction);
+    assertMaximumNonceForSender(SENDER1, 2);
+  }
+
+  @Test
+  public void shouldNotAddTransactionPricedBelowEverythingInAFullPool() {
+    for (int i = 0; i < MAX_TRANSACTIONS; i++) {
+      transactions.addRemoteTransaction(transactionWithNonceSenderAndGasPrice(i, KEYS1, 2));
+    }
+    transactions.addTransactionListener(listener);
+
+    final Transaction transaction = transactionWithNonceSenderAndGasPrice(0, KEYS2, 1);
+    assertThat(transactions.addRemoteTransaction(transaction)).isFalse();
     assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
-    assertTransactionNotPending(oldestTransaction);
+    assertTransactionNotPending(transaction);
+    verifyZeroInteractions(listener);
   }
 
   @Test
@@ -103,14 +155,14 @@ public class PendingTransactionsTest {
 
   @Test
   public void shouldStartDroppingLocalTransactionsWhenPoolIsFullOfLocalTransactions() {
-    final Transaction firstLocalTransaction = createTransaction(0);
-    transactions.addLocalTransaction(firstLocalTransaction);
+    final Transaction cheapestLocalTransaction = transactionWithNonceSenderAndGasPrice(0, KEYS2, 1);
+    transactions.addLocalTransaction(cheapestLocalTransaction);
 
     for (int i = 1; i <= MAX_TRANSACTIONS; i++) {
-      transactions.addLocalTransaction(createTransaction(i));
+      transactions.addLocalTransaction(transactionWithNonceSenderAndGasPrice(i, KEYS1, 2));
     }
     assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
-    assertTransactionNotPending(firstLocalTransaction);
+    assertTransactionNotPending(cheapestLocalTransaction);
   }
 
   @Test
@@ -176,11 +228,33 @@ public class PendingTransactionsTest {
           return TransactionSelectionResult.DELETE_TRANSACTION_AND_CONTINUE;
         });
 
-    assertThat(parsedTransactions.size()).isEqualTo(2);
-    assertThat(parsedTransactions.get(0)).isEqualTo(transaction2);
-    assertThat(parsedTransactions.get(1)).isEqualTo(transaction1);
+    // The sender's later transaction can't be executed without the deleted one.
+    assertThat(parsedTransactions).containsExactly(transaction2);
+    assertTransactionNotPending(transaction2);
+    assertTransactionPending(transaction1);
+  }
+
+  @Test
+  public void shouldNotOfferLaterTransactionsOfSenderWhoseTransactionWasSkipped() {
+    final Transaction sender1Transaction1 = transactionWithNonceSenderAndGasPrice(0, KEYS1, 3);
+    final Transaction sender1Transaction2 = transactionWithNonceSenderAndGasPrice(1, KEYS1, 3);
+    final Transaction sender2Transaction = transactionWithNonceSenderAndGasPrice(0, KEYS2, 1);
+    transactions.addRemoteTransaction(sender1Transaction1);
+    transactions.addRemoteTransaction(sender1Transaction2);
+    transactions.addRemoteTransaction(sender2Transaction);
 
-    assertThat(transactions.size()).isZero();
+    final List<Transaction> parsedTransactions = Lists.newArrayList();
+    transactions.selectTransactions(
+        transaction -> {
+          parsedTransactions.add(transaction);
+          return transaction.equals(sender1Transaction1)
+              ? TransactionSelectionResult.SKIP_SENDER_AND_CONTINUE
+              : TransactionSelectionResult.CONTINUE;
+        });
+
+    assertThat(parsedTransactions).containsExactly(sender1Transaction1, sender2Transaction);
+    assertTransactionPending(sender1Transaction1);
+    assertTransactionPending(sender1Transaction2);
   }
 
   @Test
@@ -196,6 +270,18 @@ public class PendingTransactionsTest {
     assertThat(transactions.getNextNonceForSender(SENDER1)).isEmpty();
   }
 
+  @Test
+  public void shouldReturnNonceAfterReadyTransactionsAsNextReadyNonce() {
+    transactions.addRemoteTransaction(transactionWithNonceAndSender(3, KEYS1), 1);
+    assertThat(transactions.getNextReadyNonceForSender(SENDER1)).isEmpty();
+
+    transactions.addRemoteTransaction(transactionWithNonceAndSender(1, KEYS1), 1);
+    assertThat(transactions.getNextReadyNonceForSender(SENDER1)).isEqualTo(OptionalLong.of(2));
+
+    transactions.addRemoteTransaction(transactionWithNonceAndSender(2, KEYS1), 1);
+    assertThat(transactions.getNextReadyNonceForSender(SENDER1)).isEqualTo(OptionalLong.of(4));
+  }
+
   @Test
   public void shouldReplaceTransactionWithSameSenderAndNonce() {
     final Transaction transaction1 = transactionWithNonceSenderAndGasPrice(1, KEYS1, 1);
@@ -316,6 +402,165 @@ public class PendingTransactionsTest {
         .containsExactly(transaction4, transaction1, transaction2, transaction3);
   }
 
+  @Test
+  public void shouldSelectTransactionsWithHigherGasPriceFirst() {
+    final Transaction transaction1 = transactionWithNonceSenderAndGasPrice(0, KEYS1, 1);
+    final Transaction transaction2 = transactionWithNonceSenderAndGasPrice(1, KEYS1, 3);
+    final Transaction transaction3 = transactionWithNonceSenderAndGasPrice(0, KEYS2, 2);
+
+    transactions.addRemoteTransaction(transaction1);
+    transactions.addRemoteTransaction(transaction2);
+    transactions.addRemoteTransaction(transaction3);
+
+    final List<Transaction> iterationOrder = new ArrayList<>();
+    transactions.selectTransactions(
+        transaction -> {
+          iterationOrder.add(transaction);
+          return TransactionSelectionResult.CONTINUE;
+        });
+
+    // The second transaction of the first sender pays the most, but can't go before the first.
+    assertThat(iterationOrder).containsExactly(transaction3, transaction1, transaction2);
+  }
+
+  @Test
+  public void shouldNotSelectTransactionsQueuedBehindANonceGap() {
+    final Transaction transaction1 = transactionWithNonceAndSender(0, KEYS1);
+    final Transaction transaction2 = transactionWithNonceAndSender(1, KEYS1);
+    final Transaction transaction3 = transactionWithNonceAndSender(2, KEYS1);
+    transactions.addRemoteTransaction(transaction1);
+    transactions.addRemoteTransaction(transaction2);
+    transactions.addRemoteTransaction(transaction3);
+    transactions.removeTransaction(transaction2);
+
+    assertThat(selectAll()).containsExactly(transaction1);
+
+    // Filling the gap makes the queued transaction ready again.
+    transactions.addRemoteTransaction(transaction2);
+    assertThat(selectAll()).containsExactly(transaction1, transaction2, transaction3);
+  }
+
+  @Test
+  public void shouldNotSelectTransactionsAheadOfTheAccountNonce() {
+    final Transaction transaction1 = transactionWithNonceAndSender(0, KEYS1);
+    final Transaction transaction2 = transactionWithNonceAndSender(1, KEYS1);
+    final Transaction transaction3 = transactionWithNonceAndSender(2, KEYS1);
+    transactions.addRemoteTransaction(transaction2, 0);
+    transactions.addRemoteTransaction(transaction3, 0);
+
+    assertThat(selectAll()).isEmpty();
+
+    transactions.addRemoteTransaction(transaction1, 0);
+    assertThat(selectAll()).containsExactly(transaction1, transaction2, transaction3);
+  }
+
+  @Test
+  public void shouldQueueTheRestOfASequenceWhenItsFirstTransactionIsRemoved() {
+    final Transaction transaction1 = transactionWithNonceAndSender(0, KEYS1);
+    final Transaction transaction2 = transactionWithNonceAndSender(1, KEYS1);
+    transactions.addRemoteTransaction(transaction1, 0);
+    transactions.addRemoteTransaction(transaction2, 0);
+
+    transactions.removeTransaction(transaction1);
+
+    assertThat(selectAll()).isEmpty();
+    assertTransactionPending(transaction2);
+  }
+
+  @Test
+  public void shouldDropTransactionsBelowAnUpdatedAccountNonce() {
+    final Transaction transaction1 = transactionWithNonceAndSender(0, KEYS1);
+    final Transaction transaction2 = transactionWithNonceAndSender(1, KEYS1);
+    final Transaction transaction3 = transactionWithNonceAndSender(3, KEYS1);
+    transactions.addRemoteTransaction(transaction1, 0);
+    transactions.addRemoteTransaction(transaction2, 0);
+    transactions.addRemoteTransaction(transaction3, 0);
+
+    transactions.updateAccountNonce(SENDER1, 2);
+    assertTransactionNotPending(transaction1);
+    assertTransactionNotPending(transaction2);
+    assertThat(selectAll()).isEmpty();
+
+    transactions.updateAccountNonce(SENDER1, 3);
+    assertThat(selectAll()).containsExactly(transaction3);
+  }
+
+  @Test
+  public void shouldDropTransactionsAheadOfTheAccountNonceBeforeReadyOnes() {
+    final Transaction queuedTransaction = transactionWithNonceSenderAndGasPrice(1, KEYS2, 5);
+    transactions.addRemoteTransaction(queuedTransaction, 0);
+    for (int i = 0; i < MAX_TRANSACTIONS; i++) {
+      transactions.addRemoteTransaction(transactionWithNonceSenderAndGasPrice(i, KEYS1, 1), 0);
+    }
+
+    assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
+    assertTransactionNotPending(queuedTransaction);
+  }
+
+  @Test
+  public void shouldStopSelectingWhenSelectorRequestsNoMoreAndStillRemoveInvalidTransactions() {
+    final Transaction transaction1 = transactionWithNonceSenderAndGasPrice(0, KEYS1, 2);
+    final Transaction transaction2 = transactionWithNonceSenderAndGasPrice(0, KEYS2, 1);
+    transactions.addRemoteTransaction(transaction1);
+    transactions.addRemoteTransaction(transaction2);
+
+    transactions.selectTransactions(
+        transaction ->
+            transaction.equals(transaction1)
+                ? TransactionSelectionResult.DELETE_TRANSACTION_AND_CONTINUE
+                : TransactionSelectionResult.COMPLETE_OPERATION);
+
+    assertTransactionNotPending(transaction1);
+    assertTransactionPending(transaction2);
+  }
+
+  @Test
+  public void shouldAddTransactionsWhileTransactionsAreBeingSelected() throws Exception {
+    final Transaction transaction1 = transactionWithNonceAndSender(0, KEYS1);
+    final Transaction transaction2 = transactionWithNonceAndSender(1, KEYS1);
+    final Transaction transaction3 = transactionWithNonceAndSender(0, KEYS2);
+    transactions.addRemoteTransaction(transaction1);
+
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      final List<Transaction> selected = new ArrayList<>();
+      transactions.selectTransactions(
+          transaction -> {
+            selected.add(transaction);
+            try {
+              assertThat(
+                      executorService
+                          .submit(
+                              () ->
+                                  transactions.addRemoteTransaction(transaction2)
+                                      && transactions.addRemoteTransaction(transaction3))
+                          .get(10, TimeUnit.SECONDS))
+                  .isTrue();
+            } catch (final Exception e) {
+              throw new IllegalStateException(e);
+            }
+            return TransactionSelectionResult.CONTINUE;
+          });
+
+      // The transactions added during the selection are left for the next one.
+      assertThat(selected).containsExactly(transaction1);
+      assertThat(transactions.size()).isEqualTo(3);
+      assertMaximumNonceForSender(SENDER1, 2);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private List<Transaction> selectAll() {
+    final List<Transaction> selected = new ArrayList<>();
+    transactions.selectTransactions(
+        transaction -> {
+          selected.add(transaction);
+          return TransactionSelectionResult.CONTINUE;
+        });
+    return selected;
+  }
+
   private void assertMaximumNonceForSender(final Address sender1, final int i) {
     assertThat(transactions.getNextNonceForSender(sender1)).isEqualTo(OptionalLong.of(i));
   }
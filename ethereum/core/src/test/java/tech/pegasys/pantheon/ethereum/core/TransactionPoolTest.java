@@ -30,7 +30,9 @@ import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static tech.pegasys.pantheon.ethereum.core.InMemoryTestFixture.createInMemoryBlockchain;
 import static tech.pegasys.pantheon.ethereum.core.InMemoryTestFixture.createInMemoryWorldStateArchive;
+import static tech.pegasys.pantheon.ethereum.mainnet.TransactionValidator.TransactionInvalidReason.CHAIN_HEAD_WORLD_STATE_NOT_AVAILABLE;
 import static tech.pegasys.pantheon.ethereum.mainnet.TransactionValidator.TransactionInvalidReason.EXCEEDS_BLOCK_GAS_LIMIT;
+import static tech.pegasys.pantheon.ethereum.mainnet.TransactionValidator.TransactionInvalidReason.INCORRECT_NONCE;
 import static tech.pegasys.pantheon.ethereum.mainnet.TransactionValidator.TransactionInvalidReason.NONCE_TOO_LOW;
 import static tech.pegasys.pantheon.ethereum.mainnet.ValidationResult.valid;
 
@@ -38,16 +40,20 @@ import tech.pegasys.pantheon.crypto.SECP256K1.KeyPair;
 import tech.pegasys.pantheon.ethereum.ProtocolContext;
 import tech.pegasys.pantheon.ethereum.chain.GenesisConfig;
 import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
+import tech.pegasys.pantheon.ethereum.core.PendingTransactions.TransactionSelectionResult;
 import tech.pegasys.pantheon.ethereum.core.TransactionPool.TransactionBatchAddedListener;
 import tech.pegasys.pantheon.ethereum.db.WorldStateArchive;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSpec;
 import tech.pegasys.pantheon.ethereum.mainnet.TransactionValidator;
 import tech.pegasys.pantheon.ethereum.mainnet.ValidationResult;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -55,6 +61,7 @@ import org.junit.Test;
 public class TransactionPoolTest {
 
   private static final int MAX_TRANSACTIONS = 5;
+  private static final int MAX_NONCE_GAP = 2;
   private static final KeyPair KEY_PAIR1 = KeyPair.generate();
 
   private final PendingTransactionListener listener = mock(PendingTransactionListener.class);
@@ -69,6 +76,8 @@ public class TransactionPoolTest {
 
   private final TransactionValidator transactionValidator = mock(TransactionValidator.class);
   private MutableBlockchain blockchain;
+  private ProtocolContext<Void> protocolContext;
+  private long transactionPoolObserverId;
   private final PendingTransactions transactions = new PendingTransactions(MAX_TRANSACTIONS);
   private final Transaction transaction1 = createTransaction(1);
   private final Transaction transaction2 = createTransaction(2);
@@ -81,16 +90,21 @@ public class TransactionPoolTest {
     final Block genesisBlock = genesisConfig.getBlock();
     blockchain = createInMemoryBlockchain(genesisBlock);
     final WorldStateArchive worldStateArchive = createInMemoryWorldStateArchive();
-    final ProtocolContext<Void> protocolContext =
-        new ProtocolContext<>(blockchain, worldStateArchive, null);
+    protocolContext = new ProtocolContext<>(blockchain, worldStateArchive, null);
     genesisConfig.writeStateTo(worldStateArchive.getMutable(Hash.EMPTY_TRIE_HASH));
     when(protocolSchedule.getByBlockNumber(anyLong())).thenReturn(protocolSpec);
     when(protocolSpec.getTransactionValidator()).thenReturn(transactionValidator);
     genesisBlockGasLimit = genesisBlock.getHeader().getGasLimit();
 
     transactionPool =
-        new TransactionPool(transactions, protocolSchedule, protocolContext, batchAddedListener);
-    blockchain.observeBlockAdded(transactionPool);
+        new TransactionPool(
+            transactions,
+            protocolSchedule,
+            protocolContext,
+            batchAddedListener,
+            CompletableFuture.completedFuture(null),
+            MAX_NONCE_GAP);
+    transactionPoolObserverId = blockchain.observeBlockAdded(transactionPool);
   }
 
   @Test
@@ -217,7 +231,7 @@ public class TransactionPoolTest {
   public void shouldNotAddRemoteTransactionsThatAreInvalidAccordingToStateDependentChecks() {
     givenTransactionIsValid(transaction2);
     when(transactionValidator.validate(transaction1)).thenReturn(valid());
-    when(transactionValidator.validateForSender(transaction1, null, OptionalLong.empty()))
+    when(transactionValidator.validateForSender(transaction1, null, OptionalLong.of(2)))
         .thenReturn(ValidationResult.invalid(NONCE_TOO_LOW));
 
     transactionPool.addRemoteTransactions(asList(transaction1, transaction2));
@@ -230,19 +244,19 @@ public class TransactionPoolTest {
   @Test
   public void shouldAllowSequenceOfTransactionsWithIncreasingNonceFromSameSender() {
     final TransactionTestFixture builder = new TransactionTestFixture();
-    final Transaction transaction1 = builder.nonce(1).createTransaction(KEY_PAIR1);
-    final Transaction transaction2 = builder.nonce(2).createTransaction(KEY_PAIR1);
-    final Transaction transaction3 = builder.nonce(3).createTransaction(KEY_PAIR1);
+    final Transaction transaction1 = builder.nonce(0).createTransaction(KEY_PAIR1);
+    final Transaction transaction2 = builder.nonce(1).createTransaction(KEY_PAIR1);
+    final Transaction transaction3 = builder.nonce(2).createTransaction(KEY_PAIR1);
 
     when(transactionValidator.validate(any(Transaction.class))).thenReturn(valid());
     when(transactionValidator.validateForSender(
-            eq(transaction1), nullable(Account.class), eq(OptionalLong.empty())))
+            eq(transaction1), nullable(Account.class), eq(OptionalLong.of(2))))
         .thenReturn(valid());
     when(transactionValidator.validateForSender(
-            eq(transaction2), nullable(Account.class), eq(OptionalLong.of(2))))
+            eq(transaction2), nullable(Account.class), eq(OptionalLong.of(3))))
         .thenReturn(valid());
     when(transactionValidator.validateForSender(
-            eq(transaction3), nullable(Account.class), eq(OptionalLong.of(3))))
+            eq(transaction3), nullable(Account.class), eq(OptionalLong.of(4))))
         .thenReturn(valid());
 
     assertThat(transactionPool.addLocalTransaction(transaction1)).isEqualTo(valid());
@@ -255,22 +269,86 @@ public class TransactionPoolTest {
   }
 
   @Test
-  public void
-      shouldAllowSequenceOfTransactionsWithIncreasingNonceFromSameSenderWhenSentInBatchOutOfOrder() {
+  public void shouldNotSelectTransactionsAheadOfTheSenderAccountNonce() {
+    final TransactionTestFixture builder = new TransactionTestFixture();
+    final Transaction transaction1 = builder.nonce(1).createTransaction(KEY_PAIR1);
+
+    when(transactionValidator.validate(any(Transaction.class))).thenReturn(valid());
+    when(transactionValidator.validateForSender(
+            eq(transaction1), nullable(Account.class), eq(OptionalLong.of(2))))
+        .thenReturn(valid());
+
+    transactionPool.addRemoteTransactions(singletonList(transaction1));
+
+    // The sender's account doesn't exist, so its next nonce is zero.
+    assertTransactionPending(transaction1);
+    final List<Transaction> selected = new ArrayList<>();
+    transactions.selectTransactions(
+        transaction -> {
+          selected.add(transaction);
+          return TransactionSelectionResult.CONTINUE;
+        });
+    assertThat(selected).isEmpty();
+  }
+
+  @Test
+  public void shouldKeepGappedTransactionAsFutureUntilTheGapIsFilled() {
     final TransactionTestFixture builder = new TransactionTestFixture();
+    final Transaction transaction0 = builder.nonce(0).createTransaction(KEY_PAIR1);
     final Transaction transaction1 = builder.nonce(1).createTransaction(KEY_PAIR1);
     final Transaction transaction2 = builder.nonce(2).createTransaction(KEY_PAIR1);
+    givenNoncesAreValidatedAgainstMaximumNonce();
+
+    transactionPool.addRemoteTransactions(singletonList(transaction2));
+
+    assertTransactionPending(transaction2);
+    assertThat(selectTransactions()).isEmpty();
+
+    transactionPool.addRemoteTransactions(singletonList(transaction0));
+
+    assertThat(selectTransactions()).containsExactly(transaction0);
+
+    transactionPool.addRemoteTransactions(singletonList(transaction1));
+
+    assertThat(selectTransactions()).containsExactly(transaction0, transaction1, transaction2);
+  }
+
+  @Test
+  public void shouldRejectTransactionsBeyondTheMaximumNonceGap() {
+    final TransactionTestFixture builder = new TransactionTestFixture();
+    final Transaction transaction0 = builder.nonce(0).createTransaction(KEY_PAIR1);
     final Transaction transaction3 = builder.nonce(3).createTransaction(KEY_PAIR1);
+    givenNoncesAreValidatedAgainstMaximumNonce();
+
+    assertThat(transactionPool.addLocalTransaction(transaction3))
+        .isEqualTo(ValidationResult.invalid(INCORRECT_NONCE));
+    assertTransactionNotPending(transaction3);
+
+    // Once the sender's next transaction is ready the allowed gap starts after it.
+    transactionPool.addRemoteTransactions(singletonList(transaction0));
+    assertThat(transactionPool.addLocalTransaction(transaction3)).isEqualTo(valid());
+
+    assertTransactionPending(transaction3);
+    assertThat(selectTransactions()).containsExactly(transaction0);
+  }
+
+  @Test
+  public void
+      shouldAllowSequenceOfTransactionsWithIncreasingNonceFromSameSenderWhenSentInBatchOutOfOrder() {
+    final TransactionTestFixture builder = new TransactionTestFixture();
+    final Transaction transaction1 = builder.nonce(0).createTransaction(KEY_PAIR1);
+    final Transaction transaction2 = builder.nonce(1).createTransaction(KEY_PAIR1);
+    final Transaction transaction3 = builder.nonce(2).createTransaction(KEY_PAIR1);
 
     when(transactionValidator.validate(any(Transaction.class))).thenReturn(valid());
     when(transactionValidator.validateForSender(
-            eq(transaction1), nullable(Account.class), eq(OptionalLong.empty())))
+            eq(transaction1), nullable(Account.class), eq(OptionalLong.of(2))))
         .thenReturn(valid());
     when(transactionValidator.validateForSender(
-            eq(transaction2), nullable(Account.class), eq(OptionalLong.of(2))))
+            eq(transaction2), nullable(Account.class), eq(OptionalLong.of(3))))
         .thenReturn(valid());
     when(transactionValidator.validateForSender(
-            eq(transaction3), nullable(Account.class), eq(OptionalLong.of(3))))
+            eq(transaction3), nullable(Account.class), eq(OptionalLong.of(4))))
         .thenReturn(valid());
 
     transactionPool.addRemoteTransactions(asList(transaction3, transaction1, transaction2));
@@ -290,7 +368,7 @@ public class TransactionPoolTest {
 
     when(transactionValidator.validate(any(Transaction.class))).thenReturn(valid());
     when(transactionValidator.validateForSender(
-            eq(transaction1), nullable(Account.class), eq(OptionalLong.empty())))
+            eq(transaction1), nullable(Account.class), eq(OptionalLong.of(2))))
         .thenReturn(valid());
     when(transactionValidator.validateForSender(
             eq(transaction2), nullable(Account.class), eq(OptionalLong.of(2))))
@@ -314,7 +392,7 @@ public class TransactionPoolTest {
 
     when(transactionValidator.validate(any(Transaction.class))).thenReturn(valid());
     when(transactionValidator.validateForSender(
-            eq(transaction1), nullable(Account.class), eq(OptionalLong.empty())))
+            eq(transaction1), nullable(Account.class), eq(OptionalLong.of(2))))
         .thenReturn(valid());
     when(transactionValidator.validateForSender(
             eq(transaction2), nullable(Account.class), eq(OptionalLong.of(2))))
@@ -357,12 +435,74 @@ public class TransactionPoolTest {
     verifyZeroInteractions(batchAddedListener);
   }
 
+  @Test
+  public void shouldRemoveIncludedTransactionsWhenBlockWithoutWorldStateIsImportedBeforeFullSync() {
+    final TransactionTestFixture builder = new TransactionTestFixture();
+    final Transaction pendingTransaction = builder.nonce(2).createTransaction(KEY_PAIR1);
+    final Transaction includedTransaction = builder.nonce(1).createTransaction(KEY_PAIR1);
+    transactions.addRemoteTransaction(pendingTransaction, 0);
+    transactions.addRemoteTransaction(includedTransaction, 0);
+    useTransactionPoolBeforeFullSync();
+
+    // Fast synced blocks are imported without their world state.
+    final BlockHeader parent = getHeaderForCurrentChainHead();
+    final Block block =
+        new Block(
+            new BlockHeaderTestFixture()
+                .difficulty(UInt256.ONE)
+                .parentHash(parent.getHash())
+                .number(parent.getNumber() + 1)
+                .stateRoot(Hash.hash(BytesValue.of(1)))
+                .buildHeader(),
+            new BlockBody(singletonList(includedTransaction), emptyList()));
+    blockchain.appendBlock(block, singletonList(new TransactionReceipt(1, 1, emptyList())));
+
+    verifyChainHeadIs(block);
+    assertTransactionNotPending(includedTransaction);
+    assertTransactionPending(pendingTransaction);
+  }
+
+  @Test
+  public void shouldRejectTransactionsBeforeFullSync() {
+    final CompletableFuture<Void> fullSyncStarted = useTransactionPoolBeforeFullSync();
+    givenTransactionIsValid(transaction1);
+    givenTransactionIsValid(transaction2);
+
+    assertThat(transactionPool.addLocalTransaction(transaction1))
+        .isEqualTo(ValidationResult.invalid(CHAIN_HEAD_WORLD_STATE_NOT_AVAILABLE));
+    transactionPool.addRemoteTransactions(singleton(transaction2));
+
+    assertTransactionNotPending(transaction1);
+    assertTransactionNotPending(transaction2);
+    verifyZeroInteractions(batchAddedListener);
+
+    fullSyncStarted.complete(null);
+    transactionPool.addRemoteTransactions(singleton(transaction2));
+
+    assertTransactionPending(transaction2);
+  }
+
   @Test
   public void shouldNotNotifyBatchListenerIfNoTransactionsAreAdded() {
     transactionPool.addRemoteTransactions(emptyList());
     verifyZeroInteractions(batchAddedListener);
   }
 
+  private CompletableFuture<Void> useTransactionPoolBeforeFullSync() {
+    final CompletableFuture<Void> fullSyncStarted = new CompletableFuture<>();
+    blockchain.removeObserver(transactionPoolObserverId);
+    transactionPool =
+        new TransactionPool(
+            transactions,
+            protocolSchedule,
+            protocolContext,
+            batchAddedListener,
+            fullSyncStarted,
+            MAX_NONCE_GAP);
+    transactionPoolObserverId = blockchain.observeBlockAdded(transactionPool);
+    return fullSyncStarted;
+  }
+
   private void assertTransactionPending(final Transaction t) {
     assertThat(transactions.getTransactionByHash(t.hash())).contains(t);
   }
@@ -412,6 +552,30 @@ public class TransactionPoolTest {
         .createTransaction(KEY_PAIR1);
   }
 
+  private List<Transaction> selectTransactions() {
+    final List<Transaction> selected = new ArrayList<>();
+    transactions.selectTransactions(
+        transaction -> {
+          selected.add(transaction);
+          return TransactionSelectionResult.CONTINUE;
+        });
+    return selected;
+  }
+
+  private void givenNoncesAreValidatedAgainstMaximumNonce() {
+    when(transactionValidator.validate(any(Transaction.class))).thenReturn(valid());
+    when(transactionValidator.validateForSender(
+            any(Transaction.class), nullable(Account.class), any(OptionalLong.class)))
+        .thenAnswer(
+            invocation -> {
+              final Transaction transaction = invocation.getArgument(0);
+              final OptionalLong maximumNonce = invocation.getArgument(2);
+              return transaction.getNonce() > maximumNonce.getAsLong()
+                  ? ValidationResult.invalid(INCORRECT_NONCE)
+                  : valid();
+            });
+  }
+
   private void givenTransactionIsValid(final Transaction transaction) {
     when(transactionValidator.validate(transaction)).thenReturn(valid());
     when(transactionValidator.validateForSender(
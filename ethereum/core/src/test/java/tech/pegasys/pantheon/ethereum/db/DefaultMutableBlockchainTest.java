@@ -14,6 +14,10 @@ package tech.pegasys.pantheon.ethereum.db;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import tech.pegasys.pantheon.ethereum.chain.Blockchain;
 import tech.pegasys.pantheon.ethereum.core.Block;
@@ -29,6 +33,7 @@ import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -157,6 +162,61 @@ public class DefaultMutableBlockchainTest {
     assertThat(blockchain.getForks()).isEmpty();
   }
 
+  @Test
+  public void batchedReadsMatchSingleReads() {
+    final BlockDataGenerator gen = new BlockDataGenerator();
+    final List<Block> chain = gen.blockSequence(4);
+    final List<List<TransactionReceipt>> blockReceipts =
+        chain.stream().map(gen::receipts).collect(Collectors.toList());
+
+    final KeyValueStorage kvStore = new InMemoryKeyValueStorage();
+    final DefaultMutableBlockchain blockchain = createBlockchain(kvStore, chain.get(0));
+    for (int i = 1; i < chain.size(); i++) {
+      blockchain.appendBlock(chain.get(i), blockReceipts.get(i));
+    }
+
+    assertThat(blockchain.getBlockHeadersByNumber(Arrays.asList(3L, 7L, 1L)))
+        .containsExactly(
+            Optional.of(chain.get(3).getHeader()),
+            Optional.empty(),
+            Optional.of(chain.get(1).getHeader()));
+
+    final Hash unknownHash = gen.block().getHash();
+    final List<Hash> hashes = Arrays.asList(chain.get(2).getHash(), unknownHash);
+    assertThat(blockchain.getBlockBodies(hashes))
+        .containsExactly(Optional.of(chain.get(2).getBody()), Optional.empty());
+    assertThat(blockchain.getTxReceipts(hashes))
+        .containsExactly(Optional.of(blockReceipts.get(2)), Optional.empty());
+  }
+
+  @Test
+  public void chainHeadAndRecentHeadersAreServedFromMemory() {
+    final BlockDataGenerator gen = new BlockDataGenerator();
+    final List<Block> chain = gen.blockSequence(3);
+    final BlockchainStorage storage =
+        spy(
+            new KeyValueStoragePrefixedKeyBlockchainStorage(
+                new InMemoryKeyValueStorage(), MainnetBlockHashFunction::createHash));
+    final DefaultMutableBlockchain blockchain = new DefaultMutableBlockchain(chain.get(0), storage);
+    for (int i = 1; i < chain.size(); i++) {
+      blockchain.appendBlock(chain.get(i), gen.receipts(chain.get(i)));
+    }
+    reset(storage);
+
+    final Block head = chain.get(2);
+    assertThat(blockchain.getChainHeadHash()).isEqualTo(head.getHash());
+    assertThat(blockchain.getChainHeadBlockNumber()).isEqualTo(head.getHeader().getNumber());
+    assertThat(blockchain.getChainHeadHeader()).isEqualTo(head.getHeader());
+    assertThat(blockchain.getChainHead().getTotalDifficulty())
+        .isEqualTo(storage.getTotalDifficulty(head.getHash()).get());
+    assertThat(blockchain.getBlockHeader(1)).contains(chain.get(1).getHeader());
+    assertThat(blockchain.getBlockHeadersByNumber(Arrays.asList(2L, 1L)))
+        .containsExactly(Optional.of(head.getHeader()), Optional.of(chain.get(1).getHeader()));
+
+    verify(storage).getTotalDifficulty(head.getHash());
+    verifyNoMoreInteractions(storage);
+  }
+
   @Test
   public void appendBlockWithReorgToChainAtEqualHeight() {
     final BlockDataGenerator gen = new BlockDataGenerator(1);
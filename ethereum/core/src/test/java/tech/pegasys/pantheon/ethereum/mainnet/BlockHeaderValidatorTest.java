@@ -227,6 +227,25 @@ public class BlockHeaderValidatorTest {
         .isFalse();
   }
 
+  @Test
+  public void shouldOnlyPerformLightDetachedRulesWhenDoingLightDetachedValidation() {
+    final DetachedBlockHeaderValidationRule lightRule = createPassingDetachedRule(true);
+    final BlockHeaderValidator<Void> validator =
+        new BlockHeaderValidator.Builder<Void>()
+            .addRule(createFailingAttachedRule())
+            .addRule(createFailingDetachedRule(false))
+            .addRule(lightRule)
+            .build();
+
+    final BlockHeader header = generator.header();
+    final BlockHeader parent = generator.header();
+    assertThat(
+            validator.validateHeader(
+                header, parent, protocolContext, HeaderValidationMode.LIGHT_DETACHED_ONLY))
+        .isTrue();
+    verify(lightRule).validate(header, parent);
+  }
+
   @Test
   public void shouldRunRulesInOrderOfAdditionDuringFullValidation() {
     final AttachedBlockHeaderValidationRule<Void> rule1 = createPassingAttachedRule();
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import tech.pegasys.pantheon.ethereum.core.Account;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import org.junit.Test;
+
+public class CodeCacheTest {
+
+  private final CodeCache codeCache = new CodeCache(CodeCache.DEFAULT_MAXIMUM_SIZE_IN_BYTES);
+
+  private static Account account(final BytesValue code) {
+    final Account account = mock(Account.class);
+    when(account.getCode()).thenReturn(code);
+    when(account.getCodeHash()).thenReturn(Hash.hash(code));
+    return account;
+  }
+
+  @Test
+  public void analyzedCodeIsSharedByAccountsWithTheSameCode() {
+    final BytesValue bytes = BytesValue.fromHexString("0x6001600101");
+    final Code code = codeCache.getOrCreate(account(bytes));
+    assertThat(code.getBytes()).isEqualTo(bytes);
+
+    final Account other = account(bytes);
+    assertThat(codeCache.getOrCreate(other)).isSameAs(code);
+    verify(other, never()).getCode();
+  }
+
+  @Test
+  public void missingAndCodelessAccountsHaveEmptyCode() {
+    assertThat(codeCache.getOrCreate(null).getSize()).isZero();
+
+    final Account account = account(BytesValue.EMPTY);
+    assertThat(codeCache.getOrCreate(account).getSize()).isZero();
+    verify(account, never()).getCode();
+  }
+
+  @Test
+  public void weightIncludesTheAnalysisOfTheCode() {
+    final int size = 24 * 1024;
+    final Code code = new Code(BytesValue.wrap(new byte[size]));
+
+    // At least the bytes plus a reference per byte in each of the push value and run tables.
+    assertThat(CodeCache.weigh(code)).isGreaterThan(size + 2 * 4 * size);
+    assertThat(CodeCache.weigh(code)).isGreaterThan(CodeCache.weigh(new Code()));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.mainnet.MainnetProtocolSchedule;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import org.junit.Test;
+
+public class CodeTest {
+
+  @Test
+  public void jumpDestinationsInsidePushDataAreNotValid() {
+    // PUSH2 0x5b5b JUMPDEST PUSH1
+    final Code code = new Code(BytesValue.fromHexString("0x615b5b5b60"));
+    assertThat(code.isValidJumpDestination(UInt256.of(0))).isFalse();
+    assertThat(code.isValidJumpDestination(UInt256.of(1))).isFalse();
+    assertThat(code.isValidJumpDestination(UInt256.of(2))).isFalse();
+    assertThat(code.isValidJumpDestination(UInt256.of(3))).isTrue();
+    assertThat(code.isValidJumpDestination(UInt256.of(5))).isFalse();
+    assertThat(code.isValidJumpDestination(UInt256.of(1L << 40))).isFalse();
+  }
+
+  @Test
+  public void pushValuesAreDecoded() {
+    // PUSH2 0x0102 PUSH32 0xff..ff
+    final Code code =
+        new Code(
+            BytesValue.fromHexString(
+                "0x6101027fffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff"));
+    assertThat(code.getPushValue(0)).isEqualTo(Bytes32.fromHexString("0x0102"));
+    assertThat(code.getPushValue(3))
+        .isEqualTo(
+            Bytes32.fromHexString(
+                "0xffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff"));
+  }
+
+  @Test
+  public void truncatedPushValuesArePaddedWithZeros() {
+    // PUSH3 0x0102, missing its last byte.
+    final Code code = new Code(BytesValue.fromHexString("0x620102"));
+    assertThat(code.getPushValue(0)).isEqualTo(Bytes32.fromHexString("0x010200"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void pushValueOfOtherOperationIsRejected() {
+    new Code(BytesValue.fromHexString("0x6001600101")).getPushValue(4);
+  }
+
+  @Test
+  public void codeIsSplitIntoBasicBlocks() {
+    // 0: PUSH1 0x05 2: JUMP 3: STOP 4: STOP 5: JUMPDEST 6: PUSH1 0x00 8: JUMPI 9: ADD
+    final Code blocks = new Code(BytesValue.fromHexString("0x60055600005b60005701"));
+    assertThat(blocks.isBasicBlockStart(0)).isTrue();
+    assertThat(blocks.getBasicBlockEnd(0)).isEqualTo(3);
+    assertThat(blocks.isBasicBlockStart(3)).isTrue();
+    assertThat(blocks.getBasicBlockEnd(3)).isEqualTo(4);
+    assertThat(blocks.getBasicBlockEnd(4)).isEqualTo(5);
+    assertThat(blocks.isBasicBlockStart(5)).isTrue();
+    assertThat(blocks.isBasicBlockStart(6)).isFalse();
+    assertThat(blocks.getBasicBlockEnd(6)).isEqualTo(9);
+    assertThat(blocks.getBasicBlockEnd(9)).isEqualTo(10);
+  }
+
+  @Test
+  public void fixedCostOperationsAreMeteredInRuns() {
+    final EVM evm = MainnetProtocolSchedule.create().getByBlockNumber(0).getEvm();
+    // 0: PUSH1 0x0a 2: JUMPDEST PUSH1 0x01 SWAP1 SUB DUP1 8: PUSH1 0x02 10: JUMPI 11: MSIZE MSTORE
+    final Code code = new Code(BytesValue.fromHexString("0x600a5b60019003806002575952"));
+    final MeteredCode meteredCode = new MeteredCode(evm, code);
+    // A single operation isn't worth a run.
+    assertThat(meteredCode.runAt(0)).isNull();
+    // The loop body, ending with the push fused into the conditional jump.
+    assertThat(meteredCode.runAt(2)).isNotNull();
+    assertThat(meteredCode.runAt(3)).isNull();
+    assertThat(meteredCode.runAt(8)).isNull();
+    // MSTORE has a dynamic cost.
+    assertThat(meteredCode.runAt(11)).isNull();
+  }
+}
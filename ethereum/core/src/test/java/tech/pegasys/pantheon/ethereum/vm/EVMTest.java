@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.core.TestCodeExecutor;
+import tech.pegasys.pantheon.ethereum.mainnet.MainnetProtocolSchedule;
+import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/** Checks that untraced execution ends in exactly the same state as tracing every operation. */
+@RunWith(Parameterized.class)
+public class EVMTest {
+
+  // Constantinople from the genesis block, so every operation is available.
+  private static final ProtocolSchedule<Void> PROTOCOL_SCHEDULE =
+      MainnetProtocolSchedule.create(0, 0, 0, 0, 0, 0, 1);
+
+  private static final OperationTracer TRACING =
+      (frame, currentGasCost, executeOperation) -> executeOperation.execute();
+
+  @Parameters(name = "{0}: {1} with {2} gas")
+  public static Object[][] parameters() {
+    return new Object[][] {
+      {"memory expansion", "0x6020604052606060002060105100", 1_000_000},
+      {"out of gas while hashing", "0x6020604052606060002060105100", 40},
+      {"exponent", "0x60ff6101020a00", 1_000_000},
+      {"out of gas for the exponent", "0x60ff6101020a00", 10},
+      {"code copy", "0x6020600060103900", 1_000_000},
+      {"out of gas expanding memory", "0x600062ffffff5200", 1_000_000},
+      {
+        "memory offset overflowing the gas cost",
+        "0x60007f800000000000000000000000000000000000000000000000000000000000000052",
+        1_000_000
+      },
+      {"stack underflow storing to memory", "0x600152", 1_000_000},
+      {"stack underflow hashing", "0x20", 1_000_000},
+      {"stack overflow", "0x5b600051600056", 1_000_000},
+      {"invalid operation", "0x6001fe", 1_000_000},
+      {"storage write", "0x602a60005500", 1_000_000},
+      {"out of gas writing storage", "0x602a60005500", 5_000},
+      {"storage write then clear", "0x602a600055600060005500", 1_000_000},
+      {"log", "0x602a6000526001600260206000a200", 1_000_000},
+      {"shift", "0x600160041b00", 1_000_000},
+      {"revert", "0x602a60005260206000fd", 1_000_000},
+      {"return", "0x602a60005260206000f3", 1_000_000},
+    };
+  }
+
+  @Parameter public String name;
+
+  @Parameter(value = 1)
+  public String code;
+
+  @Parameter(value = 2)
+  public long gasLimit;
+
+  @Test
+  public void untracedExecutionMatchesTracedExecution() {
+    final TestCodeExecutor executor = new TestCodeExecutor(PROTOCOL_SCHEDULE);
+    final MessageFrame expected = executor.executeCode(code, gasLimit, account -> {}, TRACING);
+    final MessageFrame actual = executor.executeCode(code, gasLimit, account -> {});
+
+    assertThat(actual.getState()).isEqualTo(expected.getState());
+    assertThat(actual.getExceptionalHaltReasons()).isEqualTo(expected.getExceptionalHaltReasons());
+    assertThat(actual.getRemainingGas()).isEqualTo(expected.getRemainingGas());
+    assertThat(actual.getGasRefund()).isEqualTo(expected.getGasRefund());
+    assertThat(actual.getPC()).isEqualTo(expected.getPC());
+    assertThat(actual.getOutputData()).isEqualTo(expected.getOutputData());
+    assertThat(actual.getLogs()).isEqualTo(expected.getLogs());
+
+    assertThat(actual.stackSize()).isEqualTo(expected.stackSize());
+    for (int i = 0; i < expected.stackSize(); i++) {
+      assertThat(actual.getStackItem(i)).isEqualTo(expected.getStackItem(i));
+    }
+
+    assertThat(actual.memoryByteSize()).isEqualTo(expected.memoryByteSize());
+    final UInt256 memorySize = UInt256.of(expected.memoryByteSize());
+    assertThat(actual.readMemory(UInt256.ZERO, memorySize))
+        .isEqualTo(expected.readMemory(UInt256.ZERO, memorySize));
+  }
+}
@@ -38,6 +38,20 @@ public class MemoryTest {
     assertThat(memory.getWord(index)).isEqualTo(value);
   }
 
+  @Test
+  public void shouldExpandToWholeWordsAndPreserveContentsWhenGrowing() {
+    final Bytes32 value = Bytes32.fromHexString("0xABCDEF");
+    memory.setWord(UInt256.of(3), value);
+    assertThat(memory.getActiveWords()).isEqualTo(UInt256.of(2));
+    assertThat(memory.getActiveBytes()).isEqualTo(64);
+
+    memory.setWord(UInt256.of(4096), WORD1);
+    assertThat(memory.getActiveWords()).isEqualTo(UInt256.of(129));
+    assertThat(memory.getWord(UInt256.of(3))).isEqualTo(value);
+    assertThat(memory.getWord(UInt256.of(4096))).isEqualTo(WORD1);
+    assertThat(memory.getWord(UInt256.of(2048))).isEqualTo(Bytes32.ZERO);
+  }
+
   @Test
   public void shouldSetMemoryWhenLengthEqualToSourceLength() {
     final BytesValue value = BytesValues.concatenate(WORD1, WORD2, WORD3);
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.core.TestCodeExecutor;
+import tech.pegasys.pantheon.ethereum.mainnet.MainnetProtocolSchedule;
+import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class MeteredCodeTest {
+
+  private static final ProtocolSchedule<Void> PROTOCOL_SCHEDULE = MainnetProtocolSchedule.create();
+
+  // Any tracer other than NO_TRACING makes the EVM execute one operation at a time.
+  private static final OperationTracer SINGLE_STEPPING =
+      (frame, currentGasCost, executeOperation) -> executeOperation.execute();
+
+  @Parameters(name = "{0} with {1} gas")
+  public static Object[][] parameters() {
+    return new Object[][] {
+      // Count down from 10 with a fused PUSH JUMPI.
+      {"0x600a5b6001900380600257", 1_000_000},
+      // The same loop running out of gas part way through a run.
+      {"0x600a5b6001900380600257", 150},
+      // A fused PUSH JUMP over an invalid operation.
+      {"0x600456fe5b600160020100", 1_000_000},
+      // A stack underflow at the end of a run.
+      {"0x600101", 1_000_000},
+      // A jump to an invalid destination, which isn't fused.
+      {"0x6003600156", 1_000_000},
+      // A conditional jump with a zero condition to an invalid destination.
+      {"0x600060ff5700", 1_000_000},
+      // Pushing until the stack overflows.
+      {"0x5b6001600056", 1_000_000},
+      // Runs broken up by operations with dynamic costs.
+      {"0x602a60005260206000f3", 1_000_000},
+    };
+  }
+
+  @Parameter public String code;
+
+  @Parameter(value = 1)
+  public long gasLimit;
+
+  @Test
+  public void runsOfFixedCostOperationsBehaveLikeSingleSteps() {
+    final TestCodeExecutor executor = new TestCodeExecutor(PROTOCOL_SCHEDULE);
+    final MessageFrame expected =
+        executor.executeCode(code, gasLimit, account -> {}, SINGLE_STEPPING);
+    final MessageFrame actual = executor.executeCode(code, gasLimit, account -> {});
+
+    assertThat(actual.getState()).isEqualTo(expected.getState());
+    assertThat(actual.getExceptionalHaltReasons()).isEqualTo(expected.getExceptionalHaltReasons());
+    assertThat(actual.getRemainingGas()).isEqualTo(expected.getRemainingGas());
+    assertThat(actual.getPC()).isEqualTo(expected.getPC());
+    assertThat(actual.getOutputData()).isEqualTo(expected.getOutputData());
+    assertThat(actual.stackSize()).isEqualTo(expected.stackSize());
+    for (int i = 0; i < expected.stackSize(); i++) {
+      assertThat(actual.getStackItem(i)).isEqualTo(expected.getStackItem(i));
+    }
+  }
+}
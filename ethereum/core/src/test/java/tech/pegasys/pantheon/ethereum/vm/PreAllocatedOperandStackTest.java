@@ -13,8 +13,11 @@
 package tech.pegasys.pantheon.ethereum.vm;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.uint.UInt256Limbs;
 
 import org.junit.Test;
 
@@ -102,4 +105,88 @@ public class PreAllocatedOperandStackTest {
     assertThat(stack.get(1)).isEqualTo(Bytes32.fromHexString("0x02"));
     assertThat(stack.get(2)).isEqualTo(Bytes32.fromHexString("0x04"));
   }
+
+  @Test
+  public void dup() {
+    final OperandStack stack = new PreAllocatedOperandStack(3);
+    stack.push(Bytes32.fromHexString("0x01"));
+    stack.push(Bytes32.fromHexString("0x02"));
+    stack.dup(1);
+    assertThat(stack.size()).isEqualTo(3);
+    assertThat(stack.get(0)).isEqualTo(Bytes32.fromHexString("0x01"));
+    assertThat(stack.get(1)).isEqualTo(Bytes32.fromHexString("0x02"));
+    assertThat(stack.get(2)).isEqualTo(Bytes32.fromHexString("0x01"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void dup_StackOverflow() {
+    final OperandStack stack = new PreAllocatedOperandStack(1);
+    stack.push(Bytes32.fromHexString("0x01"));
+    stack.dup(0);
+  }
+
+  @Test
+  public void swap() {
+    final OperandStack stack = new PreAllocatedOperandStack(3);
+    stack.push(Bytes32.fromHexString("0x01"));
+    stack.push(Bytes32.fromHexString("0x02"));
+    stack.push(Bytes32.fromHexString("0x03"));
+    stack.swap(2);
+    assertThat(stack.get(0)).isEqualTo(Bytes32.fromHexString("0x01"));
+    assertThat(stack.get(1)).isEqualTo(Bytes32.fromHexString("0x02"));
+    assertThat(stack.get(2)).isEqualTo(Bytes32.fromHexString("0x03"));
+  }
+
+  @Test
+  public void applyBinaryOperation() {
+    final OperandStack stack = new PreAllocatedOperandStack(3);
+    stack.push(Bytes32.fromHexString("0x07"));
+    stack.push(Bytes32.fromHexString("0x02"));
+    stack.push(Bytes32.fromHexString("0x05"));
+    stack.apply(UInt256Limbs::subtract);
+    assertThat(stack.size()).isEqualTo(2);
+    assertThat(stack.get(0)).isEqualTo(Bytes32.fromHexString("0x03"));
+    assertThat(stack.get(1)).isEqualTo(Bytes32.fromHexString("0x07"));
+  }
+
+  @Test
+  public void applyTernaryOperation() {
+    final OperandStack stack = new PreAllocatedOperandStack(4);
+    stack.push(Bytes32.fromHexString("0x01"));
+    stack.push(Bytes32.fromHexString("0x04"));
+    stack.push(Bytes32.fromHexString("0x03"));
+    stack.push(Bytes32.fromHexString("0x02"));
+    stack.apply(UInt256Limbs::addModulo);
+    assertThat(stack.size()).isEqualTo(2);
+    assertThat(stack.get(0)).isEqualTo(Bytes32.fromHexString("0x01"));
+    assertThat(stack.get(1)).isEqualTo(Bytes32.fromHexString("0x01"));
+  }
+
+  @Test
+  public void growsBeyondInitialCapacityUpToMaximumSize() {
+    final int maxSize = PreAllocatedOperandStack.INITIAL_CAPACITY * 4 + 1;
+    final OperandStack stack = new PreAllocatedOperandStack(maxSize);
+    for (int i = 0; i < maxSize - 1; i++) {
+      stack.push(Bytes32.leftPad(BytesValue.of(i)));
+    }
+    stack.dup(maxSize - 2);
+
+    assertThat(stack.size()).isEqualTo(maxSize);
+    assertThat(stack.get(0)).isEqualTo(Bytes32.leftPad(BytesValue.of(0)));
+    for (int i = 1; i < maxSize; i++) {
+      assertThat(stack.get(i)).isEqualTo(Bytes32.leftPad(BytesValue.of(maxSize - 1 - i)));
+    }
+    assertThatThrownBy(() -> stack.push(Bytes32.ZERO)).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void bulkPop() {
+    final OperandStack stack = new PreAllocatedOperandStack(3);
+    stack.push(Bytes32.fromHexString("0x01"));
+    stack.push(Bytes32.fromHexString("0x02"));
+    stack.push(Bytes32.fromHexString("0x03"));
+    stack.bulkPop(2);
+    assertThat(stack.size()).isEqualTo(1);
+    assertThat(stack.get(0)).isEqualTo(Bytes32.fromHexString("0x01"));
+  }
 }
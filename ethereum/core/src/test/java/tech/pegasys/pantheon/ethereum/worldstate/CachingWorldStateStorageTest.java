@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.core.Address;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
+import tech.pegasys.pantheon.ethereum.core.Wei;
+import tech.pegasys.pantheon.ethereum.core.WorldUpdater;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+
+public class CachingWorldStateStorageTest {
+
+  private static final Address ADDRESS =
+      Address.fromHexString("0xa94f5374fce5edbc8e2a8697c15331677e6ebf0b");
+
+  private final KeyValueStorage keyValueStorage = new InMemoryKeyValueStorage();
+  private final WorldStateStorage underlyingStorage =
+      new KeyValueStorageWorldStateStorage(keyValueStorage);
+
+  @Test
+  public void secondLookupIsServedFromCache() {
+    final BytesValue node = BytesValue.fromHexString("0x0123");
+    final Bytes32 hash = Hash.hash(node);
+    keyValueStorage.put(hash, node);
+    final CachingWorldStateStorage storage = new CachingWorldStateStorage(underlyingStorage);
+
+    assertThat(storage.getAccountStateTrieNode(hash)).contains(node);
+    keyValueStorage.remove(hash);
+    assertThat(storage.getAccountStateTrieNode(hash)).contains(node);
+
+    assertThat(storage.getMissCount()).isEqualTo(1);
+    assertThat(storage.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void missingNodesAreNotCached() {
+    final BytesValue node = BytesValue.fromHexString("0x0123");
+    final Bytes32 hash = Hash.hash(node);
+    final CachingWorldStateStorage storage = new CachingWorldStateStorage(underlyingStorage);
+
+    assertThat(storage.getAccountStorageTrieNode(hash)).isEmpty();
+    keyValueStorage.put(hash, node);
+    assertThat(storage.getAccountStorageTrieNode(hash)).contains(node);
+  }
+
+  @Test
+  public void committedNodesAreCached() {
+    final BytesValue node = BytesValue.fromHexString("0x0123");
+    final Bytes32 hash = Hash.hash(node);
+    final CachingWorldStateStorage storage = new CachingWorldStateStorage(underlyingStorage);
+
+    final WorldStateStorage.Updater updater = storage.updater();
+    updater.putAccountStateTrieNode(hash, node);
+    updater.commit();
+
+    assertThat(storage.getAccountStateTrieNode(hash)).contains(node);
+    assertThat(storage.getHitCount()).isEqualTo(1);
+    assertThat(storage.getMissCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void rolledBackNodesAreNotCached() {
+    final BytesValue node = BytesValue.fromHexString("0x0123");
+    final Bytes32 hash = Hash.hash(node);
+    final CachingWorldStateStorage storage = new CachingWorldStateStorage(underlyingStorage);
+
+    final WorldStateStorage.Updater updater = storage.updater();
+    updater.putAccountStateTrieNode(hash, node);
+    updater.rollback();
+
+    assertThat(storage.getAccountStateTrieNode(hash)).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  public void nodeDataLookupsBypassTheCache() {
+    final BytesValue cachedNode = BytesValue.fromHexString("0x0123");
+    final Hash cachedHash = Hash.hash(cachedNode);
+    final BytesValue storedNode = BytesValue.fromHexString("0x4567");
+    final Hash storedHash = Hash.hash(storedNode);
+    final Hash missingHash = Hash.hash(BytesValue.fromHexString("0x89"));
+    keyValueStorage.put(cachedHash, cachedNode);
+    keyValueStorage.put(storedHash, storedNode);
+    final CachingWorldStateStorage storage = new CachingWorldStateStorage(underlyingStorage);
+    storage.getAccountStateTrieNode(cachedHash);
+
+    assertThat(storage.getNodeData(Arrays.asList(storedHash, missingHash, cachedHash)))
+        .containsExactly(Optional.of(storedNode), Optional.empty(), Optional.of(cachedNode));
+    assertThat(storage.getHitCount()).isEqualTo(0);
+    assertThat(storage.getMissCount()).isEqualTo(1);
+
+    keyValueStorage.remove(storedHash);
+    assertThat(storage.getAccountStateTrieNode(storedHash)).isEmpty();
+  }
+
+  @Test
+  public void prunedNodesAreDroppedFromTheCache() {
+    final BytesValue keptNode = BytesValue.fromHexString("0x0123");
+    final Hash keptHash = Hash.hash(keptNode);
+    final BytesValue prunedNode = BytesValue.fromHexString("0x4567");
+    final Hash prunedHash = Hash.hash(prunedNode);
+    final CachingWorldStateStorage storage = new CachingWorldStateStorage(underlyingStorage);
+    final WorldStateStorage.Updater updater = storage.updater();
+    updater.putAccountStateTrieNode(keptHash, keptNode);
+    updater.putAccountStateTrieNode(prunedHash, prunedNode);
+    updater.commit();
+
+    assertThat(storage.prune(keptHash::equals)).isEqualTo(1);
+
+    assertThat(storage.getAccountStateTrieNode(keptHash)).contains(keptNode);
+    assertThat(storage.getAccountStateTrieNode(prunedHash)).isEmpty();
+  }
+
+  @Test
+  public void nodesLookedUpWhilePruningAreDroppedOncePruningCommits() {
+    final BytesValue prunedNode = BytesValue.fromHexString("0x4567");
+    final Hash prunedHash = Hash.hash(prunedNode);
+    final AtomicReference<CachingWorldStateStorage> storage = new AtomicReference<>();
+    final WorldStateStorage racingStorage =
+        new KeyValueStorageWorldStateStorage(keyValueStorage) {
+          @Override
+          public long prune(final Predicate<BytesValue> inUseCheck) {
+            return super.prune(
+                key -> {
+                  final boolean inUse = inUseCheck.test(key);
+                  // Looked up after being dropped from the cache but before its removal commits.
+                  storage.get().getAccountStateTrieNode(Bytes32.wrap(key, 0));
+                  return inUse;
+                });
+          }
+        };
+    storage.set(new CachingWorldStateStorage(racingStorage));
+    keyValueStorage.put(prunedHash, prunedNode);
+
+    assertThat(storage.get().prune(key -> false)).isEqualTo(1);
+
+    assertThat(storage.get().getAccountStateTrieNode(prunedHash)).isEmpty();
+  }
+
+  @Test
+  public void cacheIsBoundedBySize() {
+    final CachingWorldStateStorage storage = new CachingWorldStateStorage(underlyingStorage, 1024);
+    final WorldStateStorage.Updater updater = storage.updater();
+    for (int i = 0; i < 100; i++) {
+      final BytesValue node = Hash.hash(BytesValue.of(i));
+      updater.putAccountStateTrieNode(Hash.hash(node), node);
+    }
+    updater.commit();
+
+    for (int i = 0; i < 100; i++) {
+      final BytesValue node = Hash.hash(BytesValue.of(i));
+      assertThat(storage.getAccountStateTrieNode(Hash.hash(node))).contains(node);
+    }
+    assertThat(storage.getMissCount()).isGreaterThan(0);
+    assertThat(storage.getHitCount()).isLessThan(100);
+  }
+
+  @Test
+  public void worldStatesShareTheCache() {
+    final CachingWorldStateStorage storage = new CachingWorldStateStorage(underlyingStorage);
+    final MutableWorldState worldState = new DefaultMutableWorldState(storage);
+    final WorldUpdater updater = worldState.updater();
+    updater.getOrCreate(ADDRESS).setBalance(Wei.of(100_000));
+    updater.commit();
+    worldState.persist();
+
+    final MutableWorldState other = new DefaultMutableWorldState(worldState.rootHash(), storage);
+    assertThat(other.get(ADDRESS).getBalance()).isEqualTo(Wei.of(100_000));
+    assertThat(storage.getMissCount()).isEqualTo(0);
+  }
+}
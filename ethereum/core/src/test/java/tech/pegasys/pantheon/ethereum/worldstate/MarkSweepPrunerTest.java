@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.core.Address;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.MutableAccount;
+import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
+import tech.pegasys.pantheon.ethereum.core.Wei;
+import tech.pegasys.pantheon.ethereum.core.WorldUpdater;
+import tech.pegasys.pantheon.ethereum.trie.MerkleStorageException;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MarkSweepPrunerTest {
+
+  private final KeyValueStorage keyValueStorage = new InMemoryKeyValueStorage();
+  private final WorldStateStorage worldStateStorage =
+      new KeyValueStorageWorldStateStorage(keyValueStorage);
+  private final MarkSweepPruner pruner = new MarkSweepPruner(worldStateStorage);
+
+  private Hash persistState(final Hash parentRootHash, final int seed) {
+    final MutableWorldState worldState =
+        new DefaultMutableWorldState(parentRootHash, worldStateStorage);
+    final WorldUpdater updater = worldState.updater();
+    for (int i = 0; i < 10; i++) {
+      final MutableAccount account = updater.getOrCreate(Address.fromHexString("0x" + (i + 1)));
+      account.setBalance(Wei.of(seed * 100 + i));
+      account.setStorageValue(UInt256.of(seed % 3), UInt256.of(seed + 1));
+      account.setCode(BytesValue.of(seed % 5 + 1, i));
+    }
+    updater.commit();
+    worldState.persist();
+    return worldState.rootHash();
+  }
+
+  private List<Hash> persistStates(final Hash parentRootHash, final int first, final int count) {
+    final List<Hash> roots = new ArrayList<>();
+    Hash root = parentRootHash;
+    for (int i = first; i < first + count; i++) {
+      root = persistState(root, i);
+      roots.add(root);
+    }
+    return roots;
+  }
+
+  private void assertStateIsComplete(final Hash rootHash) {
+    final MutableWorldState worldState = new DefaultMutableWorldState(rootHash, worldStateStorage);
+    for (int i = 0; i < 10; i++) {
+      final Address address = Address.fromHexString("0x" + (i + 1));
+      final MutableAccount account = worldState.updater().getMutable(address);
+      for (int slot = 0; slot < 3; slot++) {
+        account.getStorageValue(UInt256.of(slot));
+      }
+      assertThat(worldState.get(address).getCode()).isNotEqualTo(BytesValue.EMPTY);
+    }
+  }
+
+  private long storedEntryCount() {
+    return keyValueStorage.entries().count();
+  }
+
+  @Test
+  public void removesStatesOlderThanTheMarkedState() {
+    final List<Hash> oldStates = persistStates(Hash.EMPTY_TRIE_HASH, 0, 10);
+    final Hash markedState = oldStates.get(oldStates.size() - 1);
+    final long entriesBeforePruning = storedEntryCount();
+
+    pruner.prepare();
+    pruner.mark(markedState);
+    final List<Hash> newStates = persistStates(markedState, 10, 5);
+    final long prunedCount = pruner.sweep();
+
+    assertThat(prunedCount).isGreaterThan(0);
+    assertThat(storedEntryCount()).isLessThan(entriesBeforePruning);
+    assertStateIsComplete(markedState);
+    newStates.forEach(this::assertStateIsComplete);
+    final MutableWorldState oldState =
+        new DefaultMutableWorldState(oldStates.get(0), worldStateStorage);
+    try {
+      for (int i = 0; i < 10; i++) {
+        oldState.get(Address.fromHexString("0x" + (i + 1)));
+      }
+      throw new AssertionError("Expected the oldest state to be pruned");
+    } catch (final MerkleStorageException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void keepsNodesWrittenDuringTheCycle() {
+    final Hash first = persistState(Hash.EMPTY_TRIE_HASH, 0);
+
+    pruner.prepare();
+    // A state persisted before marking completes, built on the marked state.
+    final Hash second = persistState(first, 1);
+    pruner.mark(first);
+    pruner.sweep();
+
+    assertStateIsComplete(first);
+    assertStateIsComplete(second);
+  }
+
+  @Test
+  public void nodesWrittenAfterTheCycleAreNotMarked() {
+    final Hash first = persistState(Hash.EMPTY_TRIE_HASH, 0);
+    pruner.prepare();
+    pruner.mark(first);
+    pruner.sweep();
+
+    final Hash second = persistState(first, 1);
+    pruner.prepare();
+    pruner.mark(second);
+    pruner.sweep();
+
+    assertStateIsComplete(second);
+  }
+
+  @Test
+  public void cleanupAbandonsTheCycle() {
+    final Hash first = persistState(Hash.EMPTY_TRIE_HASH, 0);
+    pruner.prepare();
+    pruner.cleanup();
+
+    // Nodes written after an abandoned cycle must not be marked against a stale filter.
+    persistState(first, 1);
+    pruner.prepare();
+    pruner.mark(first);
+    pruner.sweep();
+
+    assertStateIsComplete(first);
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import tech.pegasys.pantheon.ethereum.chain.BlockAddedEvent;
+import tech.pegasys.pantheon.ethereum.chain.BlockAddedObserver;
+import tech.pegasys.pantheon.ethereum.chain.Blockchain;
+import tech.pegasys.pantheon.ethereum.core.Block;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator;
+import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator.BlockOptions;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+public class PrunerTest {
+
+  private final BlockDataGenerator gen = new BlockDataGenerator();
+  private final MarkSweepPruner markSweepPruner = mock(MarkSweepPruner.class);
+  private final Blockchain blockchain = mock(Blockchain.class);
+  private final Map<Long, Hash> canonicalHashes = new HashMap<>();
+  private final Pruner pruner =
+      new Pruner(
+          markSweepPruner,
+          blockchain,
+          PrunerConfiguration.builder()
+              .enabled(true)
+              .blocksRetained(10)
+              .blockConfirmations(2)
+              .build(),
+          MoreExecutors.newDirectExecutorService());
+  private BlockAddedObserver observer;
+
+  @Before
+  public void setUp() {
+    final ArgumentCaptor<BlockAddedObserver> observerCaptor =
+        ArgumentCaptor.forClass(BlockAddedObserver.class);
+    when(blockchain.observeBlockAdded(observerCaptor.capture())).thenReturn(1L);
+    when(blockchain.getBlockHashByNumber(anyLong()))
+        .thenAnswer(
+            invocation ->
+                Optional.ofNullable(canonicalHashes.get(invocation.<Long>getArgument(0))));
+    pruner.start();
+    observer = observerCaptor.getValue();
+  }
+
+  private Block addBlock(final long number) {
+    final Block block = gen.block(BlockOptions.create().setBlockNumber(number));
+    canonicalHashes.put(number, block.getHash());
+    observer.onBlockAdded(BlockAddedEvent.createForHeadAdvancement(block), blockchain);
+    return block;
+  }
+
+  private Block reorgTo(final long number) {
+    final Block block = gen.block(BlockOptions.create().setBlockNumber(number));
+    canonicalHashes.keySet().removeIf(n -> n >= number);
+    canonicalHashes.put(number, block.getHash());
+    observer.onBlockAdded(
+        BlockAddedEvent.createForChainReorg(
+            block, Collections.emptyList(), Collections.emptyList()),
+        blockchain);
+    return block;
+  }
+
+  @Test
+  public void marksConfirmedBlockAndSweepsOnceEnoughBlocksAreAdded() {
+    final Block marked = addBlock(1);
+    addBlock(2);
+    verify(markSweepPruner).prepare();
+    verify(markSweepPruner, never()).mark(any());
+
+    addBlock(3);
+    verify(markSweepPruner).mark(marked.getHeader().getStateRoot());
+    for (long number = 4; number < 11; number++) {
+      addBlock(number);
+    }
+    verifyNoMoreInteractions(markSweepPruner);
+
+    addBlock(11);
+    verify(markSweepPruner).sweep();
+
+    addBlock(12);
+    final InOrder inOrder = inOrder(markSweepPruner);
+    inOrder.verify(markSweepPruner).sweep();
+    inOrder.verify(markSweepPruner).prepare();
+  }
+
+  @Test
+  public void restartsWhenReorgReplacesBlockBeforeItIsMarked() {
+    addBlock(1);
+    addBlock(2);
+    final Block replacement = reorgTo(1);
+
+    final InOrder inOrder = inOrder(markSweepPruner);
+    inOrder.verify(markSweepPruner).prepare();
+    inOrder.verify(markSweepPruner).cleanup();
+    inOrder.verify(markSweepPruner).prepare();
+
+    addBlock(2);
+    addBlock(3);
+    verify(markSweepPruner).mark(replacement.getHeader().getStateRoot());
+  }
+
+  @Test
+  public void restartsWhenReorgReplacesMarkedBlockBeforeSweep() {
+    final Block marked = addBlock(1);
+    for (long number = 2; number < 6; number++) {
+      addBlock(number);
+    }
+    final Block replacement = reorgTo(1);
+    addBlock(2);
+    addBlock(3);
+
+    final InOrder inOrder = inOrder(markSweepPruner);
+    inOrder.verify(markSweepPruner).prepare();
+    inOrder.verify(markSweepPruner).mark(marked.getHeader().getStateRoot());
+    inOrder.verify(markSweepPruner).cleanup();
+    inOrder.verify(markSweepPruner).prepare();
+    inOrder.verify(markSweepPruner).mark(replacement.getHeader().getStateRoot());
+    verify(markSweepPruner, never()).sweep();
+  }
+
+  @Test
+  public void keepsCycleWhenReorgOnlyReplacesLaterBlocks() {
+    final Block marked = addBlock(1);
+    for (long number = 2; number < 6; number++) {
+      addBlock(number);
+    }
+    reorgTo(3);
+    for (long number = 4; number < 12; number++) {
+      addBlock(number);
+    }
+
+    verify(markSweepPruner).prepare();
+    verify(markSweepPruner).mark(marked.getHeader().getStateRoot());
+    verify(markSweepPruner, never()).cleanup();
+    verify(markSweepPruner).sweep();
+  }
+
+  @Test
+  public void ignoresForks() {
+    final Block block = gen.block(BlockOptions.create().setBlockNumber(1));
+    observer.onBlockAdded(BlockAddedEvent.createForFork(block), blockchain);
+
+    verifyNoMoreInteractions(markSweepPruner);
+  }
+
+  @Test
+  public void failedCycleIsAbandoned() {
+    when(markSweepPruner.sweep()).thenThrow(new RuntimeException("sweep failed"));
+    for (long number = 1; number < 12; number++) {
+      addBlock(number);
+    }
+    verify(markSweepPruner).cleanup();
+
+    final Block nextMarked = addBlock(12);
+    addBlock(13);
+    addBlock(14);
+    verify(markSweepPruner).mark(nextMarked.getHeader().getStateRoot());
+  }
+
+  @Test
+  public void closeStopsObservingTheChain() throws Exception {
+    pruner.close();
+
+    verify(blockchain).removeObserver(1L);
+    verify(blockchain).observeBlockAdded(any());
+  }
+}
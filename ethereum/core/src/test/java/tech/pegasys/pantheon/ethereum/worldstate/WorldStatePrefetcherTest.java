@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.core.Block;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
+import tech.pegasys.pantheon.ethereum.core.Transaction;
+import tech.pegasys.pantheon.ethereum.core.Wei;
+import tech.pegasys.pantheon.ethereum.core.WorldUpdater;
+import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator;
+import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator.BlockOptions;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStatePrefetcher.Prefetch;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorldStatePrefetcherTest {
+
+  private final BlockDataGenerator gen = new BlockDataGenerator();
+  private final WorldStateStorage underlyingStorage =
+      new KeyValueStorageWorldStateStorage(new InMemoryKeyValueStorage());
+  private final CachingWorldStateStorage coldStorage =
+      new CachingWorldStateStorage(underlyingStorage);
+
+  private Block block;
+  private Hash rootHash;
+
+  @Before
+  public void setUp() {
+    final Transaction first = gen.transaction();
+    final Transaction second = gen.transaction();
+    block = gen.block(BlockOptions.create().addTransaction(first, second));
+
+    final MutableWorldState worldState = new DefaultMutableWorldState(underlyingStorage);
+    final WorldUpdater updater = worldState.updater();
+    for (final Transaction transaction : block.getBody().getTransactions()) {
+      updater.getOrCreate(transaction.getSender()).setBalance(Wei.of(100));
+      updater.getOrCreate(transaction.getTo().get()).setCode(BytesValue.of(1, 2, 3));
+    }
+    for (int i = 0; i < 20; i++) {
+      updater.getOrCreate(gen.address()).setBalance(Wei.of(i + 1));
+    }
+    updater.commit();
+    worldState.persist();
+    rootHash = worldState.rootHash();
+  }
+
+  private void readAccounts() {
+    final MutableWorldState worldState = new DefaultMutableWorldState(rootHash, coldStorage);
+    for (final Transaction transaction : block.getBody().getTransactions()) {
+      assertThat(worldState.get(transaction.getSender()).getBalance()).isEqualTo(Wei.of(100));
+      assertThat(worldState.get(transaction.getTo().get()).getCode())
+          .isEqualTo(BytesValue.of(1, 2, 3));
+    }
+  }
+
+  @Test
+  public void warmsTheNodeCache() throws Exception {
+    final WorldStatePrefetcher prefetcher =
+        new WorldStatePrefetcher(MoreExecutors.newDirectExecutorService(), 2);
+
+    try (final Prefetch prefetch =
+        prefetcher.prefetch(() -> new DefaultMutableWorldState(rootHash, coldStorage), block)) {
+      assertThat(coldStorage.getMissCount()).isGreaterThan(0);
+      final long misses = coldStorage.getMissCount();
+
+      readAccounts();
+      assertThat(coldStorage.getMissCount()).isEqualTo(misses);
+    }
+    prefetcher.close();
+  }
+
+  @Test
+  public void abandonedReadsAreSkipped() throws Exception {
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    final CountDownLatch blocked = new CountDownLatch(1);
+    executorService.submit(
+        () -> {
+          blocked.await();
+          return null;
+        });
+    final WorldStatePrefetcher prefetcher = new WorldStatePrefetcher(executorService, 2);
+
+    final Prefetch prefetch =
+        prefetcher.prefetch(() -> new DefaultMutableWorldState(rootHash, coldStorage), block);
+    prefetch.close();
+    blocked.countDown();
+    executorService.shutdown();
+    assertThat(executorService.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(coldStorage.getMissCount()).isEqualTo(0);
+    assertThat(coldStorage.getHitCount()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.core.Address;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.MutableAccount;
+import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
+import tech.pegasys.pantheon.ethereum.core.Wei;
+import tech.pegasys.pantheon.ethereum.core.WorldUpdater;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+
+import org.junit.Test;
+
+public class WorldStateSnapshotTest {
+
+  private static final Address ADDRESS =
+      Address.fromHexString("0xa94f5374fce5edbc8e2a8697c15331677e6ebf0b");
+  private static final Address OTHER_ADDRESS =
+      Address.fromHexString("0x1000000000000000000000000000000000000001");
+
+  private final KeyValueStorage snapshotStorage = new InMemoryKeyValueStorage();
+  private final WorldStateStorage worldStateStorage =
+      new KeyValueStorageWorldStateStorage(new InMemoryKeyValueStorage());
+  private final Queue<Runnable> rebuildTasks = new ArrayDeque<>();
+  private final WorldStateSnapshot snapshot =
+      new WorldStateSnapshot(snapshotStorage, worldStateStorage, rebuildTasks::add);
+
+  private MutableWorldState worldState(final Hash rootHash) {
+    return new DefaultMutableWorldState(rootHash, worldStateStorage, Optional.of(snapshot));
+  }
+
+  private MutableWorldState worldStateWithoutSnapshot(final Hash rootHash) {
+    return new DefaultMutableWorldState(rootHash, worldStateStorage);
+  }
+
+  private Hash persist(
+      final Hash parentRootHash, final long balance, final long slot, final long value) {
+    final MutableWorldState worldState = worldState(parentRootHash);
+    final WorldUpdater updater = worldState.updater();
+    final MutableAccount account = updater.getOrCreate(ADDRESS);
+    account.setBalance(Wei.of(balance));
+    account.setStorageValue(UInt256.of(slot), UInt256.of(value));
+    updater.commit();
+    worldState.persist();
+    return worldState.rootHash();
+  }
+
+  private Hash persistWithoutSnapshot(final Hash parentRootHash, final Address address) {
+    final MutableWorldState worldState = worldStateWithoutSnapshot(parentRootHash);
+    final WorldUpdater updater = worldState.updater();
+    final MutableAccount account = updater.getOrCreate(address);
+    account.setBalance(Wei.of(1));
+    account.setStorageValue(UInt256.of(7), UInt256.of(8));
+    updater.commit();
+    worldState.persist();
+    return worldState.rootHash();
+  }
+
+  private void runRebuildTasks() {
+    while (!rebuildTasks.isEmpty()) {
+      rebuildTasks.poll().run();
+    }
+  }
+
+  private void assertReadsMatchTries(final Hash rootHash) {
+    final MutableWorldState expected = worldStateWithoutSnapshot(rootHash);
+    final MutableWorldState actual = worldState(rootHash);
+    assertThat(actual.get(ADDRESS).getBalance()).isEqualTo(expected.get(ADDRESS).getBalance());
+    for (long slot = 0; slot < 4; slot++) {
+      assertThat(actual.get(ADDRESS).getStorageValue(UInt256.of(slot)))
+          .isEqualTo(expected.get(ADDRESS).getStorageValue(UInt256.of(slot)));
+    }
+  }
+
+  @Test
+  public void followsPersistedWorldState() {
+    final Hash root = persist(Hash.EMPTY_TRIE_HASH, 100, 1, 2);
+
+    assertThat(snapshot.getRootHash()).isEqualTo(root);
+    assertThat(
+            new WorldStateSnapshot(snapshotStorage, worldStateStorage, Runnable::run).getRootHash())
+        .isEqualTo(root);
+    final MutableWorldState worldState = worldState(root);
+    assertThat(worldState.get(ADDRESS).getBalance()).isEqualTo(Wei.of(100));
+    assertThat(worldState.get(ADDRESS).getStorageValue(UInt256.of(1))).isEqualTo(UInt256.of(2));
+    assertThat(worldState.get(ADDRESS).getStorageValue(UInt256.of(2))).isEqualTo(UInt256.ZERO);
+    assertThat(worldState.get(OTHER_ADDRESS)).isNull();
+  }
+
+  @Test
+  public void readsComeFromSnapshot() {
+    final Hash root = persist(Hash.EMPTY_TRIE_HASH, 100, 1, 2);
+    final Hash addressHash = Hash.hash(ADDRESS);
+
+    final Optional<WorldStateSnapshot.Account> account = snapshot.getAccount(root, addressHash);
+    assertThat(account).isPresent();
+    assertThat(account.get().getEncoded()).isPresent();
+    assertThat(snapshot.getAccount(Hash.EMPTY_TRIE_HASH, addressHash)).isEmpty();
+    assertThat(snapshot.getAccount(root, Hash.hash(OTHER_ADDRESS)).get().getEncoded()).isEmpty();
+  }
+
+  @Test
+  public void clearedStorageIsNotVisible() {
+    final Hash first = persist(Hash.EMPTY_TRIE_HASH, 100, 1, 2);
+
+    final MutableWorldState worldState = worldState(first);
+    WorldUpdater updater = worldState.updater();
+    updater.deleteAccount(ADDRESS);
+    updater.commit();
+    updater = worldState.updater();
+    updater.getOrCreate(ADDRESS).setStorageValue(UInt256.of(3), UInt256.of(4));
+    updater.commit();
+    worldState.persist();
+    final Hash second = worldState.rootHash();
+
+    assertThat(snapshot.getRootHash()).isEqualTo(second);
+    assertThat(worldState(second).get(ADDRESS).getStorageValue(UInt256.of(1)))
+        .isEqualTo(UInt256.ZERO);
+    assertThat(worldState(second).get(ADDRESS).getStorageValue(UInt256.of(3)))
+        .isEqualTo(UInt256.of(4));
+    assertReadsMatchTries(second);
+  }
+
+  @Test
+  public void followsSiblingsAndReorgs() {
+    final Hash parent = persist(Hash.EMPTY_TRIE_HASH, 100, 1, 2);
+    final Hash canonical = persist(parent, 200, 2, 3);
+    final Hash fork = persist(parent, 300, 1, 4);
+    assertThat(snapshot.getRootHash()).isEqualTo(fork);
+    assertReadsMatchTries(fork);
+
+    final Hash forkChild = persist(fork, 400, 3, 5);
+    assertThat(snapshot.getRootHash()).isEqualTo(forkChild);
+    assertReadsMatchTries(forkChild);
+
+    final Hash canonicalChild = persist(canonical, 500, 0, 6);
+    assertThat(snapshot.getRootHash()).isEqualTo(canonicalChild);
+    assertReadsMatchTries(canonicalChild);
+  }
+
+  @Test
+  public void fallsBackToTriesWhenSnapshotIsElsewhere() {
+    final Hash parent = persist(Hash.EMPTY_TRIE_HASH, 100, 1, 2);
+    final Hash child = persist(parent, 200, 2, 3);
+    assertThat(snapshot.getRootHash()).isEqualTo(child);
+
+    final MutableWorldState worldState = worldState(parent);
+    assertThat(worldState.get(ADDRESS).getBalance()).isEqualTo(Wei.of(100));
+    assertThat(worldState.get(ADDRESS).getStorageValue(UInt256.of(2))).isEqualTo(UInt256.ZERO);
+  }
+
+  @Test
+  public void rebuildsWhenStateIsUnreachable() {
+    final Hash root = persist(Hash.EMPTY_TRIE_HASH, 100, 1, 2);
+
+    // A state persisted without the snapshot, such as one written before it existed.
+    final Hash untracked = persistWithoutSnapshot(root, OTHER_ADDRESS);
+
+    final Hash child = persist(untracked, 200, 2, 3);
+    assertThat(snapshot.getRootHash()).isEqualTo(root);
+    assertReadsMatchTries(child);
+
+    runRebuildTasks();
+    assertThat(snapshot.getRootHash()).isEqualTo(child);
+    assertReadsMatchTries(child);
+    assertThat(snapshot.getAccount(child, Hash.hash(OTHER_ADDRESS)).get().getEncoded()).isPresent();
+    assertThat(worldState(child).get(OTHER_ADDRESS).getBalance()).isEqualTo(Wei.of(1));
+    assertThat(worldState(child).get(OTHER_ADDRESS).getStorageValue(UInt256.of(7)))
+        .isEqualTo(UInt256.of(8));
+  }
+
+  @Test
+  public void catchesUpWithStatesPersistedDuringRebuild() {
+    // A database with state from before the snapshot existed.
+    final Hash existing = persistWithoutSnapshot(Hash.EMPTY_TRIE_HASH, OTHER_ADDRESS);
+    final Hash first = persist(existing, 100, 1, 2);
+    final Hash second = persist(first, 200, 2, 3);
+    assertThat(snapshot.getRootHash()).isEqualTo(Hash.EMPTY_TRIE_HASH);
+
+    runRebuildTasks();
+    assertThat(snapshot.getRootHash()).isEqualTo(second);
+    assertReadsMatchTries(second);
+    assertThat(
+            new WorldStateSnapshot(snapshotStorage, worldStateStorage, Runnable::run).getRootHash())
+        .isEqualTo(second);
+  }
+
+  @Test
+  public void leftoverEntriesAreRemovedByRebuild() {
+    final Hash root = persist(Hash.EMPTY_TRIE_HASH, 100, 1, 2);
+    final MutableWorldState worldState = worldStateWithoutSnapshot(root);
+    final WorldUpdater updater = worldState.updater();
+    updater.deleteAccount(ADDRESS);
+    updater.commit();
+    worldState.persist();
+
+    persist(worldState.rootHash(), 300, 3, 4);
+    runRebuildTasks();
+
+    final Hash rebuilt = snapshot.getRootHash();
+    assertReadsMatchTries(rebuilt);
+    assertThat(worldState(rebuilt).get(ADDRESS).getStorageValue(UInt256.of(1)))
+        .isEqualTo(UInt256.ZERO);
+  }
+}
@@ -20,9 +20,13 @@ import tech.pegasys.pantheon.ethereum.p2p.wire.messages.DisconnectMessage.Discon
 import tech.pegasys.pantheon.ethereum.rlp.RLPException;
 import tech.pegasys.pantheon.util.ExceptionUtils;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 
 public abstract class AbstractPeerRequestTask<R> extends AbstractPeerTask<R> {
 
@@ -37,11 +41,12 @@ public abstract class AbstractPeerRequestTask<R> extends AbstractPeerTask<R> {
   @Override
   protected final void executeTaskWithPeer(final EthPeer peer) throws PeerNotConnected {
     final CompletableFuture<R> promise = new CompletableFuture<>();
+    final long requestStartTime = System.nanoTime();
     responseStream =
         sendRequest(peer)
             .then(
                 (streamClosed, message, peer1) ->
-                    handleMessage(promise, streamClosed, message, peer1));
+                    handleMessage(promise, requestStartTime, streamClosed, message, peer1));
 
     promise.whenComplete(
         (r, t) -> {
@@ -49,6 +54,9 @@ public abstract class AbstractPeerRequestTask<R> extends AbstractPeerTask<R> {
             t = ExceptionUtils.rootCause(t);
             if (t instanceof TimeoutException) {
               peer.recordRequestTimeout(requestCode);
+              // Count the wait against the peer's rate so a peer that never answers stops being
+              // preferred.
+              peer.recordResponse(requestCode, elapsedMillisSince(requestStartTime), 0, 0);
             }
             result.get().completeExceptionally(t);
           } else if (r != null) {
@@ -61,6 +69,7 @@ public abstract class AbstractPeerRequestTask<R> extends AbstractPeerTask<R> {
 
   private void handleMessage(
       final CompletableFuture<R> promise,
+      final long requestStartTime,
       final boolean streamClosed,
       final MessageData message,
       final EthPeer peer) {
@@ -70,6 +79,13 @@ public abstract class AbstractPeerRequestTask<R> extends AbstractPeerTask<R> {
     }
     try {
       final Optional<R> result = processResponse(streamClosed, message, peer);
+      if (result.isPresent() && !streamClosed) {
+        peer.recordResponse(
+            requestCode,
+            elapsedMillisSince(requestStartTime),
+            message.getSize(),
+            itemCount(result.get()));
+      }
       result.ifPresent(promise::complete);
     } catch (final RLPException e) {
       // Peer sent us malformed data - disconnect
@@ -78,6 +94,42 @@ public abstract class AbstractPeerRequestTask<R> extends AbstractPeerTask<R> {
     }
   }
 
+  private static long elapsedMillisSince(final long startTime) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+  }
+
+  /** @return the number of items, such as headers or bodies, in a response */
+  protected int itemCount(final R result) {
+    if (result instanceof Collection) {
+      return ((Collection<?>) result).size();
+    } else if (result instanceof Map) {
+      return ((Map<?, ?>) result).size();
+    }
+    return 1;
+  }
+
+  @Override
+  protected Optional<EthPeer> findSuitablePeer() {
+    return fastestIdlePeer(peer -> true);
+  }
+
+  /**
+   * @param filter the peers which are able to serve the request
+   * @return the idle peer expected to answer this type of request the fastest
+   */
+  protected Optional<EthPeer> fastestIdlePeer(final Predicate<EthPeer> filter) {
+    return ethContext.getEthPeers().fastestIdlePeer(requestCode, filter);
+  }
+
+  /**
+   * @param peer the peer the request will be sent to
+   * @param wantedItems the number of items still needed
+   * @return how many of the wanted items to ask the peer for, so it can respond in good time
+   */
+  protected int requestSize(final EthPeer peer, final int wantedItems) {
+    return peer.performance().requestSize(requestCode, wantedItems);
+  }
+
   @Override
   protected void cleanup() {
     super.cleanup();
@@ -15,12 +15,14 @@ package tech.pegasys.pantheon.ethereum.eth.manager;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.eth.EthProtocol;
 import tech.pegasys.pantheon.ethereum.eth.manager.ChainState.EstimatedHeightListener;
 import tech.pegasys.pantheon.ethereum.eth.manager.RequestManager.ResponseStream;
 import tech.pegasys.pantheon.ethereum.eth.messages.EthPV62;
 import tech.pegasys.pantheon.ethereum.eth.messages.EthPV63;
 import tech.pegasys.pantheon.ethereum.eth.messages.GetBlockBodiesMessage;
 import tech.pegasys.pantheon.ethereum.eth.messages.GetBlockHeadersMessage;
+import tech.pegasys.pantheon.ethereum.eth.messages.GetNodeDataMessage;
 import tech.pegasys.pantheon.ethereum.eth.messages.GetReceiptsMessage;
 import tech.pegasys.pantheon.ethereum.p2p.api.MessageData;
 import tech.pegasys.pantheon.ethereum.p2p.api.PeerConnection;
@@ -58,9 +60,14 @@ public class EthPeer {
   private final RequestManager headersRequestManager = new RequestManager(this);
   private final RequestManager bodiesRequestManager = new RequestManager(this);
   private final RequestManager receiptsRequestManager = new RequestManager(this);
+  private final RequestManager nodeDataRequestManager = new RequestManager(this);
 
   private final AtomicReference<Consumer<EthPeer>> onStatusesExchanged = new AtomicReference<>();
   private final PeerReputation reputation = new PeerReputation();
+  private final PeerPerformance performance = new PeerPerformance();
+  private final ServingAllowance nodeDataServingAllowance =
+      new ServingAllowance(
+          EthServer.NODE_DATA_SERVING_BYTES_PER_SECOND, EthServer.MAX_NODE_DATA_RESPONSE_BYTES);
   private final Subscribers<DisconnectCallback> disconnectCallbacks = new Subscribers<>();
 
   EthPeer(
@@ -100,6 +107,24 @@ public class EthPeer {
     reputation.recordUselessResponse(System.currentTimeMillis()).ifPresent(this::disconnect);
   }
 
+  public void recordResponse(
+      final int requestCode, final long elapsedMillis, final long bytes, final int items) {
+    performance.recordResponse(requestCode, elapsedMillis, bytes, items);
+  }
+
+  public PeerPerformance performance() {
+    return performance;
+  }
+
+  /** @return the number of bytes of node data that may be sent to this peer right now */
+  long nodeDataServingAllowance() {
+    return nodeDataServingAllowance.available(System.currentTimeMillis());
+  }
+
+  void recordNodeDataServed(final long bytes) {
+    nodeDataServingAllowance.recordServed(bytes);
+  }
+
   public void disconnect(final DisconnectReason reason) {
     connection.disconnect(reason);
   }
@@ -120,6 +145,8 @@ public class EthPeer {
         return sendBodiesRequest(messageData);
       case EthPV63.GET_RECEIPTS:
         return sendReceiptsRequest(messageData);
+      case EthPV63.GET_NODE_DATA:
+        return sendNodeDataRequest(messageData);
       default:
         connection.sendForProtocol(protocolName, messageData);
         return null;
@@ -168,6 +195,27 @@ public class EthPeer {
         () -> connection.sendForProtocol(protocolName, messageData));
   }
 
+  public ResponseStream getNodeData(final Iterable<Hash> nodeHashes) throws PeerNotConnected {
+    final GetNodeDataMessage message = GetNodeDataMessage.create(nodeHashes);
+    return sendNodeDataRequest(message);
+  }
+
+  private ResponseStream sendNodeDataRequest(final MessageData messageData)
+      throws PeerNotConnected {
+    return nodeDataRequestManager.dispatchRequest(
+        () -> connection.sendForProtocol(protocolName, messageData));
+  }
+
+  /**
+   * Receipts and node data were added in eth/63, so peers that only agreed to eth/62 can't be asked
+   * for them.
+   *
+   * @return true if the peer agreed to eth/63 with us.
+   */
+  public boolean supportsEth63() {
+    return EthProtocol.ETH63.equals(connection.capability(protocolName));
+  }
+
   boolean validateReceivedMessage(final EthMessage message) {
     checkArgument(message.getPeer().equals(this), "Mismatched message sent to peer for dispatch");
     switch (message.getData().getCode()) {
@@ -189,6 +237,12 @@ public class EthPeer {
           return false;
         }
         break;
+      case EthPV63.NODE_DATA:
+        if (nodeDataRequestManager.outstandingRequests() == 0) {
+          LOG.warn("Unsolicited node data received.");
+          return false;
+        }
+        break;
       default:
         // Nothing to do
     }
@@ -215,6 +269,10 @@ public class EthPeer {
         reputation.resetTimeoutCount(EthPV63.GET_RECEIPTS);
         receiptsRequestManager.dispatchResponse(message);
         break;
+      case EthPV63.NODE_DATA:
+        reputation.resetTimeoutCount(EthPV63.GET_NODE_DATA);
+        nodeDataRequestManager.dispatchResponse(message);
+        break;
       default:
         // Nothing to do
     }
@@ -228,6 +286,7 @@ public class EthPeer {
     headersRequestManager.close();
     bodiesRequestManager.close();
     receiptsRequestManager.close();
+    nodeDataRequestManager.close();
     disconnectCallbacks.forEach(callback -> callback.onDisconnect(this));
   }
 
@@ -294,7 +353,8 @@ public class EthPeer {
   public int outstandingRequests() {
     return headersRequestManager.outstandingRequests()
         + bodiesRequestManager.outstandingRequests()
-        + receiptsRequestManager.outstandingRequests();
+        + receiptsRequestManager.outstandingRequests()
+        + nodeDataRequestManager.outstandingRequests();
   }
 
   public BytesValue nodeId() {
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -38,6 +39,22 @@ public class EthPeers {
   public static final Comparator<EthPeer> LEAST_TO_MOST_BUSY =
       Comparator.comparing(EthPeer::outstandingRequests);
 
+  /**
+   * Orders peers by the rate at which they are expected to answer requests of the given type,
+   * shared among the requests they already have outstanding. Peers which haven't answered such a
+   * request yet rank highest so that they get measured.
+   *
+   * @param requestCode the message code of the request
+   * @return a comparator ranking the fastest peer last
+   */
+  public static Comparator<EthPeer> fastestFor(final int requestCode) {
+    return Comparator.comparingDouble(
+            (final EthPeer p) ->
+                p.performance().bytesPerSecond(requestCode).orElse(Double.POSITIVE_INFINITY)
+                    / (p.outstandingRequests() + 1))
+        .thenComparing(LEAST_TO_MOST_BUSY.reversed());
+  }
+
   private final int maxOutstandingRequests = 5;
   private final Map<PeerConnection, EthPeer> connections = new ConcurrentHashMap<>();
   private final String protocolName;
@@ -106,8 +123,8 @@ public class EthPeers {
     return peers.stream();
   }
 
-  public Optional<EthPeer> idlePeer(final long withBlocksUpTo) {
-    return idlePeers().filter(p -> p.chainState().getEstimatedHeight() >= withBlocksUpTo).findAny();
+  public Optional<EthPeer> fastestIdlePeer(final int requestCode, final Predicate<EthPeer> filter) {
+    return idlePeers().filter(filter).max(fastestFor(requestCode));
   }
 
   @FunctionalInterface
@@ -43,6 +43,7 @@ public class EthScheduler {
 
   protected final ExecutorService workerExecutor;
   protected final ScheduledExecutorService scheduler;
+  protected final ExecutorService computationExecutor;
 
   EthScheduler(final int workerCount) {
     this(
@@ -56,13 +57,22 @@ public class EthScheduler {
             new ThreadFactoryBuilder()
                 .setDaemon(true)
                 .setNameFormat(EthScheduler.class.getSimpleName() + "Timer")
+                .build()),
+        Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat(EthScheduler.class.getSimpleName() + "-Computation-%d")
                 .build()));
   }
 
   protected EthScheduler(
-      final ExecutorService workerExecutor, final ScheduledExecutorService scheduler) {
+      final ExecutorService workerExecutor,
+      final ScheduledExecutorService scheduler,
+      final ExecutorService computationExecutor) {
     this.workerExecutor = workerExecutor;
     this.scheduler = scheduler;
+    this.computationExecutor = computationExecutor;
   }
 
   public <T> CompletableFuture<T> scheduleWorkerTask(final Supplier<CompletableFuture<T>> future) {
@@ -95,6 +105,27 @@ public class EthScheduler {
     return workerExecutor.submit(command);
   }
 
+  /**
+   * Runs a CPU bound computation, such as recovering transaction signatures, on a pool sized to the
+   * number of processors, so that it doesn't hold up the workers handling I/O.
+   *
+   * @param computation the computation to run
+   * @param <T> the type of the computation's result
+   * @return a future that completes with the result of the computation
+   */
+  public <T> CompletableFuture<T> scheduleComputationTask(final Supplier<T> computation) {
+    final CompletableFuture<T> promise = new CompletableFuture<>();
+    computationExecutor.submit(
+        () -> {
+          try {
+            promise.complete(computation.get());
+          } catch (final Throwable t) {
+            promise.completeExceptionally(t);
+          }
+        });
+    return promise;
+  }
+
   public CompletableFuture<Void> scheduleFutureTask(
       final Runnable command, final Duration duration) {
     final CompletableFuture<Void> promise = new CompletableFuture<>();
@@ -181,6 +212,7 @@ public class EthScheduler {
       LOG.trace("Stopping " + getClass().getSimpleName());
       workerExecutor.shutdown();
       scheduler.shutdown();
+      computationExecutor.shutdown();
       shutdown.countDown();
     } else {
       LOG.trace("Attempted to stop already stopped " + getClass().getSimpleName());
@@ -194,6 +226,12 @@ public class EthScheduler {
       workerExecutor.shutdownNow();
       workerExecutor.awaitTermination(2L, TimeUnit.MINUTES);
     }
+    if (!computationExecutor.awaitTermination(2L, TimeUnit.MINUTES)) {
+      LOG.error(
+          "{} computation executor did not shutdown cleanly.", this.getClass().getSimpleName());
+      computationExecutor.shutdownNow();
+      computationExecutor.awaitTermination(2L, TimeUnit.MINUTES);
+    }
     if (!scheduler.awaitTermination(2L, TimeUnit.MINUTES)) {
       LOG.error("{} scheduler did not shutdown cleanly.", this.getClass().getSimpleName());
       scheduler.shutdownNow();
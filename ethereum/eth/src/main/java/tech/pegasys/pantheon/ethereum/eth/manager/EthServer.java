@@ -17,6 +17,7 @@ import tech.pegasys.pantheon.ethereum.core.BlockBody;
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.ethereum.db.WorldStateArchive;
 import tech.pegasys.pantheon.ethereum.eth.messages.BlockBodiesMessage;
 import tech.pegasys.pantheon.ethereum.eth.messages.BlockHeadersMessage;
 import tech.pegasys.pantheon.ethereum.eth.messages.EthPV62;
@@ -40,18 +41,31 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import com.google.common.collect.Lists;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 class EthServer {
   private static final Logger LOG = LogManager.getLogger();
+  // Node data responses stop growing once they pass this size, however many hashes were asked for.
+  static final long MAX_NODE_DATA_RESPONSE_BYTES = 2 * 1024 * 1024;
+  // The steady rate at which each peer may download node data from us, after an initial burst of
+  // one full response. Reading state for peers shares storage with our own block import.
+  static final long NODE_DATA_SERVING_BYTES_PER_SECOND = 1024 * 1024;
+  private static final int NODE_DATA_READ_BATCH_SIZE = 64;
 
   private final Blockchain blockchain;
+  private final WorldStateArchive worldStateArchive;
   private final EthMessages ethMessages;
   private final int requestLimit;
 
-  EthServer(final Blockchain blockchain, final EthMessages ethMessages, final int requestLimit) {
+  EthServer(
+      final Blockchain blockchain,
+      final WorldStateArchive worldStateArchive,
+      final EthMessages ethMessages,
+      final int requestLimit) {
     this.blockchain = blockchain;
+    this.worldStateArchive = worldStateArchive;
     this.ethMessages = ethMessages;
     this.requestLimit = requestLimit;
     this.setupListeners();
@@ -105,9 +119,15 @@ class EthServer {
 
   private void handleGetNodeData(final EthMessage message) {
     LOG.trace("Responding to GET_NODE_DATA request");
+    final EthPeer peer = message.getPeer();
     try {
-      final MessageData response = constructGetNodeDataResponse(message.getData(), requestLimit);
-      message.getPeer().send(response);
+      final long maxResponseBytes =
+          Math.max(0, Math.min(MAX_NODE_DATA_RESPONSE_BYTES, peer.nodeDataServingAllowance()));
+      final MessageData response =
+          constructGetNodeDataResponse(
+              worldStateArchive, message.getData(), requestLimit, maxResponseBytes);
+      peer.recordNodeDataServed(response.getSize());
+      peer.send(response);
     } catch (final RLPException e) {
       message.getPeer().disconnect(DisconnectReason.BREACH_OF_PROTOCOL);
     } catch (final PeerNotConnected peerNotConnected) {
@@ -137,12 +157,16 @@ class EthServer {
       } else {
         resp = new ArrayList<>(Arrays.asList(firstHeader));
         final int numberDelta = reversed ? -(skip + 1) : (skip + 1);
+        final List<Long> blockNumbers = new ArrayList<>();
         for (int i = 1; i < maxHeaders; i++) {
           final long blockNumber = firstHeader.getNumber() + i * numberDelta;
           if (blockNumber < BlockHeader.GENESIS_BLOCK_NUMBER) {
             break;
           }
-          final Optional<BlockHeader> maybeHeader = blockchain.getBlockHeader(blockNumber);
+          blockNumbers.add(blockNumber);
+        }
+        for (final Optional<BlockHeader> maybeHeader :
+            blockchain.getBlockHeadersByNumber(blockNumbers)) {
           if (maybeHeader.isPresent()) {
             resp.add(maybeHeader.get());
           } else {
@@ -163,17 +187,9 @@ class EthServer {
       final Iterable<Hash> hashes = getBlockBodiesMessage.hashes();
 
       final Collection<BlockBody> bodies = new ArrayList<>();
-      int count = 0;
-      for (final Hash hash : hashes) {
-        if (count >= requestLimit) {
-          break;
-        }
-        count++;
-        final Optional<BlockBody> maybeBody = blockchain.getBlockBody(hash);
-        if (!maybeBody.isPresent()) {
-          continue;
-        }
-        bodies.add(maybeBody.get());
+      for (final Optional<BlockBody> maybeBody :
+          blockchain.getBlockBodies(limit(hashes, requestLimit))) {
+        maybeBody.ifPresent(bodies::add);
       }
       return BlockBodiesMessage.create(bodies);
     } finally {
@@ -188,17 +204,9 @@ class EthServer {
       final Iterable<Hash> hashes = getReceipts.hashes();
 
       final List<List<TransactionReceipt>> receipts = new ArrayList<>();
-      int count = 0;
-      for (final Hash hash : hashes) {
-        if (count >= requestLimit) {
-          break;
-        }
-        count++;
-        final Optional<List<TransactionReceipt>> maybeReceipts = blockchain.getTxReceipts(hash);
-        if (!maybeReceipts.isPresent()) {
-          continue;
-        }
-        receipts.add(maybeReceipts.get());
+      for (final Optional<List<TransactionReceipt>> maybeReceipts :
+          blockchain.getTxReceipts(limit(hashes, requestLimit))) {
+        maybeReceipts.ifPresent(receipts::add);
       }
       return ReceiptsMessage.create(receipts);
     } finally {
@@ -207,23 +215,42 @@ class EthServer {
   }
 
   static MessageData constructGetNodeDataResponse(
-      final MessageData message, final int requestLimit) {
+      final WorldStateArchive worldStateArchive,
+      final MessageData message,
+      final int requestLimit,
+      final long maxResponseBytes) {
     final GetNodeDataMessage getNodeDataMessage = GetNodeDataMessage.readFrom(message);
     try {
-      final Iterable<Hash> hashes = getNodeDataMessage.hashes();
+      final List<Hash> hashes = limit(getNodeDataMessage.hashes(), requestLimit);
 
       final List<BytesValue> nodeData = new ArrayList<>();
-      int count = 0;
-      for (final Hash hash : hashes) {
-        if (count >= requestLimit) {
+      long responseBytes = 0;
+      // Read in batches so that little is read beyond what fits in the response.
+      for (final List<Hash> batch : Lists.partition(hashes, NODE_DATA_READ_BATCH_SIZE)) {
+        if (responseBytes >= maxResponseBytes) {
           break;
         }
-        count++;
-        // TODO: Lookup node data and add it to the list
+        for (final Optional<BytesValue> maybeData : worldStateArchive.getNodeData(batch)) {
+          if (maybeData.isPresent() && responseBytes < maxResponseBytes) {
+            nodeData.add(maybeData.get());
+            responseBytes += maybeData.get().size();
+          }
+        }
       }
       return NodeDataMessage.create(nodeData);
     } finally {
       getNodeDataMessage.release();
     }
   }
+
+  private static List<Hash> limit(final Iterable<Hash> hashes, final int requestLimit) {
+    final List<Hash> limited = new ArrayList<>();
+    for (final Hash hash : hashes) {
+      if (limited.size() >= requestLimit) {
+        break;
+      }
+      limited.add(hash);
+    }
+    return limited;
+  }
 }
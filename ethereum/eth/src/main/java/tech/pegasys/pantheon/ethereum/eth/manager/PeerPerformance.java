@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.manager;
+
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling estimates of how quickly a peer answers each type of request.
+ *
+ * <p>For every request code the latency of responses, the rate at which the peer delivers data and
+ * the average size of an item in its responses are tracked as exponential moving averages. Together
+ * they say how many items can be asked of the peer for the response to arrive within a target time.
+ */
+public class PeerPerformance {
+  public static final long TARGET_RESPONSE_TIME_MILLIS =
+      TimeUnit.MILLISECONDS.convert(2, TimeUnit.SECONDS);
+  // Weight of the newest measurement in the moving averages.
+  static final double SMOOTHING_FACTOR = 0.2;
+  // Keep requests large enough that the round trip doesn't dominate every request to slow peers.
+  static final int MIN_REQUEST_SIZE = 4;
+
+  private final ConcurrentMap<Integer, Estimates> estimatesByRequestType =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Records the outcome of a request.
+   *
+   * @param requestCode the message code of the request
+   * @param elapsedMillis the time from sending the request to receiving its response
+   * @param bytes the size of the response, zero if the request timed out
+   * @param items the number of items in the response
+   */
+  public void recordResponse(
+      final int requestCode, final long elapsedMillis, final long bytes, final int items) {
+    estimatesByRequestType
+        .computeIfAbsent(requestCode, code -> new Estimates())
+        .record(Math.max(1, elapsedMillis), bytes, items);
+  }
+
+  /**
+   * @param requestCode the message code of the request
+   * @return the estimated time the peer takes to respond, if it has responded before
+   */
+  public OptionalDouble latencyMillis(final int requestCode) {
+    final Estimates estimates = estimatesByRequestType.get(requestCode);
+    return estimates == null ? OptionalDouble.empty() : OptionalDouble.of(estimates.latencyMillis);
+  }
+
+  /**
+   * @param requestCode the message code of the request
+   * @return the estimated rate at which the peer delivers response data, if it has responded before
+   */
+  public OptionalDouble bytesPerSecond(final int requestCode) {
+    final Estimates estimates = estimatesByRequestType.get(requestCode);
+    return estimates == null ? OptionalDouble.empty() : OptionalDouble.of(estimates.bytesPerSecond);
+  }
+
+  /**
+   * Sizes a request so that the peer's response is expected to arrive within {@link
+   * #TARGET_RESPONSE_TIME_MILLIS}.
+   *
+   * @param requestCode the message code of the request
+   * @param wantedItems the number of items that are still needed
+   * @return the number of items to request, never more than {@code wantedItems}
+   */
+  public int requestSize(final int requestCode, final int wantedItems) {
+    return requestSize(requestCode, wantedItems, TARGET_RESPONSE_TIME_MILLIS);
+  }
+
+  int requestSize(final int requestCode, final int wantedItems, final long targetMillis) {
+    final Estimates estimates = estimatesByRequestType.get(requestCode);
+    if (estimates == null || estimates.bytesPerItem == 0) {
+      // Nothing to go by yet, so the first request measures the peer.
+      return wantedItems;
+    }
+    final double itemsPerSecond = estimates.bytesPerSecond / estimates.bytesPerItem;
+    final long size = (long) (itemsPerSecond * targetMillis / 1000);
+    return (int) Math.min(wantedItems, Math.max(MIN_REQUEST_SIZE, size));
+  }
+
+  private static class Estimates {
+    private volatile double latencyMillis;
+    private volatile double bytesPerSecond;
+    private volatile double bytesPerItem;
+    private boolean initialized;
+
+    private synchronized void record(final long elapsedMillis, final long bytes, final int items) {
+      final double rate = bytes * 1000.0 / elapsedMillis;
+      if (!initialized) {
+        latencyMillis = elapsedMillis;
+        bytesPerSecond = rate;
+        initialized = true;
+      } else {
+        latencyMillis = smooth(latencyMillis, elapsedMillis);
+        bytesPerSecond = smooth(bytesPerSecond, rate);
+      }
+      if (items > 0) {
+        final double itemSize = (double) bytes / items;
+        bytesPerItem = bytesPerItem == 0 ? itemSize : smooth(bytesPerItem, itemSize);
+      }
+    }
+
+    private static double smooth(final double estimate, final double measurement) {
+      return estimate + SMOOTHING_FACTOR * (measurement - estimate);
+    }
+  }
+}
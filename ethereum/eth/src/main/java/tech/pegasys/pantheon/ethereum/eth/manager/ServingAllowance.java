@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.manager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accounts for the data served to a peer, allowing a steady number of bytes per second and bursts
+ * of up to a fixed size, so that no one peer can keep us busy reading from storage.
+ */
+public class ServingAllowance {
+  private static final long MILLIS_PER_SECOND = TimeUnit.SECONDS.toMillis(1);
+
+  private final long bytesPerSecond;
+  private final long maxBurstBytes;
+
+  private long availableBytes;
+  private long lastRefillTimestamp = -1;
+
+  public ServingAllowance(final long bytesPerSecond, final long maxBurstBytes) {
+    this.bytesPerSecond = bytesPerSecond;
+    this.maxBurstBytes = maxBurstBytes;
+    this.availableBytes = maxBurstBytes;
+  }
+
+  /**
+   * @param timestamp the current time in milliseconds
+   * @return the number of bytes that may be served now, which is not positive once the allowance
+   *     has been used up
+   */
+  public synchronized long available(final long timestamp) {
+    if (lastRefillTimestamp >= 0 && timestamp > lastRefillTimestamp) {
+      final long elapsed = Math.min(timestamp - lastRefillTimestamp, MILLIS_PER_SECOND * 60);
+      availableBytes =
+          Math.min(maxBurstBytes, availableBytes + elapsed * bytesPerSecond / MILLIS_PER_SECOND);
+    }
+    lastRefillTimestamp = Math.max(lastRefillTimestamp, timestamp);
+    return availableBytes;
+  }
+
+  /**
+   * Deducts data that's been served from the allowance. The allowance may go negative when a
+   * response overshoots it, in which case later responses wait until it has been paid back.
+   *
+   * @param bytes the number of bytes served
+   */
+  public synchronized void recordServed(final long bytes) {
+    availableBytes -= bytes;
+  }
+}
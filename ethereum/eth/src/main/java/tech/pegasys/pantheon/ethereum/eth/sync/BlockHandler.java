@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync;
+
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The stages of importing a chain segment that depend on the kind of sync, once the headers of the
+ * segment have been downloaded and validated.
+ *
+ * @param <B> the type of block the handler downloads and imports
+ */
+public interface BlockHandler<B> {
+
+  CompletableFuture<List<B>> downloadBlocks(List<BlockHeader> headers);
+
+  /**
+   * Prepares downloaded blocks for import, before {@link #validateAndImportBlocks(List)} is called
+   * for them. Blocks are prepared in parallel with the import of earlier blocks.
+   *
+   * @param blocks the downloaded blocks
+   * @return the blocks, once they're ready to import
+   */
+  CompletableFuture<List<B>> prepareBlocks(List<B> blocks);
+
+  CompletableFuture<List<B>> validateAndImportBlocks(List<B> blocks);
+
+  long extractBlockNumber(B block);
+}
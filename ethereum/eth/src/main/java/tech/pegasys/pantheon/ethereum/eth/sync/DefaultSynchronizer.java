@@ -16,11 +16,19 @@ import tech.pegasys.pantheon.ethereum.ProtocolContext;
 import tech.pegasys.pantheon.ethereum.core.SyncStatus;
 import tech.pegasys.pantheon.ethereum.core.Synchronizer;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
+import tech.pegasys.pantheon.ethereum.eth.sync.fastsync.FastSyncDownloader;
+import tech.pegasys.pantheon.ethereum.eth.sync.fastsync.FastSyncStateStorage;
 import tech.pegasys.pantheon.ethereum.eth.sync.state.PendingBlocks;
 import tech.pegasys.pantheon.ethereum.eth.sync.state.SyncState;
+import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.NodeDataRequestQueue;
+import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.WorldStateDownloader;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.logging.log4j.LogManager;
@@ -29,18 +37,25 @@ import org.apache.logging.log4j.Logger;
 public class DefaultSynchronizer<C> implements Synchronizer {
 
   private static final Logger LOG = LogManager.getLogger();
+  private static final Duration FAST_SYNC_RETRY_DELAY = Duration.ofSeconds(5);
 
+  private final EthContext ethContext;
   private final SyncState syncState;
   private final AtomicBoolean started = new AtomicBoolean(false);
   private final BlockPropagationManager<C> blockPropagationManager;
   private final Downloader<C> downloader;
+  private final Optional<FastSyncDownloader<C>> fastSyncDownloader;
+  private final CompletableFuture<Void> fullSyncStarted = new CompletableFuture<>();
 
   public DefaultSynchronizer(
       final SynchronizerConfiguration syncConfig,
       final ProtocolSchedule<C> protocolSchedule,
       final ProtocolContext<C> protocolContext,
+      final WorldStateStorage worldStateStorage,
+      final KeyValueStorage fastSyncStorage,
       final EthContext ethContext,
       final SyncState syncState) {
+    this.ethContext = ethContext;
     this.syncState = syncState;
     this.blockPropagationManager =
         new BlockPropagationManager<>(
@@ -55,8 +70,28 @@ public class DefaultSynchronizer<C> implements Synchronizer {
 
     ChainHeadTracker.trackChainHeadForPeers(
         ethContext, protocolSchedule, protocolContext.getBlockchain(), syncConfig);
-    if (syncConfig.syncMode().equals(SyncMode.FAST)) {
+    final FastSyncStateStorage fastSyncStateStorage =
+        new FastSyncStateStorage(fastSyncStorage, protocolSchedule);
+    if (syncConfig.syncMode().equals(SyncMode.FAST)
+        || fastSyncStateStorage.isFastSyncInProgress()) {
       LOG.info("Fast sync enabled.");
+      this.fastSyncDownloader =
+          Optional.of(
+              new FastSyncDownloader<>(
+                  syncConfig,
+                  protocolSchedule,
+                  protocolContext,
+                  ethContext,
+                  fastSyncStateStorage,
+                  new WorldStateDownloader(
+                      ethContext,
+                      worldStateStorage,
+                      new NodeDataRequestQueue(fastSyncStorage),
+                      WorldStateDownloader.DEFAULT_HASH_COUNT_PER_REQUEST,
+                      WorldStateDownloader.DEFAULT_MAX_OUTSTANDING_REQUESTS,
+                      WorldStateDownloader.DEFAULT_MAX_RESPONSES_WITHOUT_PROGRESS)));
+    } else {
+      this.fastSyncDownloader = Optional.empty();
     }
   }
 
@@ -64,13 +99,53 @@ public class DefaultSynchronizer<C> implements Synchronizer {
   public void start() {
     if (started.compareAndSet(false, true)) {
       LOG.info("Starting synchronizer.");
-      blockPropagationManager.start();
-      downloader.start();
+      if (fastSyncDownloader.isPresent()) {
+        startFastSync(fastSyncDownloader.get());
+      } else {
+        startFullSync();
+      }
     } else {
       throw new IllegalStateException("Attempt to start an already started synchronizer.");
     }
   }
 
+  private void startFastSync(final FastSyncDownloader<C> fastSyncDownloader) {
+    fastSyncDownloader
+        .start()
+        .whenComplete(
+            (pivot, error) -> {
+              if (error != null) {
+                // The chain may have been imported without the state of its blocks, so can't be
+                // full synced from. Fast sync carries on from the stored pivot and pending
+                // requests.
+                LOG.error("Fast sync failed, retrying.", error);
+                ethContext
+                    .getScheduler()
+                    .scheduleFutureTask(
+                        () -> startFastSync(fastSyncDownloader), FAST_SYNC_RETRY_DELAY);
+              } else {
+                startFullSync();
+              }
+            });
+  }
+
+  private void startFullSync() {
+    blockPropagationManager.start();
+    downloader.start();
+    fullSyncStarted.complete(null);
+  }
+
+  /**
+   * Blocks are only imported by executing them once full sync has started, which is straight away
+   * unless the node has to fast sync first. Until then the world state of the chain head may not be
+   * available.
+   *
+   * @return a future that completes when full sync starts
+   */
+  public CompletableFuture<Void> fullSyncStarted() {
+    return fullSyncStarted;
+  }
+
   @Override
   public Optional<SyncStatus> getSyncStatus() {
     if (!started.get()) {
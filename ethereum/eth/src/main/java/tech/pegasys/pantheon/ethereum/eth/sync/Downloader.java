@@ -54,6 +54,8 @@ import org.apache.logging.log4j.Logger;
 
 public class Downloader<C> {
   private static final Logger LOG = LogManager.getLogger();
+  // An import holds on to the blocks it imports until it completes, so let it finish now and then.
+  private static final int MAX_CHECKPOINTS_PER_IMPORT = 100;
 
   private final SynchronizerConfiguration config;
   private final ProtocolSchedule<C> protocolSchedule;
@@ -69,6 +71,7 @@ public class Downloader<C> {
   private final AtomicBoolean started = new AtomicBoolean(false);
   private long syncTargetDisconnectListenerId;
   protected CompletableFuture<?> currentTask;
+  private volatile EthTask<?> currentImportTask;
 
   Downloader(
       final SynchronizerConfiguration config,
@@ -98,8 +101,9 @@ public class Downloader<C> {
     currentTask =
         waitForPeers()
             .thenCompose(r -> findSyncTarget())
-            .thenCompose(this::pullCheckpointHeaders)
-            .thenCompose(r -> importBlocks())
+            .thenCompose(
+                syncTarget ->
+                    pullCheckpointHeaders(syncTarget).thenCompose(r -> importBlocks(syncTarget)))
             .thenCompose(r -> checkSyncTarget())
             .whenComplete(
                 (r, t) -> {
@@ -184,6 +188,11 @@ public class Downloader<C> {
   private void onSyncTargetPeerDisconnect(final EthPeer ethPeer) {
     LOG.info("Sync target disconnected: {}", ethPeer);
     syncTargetDisconnected = true;
+    // The import may have been given checkpoints that no other peer can fill in.
+    final EthTask<?> importTask = currentImportTask;
+    if (importTask != null) {
+      importTask.cancel();
+    }
   }
 
   private CompletableFuture<Void> checkSyncTarget() {
@@ -283,7 +292,26 @@ public class Downloader<C> {
     if (!shouldDownloadMoreCheckpoints()) {
       return CompletableFuture.completedFuture(null);
     }
+    return requestCheckpointHeaders(syncTarget);
+  }
+
+  /**
+   * Pulls the checkpoints following on from those a running import already has, so that it can
+   * carry on into the next segment without waiting for the current one to complete.
+   */
+  private CompletableFuture<List<BlockHeader>> pullNextCheckpointHeaders(
+      final SyncTarget syncTarget) {
+    if (syncTargetDisconnected
+        || checkpointTimeouts >= config.downloaderCheckpointTimeoutsPermitted()
+        || checkpointHeaders.size() >= MAX_CHECKPOINTS_PER_IMPORT) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+    return requestCheckpointHeaders(syncTarget)
+        .thenApply(r -> r == null ? Collections.emptyList() : r.getResult());
+  }
 
+  private CompletableFuture<PeerTaskResult<List<BlockHeader>>> requestCheckpointHeaders(
+      final SyncTarget syncTarget) {
     // Try to pull more checkpoint headers
     return checkpointHeadersTask(syncTarget)
         .run()
@@ -329,7 +357,7 @@ public class Downloader<C> {
         .assignPeer(syncTarget.peer());
   }
 
-  private CompletableFuture<List<Block>> importBlocks() {
+  private CompletableFuture<List<Block>> importBlocks(final SyncTarget syncTarget) {
     if (checkpointHeaders.isEmpty()) {
       // No checkpoints to download
       return CompletableFuture.completedFuture(Collections.emptyList());
@@ -347,52 +375,71 @@ public class Downloader<C> {
               config.downloaderChainSegmentSize());
       importedBlocks = importTask.run().thenApply(PeerTaskResult::getResult);
     } else {
-      final PipelinedImportChainSegmentTask<C> importTask =
-          PipelinedImportChainSegmentTask.forCheckpoints(
+      final PipelinedImportChainSegmentTask<C, Block> importTask =
+          PipelinedImportChainSegmentTask.forCheckpointsWithSource(
               protocolSchedule,
               protocolContext,
               ethContext,
               config.downloaderParallelism(),
-              Lists.newArrayList(checkpointHeaders));
+              config.downloaderProofOfWorkSampleRate(),
+              Lists.newArrayList(checkpointHeaders),
+              lastCheckpoint -> pullNextCheckpointHeaders(syncTarget));
+      currentImportTask = importTask;
       importedBlocks = importTask.run();
     }
 
-    return importedBlocks.whenComplete(
-        (r, t) -> {
-          t = ExceptionUtils.rootCause(t);
-          if (t instanceof InvalidBlockException) {
-            // Blocks were invalid, meaning our checkpoints are wrong
-            // Reset sync target
-            final Optional<SyncTarget> maybeSyncTarget = syncState.syncTarget();
-            maybeSyncTarget.ifPresent(
-                target -> target.peer().disconnect(DisconnectReason.BREACH_OF_PROTOCOL));
-            final String peerDescriptor =
-                maybeSyncTarget
-                    .map(SyncTarget::peer)
-                    .map(EthPeer::toString)
-                    .orElse("(unknown - already disconnected)");
-            LOG.warn(
-                "Invalid block discovered while downloading from peer {}.  Disconnect.",
-                peerDescriptor);
-            clearSyncTarget();
-          } else if (t != null || r.isEmpty()) {
-            if (t != null) {
-              LOG.error("Encountered error importing blocks", t);
-            }
-            if (clearImportedCheckpointHeaders()) {
-              chainSegmentTimeouts = 0;
-            }
-            if (t instanceof TimeoutException || r != null) {
-              // Download timed out, or returned no new blocks
-              chainSegmentTimeouts++;
-            }
-          } else {
-            chainSegmentTimeouts = 0;
-            final BlockHeader lastImportedCheckpoint = checkpointHeaders.getLast();
-            checkpointHeaders.clear();
-            syncState.setCommonAncestor(lastImportedCheckpoint);
-          }
-        });
+    return importedBlocks
+        .whenComplete(
+            (r, t) -> {
+              currentImportTask = null;
+              t = ExceptionUtils.rootCause(t);
+              if (t instanceof InvalidBlockException) {
+                // Blocks were invalid, meaning our checkpoints are wrong
+                // Reset sync target
+                final Optional<SyncTarget> maybeSyncTarget = syncState.syncTarget();
+                maybeSyncTarget.ifPresent(
+                    target -> target.peer().disconnect(DisconnectReason.BREACH_OF_PROTOCOL));
+                final String peerDescriptor =
+                    maybeSyncTarget
+                        .map(SyncTarget::peer)
+                        .map(EthPeer::toString)
+                        .orElse("(unknown - already disconnected)");
+                LOG.warn(
+                    "Invalid block discovered while downloading from peer {}.  Disconnect.",
+                    peerDescriptor);
+                clearSyncTarget();
+              } else if (t != null || r.isEmpty()) {
+                if (t instanceof CancellationException) {
+                  LOG.debug("Import cancelled", t);
+                } else if (t != null) {
+                  LOG.error("Encountered error importing blocks", t);
+                }
+                if (clearImportedCheckpointHeaders()) {
+                  chainSegmentTimeouts = 0;
+                }
+                if (t instanceof TimeoutException || r != null) {
+                  // Download timed out, or returned no new blocks
+                  chainSegmentTimeouts++;
+                }
+              } else {
+                chainSegmentTimeouts = 0;
+                final BlockHeader lastImportedCheckpoint = checkpointHeaders.getLast();
+                checkpointHeaders.clear();
+                syncState.setCommonAncestor(lastImportedCheckpoint);
+              }
+            })
+        .handle(
+            (r, t) -> {
+              if (t != null && !(ExceptionUtils.rootCause(t) instanceof CancellationException)) {
+                final CompletableFuture<List<Block>> failed = new CompletableFuture<>();
+                failed.completeExceptionally(t);
+                return failed;
+              }
+              // An import cancelled because the sync target disconnected imported nothing more.
+              return CompletableFuture.completedFuture(
+                  r == null ? Collections.<Block>emptyList() : r);
+            })
+        .thenCompose(future -> future);
   }
 
   private boolean clearImportedCheckpointHeaders() {
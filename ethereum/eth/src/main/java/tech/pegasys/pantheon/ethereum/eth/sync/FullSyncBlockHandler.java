@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync;
+
+import tech.pegasys.pantheon.ethereum.ProtocolContext;
+import tech.pegasys.pantheon.ethereum.core.Block;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.Transaction;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
+import tech.pegasys.pantheon.ethereum.eth.sync.tasks.CompleteBlocksTask;
+import tech.pegasys.pantheon.ethereum.eth.sync.tasks.PersistBlockTask;
+import tech.pegasys.pantheon.ethereum.eth.transactions.SenderRecovery;
+import tech.pegasys.pantheon.ethereum.mainnet.HeaderValidationMode;
+import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Downloads the bodies of blocks, and imports the blocks by executing their transactions.
+ *
+ * <p>The detached header rules are normally skipped on import, as the headers were validated when
+ * they were downloaded. If only a sample of the downloaded headers had their proof of work checked,
+ * the headers are fully validated on import instead, so that no header goes unchecked.
+ *
+ * @param <C> the consensus algorithm context
+ */
+public class FullSyncBlockHandler<C> implements BlockHandler<Block> {
+
+  private final ProtocolSchedule<C> protocolSchedule;
+  private final ProtocolContext<C> protocolContext;
+  private final EthContext ethContext;
+  private final SenderRecovery senderRecovery;
+  private final HeaderValidationMode headerValidationMode;
+
+  public FullSyncBlockHandler(
+      final ProtocolSchedule<C> protocolSchedule,
+      final ProtocolContext<C> protocolContext,
+      final EthContext ethContext) {
+    this(protocolSchedule, protocolContext, ethContext, 1f);
+  }
+
+  public FullSyncBlockHandler(
+      final ProtocolSchedule<C> protocolSchedule,
+      final ProtocolContext<C> protocolContext,
+      final EthContext ethContext,
+      final float proofOfWorkSampleRate) {
+    this.protocolSchedule = protocolSchedule;
+    this.protocolContext = protocolContext;
+    this.ethContext = ethContext;
+    this.senderRecovery = new SenderRecovery(ethContext.getScheduler());
+    this.headerValidationMode =
+        proofOfWorkSampleRate < 1f ? HeaderValidationMode.FULL : HeaderValidationMode.SKIP_DETACHED;
+  }
+
+  @Override
+  public CompletableFuture<List<Block>> downloadBlocks(final List<BlockHeader> headers) {
+    return CompleteBlocksTask.forHeaders(protocolSchedule, ethContext, headers).run();
+  }
+
+  /** Recovers the senders of the blocks' transactions, which are cached by the transactions. */
+  @Override
+  public CompletableFuture<List<Block>> prepareBlocks(final List<Block> blocks) {
+    final List<Transaction> transactions =
+        blocks
+            .stream()
+            .flatMap(block -> block.getBody().getTransactions().stream())
+            .collect(Collectors.toList());
+    return senderRecovery.recoverSenders(transactions).thenApply(ignored -> blocks);
+  }
+
+  @Override
+  public CompletableFuture<List<Block>> validateAndImportBlocks(final List<Block> blocks) {
+    return PersistBlockTask.forSequentialBlocks(
+            protocolSchedule, protocolContext, blocks, headerValidationMode)
+        .get();
+  }
+
+  @Override
+  public long extractBlockNumber(final Block block) {
+    return block.getHeader().getNumber();
+  }
+}
@@ -30,6 +30,7 @@ public class SynchronizerConfiguration {
   // TODO: Determine reasonable defaults here
   public static int DEFAULT_PIVOT_DISTANCE_FROM_HEAD = 500;
   public static float DEFAULT_FULL_VALIDATION_RATE = .1f;
+  public static float DEFAULT_PROOF_OF_WORK_SAMPLE_RATE = 1f;
 
   // Fast sync config
   private final int fastSyncPivotDistance;
@@ -52,6 +53,7 @@ public class SynchronizerConfiguration {
   private final long trailingPeerBlocksBehindThreshold;
   private final int maxTrailingPeers;
   private final int downloaderParallelism;
+  private final float downloaderProofOfWorkSampleRate;
 
   private SynchronizerConfiguration(
       final SyncMode requestedSyncMode,
@@ -67,7 +69,8 @@ public class SynchronizerConfiguration {
       final int downloaderChainSegmentSize,
       final long trailingPeerBlocksBehindThreshold,
       final int maxTrailingPeers,
-      final int downloaderParallelism) {
+      final int downloaderParallelism,
+      final float downloaderProofOfWorkSampleRate) {
     this.requestedSyncMode = requestedSyncMode;
     this.fastSyncPivotDistance = fastSyncPivotDistance;
     this.fastSyncFullValidationRate = fastSyncFullValidationRate;
@@ -82,6 +85,7 @@ public class SynchronizerConfiguration {
     this.trailingPeerBlocksBehindThreshold = trailingPeerBlocksBehindThreshold;
     this.maxTrailingPeers = maxTrailingPeers;
     this.downloaderParallelism = downloaderParallelism;
+    this.downloaderProofOfWorkSampleRate = downloaderProofOfWorkSampleRate;
   }
 
   /**
@@ -122,7 +126,8 @@ public class SynchronizerConfiguration {
         downloaderChainSegmentSize,
         trailingPeerBlocksBehindThreshold,
         maxTrailingPeers,
-        downloaderParallelism);
+        downloaderParallelism,
+        downloaderProofOfWorkSampleRate);
   }
 
   public static Builder builder() {
@@ -203,6 +208,21 @@ public class SynchronizerConfiguration {
     return downloaderParallelism;
   }
 
+  /**
+   * The fraction of downloaded headers whose proof of work is checked as they are received. At a
+   * rate of 1f, every header is checked. At rates less than 1f, a random sample of the headers in
+   * each segment is checked, and the proof of work of the others is not checked as they are
+   * downloaded. Full sync then fully validates every header again as its block is imported, which
+   * moves the cost of checking the proof of work from the download to the import. During fast sync
+   * the proof of work of a header that wasn't sampled is only checked if its block is selected for
+   * full validation by {@link #fastSyncFullValidationRate()}, otherwise the header is trusted.
+   *
+   * @return rate at which downloaded headers should have their proof of work checked.
+   */
+  public float downloaderProofOfWorkSampleRate() {
+    return downloaderProofOfWorkSampleRate;
+  }
+
   /**
    * The rate at which blocks should be fully validated during fast sync. At a rate of 1f, all
    * blocks are fully validated. At rates less than 1f, a subset of blocks will undergo light-weight
@@ -228,6 +248,7 @@ public class SynchronizerConfiguration {
     private long trailingPeerBlocksBehindThreshold;
     private int maxTrailingPeers = Integer.MAX_VALUE;
     private int downloaderParallelism = 2;
+    private float downloaderProofOfWorkSampleRate = DEFAULT_PROOF_OF_WORK_SAMPLE_RATE;
 
     public Builder fastSyncPivotDistance(final int distance) {
       fastSyncPivotDistance = distance;
@@ -299,6 +320,14 @@ public class SynchronizerConfiguration {
       return this;
     }
 
+    public Builder downloaderProofOfWorkSampleRate(final float downloaderProofOfWorkSampleRate) {
+      checkArgument(
+          downloaderProofOfWorkSampleRate >= 0f && downloaderProofOfWorkSampleRate <= 1f,
+          "Invalid sample rate: must be between 0 and 1.");
+      this.downloaderProofOfWorkSampleRate = downloaderProofOfWorkSampleRate;
+      return this;
+    }
+
     public SynchronizerConfiguration build() {
       return new SynchronizerConfiguration(
           syncMode,
@@ -314,7 +343,8 @@ public class SynchronizerConfiguration {
           downloaderChainSegmentSize,
           trailingPeerBlocksBehindThreshold,
           maxTrailingPeers,
-          downloaderParallelism);
+          downloaderParallelism,
+          downloaderProofOfWorkSampleRate);
     }
   }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.fastsync;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import tech.pegasys.pantheon.ethereum.core.Block;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.ethereum.eth.manager.AbstractPeerTask.PeerTaskResult;
+import tech.pegasys.pantheon.ethereum.eth.manager.AbstractRetryingPeerTask;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
+import tech.pegasys.pantheon.ethereum.eth.manager.exceptions.NoAvailablePeersException;
+import tech.pegasys.pantheon.ethereum.eth.manager.exceptions.PeerBreachedProtocolException;
+import tech.pegasys.pantheon.ethereum.eth.manager.exceptions.PeerDisconnectedException;
+import tech.pegasys.pantheon.ethereum.eth.sync.tasks.GetReceiptsFromPeerTask;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Given a set of blocks, repeatedly requests their receipts from peers until every block has its
+ * receipts.
+ */
+public class DownloadReceiptsTask extends AbstractRetryingPeerTask<List<BlockWithReceipts>> {
+  private static final Logger LOG = LogManager.getLogger();
+  private static final int DEFAULT_RETRIES = 3;
+
+  private final EthContext ethContext;
+  private final List<Block> blocks;
+  private final Map<BlockHeader, List<TransactionReceipt>> receipts = new HashMap<>();
+
+  private DownloadReceiptsTask(
+      final EthContext ethContext, final List<Block> blocks, final int maxRetries) {
+    super(ethContext, maxRetries);
+    checkArgument(blocks.size() > 0, "Must supply a non-empty blocks list");
+    this.ethContext = ethContext;
+    this.blocks = blocks;
+  }
+
+  public static DownloadReceiptsTask forBlocks(
+      final EthContext ethContext, final List<Block> blocks) {
+    return new DownloadReceiptsTask(ethContext, blocks, DEFAULT_RETRIES);
+  }
+
+  @Override
+  protected CompletableFuture<List<BlockWithReceipts>> executePeerTask() {
+    final List<BlockHeader> incompleteHeaders = incompleteHeaders();
+    LOG.debug(
+        "Requesting receipts to complete {} blocks, starting with {}.",
+        incompleteHeaders.size(),
+        incompleteHeaders.get(0).getNumber());
+    return executeSubTask(
+            () -> GetReceiptsFromPeerTask.forHeaders(ethContext, incompleteHeaders).run())
+        .thenApply(this::processReceiptsResult);
+  }
+
+  @Override
+  protected boolean isRetryableError(final Throwable error) {
+    return error instanceof TimeoutException
+        || error instanceof PeerBreachedProtocolException
+        || error instanceof PeerDisconnectedException
+        || error instanceof NoAvailablePeersException;
+  }
+
+  private List<BlockWithReceipts> processReceiptsResult(
+      final PeerTaskResult<Map<BlockHeader, List<TransactionReceipt>>> receiptsResult) {
+    receipts.putAll(receiptsResult.getResult());
+
+    if (incompleteHeaders().isEmpty()) {
+      result
+          .get()
+          .complete(
+              blocks
+                  .stream()
+                  .map(block -> new BlockWithReceipts(block, receipts.get(block.getHeader())))
+                  .collect(Collectors.toList()));
+    }
+
+    final Map<BlockHeader, List<TransactionReceipt>> received = receiptsResult.getResult();
+    return blocks
+        .stream()
+        .filter(block -> received.containsKey(block.getHeader()))
+        .map(block -> new BlockWithReceipts(block, received.get(block.getHeader())))
+        .collect(Collectors.toList());
+  }
+
+  private List<BlockHeader> incompleteHeaders() {
+    return blocks
+        .stream()
+        .map(Block::getHeader)
+        .filter(header -> !receipts.containsKey(header))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.fastsync;
+
+import tech.pegasys.pantheon.ethereum.ProtocolContext;
+import tech.pegasys.pantheon.ethereum.chain.Blockchain;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.eth.manager.AbstractPeerTask.PeerTaskResult;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
+import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
+import tech.pegasys.pantheon.ethereum.eth.sync.tasks.GetHeadersFromPeerByHashTask;
+import tech.pegasys.pantheon.ethereum.eth.sync.tasks.PipelinedImportChainSegmentTask;
+import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
+import tech.pegasys.pantheon.util.ExceptionUtils;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Imports the chain up to the pivot block, with the {@link FastSyncBlockHandler}, so that the
+ * blocks' transactions aren't executed.
+ *
+ * @param <C> the consensus algorithm context
+ */
+public class FastSyncChainDownloader<C> {
+  private static final Logger LOG = LogManager.getLogger();
+
+  private final SynchronizerConfiguration config;
+  private final ProtocolSchedule<C> protocolSchedule;
+  private final ProtocolContext<C> protocolContext;
+  private final EthContext ethContext;
+  private final FastSyncBlockHandler<C> blockHandler;
+
+  public FastSyncChainDownloader(
+      final SynchronizerConfiguration config,
+      final ProtocolSchedule<C> protocolSchedule,
+      final ProtocolContext<C> protocolContext,
+      final EthContext ethContext) {
+    this.config = config;
+    this.protocolSchedule = protocolSchedule;
+    this.protocolContext = protocolContext;
+    this.ethContext = ethContext;
+    this.blockHandler =
+        new FastSyncBlockHandler<>(
+            protocolSchedule, protocolContext, ethContext, config.fastSyncFullValidationRate());
+  }
+
+  /**
+   * Imports the chain from the local chain head up to the pivot block, retrying until it succeeds
+   * or the returned future is cancelled.
+   *
+   * @param pivotHeader the header of the pivot block
+   * @return a future that completes once the pivot block is the chain head
+   */
+  public CompletableFuture<Void> downloadChain(final BlockHeader pivotHeader) {
+    final CompletableFuture<Void> result = new CompletableFuture<>();
+    downloadChain(pivotHeader, result);
+    return result;
+  }
+
+  private void downloadChain(final BlockHeader pivotHeader, final CompletableFuture<Void> result) {
+    if (result.isDone()) {
+      // Cancelled, as the pivot is changing.
+      return;
+    }
+    final Blockchain blockchain = protocolContext.getBlockchain();
+    final BlockHeader chainHead = blockchain.getChainHeadHeader();
+    if (chainHead.getNumber() >= pivotHeader.getNumber()) {
+      if (!blockchain.contains(pivotHeader.getHash())) {
+        LOG.warn(
+            "Chain head {} is past the fast sync pivot block {}, but the pivot block isn't on the chain",
+            chainHead.getNumber(),
+            pivotHeader.getNumber());
+      }
+      result.complete(null);
+      return;
+    }
+    downloadCheckpointHeaders(chainHead, pivotHeader)
+        .thenCompose(this::importChainSegment)
+        .whenComplete(
+            (segment, error) -> {
+              if (error != null) {
+                LOG.warn(
+                    "Failed to import chain segment while fast syncing, retrying: {}",
+                    ExceptionUtils.rootCause(error).getMessage());
+                ethContext
+                    .getScheduler()
+                    .scheduleFutureTask(
+                        () -> downloadChain(pivotHeader, result), Duration.ofSeconds(1));
+              } else {
+                downloadChain(pivotHeader, result);
+              }
+            });
+  }
+
+  /**
+   * Requests headers spaced a chain segment apart from the chain head, stopping short of the pivot.
+   * The pivot itself is the last checkpoint, once it's within a segment of the others.
+   */
+  private CompletableFuture<List<BlockHeader>> downloadCheckpointHeaders(
+      final BlockHeader chainHead, final BlockHeader pivotHeader) {
+    final int segmentSize = config.downloaderChainSegmentSize();
+    final long checkpointsToPivot = (pivotHeader.getNumber() - chainHead.getNumber()) / segmentSize;
+    final int checkpointCount =
+        (int) Math.min(config.downloaderHeaderRequestSize(), checkpointsToPivot);
+    final CompletableFuture<List<BlockHeader>> headers =
+        checkpointCount == 0
+            ? CompletableFuture.completedFuture(Collections.singletonList(chainHead))
+            : GetHeadersFromPeerByHashTask.startingAtHash(
+                    protocolSchedule,
+                    ethContext,
+                    chainHead.getHash(),
+                    chainHead.getNumber(),
+                    checkpointCount + 1,
+                    segmentSize - 1)
+                .run()
+                .thenApply(PeerTaskResult::getResult);
+    return headers.thenApply(
+        checkpoints -> {
+          final List<BlockHeader> beforePivot =
+              checkpoints
+                  .stream()
+                  .filter(header -> header.getNumber() < pivotHeader.getNumber())
+                  .collect(Collectors.toList());
+          final BlockHeader lastCheckpoint = beforePivot.get(beforePivot.size() - 1);
+          if (pivotHeader.getNumber() - lastCheckpoint.getNumber() <= segmentSize) {
+            beforePivot.add(pivotHeader);
+          }
+          return beforePivot;
+        });
+  }
+
+  private CompletableFuture<List<BlockWithReceipts>> importChainSegment(
+      final List<BlockHeader> checkpointHeaders) {
+    if (checkpointHeaders.size() < 2) {
+      final CompletableFuture<List<BlockWithReceipts>> result = new CompletableFuture<>();
+      result.completeExceptionally(new IllegalStateException("No checkpoint headers received"));
+      return result;
+    }
+    return PipelinedImportChainSegmentTask.forCheckpointsWithHandler(
+            protocolSchedule,
+            protocolContext,
+            ethContext,
+            config.downloaderParallelism(),
+            config.downloaderProofOfWorkSampleRate(),
+            checkpointHeaders,
+            blockHandler)
+        .run();
+  }
+}
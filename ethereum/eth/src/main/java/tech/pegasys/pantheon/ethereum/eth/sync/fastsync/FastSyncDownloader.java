@@ -0,0 +1,283 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.fastsync;
+
+import tech.pegasys.pantheon.ethereum.ProtocolContext;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthPeer;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthPeers;
+import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
+import tech.pegasys.pantheon.ethereum.eth.sync.state.FastSyncState;
+import tech.pegasys.pantheon.ethereum.eth.sync.tasks.GetHeadersFromPeerByNumberTask;
+import tech.pegasys.pantheon.ethereum.eth.sync.tasks.GetNodeDataFromPeerTask;
+import tech.pegasys.pantheon.ethereum.eth.sync.tasks.WaitForPeersTask;
+import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.StalledDownloadException;
+import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.WorldStateDownloader;
+import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
+import tech.pegasys.pantheon.util.ExceptionUtils;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Fast syncs the node: chooses a pivot block some way behind the best peer's chain head, imports
+ * the chain up to the pivot without executing the transactions, and downloads the world state of
+ * the pivot block. Full sync then carries on from the pivot.
+ *
+ * <p>The pivot is stored once chosen, so that a restarted node carries on towards the same pivot.
+ * Peers only keep the state of recent blocks though, so if they stop providing the pivot's world
+ * state a more recent pivot is chosen, keeping the world state nodes downloaded so far.
+ *
+ * @param <C> the consensus algorithm context
+ */
+public class FastSyncDownloader<C> {
+  private static final Logger LOG = LogManager.getLogger();
+  private static final int MAX_ATTEMPTS = 5;
+  // Peers that don't have the state respond with nothing, which counts against their reputation.
+  private static final int MAX_PIVOT_STATE_ATTEMPTS = 3;
+  private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+  private final SynchronizerConfiguration config;
+  private final ProtocolSchedule<C> protocolSchedule;
+  private final ProtocolContext<C> protocolContext;
+  private final EthContext ethContext;
+  private final FastSyncStateStorage fastSyncStateStorage;
+  private final FastSyncChainDownloader<C> chainDownloader;
+  private final WorldStateDownloader worldStateDownloader;
+
+  public FastSyncDownloader(
+      final SynchronizerConfiguration config,
+      final ProtocolSchedule<C> protocolSchedule,
+      final ProtocolContext<C> protocolContext,
+      final EthContext ethContext,
+      final FastSyncStateStorage fastSyncStateStorage,
+      final WorldStateDownloader worldStateDownloader) {
+    this(
+        config,
+        protocolSchedule,
+        protocolContext,
+        ethContext,
+        fastSyncStateStorage,
+        worldStateDownloader,
+        new FastSyncChainDownloader<>(config, protocolSchedule, protocolContext, ethContext));
+  }
+
+  @VisibleForTesting
+  FastSyncDownloader(
+      final SynchronizerConfiguration config,
+      final ProtocolSchedule<C> protocolSchedule,
+      final ProtocolContext<C> protocolContext,
+      final EthContext ethContext,
+      final FastSyncStateStorage fastSyncStateStorage,
+      final WorldStateDownloader worldStateDownloader,
+      final FastSyncChainDownloader<C> chainDownloader) {
+    this.config = config;
+    this.protocolSchedule = protocolSchedule;
+    this.protocolContext = protocolContext;
+    this.ethContext = ethContext;
+    this.fastSyncStateStorage = fastSyncStateStorage;
+    this.worldStateDownloader = worldStateDownloader;
+    this.chainDownloader = chainDownloader;
+  }
+
+  /**
+   * Runs fast sync, resuming it if a pivot block has been stored.
+   *
+   * @return a future that completes with the pivot block once the node is synced to it, or with
+   *     empty if fast sync isn't possible and the node should full sync from its chain head instead
+   */
+  public CompletableFuture<Optional<BlockHeader>> start() {
+    final Optional<BlockHeader> storedPivot = fastSyncStateStorage.loadPivotBlockHeader();
+    final CompletableFuture<Optional<BlockHeader>> pivot;
+    if (storedPivot.isPresent()) {
+      LOG.info("Resuming fast sync to pivot block {}", storedPivot.get().getNumber());
+      pivot = CompletableFuture.completedFuture(storedPivot);
+    } else {
+      pivot =
+          waitForPeers()
+              .thenCompose(ignored -> selectPivotBlock())
+              .thenApply(
+                  maybePivot -> {
+                    maybePivot.ifPresent(fastSyncStateStorage::storePivotBlockHeader);
+                    return maybePivot;
+                  });
+    }
+    return pivot.thenCompose(
+        maybePivot ->
+            maybePivot.isPresent()
+                ? downloadToPivot(maybePivot.get()).thenApply(Optional::of)
+                : CompletableFuture.completedFuture(Optional.empty()));
+  }
+
+  private CompletableFuture<Void> waitForPeers() {
+    return WaitForPeersTask.create(ethContext, 1).run();
+  }
+
+  private CompletableFuture<Optional<BlockHeader>> selectPivotBlock() {
+    final Optional<EthPeer> bestPeer = bestPeer();
+    if (!bestPeer.isPresent()) {
+      // Peers only become available once they've exchanged statuses and told us their chain head.
+      return retryAfterDelay(this::selectPivotBlock);
+    }
+    final FastSyncState fastSyncState = new FastSyncState(config);
+    fastSyncState.setFastSyncChainTarget(bestPeer.get().chainState().getEstimatedHeight());
+    final long pivotBlockNumber = fastSyncState.pivot();
+    final long chainHeadNumber = protocolContext.getBlockchain().getChainHeadBlockNumber();
+    if (pivotBlockNumber <= chainHeadNumber) {
+      LOG.info(
+          "Best peer's chain is within {} blocks of ours, no need to fast sync",
+          config.fastSyncPivotDistance());
+      return CompletableFuture.completedFuture(Optional.empty());
+    }
+    LOG.info("Selected block {} as the fast sync pivot", pivotBlockNumber);
+    return downloadPivotBlockHeader(pivotBlockNumber, 1)
+        .thenCompose(
+            maybeHeader ->
+                maybeHeader.isPresent()
+                    ? confirmPivotStateAvailable(maybeHeader.get(), 1)
+                    : CompletableFuture.completedFuture(Optional.empty()));
+  }
+
+  private Optional<EthPeer> bestPeer() {
+    return ethContext
+        .getEthPeers()
+        .availablePeers()
+        .filter(EthPeer::supportsEth63)
+        .filter(peer -> peer.chainState().getEstimatedHeight() > 0)
+        .max(EthPeers.BEST_CHAIN);
+  }
+
+  private CompletableFuture<Optional<BlockHeader>> downloadPivotBlockHeader(
+      final long pivotBlockNumber, final int attempt) {
+    return GetHeadersFromPeerByNumberTask.forSingleNumber(
+            protocolSchedule, ethContext, pivotBlockNumber)
+        .run()
+        .handle(
+            (result, error) -> {
+              final List<BlockHeader> headers =
+                  error == null ? result.getResult() : Collections.emptyList();
+              if (!headers.isEmpty()) {
+                return CompletableFuture.completedFuture(Optional.of(headers.get(0)));
+              } else if (attempt < MAX_ATTEMPTS) {
+                return retryAfterDelay(
+                    () -> downloadPivotBlockHeader(pivotBlockNumber, attempt + 1));
+              }
+              LOG.warn(
+                  "Unable to download pivot block {}, falling back to full sync", pivotBlockNumber);
+              return CompletableFuture.completedFuture(Optional.<BlockHeader>empty());
+            })
+        .thenCompose(future -> future);
+  }
+
+  /**
+   * Checks that a peer can provide the world state of the pivot block, as it's pointless to import
+   * the chain up to a pivot whose state can't be downloaded.
+   */
+  private CompletableFuture<Optional<BlockHeader>> confirmPivotStateAvailable(
+      final BlockHeader pivotHeader, final int attempt) {
+    final Hash stateRoot = pivotHeader.getStateRoot();
+    return GetNodeDataFromPeerTask.forHashes(ethContext, Collections.singletonList(stateRoot))
+        .run()
+        .handle(
+            (result, error) -> {
+              if (error == null && result.getResult().containsKey(stateRoot)) {
+                return CompletableFuture.completedFuture(Optional.of(pivotHeader));
+              } else if (attempt < MAX_PIVOT_STATE_ATTEMPTS) {
+                return retryAfterDelay(() -> confirmPivotStateAvailable(pivotHeader, attempt + 1));
+              }
+              LOG.warn(
+                  "No peer provided the world state of pivot block {}, falling back to full sync",
+                  pivotHeader.getNumber());
+              return CompletableFuture.completedFuture(Optional.<BlockHeader>empty());
+            })
+        .thenCompose(future -> future);
+  }
+
+  private CompletableFuture<BlockHeader> downloadToPivot(final BlockHeader pivotHeader) {
+    LOG.info("Fast syncing to pivot block {} ({})", pivotHeader.getNumber(), pivotHeader.getHash());
+    final CompletableFuture<Void> chainDownload = chainDownloader.downloadChain(pivotHeader);
+    final CompletableFuture<Void> worldStateDownload = worldStateDownloader.run(pivotHeader);
+    return allOrFirstFailure(chainDownload, worldStateDownload)
+        .handle(
+            (ignored, error) -> {
+              if (error == null) {
+                fastSyncStateStorage.clear();
+                LOG.info("Fast sync completed at pivot block {}", pivotHeader.getNumber());
+                return CompletableFuture.completedFuture(pivotHeader);
+              } else if (ExceptionUtils.rootCause(error) instanceof StalledDownloadException) {
+                LOG.warn(
+                    "Peers stopped providing the world state of pivot block {}, changing pivot",
+                    pivotHeader.getNumber());
+              } else {
+                LOG.warn(
+                    "Fast sync to pivot block {} failed, changing pivot: {}",
+                    pivotHeader.getNumber(),
+                    ExceptionUtils.rootCause(error).getMessage());
+              }
+              return changePivot();
+            })
+        .thenCompose(future -> future);
+  }
+
+  /**
+   * Completes once both downloads have, or as soon as either of them fails. The other download is
+   * then cancelled rather than left running towards a pivot that's about to change.
+   */
+  private static CompletableFuture<Void> allOrFirstFailure(
+      final CompletableFuture<Void> first, final CompletableFuture<Void> second) {
+    final CompletableFuture<Void> result = CompletableFuture.allOf(first, second);
+    final BiConsumer<Void, Throwable> cancelOnFailure =
+        (ignored, error) -> {
+          if (error != null && result.completeExceptionally(error)) {
+            first.cancel(false);
+            second.cancel(false);
+          }
+        };
+    first.whenComplete(cancelOnFailure);
+    second.whenComplete(cancelOnFailure);
+    return result;
+  }
+
+  /**
+   * Switches to a more recent pivot block, carrying on with the chain from wherever its import got
+   * to. The pending world state requests are discarded before the new pivot is stored, so that
+   * after a restart they're never mistaken for requests towards the new pivot.
+   */
+  private CompletableFuture<BlockHeader> changePivot() {
+    return selectPivotBlock()
+        .thenCompose(
+            maybePivot -> {
+              if (!maybePivot.isPresent()) {
+                return retryAfterDelay(this::changePivot);
+              }
+              worldStateDownloader.discardPendingRequests();
+              fastSyncStateStorage.storePivotBlockHeader(maybePivot.get());
+              return downloadToPivot(maybePivot.get());
+            });
+  }
+
+  private <T> CompletableFuture<T> retryAfterDelay(final Supplier<CompletableFuture<T>> action) {
+    return ethContext.getScheduler().scheduleFutureTask(action, RETRY_DELAY);
+  }
+}
@@ -111,7 +111,8 @@ public abstract class AbstractGetHeadersFromPeerTask
 
   @Override
   protected Optional<EthPeer> findSuitablePeer() {
-    return ethContext.getEthPeers().idlePeer(minimumRequiredBlockNumber);
+    return fastestIdlePeer(
+        peer -> peer.chainState().getEstimatedHeight() >= minimumRequiredBlockNumber);
   }
 
   protected abstract boolean matchesFirstHeader(BlockHeader firstHeader);
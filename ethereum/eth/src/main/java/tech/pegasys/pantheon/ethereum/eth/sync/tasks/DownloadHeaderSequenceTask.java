@@ -14,6 +14,7 @@ package tech.pegasys.pantheon.ethereum.eth.sync.tasks;
 
 import static java.util.Arrays.asList;
 import static tech.pegasys.pantheon.ethereum.mainnet.HeaderValidationMode.DETACHED_ONLY;
+import static tech.pegasys.pantheon.ethereum.mainnet.HeaderValidationMode.LIGHT_DETACHED_ONLY;
 
 import tech.pegasys.pantheon.ethereum.ProtocolContext;
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
@@ -26,14 +27,18 @@ import tech.pegasys.pantheon.ethereum.eth.manager.exceptions.PeerBreachedProtoco
 import tech.pegasys.pantheon.ethereum.eth.manager.exceptions.PeerDisconnectedException;
 import tech.pegasys.pantheon.ethereum.eth.sync.tasks.exceptions.InvalidBlockException;
 import tech.pegasys.pantheon.ethereum.mainnet.BlockHeaderValidator;
+import tech.pegasys.pantheon.ethereum.mainnet.HeaderValidationMode;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSpec;
 import tech.pegasys.pantheon.ethereum.p2p.wire.messages.DisconnectMessage.DisconnectReason;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
 
 import com.google.common.primitives.Ints;
 import org.apache.logging.log4j.LogManager;
@@ -43,6 +48,13 @@ import org.apache.logging.log4j.Logger;
  * Retrieves a sequence of headers, sending out requests repeatedly until all headers are fulfilled.
  * Validates headers as they are received.
  *
+ * <p>Each response is first checked in order to make sure every header is the parent of the one
+ * after it, which is cheap. The headers are then validated in parallel on the common {@link
+ * java.util.concurrent.ForkJoinPool}, as checking the proof of work dominates the cost of
+ * validation. The proof of work of only a random sample of the headers is checked when {@code
+ * proofOfWorkSampleRate} is less than 1, leaving the rest to be checked when the blocks are
+ * imported.
+ *
  * @param <C> the consensus algorithm context
  */
 public class DownloadHeaderSequenceTask<C> extends AbstractRetryingPeerTask<List<BlockHeader>> {
@@ -57,6 +69,7 @@ public class DownloadHeaderSequenceTask<C> extends AbstractRetryingPeerTask<List
   private final BlockHeader referenceHeader;
   private final int segmentLength;
   private final long startingBlockNumber;
+  private final float proofOfWorkSampleRate;
 
   private int lastFilledHeaderIndex;
 
@@ -66,13 +79,15 @@ public class DownloadHeaderSequenceTask<C> extends AbstractRetryingPeerTask<List
       final EthContext ethContext,
       final BlockHeader referenceHeader,
       final int segmentLength,
-      final int maxRetries) {
+      final int maxRetries,
+      final float proofOfWorkSampleRate) {
     super(ethContext, maxRetries);
     this.protocolSchedule = protocolSchedule;
     this.protocolContext = protocolContext;
     this.ethContext = ethContext;
     this.referenceHeader = referenceHeader;
     this.segmentLength = segmentLength;
+    this.proofOfWorkSampleRate = proofOfWorkSampleRate;
 
     startingBlockNumber = referenceHeader.getNumber() - segmentLength;
     headers = new BlockHeader[segmentLength];
@@ -87,7 +102,30 @@ public class DownloadHeaderSequenceTask<C> extends AbstractRetryingPeerTask<List
       final int segmentLength,
       final int maxRetries) {
     return new DownloadHeaderSequenceTask<>(
-        protocolSchedule, protocolContext, ethContext, referenceHeader, segmentLength, maxRetries);
+        protocolSchedule,
+        protocolContext,
+        ethContext,
+        referenceHeader,
+        segmentLength,
+        maxRetries,
+        1f);
+  }
+
+  public static <C> DownloadHeaderSequenceTask<C> endingAtHeader(
+      final ProtocolSchedule<C> protocolSchedule,
+      final ProtocolContext<C> protocolContext,
+      final EthContext ethContext,
+      final BlockHeader referenceHeader,
+      final int segmentLength,
+      final float proofOfWorkSampleRate) {
+    return new DownloadHeaderSequenceTask<>(
+        protocolSchedule,
+        protocolContext,
+        ethContext,
+        referenceHeader,
+        segmentLength,
+        DEFAULT_RETRIES,
+        proofOfWorkSampleRate);
   }
 
   public static <C> DownloadHeaderSequenceTask<C> endingAtHeader(
@@ -102,7 +140,8 @@ public class DownloadHeaderSequenceTask<C> extends AbstractRetryingPeerTask<List
         ethContext,
         referenceHeader,
         segmentLength,
-        DEFAULT_RETRIES);
+        DEFAULT_RETRIES,
+        1f);
   }
 
   @Override
@@ -160,6 +199,8 @@ public class DownloadHeaderSequenceTask<C> extends AbstractRetryingPeerTask<List
         ethContext.getScheduler(),
         () -> {
           final CompletableFuture<List<BlockHeader>> future = new CompletableFuture<>();
+          final List<BlockHeader> received = new ArrayList<>();
+          final List<BlockHeader> children = new ArrayList<>();
           BlockHeader child = null;
           boolean firstSkipped = false;
           for (final BlockHeader header : headersResult.getResult()) {
@@ -176,27 +217,60 @@ public class DownloadHeaderSequenceTask<C> extends AbstractRetryingPeerTask<List
                   (headerIndex == segmentLength - 1) ? referenceHeader : headers[headerIndex + 1];
             }
 
-            if (!validateHeader(child, header)) {
-              // Invalid headers - disconnect from peer
-              LOG.debug(
-                  "Received invalid headers from peer, disconnecting from: {}",
-                  headersResult.getPeer());
-              headersResult.getPeer().disconnect(DisconnectReason.BREACH_OF_PROTOCOL);
-              future.completeExceptionally(
-                  new InvalidBlockException(
-                      "Invalid header", header.getNumber(), header.getHash()));
-              return future;
+            if (!isParentInRange(child, header)) {
+              return invalidHeaders(headersResult, header, future);
             }
+            received.add(header);
+            children.add(child);
+            child = header;
+          }
+
+          final HeaderValidationMode[] modes = new HeaderValidationMode[received.size()];
+          for (int i = 0; i < modes.length; i++) {
+            modes[i] = headerValidationMode();
+          }
+          final int invalidIndex =
+              IntStream.range(0, received.size())
+                  .parallel()
+                  .filter(i -> !validateHeader(children.get(i), received.get(i), modes[i]))
+                  .findFirst()
+                  .orElse(-1);
+          if (invalidIndex >= 0) {
+            return invalidHeaders(headersResult, received.get(invalidIndex), future);
+          }
+
+          for (final BlockHeader header : received) {
+            final int headerIndex =
+                Ints.checkedCast(
+                    segmentLength - (referenceHeader.getNumber() - header.getNumber()));
             headers[headerIndex] = header;
             lastFilledHeaderIndex = headerIndex;
-            child = header;
           }
           future.complete(asList(headers).subList(lastFilledHeaderIndex, segmentLength));
           return future;
         });
   }
 
-  private boolean validateHeader(final BlockHeader child, final BlockHeader header) {
+  private CompletableFuture<List<BlockHeader>> invalidHeaders(
+      final PeerTaskResult<List<BlockHeader>> headersResult,
+      final BlockHeader header,
+      final CompletableFuture<List<BlockHeader>> future) {
+    // Invalid headers - disconnect from peer
+    LOG.debug(
+        "Received invalid headers from peer, disconnecting from: {}", headersResult.getPeer());
+    headersResult.getPeer().disconnect(DisconnectReason.BREACH_OF_PROTOCOL);
+    future.completeExceptionally(
+        new InvalidBlockException("Invalid header", header.getNumber(), header.getHash()));
+    return future;
+  }
+
+  private HeaderValidationMode headerValidationMode() {
+    return ThreadLocalRandom.current().nextFloat() < proofOfWorkSampleRate
+        ? DETACHED_ONLY
+        : LIGHT_DETACHED_ONLY;
+  }
+
+  private boolean isParentInRange(final BlockHeader child, final BlockHeader header) {
     final long finalBlockNumber = startingBlockNumber + segmentLength;
     final boolean blockInRange =
         header.getNumber() >= startingBlockNumber && header.getNumber() < finalBlockNumber;
@@ -206,9 +280,14 @@ public class DownloadHeaderSequenceTask<C> extends AbstractRetryingPeerTask<List
     if (child == null) {
       return false;
     }
+    return child.getNumber() == header.getNumber() + 1
+        && child.getParentHash().equals(header.getHash());
+  }
 
+  private boolean validateHeader(
+      final BlockHeader child, final BlockHeader header, final HeaderValidationMode mode) {
     final ProtocolSpec<C> protocolSpec = protocolSchedule.getByBlockNumber(child.getNumber());
     final BlockHeaderValidator<C> blockHeaderValidator = protocolSpec.getBlockHeaderValidator();
-    return blockHeaderValidator.validateHeader(child, header, protocolContext, DETACHED_ONLY);
+    return blockHeaderValidator.validateHeader(child, header, protocolContext, mode);
   }
 }
@@ -82,8 +82,14 @@ public class GetBodiesFromPeerTask<C> extends AbstractPeerRequestTask<List<Block
 
   @Override
   protected ResponseStream sendRequest(final EthPeer peer) throws PeerNotConnected {
+    // Only ask for as many bodies as the peer can deliver in good time, the caller retries the
+    // rest.
     final List<Hash> blockHashes =
-        headers.stream().map(BlockHeader::getHash).collect(Collectors.toList());
+        headers
+            .stream()
+            .limit(requestSize(peer, headers.size()))
+            .map(BlockHeader::getHash)
+            .collect(Collectors.toList());
     LOG.debug("Requesting {} bodies from peer {}.", blockHashes.size(), peer);
     return peer.getBodies(blockHashes);
   }
@@ -128,7 +134,8 @@ public class GetBodiesFromPeerTask<C> extends AbstractPeerRequestTask<List<Block
 
   @Override
   protected Optional<EthPeer> findSuitablePeer() {
-    return this.ethContext.getEthPeers().idlePeer(headers.get(headers.size() - 1).getNumber());
+    final long lastBlockNumber = headers.get(headers.size() - 1).getNumber();
+    return fastestIdlePeer(peer -> peer.chainState().getEstimatedHeight() >= lastBlockNumber);
   }
 
   private static class BodyIdentifier {
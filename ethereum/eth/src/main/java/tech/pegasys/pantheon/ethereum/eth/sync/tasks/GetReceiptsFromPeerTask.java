@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.tasks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Collections.emptyList;
+
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.ethereum.eth.manager.AbstractPeerRequestTask;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthPeer;
+import tech.pegasys.pantheon.ethereum.eth.manager.RequestManager.ResponseStream;
+import tech.pegasys.pantheon.ethereum.eth.messages.EthPV63;
+import tech.pegasys.pantheon.ethereum.eth.messages.ReceiptsMessage;
+import tech.pegasys.pantheon.ethereum.mainnet.BodyValidation;
+import tech.pegasys.pantheon.ethereum.p2p.api.MessageData;
+import tech.pegasys.pantheon.ethereum.p2p.api.PeerConnection.PeerNotConnected;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Requests the receipts of a set of blocks from a peer, and matches them up to their headers by the
+ * receipts root.
+ *
+ * <p>Blocks without any transactions have the empty trie as their receipts root, and so are given
+ * an empty list of receipts without asking the peer.
+ */
+public class GetReceiptsFromPeerTask
+    extends AbstractPeerRequestTask<Map<BlockHeader, List<TransactionReceipt>>> {
+  private static final Logger LOG = LogManager.getLogger();
+
+  private final Collection<BlockHeader> blockHeaders;
+  private final Map<Hash, List<BlockHeader>> headersByReceiptsRoot = new HashMap<>();
+
+  private GetReceiptsFromPeerTask(
+      final EthContext ethContext, final Collection<BlockHeader> blockHeaders) {
+    super(ethContext, EthPV63.GET_RECEIPTS);
+    checkArgument(blockHeaders.size() > 0);
+    this.blockHeaders = blockHeaders;
+    blockHeaders.forEach(
+        header ->
+            headersByReceiptsRoot
+                .computeIfAbsent(header.getReceiptsRoot(), key -> new ArrayList<>())
+                .add(header));
+  }
+
+  public static GetReceiptsFromPeerTask forHeaders(
+      final EthContext ethContext, final Collection<BlockHeader> blockHeaders) {
+    return new GetReceiptsFromPeerTask(ethContext, blockHeaders);
+  }
+
+  @Override
+  protected void executeTask() {
+    if (headersByReceiptsRoot.keySet().equals(Collections.singleton(Hash.EMPTY_TRIE_HASH))) {
+      // None of the blocks have receipts, so there's nothing to ask a peer for.
+      final Map<BlockHeader, List<TransactionReceipt>> receipts = new HashMap<>();
+      blockHeaders.forEach(header -> receipts.put(header, emptyList()));
+      result.get().complete(new PeerTaskResult<>(null, receipts));
+      return;
+    }
+    super.executeTask();
+  }
+
+  @Override
+  protected ResponseStream sendRequest(final EthPeer peer) throws PeerNotConnected {
+    final List<Hash> blockHashes =
+        blockHeaders
+            .stream()
+            .filter(header -> !header.getReceiptsRoot().equals(Hash.EMPTY_TRIE_HASH))
+            .map(BlockHeader::getHash)
+            .collect(Collectors.toList());
+    // Only ask for as many receipts as the peer can deliver in good time, the caller retries the
+    // rest.
+    blockHashes.subList(requestSize(peer, blockHashes.size()), blockHashes.size()).clear();
+    LOG.debug("Requesting receipts for {} blocks from peer {}.", blockHashes.size(), peer);
+    return peer.getReceipts(blockHashes);
+  }
+
+  @Override
+  protected Optional<Map<BlockHeader, List<TransactionReceipt>>> processResponse(
+      final boolean streamClosed, final MessageData message, final EthPeer peer) {
+    if (streamClosed) {
+      // All outstanding requests have been responded to and we still haven't found the response
+      // we wanted. It must have been empty or contain data that didn't match.
+      peer.recordUselessResponse();
+      return Optional.of(Collections.emptyMap());
+    }
+
+    final ReceiptsMessage receiptsMessage = ReceiptsMessage.readFrom(message);
+    try {
+      final List<List<TransactionReceipt>> receiptsByBlock = receiptsMessage.receipts();
+      if (receiptsByBlock.isEmpty()) {
+        // Message contains no data - nothing to do
+        return Optional.empty();
+      } else if (receiptsByBlock.size() > blockHeaders.size()) {
+        // Message doesn't match our request - nothing to do
+        return Optional.empty();
+      }
+
+      final Map<BlockHeader, List<TransactionReceipt>> receipts = new HashMap<>();
+      for (final List<TransactionReceipt> blockReceipts : receiptsByBlock) {
+        final List<BlockHeader> headers =
+            headersByReceiptsRoot.get(BodyValidation.receiptsRoot(blockReceipts));
+        if (headers == null) {
+          // This message contains unrelated receipts - exit
+          return Optional.empty();
+        }
+        headers.forEach(header -> receipts.put(header, blockReceipts));
+      }
+      final List<BlockHeader> emptyBlocks = headersByReceiptsRoot.get(Hash.EMPTY_TRIE_HASH);
+      if (emptyBlocks != null) {
+        emptyBlocks.forEach(header -> receipts.put(header, emptyList()));
+      }
+      return Optional.of(receipts);
+    } finally {
+      receiptsMessage.release();
+    }
+  }
+
+  @Override
+  protected int itemCount(final Map<BlockHeader, List<TransactionReceipt>> result) {
+    // The receipts of blocks without any are filled in without the peer sending them.
+    return (int)
+        result
+            .keySet()
+            .stream()
+            .filter(header -> !header.getReceiptsRoot().equals(Hash.EMPTY_TRIE_HASH))
+            .count();
+  }
+
+  @Override
+  protected Optional<EthPeer> findSuitablePeer() {
+    final long lastBlockNumber =
+        blockHeaders.stream().mapToLong(BlockHeader::getNumber).max().getAsLong();
+    return fastestIdlePeer(
+        peer -> peer.supportsEth63() && peer.chainState().getEstimatedHeight() >= lastBlockNumber);
+  }
+}
@@ -12,12 +12,15 @@
  */
 package tech.pegasys.pantheon.ethereum.eth.sync.tasks;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import tech.pegasys.pantheon.ethereum.ProtocolContext;
 import tech.pegasys.pantheon.ethereum.core.Block;
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
-import tech.pegasys.pantheon.ethereum.core.Transaction;
 import tech.pegasys.pantheon.ethereum.eth.manager.AbstractEthTask;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
+import tech.pegasys.pantheon.ethereum.eth.sync.BlockHandler;
+import tech.pegasys.pantheon.ethereum.eth.sync.FullSyncBlockHandler;
 import tech.pegasys.pantheon.ethereum.eth.sync.tasks.exceptions.InvalidBlockException;
 import tech.pegasys.pantheon.ethereum.mainnet.BlockHeaderValidator;
 import tech.pegasys.pantheon.ethereum.mainnet.HeaderValidationMode;
@@ -32,34 +35,55 @@ import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.function.Supplier;
 
 import com.google.common.collect.Lists;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-public class PipelinedImportChainSegmentTask<C> extends AbstractEthTask<List<Block>> {
+/**
+ * Imports the chain between a series of checkpoint headers, as a pipeline of stages that work on
+ * several chunks of the segment at once.
+ *
+ * <p>Each chunk passes through header download and validation, body download, sender recovery and
+ * finally validation and import. A stage works on one chunk at a time, in order, and at most {@code
+ * maxActiveChunks} chunks are in the pipeline, so stages that get ahead wait for the import to
+ * catch up.
+ *
+ * <p>When a {@link CheckpointSource} is given, further checkpoints are requested from it whenever
+ * few chunks are left waiting to enter the pipeline, so the import carries straight on into the
+ * following segments instead of draining at the end of each. The task completes once the source has
+ * no more checkpoints and every chunk has been imported.
+ *
+ * @param <C> the consensus algorithm context
+ * @param <B> the type of block the {@link BlockHandler} downloads and imports
+ */
+public class PipelinedImportChainSegmentTask<C, B> extends AbstractEthTask<List<B>> {
   private static final Logger LOG = LogManager.getLogger();
 
   private final EthContext ethContext;
   private final ProtocolContext<C> protocolContext;
   private final ProtocolSchedule<C> protocolSchedule;
-  private final List<Block> importedBlocks = new ArrayList<>();
+  private final BlockHandler<B> blockHandler;
+  private final List<B> importedBlocks = new ArrayList<>();
 
   // First header is assumed  to already be imported
   private final List<BlockHeader> checkpointHeaders;
-  private final int chunksInTotal;
+  private int chunksInTotal;
   private int chunksIssued;
   private int chunksCompleted;
   private final int maxActiveChunks;
+  private final float proofOfWorkSampleRate;
+  private final CheckpointSource checkpointSource;
+  private boolean fetchingCheckpoints;
+  private boolean checkpointsExhausted;
 
   private final Deque<CompletableFuture<List<BlockHeader>>> downloadAndValidateHeadersTasks =
       new ConcurrentLinkedDeque<>();
-  private final Deque<CompletableFuture<List<Block>>> downloadBodiesTasks =
+  private final Deque<CompletableFuture<List<B>>> downloadBodiesTasks =
       new ConcurrentLinkedDeque<>();
-  private final Deque<CompletableFuture<List<Block>>> extractTransactionSendersTasks =
+  private final Deque<CompletableFuture<List<B>>> extractTransactionSendersTasks =
       new ConcurrentLinkedDeque<>();
-  private final Deque<CompletableFuture<List<Block>>> validateAndImportBlocksTasks =
+  private final Deque<CompletableFuture<List<B>>> validateAndImportBlocksTasks =
       new ConcurrentLinkedDeque<>();
 
   protected PipelinedImportChainSegmentTask(
@@ -67,18 +91,24 @@ public class PipelinedImportChainSegmentTask<C> extends AbstractEthTask<List<Blo
       final ProtocolContext<C> protocolContext,
       final EthContext ethContext,
       final int maxActiveChunks,
-      final List<BlockHeader> checkpointHeaders) {
+      final float proofOfWorkSampleRate,
+      final List<BlockHeader> checkpointHeaders,
+      final BlockHandler<B> blockHandler,
+      final CheckpointSource checkpointSource) {
     this.protocolSchedule = protocolSchedule;
     this.protocolContext = protocolContext;
     this.ethContext = ethContext;
-    this.checkpointHeaders = checkpointHeaders;
+    this.blockHandler = blockHandler;
+    this.checkpointHeaders = new ArrayList<>(checkpointHeaders);
     this.chunksInTotal = checkpointHeaders.size() - 1;
     this.chunksIssued = 0;
     this.chunksCompleted = 0;
     this.maxActiveChunks = maxActiveChunks;
+    this.proofOfWorkSampleRate = proofOfWorkSampleRate;
+    this.checkpointSource = checkpointSource;
   }
 
-  public static <C> PipelinedImportChainSegmentTask<C> forCheckpoints(
+  public static <C> PipelinedImportChainSegmentTask<C, Block> forCheckpoints(
       final ProtocolSchedule<C> protocolSchedule,
       final ProtocolContext<C> protocolContext,
       final EthContext ethContext,
@@ -92,18 +122,128 @@ public class PipelinedImportChainSegmentTask<C> extends AbstractEthTask<List<Blo
         Arrays.asList(checkpointHeaders));
   }
 
-  public static <C> PipelinedImportChainSegmentTask<C> forCheckpoints(
+  public static <C> PipelinedImportChainSegmentTask<C, Block> forCheckpoints(
       final ProtocolSchedule<C> protocolSchedule,
       final ProtocolContext<C> protocolContext,
       final EthContext ethContext,
       final int maxActiveChunks,
       final List<BlockHeader> checkpointHeaders) {
+    return forCheckpointsWithHandler(
+        protocolSchedule,
+        protocolContext,
+        ethContext,
+        maxActiveChunks,
+        1f,
+        checkpointHeaders,
+        new FullSyncBlockHandler<>(protocolSchedule, protocolContext, ethContext));
+  }
+
+  public static <C> PipelinedImportChainSegmentTask<C, Block> forCheckpointsWithSource(
+      final ProtocolSchedule<C> protocolSchedule,
+      final ProtocolContext<C> protocolContext,
+      final EthContext ethContext,
+      final int maxActiveChunks,
+      final float proofOfWorkSampleRate,
+      final List<BlockHeader> checkpointHeaders,
+      final CheckpointSource checkpointSource) {
     return new PipelinedImportChainSegmentTask<>(
-        protocolSchedule, protocolContext, ethContext, maxActiveChunks, checkpointHeaders);
+        protocolSchedule,
+        protocolContext,
+        ethContext,
+        maxActiveChunks,
+        proofOfWorkSampleRate,
+        checkpointHeaders,
+        new FullSyncBlockHandler<>(
+            protocolSchedule, protocolContext, ethContext, proofOfWorkSampleRate),
+        checkpointSource);
+  }
+
+  public static <C, B> PipelinedImportChainSegmentTask<C, B> forCheckpointsWithHandler(
+      final ProtocolSchedule<C> protocolSchedule,
+      final ProtocolContext<C> protocolContext,
+      final EthContext ethContext,
+      final int maxActiveChunks,
+      final float proofOfWorkSampleRate,
+      final List<BlockHeader> checkpointHeaders,
+      final BlockHandler<B> blockHandler) {
+    return new PipelinedImportChainSegmentTask<>(
+        protocolSchedule,
+        protocolContext,
+        ethContext,
+        maxActiveChunks,
+        proofOfWorkSampleRate,
+        checkpointHeaders,
+        blockHandler,
+        lastCheckpoint -> CompletableFuture.completedFuture(Collections.emptyList()));
+  }
+
+  private void maybeFetchCheckpoints() {
+    if (fetchingCheckpoints || checkpointsExhausted || queuedChunkCount() > maxActiveChunks) {
+      return;
+    }
+    fetchingCheckpoints = true;
+    checkpointSource.nextCheckpoints(lastHeader()).whenComplete(this::addCheckpoints);
+  }
+
+  private synchronized void addCheckpoints(final List<BlockHeader> headers, final Throwable error) {
+    fetchingCheckpoints = false;
+    if (isDone()) {
+      return;
+    }
+    if (error != null || headers.isEmpty()) {
+      checkpointsExhausted = true;
+    } else {
+      checkArgument(
+          headers.get(0).getNumber() > lastHeader().getNumber(),
+          "Checkpoints must follow on from the end of the segment");
+      checkpointHeaders.addAll(headers);
+      chunksInTotal += headers.size();
+      while (chunksIssued < chunksInTotal && chunksIssued - chunksCompleted < maxActiveChunks) {
+        createNextChunkPipeline();
+      }
+    }
+    maybeFetchCheckpoints();
+    maybeComplete();
+  }
+
+  private void maybeComplete() {
+    if (chunksCompleted == chunksInTotal && !fetchingCheckpoints && checkpointsExhausted) {
+      LOG.info(
+          "Completed importing chain segment {} to {}",
+          firstHeader().getNumber(),
+          lastHeader().getNumber());
+      result.get().complete(importedBlocks);
+    }
+  }
+
+  /** @return the number of chunks waiting to enter the pipeline */
+  public synchronized int queuedChunkCount() {
+    return chunksInTotal - chunksIssued;
+  }
+
+  /**
+   * @return the number of chunks waiting for or being processed by each stage: header download and
+   *     validation, body download, sender recovery and import
+   */
+  public synchronized int[] stageDepths() {
+    final int[] depths = new int[4];
+    int previouslyPending = 0;
+    int stage = 0;
+    for (final Deque<? extends CompletableFuture<?>> stageTasks :
+        Arrays.asList(
+            downloadAndValidateHeadersTasks,
+            downloadBodiesTasks,
+            extractTransactionSendersTasks,
+            validateAndImportBlocksTasks)) {
+      final int pending = (int) stageTasks.stream().filter(task -> !task.isDone()).count();
+      depths[stage++] = pending - previouslyPending;
+      previouslyPending = pending;
+    }
+    return depths;
   }
 
   @Override
-  protected void executeTask() {
+  protected synchronized void executeTask() {
     LOG.debug(
         "Importing chain segment from {} to {}.",
         firstHeader().getNumber(),
@@ -111,6 +251,7 @@ public class PipelinedImportChainSegmentTask<C> extends AbstractEthTask<List<Blo
     for (int i = 0; i < chunksInTotal && i < maxActiveChunks; i++) {
       createNextChunkPipeline();
     }
+    maybeFetchCheckpoints();
   }
 
   private void createNextChunkPipeline() {
@@ -121,29 +262,33 @@ public class PipelinedImportChainSegmentTask<C> extends AbstractEthTask<List<Blo
         lastDownloadAndValidateHeadersTask()
             .thenCompose((ignore) -> downloadNextHeaders(firstChunkHeader, lastChunkHeader))
             .thenCompose(this::validateHeaders);
-    final CompletableFuture<List<Block>> downloadBodiesTask =
+    final CompletableFuture<List<B>> downloadBodiesTask =
         downloadAndValidateHeadersTask
             .thenCombine(lastDownloadBodiesTask(), (headers, ignored) -> headers)
             .thenCompose(this::downloadBlocks);
-    final CompletableFuture<List<Block>> extractTransactionSendersTask =
+    final CompletableFuture<List<B>> extractTransactionSendersTask =
         downloadBodiesTask
             .thenCombine(lastExtractTransactionSendersTasks(), (blocks, ignored) -> blocks)
             .thenCompose(this::extractTransactionSenders);
-    final CompletableFuture<List<Block>> validateAndImportBlocksTask =
+    final CompletableFuture<List<B>> validateAndImportBlocksTask =
         extractTransactionSendersTask
             .thenCombine(lastValidateAndImportBlocksTasks(), (blocks, ignored) -> blocks)
             .thenCompose(this::validateAndImportBlocks);
-    validateAndImportBlocksTask.whenComplete(this::completeChunkPipelineAndMaybeLaunchNextOne);
 
     downloadAndValidateHeadersTasks.addLast(downloadAndValidateHeadersTask);
     downloadBodiesTasks.addLast(downloadBodiesTask);
     extractTransactionSendersTasks.addLast(extractTransactionSendersTask);
     validateAndImportBlocksTasks.addLast(validateAndImportBlocksTask);
     chunksIssued++;
+    validateAndImportBlocksTask.whenComplete(this::completeChunkPipelineAndMaybeLaunchNextOne);
   }
 
-  public void completeChunkPipelineAndMaybeLaunchNextOne(
-      final List<Block> blocks, final Throwable throwable) {
+  public synchronized void completeChunkPipelineAndMaybeLaunchNextOne(
+      final List<B> blocks, final Throwable throwable) {
+    if (isDone()) {
+      // Already failed or cancelled.
+      return;
+    }
     if (throwable != null) {
       LOG.warn(
           "Import of chain segment ({} to {}) failed: {}.",
@@ -153,30 +298,32 @@ public class PipelinedImportChainSegmentTask<C> extends AbstractEthTask<List<Blo
       result.get().completeExceptionally(throwable);
     } else {
       importedBlocks.addAll(blocks);
-      final BlockHeader firstHeader = blocks.get(0).getHeader();
-      final BlockHeader lastHeader = blocks.get(blocks.size() - 1).getHeader();
       chunksCompleted++;
       LOG.debug(
           "Import chain segment from {} to {} succeeded (chunk {}/{}).",
-          firstHeader.getNumber(),
-          lastHeader.getNumber(),
+          blockHandler.extractBlockNumber(blocks.get(0)),
+          blockHandler.extractBlockNumber(blocks.get(blocks.size() - 1)),
           chunksCompleted,
           chunksInTotal);
-      if (chunksCompleted == chunksInTotal) {
-        LOG.info(
-            "Completed importing chain segment {} to {}",
-            firstHeader().getNumber(),
-            lastHeader().getNumber());
-        result.get().complete(importedBlocks);
-      } else {
-        downloadAndValidateHeadersTasks.removeFirst();
-        downloadBodiesTasks.removeFirst();
-        extractTransactionSendersTasks.removeFirst();
-        validateAndImportBlocksTasks.removeFirst();
-        if (chunksIssued < chunksInTotal) {
-          createNextChunkPipeline();
-        }
+      downloadAndValidateHeadersTasks.removeFirst();
+      downloadBodiesTasks.removeFirst();
+      extractTransactionSendersTasks.removeFirst();
+      validateAndImportBlocksTasks.removeFirst();
+      if (chunksIssued < chunksInTotal) {
+        createNextChunkPipeline();
+      }
+      if (LOG.isDebugEnabled()) {
+        final int[] depths = stageDepths();
+        LOG.debug(
+            "Import pipeline depths: {} queued, {} headers, {} bodies, {} senders, {} importing.",
+            queuedChunkCount(),
+            depths[0],
+            depths[1],
+            depths[2],
+            depths[3]);
       }
+      maybeFetchCheckpoints();
+      maybeComplete();
     }
   }
 
@@ -195,7 +342,12 @@ public class PipelinedImportChainSegmentTask<C> extends AbstractEthTask<List<Blo
     }
     final DownloadHeaderSequenceTask<C> task =
         DownloadHeaderSequenceTask.endingAtHeader(
-            protocolSchedule, protocolContext, ethContext, lastChunkHeader, segmentLength);
+            protocolSchedule,
+            protocolContext,
+            ethContext,
+            lastChunkHeader,
+            segmentLength,
+            proofOfWorkSampleRate);
     return executeSubTask(task::run)
         .thenApply(
             headers -> {
@@ -233,45 +385,30 @@ public class PipelinedImportChainSegmentTask<C> extends AbstractEthTask<List<Blo
         });
   }
 
-  private CompletableFuture<List<Block>> downloadBlocks(final List<BlockHeader> headers) {
+  private CompletableFuture<List<B>> downloadBlocks(final List<BlockHeader> headers) {
     LOG.debug(
         "Downloading bodies {} to {}",
         headers.get(0).getNumber(),
         headers.get(headers.size() - 1).getNumber());
-    final CompleteBlocksTask<C> task =
-        CompleteBlocksTask.forHeaders(protocolSchedule, ethContext, headers);
-    return executeSubTask(task::run);
+    return executeSubTask(() -> blockHandler.downloadBlocks(headers));
   }
 
-  private CompletableFuture<List<Block>> validateAndImportBlocks(final List<Block> blocks) {
+  private CompletableFuture<List<B>> validateAndImportBlocks(final List<B> blocks) {
     LOG.debug(
         "Validating and importing {} to {}",
-        blocks.get(0).getHeader().getNumber(),
-        blocks.get(blocks.size() - 1).getHeader().getNumber());
-    final Supplier<CompletableFuture<List<Block>>> task =
-        PersistBlockTask.forSequentialBlocks(
-            protocolSchedule, protocolContext, blocks, HeaderValidationMode.SKIP_DETACHED);
-    return executeWorkerSubTask(ethContext.getScheduler(), task);
+        blockHandler.extractBlockNumber(blocks.get(0)),
+        blockHandler.extractBlockNumber(blocks.get(blocks.size() - 1)));
+    return executeWorkerSubTask(
+        ethContext.getScheduler(), () -> blockHandler.validateAndImportBlocks(blocks));
   }
 
-  private CompletableFuture<List<Block>> extractTransactionSenders(final List<Block> blocks) {
+  private CompletableFuture<List<B>> extractTransactionSenders(final List<B> blocks) {
     LOG.debug(
         "Extracting sender {} to {}",
-        blocks.get(0).getHeader().getNumber(),
-        blocks.get(blocks.size() - 1).getHeader().getNumber());
+        blockHandler.extractBlockNumber(blocks.get(0)),
+        blockHandler.extractBlockNumber(blocks.get(blocks.size() - 1)));
     return executeWorkerSubTask(
-        ethContext.getScheduler(),
-        () -> {
-          final CompletableFuture<List<Block>> result = new CompletableFuture<>();
-          for (final Block block : blocks) {
-            for (final Transaction transaction : block.getBody().getTransactions()) {
-              // This method internally performs the transaction sender extraction.
-              transaction.getSender();
-            }
-          }
-          result.complete(blocks);
-          return result;
-        });
+        ethContext.getScheduler(), () -> blockHandler.prepareBlocks(blocks));
   }
 
   private BlockHeader firstHeader() {
@@ -290,7 +427,7 @@ public class PipelinedImportChainSegmentTask<C> extends AbstractEthTask<List<Blo
     }
   }
 
-  private CompletableFuture<List<Block>> lastDownloadBodiesTask() {
+  private CompletableFuture<List<B>> lastDownloadBodiesTask() {
     if (downloadBodiesTasks.isEmpty()) {
       return CompletableFuture.completedFuture(Lists.newArrayList());
     } else {
@@ -298,7 +435,7 @@ public class PipelinedImportChainSegmentTask<C> extends AbstractEthTask<List<Blo
     }
   }
 
-  private CompletableFuture<List<Block>> lastValidateAndImportBlocksTasks() {
+  private CompletableFuture<List<B>> lastValidateAndImportBlocksTasks() {
     if (validateAndImportBlocksTasks.isEmpty()) {
       return CompletableFuture.completedFuture(Lists.newArrayList());
     } else {
@@ -306,11 +443,23 @@ public class PipelinedImportChainSegmentTask<C> extends AbstractEthTask<List<Blo
     }
   }
 
-  private CompletableFuture<List<Block>> lastExtractTransactionSendersTasks() {
+  private CompletableFuture<List<B>> lastExtractTransactionSendersTasks() {
     if (extractTransactionSendersTasks.isEmpty()) {
       return CompletableFuture.completedFuture(Lists.newArrayList());
     } else {
       return extractTransactionSendersTasks.getLast();
     }
   }
+
+  /** Supplies the checkpoints which follow on from those an import already has. */
+  @FunctionalInterface
+  public interface CheckpointSource {
+
+    /**
+     * @param lastCheckpoint the last checkpoint the import has
+     * @return the checkpoint headers following on from {@code lastCheckpoint}, or an empty list if
+     *     there are no more to import
+     */
+    CompletableFuture<List<BlockHeader>> nextCheckpoints(BlockHeader lastCheckpoint);
+  }
 }
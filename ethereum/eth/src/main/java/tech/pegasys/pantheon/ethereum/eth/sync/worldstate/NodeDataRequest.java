@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.worldstate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.ethereum.rlp.RLPInput;
+import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.StoredMerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.bytes.BytesValues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/** A trie node or piece of contract code to request from peers, identified by its hash. */
+public class NodeDataRequest {
+
+  public enum Kind {
+    ACCOUNT_TRIE_NODE((byte) 0),
+    STORAGE_TRIE_NODE((byte) 1),
+    CODE((byte) 2);
+
+    private final byte value;
+
+    Kind(final byte value) {
+      this.value = value;
+    }
+
+    private static Kind fromValue(final byte value) {
+      for (final Kind kind : values()) {
+        if (kind.value == value) {
+          return kind;
+        }
+      }
+      throw new IllegalArgumentException("Unknown node data request kind: " + value);
+    }
+  }
+
+  private final Kind kind;
+  private final Hash hash;
+
+  private NodeDataRequest(final Kind kind, final Hash hash) {
+    this.kind = kind;
+    this.hash = hash;
+  }
+
+  public static NodeDataRequest createAccountTrieNodeRequest(final Hash hash) {
+    return new NodeDataRequest(Kind.ACCOUNT_TRIE_NODE, hash);
+  }
+
+  public static NodeDataRequest createStorageTrieNodeRequest(final Hash hash) {
+    return new NodeDataRequest(Kind.STORAGE_TRIE_NODE, hash);
+  }
+
+  public static NodeDataRequest createCodeRequest(final Hash hash) {
+    return new NodeDataRequest(Kind.CODE, hash);
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public Hash getHash() {
+    return hash;
+  }
+
+  public BytesValue serialize() {
+    return BytesValues.concatenate(BytesValue.of(kind.value), hash);
+  }
+
+  public static NodeDataRequest deserialize(final BytesValue serialized) {
+    checkArgument(serialized.size() == 1 + Bytes32.SIZE, "Invalid node data request");
+    return new NodeDataRequest(
+        Kind.fromValue(serialized.get(0)), Hash.wrap(Bytes32.wrap(serialized, 1)));
+  }
+
+  /**
+   * @param worldStateStorage the storage to read from
+   * @return the requested data if it's already held in the storage
+   */
+  public Optional<BytesValue> retrieveFrom(final WorldStateStorage worldStateStorage) {
+    switch (kind) {
+      case ACCOUNT_TRIE_NODE:
+        return worldStateStorage.getAccountStateTrieNode(hash);
+      case STORAGE_TRIE_NODE:
+        return worldStateStorage.getAccountStorageTrieNode(hash);
+      default:
+        return worldStateStorage.getCode(hash);
+    }
+  }
+
+  public void persist(final WorldStateStorage.Updater updater, final BytesValue data) {
+    switch (kind) {
+      case ACCOUNT_TRIE_NODE:
+        updater.putAccountStateTrieNode(hash, data);
+        break;
+      case STORAGE_TRIE_NODE:
+        updater.putAccountStorageTrieNode(hash, data);
+        break;
+      default:
+        updater.putCode(data);
+        break;
+    }
+  }
+
+  /**
+   * Decodes the data received for this request to find the data it refers to: the trie nodes it
+   * links to by hash, and for the leaves of the account trie, the account's storage trie and code.
+   * Nodes small enough to be embedded in their parent are decoded along with it.
+   *
+   * @param data the data received for this request
+   * @return the requests for the data referred to
+   */
+  public List<NodeDataRequest> getChildRequests(final BytesValue data) {
+    final List<NodeDataRequest> children = new ArrayList<>();
+    if (kind == Kind.CODE) {
+      return children;
+    }
+    final StoredMerklePatriciaTrie<Bytes32, BytesValue> trie =
+        new StoredMerklePatriciaTrie<>(
+            nodeHash -> nodeHash.equals(hash) ? Optional.of(data) : Optional.empty(),
+            hash,
+            b -> b,
+            b -> b);
+    trie.visitStoredNodes(
+        nodeHash -> {
+          if (nodeHash.equals(hash)) {
+            return true;
+          }
+          children.add(new NodeDataRequest(kind, Hash.wrap(nodeHash)));
+          return false;
+        },
+        value -> {
+          if (kind == Kind.ACCOUNT_TRIE_NODE) {
+            addAccountChildRequests(value, children);
+          }
+        });
+    return children;
+  }
+
+  private static void addAccountChildRequests(
+      final BytesValue account, final List<NodeDataRequest> children) {
+    final RLPInput in = RLP.input(account);
+    in.enterList();
+    in.skipNext(); // nonce
+    in.skipNext(); // balance
+    final Hash storageRoot = Hash.wrap(in.readBytes32());
+    final Hash codeHash = Hash.wrap(in.readBytes32());
+    in.leaveList();
+
+    if (!storageRoot.equals(MerklePatriciaTrie.EMPTY_TRIE_ROOT_HASH)) {
+      children.add(createStorageTrieNodeRequest(storageRoot));
+    }
+    if (!codeHash.equals(Hash.EMPTY)) {
+      children.add(createCodeRequest(codeHash));
+    }
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof NodeDataRequest)) {
+      return false;
+    }
+    final NodeDataRequest other = (NodeDataRequest) obj;
+    return kind == other.kind && hash.equals(other.hash);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(kind, hash);
+  }
+
+  @Override
+  public String toString() {
+    return kind + "[" + hash + "]";
+  }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.worldstate;
+
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.bytes.BytesValues;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import com.google.common.primitives.Longs;
+
+/**
+ * The node data requests still to be completed, in the order they are to be made.
+ *
+ * <p>The queue is held in storage, as the frontier of a breadth first walk over a large world state
+ * runs to tens of millions of requests. Each request is stored under its position in the queue, and
+ * also under its own key so that a request that is already pending is never queued twice. Only a
+ * bounded window from the front of the queue is read into memory, along with the requests that have
+ * been taken and not completed yet.
+ *
+ * <p>A request stays in storage until it's completed, so after a restart the download carries on
+ * from the front of the queue, retrying the requests that were being made. Requests that have been
+ * taken but can't be completed are put back at the front of the window.
+ *
+ * <p>The queue can be cleared when the world state being downloaded is abandoned for another one.
+ * Nodes that have already been stored may then be missing parts of their subtree that are no
+ * longer pending, so stored nodes can't be trusted to be complete until a download finishes.
+ */
+public class NodeDataRequestQueue {
+  public static final int DEFAULT_WINDOW_SIZE = 10_000;
+
+  private static final BytesValue QUEUED_PREFIX = bytes("queuedNodeData");
+  private static final BytesValue PENDING_PREFIX = bytes("pendingNodeData");
+  private static final BytesValue HEAD_KEY = bytes("nodeDataQueueHead");
+  private static final BytesValue TAIL_KEY = bytes("nodeDataQueueTail");
+  private static final BytesValue SIZE_KEY = bytes("nodeDataQueueSize");
+  private static final BytesValue STORED_SUBTREES_INCOMPLETE_KEY =
+      bytes("nodeDataStoredSubtreesIncomplete");
+
+  private final KeyValueStorage storage;
+  private final int windowSize;
+
+  // The requests read from storage that are next to be taken, with their positions in the queue.
+  private final Deque<QueuedRequest> window = new ArrayDeque<>();
+  // The requests that have been taken and not completed yet, by their position in the queue.
+  private final Map<NodeDataRequest, Long> taken = new HashMap<>();
+  // The positions of the requests in the window or taken, which are the only ones before the next
+  // read that haven't been completed.
+  private final NavigableSet<Long> outstanding = new TreeSet<>();
+
+  // The position of the first request that may not have been completed yet.
+  private long head;
+  // The position of the next request to read into the window.
+  private long next;
+  // The position the next request to be queued is stored at.
+  private long tail;
+  private long size;
+  private boolean storedSubtreesIncomplete;
+
+  public NodeDataRequestQueue(final KeyValueStorage storage) {
+    this(storage, DEFAULT_WINDOW_SIZE);
+  }
+
+  public NodeDataRequestQueue(final KeyValueStorage storage, final int windowSize) {
+    this.storage = storage;
+    this.windowSize = windowSize;
+    this.head = loadLong(HEAD_KEY);
+    this.next = head;
+    this.tail = loadLong(TAIL_KEY);
+    this.size = loadLong(SIZE_KEY);
+    this.storedSubtreesIncomplete = storage.get(STORED_SUBTREES_INCOMPLETE_KEY).isPresent();
+  }
+
+  /**
+   * Adds requests to the back of the queue, and stores them. Requests that are already pending are
+   * ignored, but requests left behind when the queue was cleared are queued again.
+   *
+   * @param requests the requests to add
+   */
+  public synchronized void enqueue(final Collection<NodeDataRequest> requests) {
+    if (requests.isEmpty()) {
+      return;
+    }
+    final List<NodeDataRequest> distinctRequests = new ArrayList<>(new LinkedHashSet<>(requests));
+    final List<BytesValue> pendingKeys = new ArrayList<>(distinctRequests.size());
+    for (final NodeDataRequest request : distinctRequests) {
+      pendingKeys.add(pendingKey(request));
+    }
+    final List<Optional<BytesValue>> alreadyPending = storage.getAll(pendingKeys);
+
+    final KeyValueStorage.Transaction transaction = storage.getStartTransaction();
+    final long previousTail = tail;
+    for (int i = 0; i < distinctRequests.size(); i++) {
+      if (!alreadyPending.get(i).filter(this::isOutstandingPosition).isPresent()) {
+        final BytesValue position = BytesValue.wrap(Longs.toByteArray(tail++));
+        transaction.put(queuedKey(position), distinctRequests.get(i).serialize());
+        transaction.put(pendingKeys.get(i), position);
+      }
+    }
+    if (tail != previousTail) {
+      size += tail - previousTail;
+      transaction.put(TAIL_KEY, BytesValue.wrap(Longs.toByteArray(tail)));
+      transaction.put(SIZE_KEY, BytesValue.wrap(Longs.toByteArray(size)));
+    }
+    transaction.commit();
+  }
+
+  /**
+   * Takes requests from the front of the queue. They remain pending until completed or requeued.
+   *
+   * @param maxRequests the maximum number of requests to take
+   * @return the requests taken, which is empty if the queue is
+   */
+  public synchronized List<NodeDataRequest> take(final int maxRequests) {
+    final List<NodeDataRequest> requests = new ArrayList<>(maxRequests);
+    while (requests.size() < maxRequests && (!window.isEmpty() || fillWindow())) {
+      final QueuedRequest queued = window.poll();
+      taken.put(queued.request, queued.position);
+      requests.add(queued.request);
+    }
+    return requests;
+  }
+
+  /**
+   * Puts requests that were taken but couldn't be completed back at the front of the queue.
+   *
+   * @param requests the requests to retry
+   */
+  public synchronized void requeue(final Collection<NodeDataRequest> requests) {
+    final List<QueuedRequest> requeued = new ArrayList<>(requests.size());
+    for (final NodeDataRequest request : requests) {
+      final Long position = taken.remove(request);
+      if (position != null) {
+        requeued.add(new QueuedRequest(position, request));
+      }
+    }
+    for (int i = requeued.size() - 1; i >= 0; i--) {
+      window.addFirst(requeued.get(i));
+    }
+  }
+
+  /**
+   * Puts every request that has been taken and not completed back at the front of the queue, so
+   * that a new download retries the requests an abandoned one was making.
+   */
+  public synchronized void requeueTaken() {
+    final List<Map.Entry<NodeDataRequest, Long>> requeued = new ArrayList<>(taken.entrySet());
+    requeued.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
+    for (final Map.Entry<NodeDataRequest, Long> entry : requeued) {
+      window.addFirst(new QueuedRequest(entry.getValue(), entry.getKey()));
+    }
+    taken.clear();
+  }
+
+  /**
+   * Removes completed requests from storage. Once completed, a request is no longer pending.
+   *
+   * @param requests the completed requests
+   */
+  public synchronized void complete(final Collection<NodeDataRequest> requests) {
+    if (requests.isEmpty()) {
+      return;
+    }
+    final KeyValueStorage.Transaction transaction = storage.getStartTransaction();
+    for (final NodeDataRequest request : requests) {
+      final Long position = taken.remove(request);
+      if (position != null) {
+        transaction.remove(queuedKey(BytesValue.wrap(Longs.toByteArray(position))));
+        transaction.remove(pendingKey(request));
+        outstanding.remove(position);
+        size--;
+      }
+    }
+    transaction.put(SIZE_KEY, BytesValue.wrap(Longs.toByteArray(size)));
+    if (size == 0 && storedSubtreesIncomplete) {
+      // Every subtree reached from the last root to be downloaded has been walked to its leaves.
+      storedSubtreesIncomplete = false;
+      transaction.remove(STORED_SUBTREES_INCOMPLETE_KEY);
+    }
+    transaction.commit();
+    advanceHead();
+  }
+
+  /**
+   * Removes every request, including those that have been taken, so that the download can start
+   * again from a different root.
+   */
+  public synchronized void clear() {
+    final long previousHead = head;
+    // Moving the head past every request is enough to clear the queue, as requests before the head
+    // are never read and their pending markers are ignored, so this survives a restart part way.
+    window.clear();
+    taken.clear();
+    outstanding.clear();
+    head = tail;
+    next = tail;
+    size = 0;
+    storedSubtreesIncomplete = true;
+    final KeyValueStorage.Transaction transaction = storage.getStartTransaction();
+    transaction.put(HEAD_KEY, BytesValue.wrap(Longs.toByteArray(head)));
+    transaction.put(SIZE_KEY, BytesValue.wrap(Longs.toByteArray(size)));
+    transaction.put(STORED_SUBTREES_INCOMPLETE_KEY, BytesValue.of(1));
+    transaction.commit();
+
+    for (long start = previousHead; start < tail; start += windowSize) {
+      final int count = (int) Math.min(windowSize, tail - start);
+      final List<BytesValue> keys = new ArrayList<>(count);
+      for (long position = start; position < start + count; position++) {
+        keys.add(queuedKey(BytesValue.wrap(Longs.toByteArray(position))));
+      }
+      final List<Optional<BytesValue>> values = storage.getAll(keys);
+      final KeyValueStorage.Transaction removal = storage.getStartTransaction();
+      for (int i = 0; i < count; i++) {
+        final Optional<BytesValue> value = values.get(i);
+        if (value.isPresent()) {
+          removal.remove(keys.get(i));
+          removal.remove(pendingKey(NodeDataRequest.deserialize(value.get())));
+        }
+      }
+      removal.commit();
+    }
+  }
+
+  /**
+   * @return true if nodes in world state storage may be missing parts of their subtree that aren't
+   *     pending, because the queue has been cleared since a download last finished
+   */
+  public synchronized boolean storedSubtreesMayBeIncomplete() {
+    return storedSubtreesIncomplete;
+  }
+
+  /** @return true if there are no requests waiting to be made */
+  public synchronized boolean isEmpty() {
+    return window.isEmpty() && next == tail;
+  }
+
+  /** @return the number of requests that haven't been completed, including those being made */
+  public synchronized long pendingCount() {
+    return size;
+  }
+
+  /**
+   * Reads the next requests in the queue into the window, skipping those completed since.
+   *
+   * @return true if any requests were read
+   */
+  private boolean fillWindow() {
+    while (window.size() < windowSize && next < tail) {
+      final int count = (int) Math.min(windowSize - window.size(), tail - next);
+      final List<BytesValue> positions = new ArrayList<>(count);
+      final List<BytesValue> keys = new ArrayList<>(count);
+      for (long position = next; position < next + count; position++) {
+        final BytesValue positionBytes = BytesValue.wrap(Longs.toByteArray(position));
+        positions.add(positionBytes);
+        keys.add(queuedKey(positionBytes));
+      }
+      final List<Optional<BytesValue>> values = storage.getAll(keys);
+      for (int i = 0; i < count; i++) {
+        final long position = next + i;
+        values
+            .get(i)
+            .ifPresent(
+                value -> {
+                  window.add(new QueuedRequest(position, NodeDataRequest.deserialize(value)));
+                  outstanding.add(position);
+                });
+      }
+      next += count;
+    }
+    return !window.isEmpty();
+  }
+
+  /** Moves the stored front of the queue past the requests that have been completed. */
+  private void advanceHead() {
+    final long newHead = outstanding.isEmpty() ? next : outstanding.first();
+    if (newHead != head) {
+      head = newHead;
+      storage.put(HEAD_KEY, BytesValue.wrap(Longs.toByteArray(head)));
+    }
+  }
+
+  private boolean isOutstandingPosition(final BytesValue position) {
+    return Longs.fromByteArray(position.extractArray()) >= head;
+  }
+
+  private long loadLong(final BytesValue key) {
+    return storage.get(key).map(value -> Longs.fromByteArray(value.extractArray())).orElse(0L);
+  }
+
+  private static BytesValue queuedKey(final BytesValue position) {
+    return BytesValues.concatenate(QUEUED_PREFIX, position);
+  }
+
+  private static BytesValue pendingKey(final NodeDataRequest request) {
+    return BytesValues.concatenate(PENDING_PREFIX, request.serialize());
+  }
+
+  private static BytesValue bytes(final String value) {
+    return BytesValue.wrap(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static class QueuedRequest {
+    private final long position;
+    private final NodeDataRequest request;
+
+    private QueuedRequest(final long position, final NodeDataRequest request) {
+      this.position = position;
+      this.request = request;
+    }
+  }
+}
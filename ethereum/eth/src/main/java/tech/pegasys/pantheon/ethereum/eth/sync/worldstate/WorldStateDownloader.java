@@ -0,0 +1,302 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.worldstate;
+
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.eth.manager.AbstractPeerTask.PeerTaskResult;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthPeer;
+import tech.pegasys.pantheon.ethereum.eth.messages.EthPV63;
+import tech.pegasys.pantheon.ethereum.eth.sync.tasks.GetNodeDataFromPeerTask;
+import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Downloads the world state of a block, breadth first from its state root, by requesting trie nodes
+ * and contract code from peers with GetNodeData.
+ *
+ * <p>Requests are spread across idle peers, each asking for a batch of hashes. A node's children
+ * are stored as pending requests before the node itself is stored, so a node that's already in
+ * storage either has its whole subtree stored too, or the rest of its subtree is still pending.
+ * That allows the download to be resumed after a restart, and lets nodes shared with state that's
+ * already stored be skipped.
+ *
+ * <p>Peers only keep the state of recent blocks, so the download fails with a {@link
+ * StalledDownloadException} once too many responses in a row have provided nothing. Its pending
+ * requests can then be discarded and the world state of a more recent block downloaded instead.
+ */
+public class WorldStateDownloader {
+  private static final Logger LOG = LogManager.getLogger();
+  private static final long PROGRESS_LOG_INTERVAL = 100_000;
+  public static final int DEFAULT_HASH_COUNT_PER_REQUEST = 384;
+  public static final int DEFAULT_MAX_OUTSTANDING_REQUESTS = 10;
+  public static final int DEFAULT_MAX_RESPONSES_WITHOUT_PROGRESS = 100;
+
+  private final EthContext ethContext;
+  private final WorldStateStorage worldStateStorage;
+  private final NodeDataRequestQueue pendingRequests;
+  private final int hashCountPerRequest;
+  private final int maxOutstandingRequests;
+  private final int maxResponsesWithoutProgress;
+
+  private volatile CompletableFuture<Void> result = new CompletableFuture<>();
+  private final AtomicInteger outstandingRequests = new AtomicInteger();
+  private final AtomicBoolean waitingForPeers = new AtomicBoolean();
+  private final AtomicLong completedRequests = new AtomicLong();
+  private final AtomicInteger responsesWithoutProgress = new AtomicInteger();
+  // Responses are handled under the read lock, so that discarding the pending requests waits for
+  // those being handled.
+  private final ReadWriteLock restartLock = new ReentrantReadWriteLock();
+
+  public WorldStateDownloader(
+      final EthContext ethContext,
+      final WorldStateStorage worldStateStorage,
+      final NodeDataRequestQueue pendingRequests,
+      final int hashCountPerRequest,
+      final int maxOutstandingRequests,
+      final int maxResponsesWithoutProgress) {
+    this.ethContext = ethContext;
+    this.worldStateStorage = worldStateStorage;
+    this.pendingRequests = pendingRequests;
+    this.hashCountPerRequest = hashCountPerRequest;
+    this.maxOutstandingRequests = maxOutstandingRequests;
+    this.maxResponsesWithoutProgress = maxResponsesWithoutProgress;
+  }
+
+  /**
+   * Downloads the world state of the given block, carrying on from the pending requests if the
+   * download was interrupted. A download that failed can be run again, and retries the requests
+   * that were being made when it failed.
+   *
+   * @param header the header of the block whose world state is to be downloaded
+   * @return a future that completes once the whole world state is stored
+   */
+  public CompletableFuture<Void> run(final BlockHeader header) {
+    final Hash stateRoot = header.getStateRoot();
+    final CompletableFuture<Void> result = new CompletableFuture<>();
+    this.result = result;
+    responsesWithoutProgress.set(0);
+    pendingRequests.requeueTaken();
+    if (pendingRequests.pendingCount() == 0) {
+      if (stateRoot.equals(MerklePatriciaTrie.EMPTY_TRIE_ROOT_HASH)
+          || (!pendingRequests.storedSubtreesMayBeIncomplete()
+              && worldStateStorage.getAccountStateTrieNode(stateRoot).isPresent())) {
+        LOG.info("World state for block {} is already available", header.getNumber());
+        result.complete(null);
+        return result;
+      }
+      pendingRequests.enqueue(
+          Collections.singletonList(NodeDataRequest.createAccountTrieNodeRequest(stateRoot)));
+    }
+    LOG.info(
+        "Downloading world state for block {} ({}), {} requests pending",
+        header.getNumber(),
+        stateRoot,
+        pendingRequests.pendingCount());
+    requestNodeData();
+    return result;
+  }
+
+  /**
+   * Abandons the world state that was being downloaded, so that the world state of another block
+   * can be run instead. Nodes that have been stored already are kept, and aren't requested again.
+   */
+  public void discardPendingRequests() {
+    restartLock.writeLock().lock();
+    try {
+      result.cancel(false);
+      pendingRequests.clear();
+    } finally {
+      restartLock.writeLock().unlock();
+    }
+  }
+
+  private synchronized void requestNodeData() {
+    while (!result.isDone() && outstandingRequests.get() < maxOutstandingRequests) {
+      final List<NodeDataRequest> takenRequests = takeRequestsToMake();
+      if (takenRequests.isEmpty()) {
+        break;
+      }
+      final Optional<EthPeer> peer =
+          ethContext.getEthPeers().fastestIdlePeer(EthPV63.GET_NODE_DATA, EthPeer::supportsEth63);
+      if (!peer.isPresent()) {
+        pendingRequests.requeue(takenRequests);
+        if (outstandingRequests.get() == 0) {
+          // No response is coming to trigger the next requests.
+          retryLater();
+        }
+        break;
+      }
+      // Only hand the peer as many requests as it can answer in good time.
+      final int requestSize =
+          peer.get().performance().requestSize(EthPV63.GET_NODE_DATA, takenRequests.size());
+      final List<NodeDataRequest> requests = takenRequests.subList(0, requestSize);
+      pendingRequests.requeue(takenRequests.subList(requestSize, takenRequests.size()));
+      outstandingRequests.incrementAndGet();
+      final CompletableFuture<Void> download = result;
+      final List<Hash> hashes =
+          requests.stream().map(NodeDataRequest::getHash).distinct().collect(Collectors.toList());
+      GetNodeDataFromPeerTask.forHashes(ethContext, hashes)
+          .assignPeer(peer.get())
+          .run()
+          .whenComplete(
+              (response, error) ->
+                  ethContext
+                      .getScheduler()
+                      .scheduleWorkerTask(
+                          () -> handleResponse(download, requests, response, error)));
+    }
+    if (!result.isDone() && pendingRequests.pendingCount() == 0) {
+      LOG.info("Completed world state download, {} nodes stored", completedRequests.get());
+      result.complete(null);
+    }
+  }
+
+  /**
+   * Takes the next batch of requests, completing any whose data is already stored. If stored nodes
+   * may be missing parts of their subtree, their children are queued to be checked in turn.
+   */
+  private List<NodeDataRequest> takeRequestsToMake() {
+    List<NodeDataRequest> requests = pendingRequests.take(hashCountPerRequest);
+    while (!requests.isEmpty()) {
+      final boolean checkChildren = pendingRequests.storedSubtreesMayBeIncomplete();
+      final List<NodeDataRequest> alreadyStored = new ArrayList<>();
+      final List<NodeDataRequest> children = new ArrayList<>();
+      final List<NodeDataRequest> toMake = new ArrayList<>(requests.size());
+      for (final NodeDataRequest request : requests) {
+        final Optional<BytesValue> data = request.retrieveFrom(worldStateStorage);
+        if (data.isPresent()) {
+          alreadyStored.add(request);
+          if (checkChildren) {
+            children.addAll(request.getChildRequests(data.get()));
+          }
+        } else {
+          toMake.add(request);
+        }
+      }
+      pendingRequests.enqueue(children);
+      pendingRequests.complete(alreadyStored);
+      if (!toMake.isEmpty()) {
+        return toMake;
+      }
+      requests = pendingRequests.take(hashCountPerRequest);
+    }
+    return requests;
+  }
+
+  private void handleResponse(
+      final CompletableFuture<Void> download,
+      final List<NodeDataRequest> requests,
+      final PeerTaskResult<Map<Hash, BytesValue>> response,
+      final Throwable error) {
+    restartLock.readLock().lock();
+    try {
+      if (download.isDone()) {
+        // The requests are retried or discarded when the download is run or restarted.
+        return;
+      }
+      final int stored;
+      if (error != null) {
+        LOG.debug("Failed to download node data: {}", error.toString());
+        pendingRequests.requeue(requests);
+        stored = 0;
+      } else {
+        stored = storeNodeData(requests, response.getResult());
+      }
+      if (stored > 0) {
+        responsesWithoutProgress.set(0);
+      } else if (responsesWithoutProgress.incrementAndGet() >= maxResponsesWithoutProgress) {
+        download.completeExceptionally(
+            new StalledDownloadException(
+                "No world state data received in the last "
+                    + maxResponsesWithoutProgress
+                    + " responses"));
+        return;
+      }
+    } catch (final RuntimeException e) {
+      LOG.error("Failed to store downloaded world state", e);
+      download.completeExceptionally(e);
+    } finally {
+      outstandingRequests.decrementAndGet();
+      restartLock.readLock().unlock();
+    }
+    requestNodeData();
+  }
+
+  /** @return the number of requests completed */
+  private int storeNodeData(
+      final List<NodeDataRequest> requests, final Map<Hash, BytesValue> nodeData) {
+    final List<NodeDataRequest> completed = new ArrayList<>(requests.size());
+    final List<NodeDataRequest> missing = new ArrayList<>();
+    final List<NodeDataRequest> children = new ArrayList<>();
+    final WorldStateStorage.Updater updater = worldStateStorage.updater();
+    for (final NodeDataRequest request : requests) {
+      final BytesValue data = nodeData.get(request.getHash());
+      if (data == null) {
+        missing.add(request);
+      } else {
+        children.addAll(request.getChildRequests(data));
+        request.persist(updater, data);
+        completed.add(request);
+      }
+    }
+    // Queue the children before storing their parents, so a stored node is never left with part
+    // of its subtree neither stored nor pending.
+    pendingRequests.enqueue(children);
+    updater.commit();
+    pendingRequests.complete(completed);
+    pendingRequests.requeue(missing);
+
+    final long previous = completedRequests.getAndAdd(completed.size());
+    if (previous / PROGRESS_LOG_INTERVAL != (previous + completed.size()) / PROGRESS_LOG_INTERVAL) {
+      LOG.info(
+          "Downloaded {} world state nodes, {} requests pending",
+          previous + completed.size(),
+          pendingRequests.pendingCount());
+    }
+    return completed.size();
+  }
+
+  private void retryLater() {
+    if (waitingForPeers.compareAndSet(false, true)) {
+      LOG.debug("No peers available to download world state from, waiting");
+      ethContext
+          .getScheduler()
+          .scheduleFutureTask(
+              () -> {
+                waitingForPeers.set(false);
+                requestNodeData();
+              },
+              Duration.ofSeconds(1));
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.transactions;
+
+import static org.apache.logging.log4j.LogManager.getLogger;
+
+import tech.pegasys.pantheon.ethereum.core.Transaction;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthScheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.google.common.collect.Iterables;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Recovers the senders of a batch of transactions in parallel.
+ *
+ * <p>Recovering the public key from a transaction's signature is the most expensive part of
+ * validating it. A transaction caches its sender once recovered, so recovering the senders of a
+ * whole message of transactions, or of a whole block, on the scheduler's computation pool spares
+ * the thread that goes on to validate or execute them.
+ */
+public class SenderRecovery {
+
+  private static final Logger LOG = getLogger();
+
+  // Recovering a sender takes long enough that smaller batches aren't worth a task of their own.
+  private static final int MIN_BATCH_SIZE = 8;
+
+  private final EthScheduler scheduler;
+  private final int parallelism;
+
+  public SenderRecovery(final EthScheduler scheduler) {
+    this(scheduler, Runtime.getRuntime().availableProcessors());
+  }
+
+  SenderRecovery(final EthScheduler scheduler, final int parallelism) {
+    this.scheduler = scheduler;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Recovers the sender of every transaction.
+   *
+   * <p>Transactions whose sender can't be recovered are left for validation to reject.
+   *
+   * @param transactions the transactions to recover the senders of
+   * @return a future that completes once every sender has been recovered
+   */
+  public CompletableFuture<Void> recoverSenders(final Collection<Transaction> transactions) {
+    if (transactions.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final int batchSize =
+        Math.max(MIN_BATCH_SIZE, (transactions.size() + parallelism - 1) / parallelism);
+    final List<CompletableFuture<Void>> batches = new ArrayList<>();
+    for (final List<Transaction> batch : Iterables.partition(transactions, batchSize)) {
+      batches.add(scheduler.scheduleComputationTask(() -> recoverSenders(batch)));
+    }
+    return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0]));
+  }
+
+  private static Void recoverSenders(final List<Transaction> transactions) {
+    for (final Transaction transaction : transactions) {
+      try {
+        // The sender is recovered and cached on first access.
+        transaction.getSender();
+      } catch (final RuntimeException e) {
+        LOG.trace("Failed to recover sender of transaction {}", transaction.hash(), e);
+      }
+    }
+    return null;
+  }
+}
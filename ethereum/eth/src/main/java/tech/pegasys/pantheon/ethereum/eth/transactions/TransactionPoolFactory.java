@@ -19,12 +19,27 @@ import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
 import tech.pegasys.pantheon.ethereum.eth.messages.EthPV62;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
 
+import java.util.concurrent.CompletableFuture;
+
 public class TransactionPoolFactory {
 
   public static TransactionPool createTransactionPool(
       final ProtocolSchedule<?> protocolSchedule,
       final ProtocolContext<?> protocolContext,
       final EthContext ethContext) {
+    return createTransactionPool(
+        protocolSchedule, protocolContext, ethContext, CompletableFuture.completedFuture(null));
+  }
+
+  /**
+   * Creates a transaction pool that only accepts transactions once full sync has started, as until
+   * then the world state of the chain head may not have been downloaded.
+   */
+  public static TransactionPool createTransactionPool(
+      final ProtocolSchedule<?> protocolSchedule,
+      final ProtocolContext<?> protocolContext,
+      final EthContext ethContext,
+      final CompletableFuture<Void> fullSyncStarted) {
     final PendingTransactions pendingTransactions =
         new PendingTransactions(PendingTransactions.MAX_PENDING_TRANSACTIONS);
 
@@ -37,14 +52,24 @@ public class TransactionPoolFactory {
             pendingTransactions,
             protocolSchedule,
             protocolContext,
-            new TransactionSender(transactionTracker, transactionsMessageSender, ethContext));
+            new TransactionSender(transactionTracker, transactionsMessageSender, ethContext),
+            fullSyncStarted,
+            TransactionPool.DEFAULT_MAX_NONCE_GAP);
 
     final TransactionsMessageHandler transactionsMessageHandler =
         new TransactionsMessageHandler(
             ethContext.getScheduler(),
-            new TransactionsMessageProcessor(transactionTracker, transactionPool));
+            new TransactionsMessageProcessor(
+                transactionTracker,
+                transactionPool,
+                new SenderRecovery(ethContext.getScheduler())));
 
-    ethContext.getEthMessages().subscribe(EthPV62.TRANSACTIONS, transactionsMessageHandler);
+    // There's no point recovering the senders of transactions the pool would discard.
+    fullSyncStarted.thenRun(
+        () ->
+            ethContext
+                .getEthMessages()
+                .subscribe(EthPV62.TRANSACTIONS, transactionsMessageHandler));
     protocolContext.getBlockchain().observeBlockAdded(transactionPool);
     ethContext.getEthPeers().subscribeDisconnect(transactionTracker);
     return transactionPool;
@@ -32,11 +32,15 @@ class TransactionsMessageProcessor {
   private static final Logger LOG = getLogger();
   private final PeerTransactionTracker transactionTracker;
   private final TransactionPool transactionPool;
+  private final SenderRecovery senderRecovery;
 
   public TransactionsMessageProcessor(
-      final PeerTransactionTracker transactionTracker, final TransactionPool transactionPool) {
+      final PeerTransactionTracker transactionTracker,
+      final TransactionPool transactionPool,
+      final SenderRecovery senderRecovery) {
     this.transactionTracker = transactionTracker;
     this.transactionPool = transactionPool;
+    this.senderRecovery = senderRecovery;
   }
 
   void processTransactionsMessage(
@@ -47,6 +51,8 @@ class TransactionsMessageProcessor {
       final Iterator<Transaction> readTransactions =
           transactionsMessage.transactions(Transaction::readFrom);
       final Set<Transaction> transactions = Sets.newHashSet(readTransactions);
+      // Recover the senders in parallel rather than one by one as the pool validates them.
+      senderRecovery.recoverSenders(transactions).join();
       transactionTracker.markTransactionsAsSeen(peer, transactions);
       transactionPool.addRemoteTransactions(transactions);
     } catch (final RLPException ex) {
@@ -14,6 +14,7 @@ package tech.pegasys.pantheon.ethereum.eth.manager;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import tech.pegasys.pantheon.ethereum.eth.messages.EthPV62;
 import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
@@ -73,4 +74,42 @@ public class EthPeersTest {
     assertThat(EthPeers.BEST_CHAIN.compare(peerA, peerA)).isEqualTo(0);
     assertThat(EthPeers.BEST_CHAIN.compare(peerB, peerB)).isEqualTo(0);
   }
+
+  @Test
+  public void prefersFastestIdlePeer() {
+    final EthPeer slowPeer =
+        EthProtocolManagerTestUtil.createPeer(ethProtocolManager, UInt256.of(100), 0).getEthPeer();
+    final EthPeer fastPeer =
+        EthProtocolManagerTestUtil.createPeer(ethProtocolManager, UInt256.of(100), 0).getEthPeer();
+    slowPeer.recordResponse(EthPV62.GET_BLOCK_BODIES, 1000, 10_000, 10);
+    fastPeer.recordResponse(EthPV62.GET_BLOCK_BODIES, 100, 10_000, 10);
+
+    assertThat(
+            ethProtocolManager
+                .ethContext()
+                .getEthPeers()
+                .fastestIdlePeer(EthPV62.GET_BLOCK_BODIES, peer -> true))
+        .contains(fastPeer);
+    assertThat(
+            ethProtocolManager
+                .ethContext()
+                .getEthPeers()
+                .fastestIdlePeer(EthPV62.GET_BLOCK_BODIES, peer -> peer != fastPeer))
+        .contains(slowPeer);
+  }
+
+  @Test
+  public void prefersPeersWhichHaveNotBeenMeasured() {
+    final EthPeer measuredPeer =
+        EthProtocolManagerTestUtil.createPeer(ethProtocolManager, UInt256.of(100), 0).getEthPeer();
+    final EthPeer newPeer =
+        EthProtocolManagerTestUtil.createPeer(ethProtocolManager, UInt256.of(100), 0).getEthPeer();
+    measuredPeer.recordResponse(EthPV62.GET_BLOCK_BODIES, 100, 10_000, 10);
+
+    assertThat(EthPeers.fastestFor(EthPV62.GET_BLOCK_BODIES).compare(newPeer, measuredPeer))
+        .isGreaterThan(0);
+    // Measurements of other request types don't count.
+    assertThat(EthPeers.fastestFor(EthPV62.GET_BLOCK_HEADERS).compare(newPeer, measuredPeer))
+        .isEqualTo(0);
+  }
 }
@@ -26,6 +26,7 @@ import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.InMemoryTestFixture;
 import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.ethereum.db.WorldStateArchive;
 import tech.pegasys.pantheon.ethereum.eth.EthProtocol;
 import tech.pegasys.pantheon.ethereum.eth.EthProtocol.EthVersion;
 import tech.pegasys.pantheon.ethereum.eth.manager.MockPeerConnection.PeerSendHandler;
@@ -36,8 +37,10 @@ import tech.pegasys.pantheon.ethereum.eth.messages.EthPV62;
 import tech.pegasys.pantheon.ethereum.eth.messages.EthPV63;
 import tech.pegasys.pantheon.ethereum.eth.messages.GetBlockBodiesMessage;
 import tech.pegasys.pantheon.ethereum.eth.messages.GetBlockHeadersMessage;
+import tech.pegasys.pantheon.ethereum.eth.messages.GetNodeDataMessage;
 import tech.pegasys.pantheon.ethereum.eth.messages.GetReceiptsMessage;
 import tech.pegasys.pantheon.ethereum.eth.messages.NewBlockMessage;
+import tech.pegasys.pantheon.ethereum.eth.messages.NodeDataMessage;
 import tech.pegasys.pantheon.ethereum.eth.messages.ReceiptsMessage;
 import tech.pegasys.pantheon.ethereum.eth.messages.StatusMessage;
 import tech.pegasys.pantheon.ethereum.mainnet.MainnetProtocolSchedule;
@@ -47,6 +50,7 @@ import tech.pegasys.pantheon.ethereum.p2p.api.PeerConnection;
 import tech.pegasys.pantheon.ethereum.p2p.wire.Capability;
 import tech.pegasys.pantheon.ethereum.p2p.wire.DefaultMessage;
 import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
 import java.util.ArrayList;
@@ -70,6 +74,7 @@ import org.mockito.ArgumentCaptor;
 public final class EthProtocolManagerTest {
 
   private static Blockchain blockchain;
+  private static WorldStateArchive worldStateArchive;
   private static ProtocolSchedule<Void> protocolSchedule;
   private static BlockDataGenerator gen;
 
@@ -79,13 +84,15 @@ public final class EthProtocolManagerTest {
     final BlockchainSetupUtil<Void> blockchainSetupUtil = BlockchainSetupUtil.forTesting();
     blockchainSetupUtil.importAllBlocks();
     blockchain = blockchainSetupUtil.getBlockchain();
+    worldStateArchive = blockchainSetupUtil.getWorldArchive();
     protocolSchedule = blockchainSetupUtil.getProtocolSchedule();
     assert (blockchainSetupUtil.getMaxBlockNumber() >= 20L);
   }
 
   @Test
   public void disconnectOnUnsolicitedMessage() {
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final MessageData messageData =
           BlockHeadersMessage.create(Collections.singletonList(blockchain.getBlockHeader(1).get()));
       final MockPeerConnection peer = setupPeer(ethManager, (cap, msg, conn) -> {});
@@ -96,7 +103,8 @@ public final class EthProtocolManagerTest {
 
   @Test
   public void disconnectOnFailureToSendStatusMessage() {
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final MessageData messageData =
           BlockHeadersMessage.create(Collections.singletonList(blockchain.getBlockHeader(1).get()));
       final MockPeerConnection peer =
@@ -108,7 +116,8 @@ public final class EthProtocolManagerTest {
 
   @Test
   public void disconnectOnWrongChainId() {
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final MessageData messageData =
           BlockHeadersMessage.create(Collections.singletonList(blockchain.getBlockHeader(1).get()));
       final MockPeerConnection peer =
@@ -131,7 +140,8 @@ public final class EthProtocolManagerTest {
 
   @Test
   public void disconnectOnWrongGenesisHash() {
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final MessageData messageData =
           BlockHeadersMessage.create(Collections.singletonList(blockchain.getBlockHeader(1).get()));
       final MockPeerConnection peer =
@@ -154,7 +164,8 @@ public final class EthProtocolManagerTest {
 
   @Test(expected = ConditionTimeoutException.class)
   public void doNotDisconnectOnValidMessage() {
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final MessageData messageData =
           GetBlockBodiesMessage.create(Collections.singletonList(gen.hash()));
       final MockPeerConnection peer = setupPeer(ethManager, (cap, msg, conn) -> {});
@@ -169,7 +180,8 @@ public final class EthProtocolManagerTest {
   @Test
   public void respondToGetHeaders() throws ExecutionException, InterruptedException {
     final CompletableFuture<Void> done = new CompletableFuture<>();
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final long startBlock = 5L;
       final int blockCount = 5;
       final MessageData messageData =
@@ -202,7 +214,7 @@ public final class EthProtocolManagerTest {
     final CompletableFuture<Void> done = new CompletableFuture<>();
     final int limit = 5;
     try (final EthProtocolManager ethManager =
-        new EthProtocolManager(blockchain, 1, true, 1, limit)) {
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1, limit)) {
       final long startBlock = 5L;
       final int blockCount = 10;
       final MessageData messageData =
@@ -233,7 +245,8 @@ public final class EthProtocolManagerTest {
   @Test
   public void respondToGetHeadersReversed() throws ExecutionException, InterruptedException {
     final CompletableFuture<Void> done = new CompletableFuture<>();
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final long endBlock = 10L;
       final int blockCount = 5;
       final MessageData messageData = GetBlockHeadersMessage.create(endBlock, blockCount, 0, true);
@@ -263,7 +276,8 @@ public final class EthProtocolManagerTest {
   @Test
   public void respondToGetHeadersWithSkip() throws ExecutionException, InterruptedException {
     final CompletableFuture<Void> done = new CompletableFuture<>();
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final long startBlock = 5L;
       final int blockCount = 5;
       final int skip = 1;
@@ -296,7 +310,8 @@ public final class EthProtocolManagerTest {
   public void respondToGetHeadersReversedWithSkip()
       throws ExecutionException, InterruptedException {
     final CompletableFuture<Void> done = new CompletableFuture<>();
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final long endBlock = 10L;
       final int blockCount = 5;
       final int skip = 1;
@@ -350,7 +365,8 @@ public final class EthProtocolManagerTest {
   @Test
   public void respondToGetHeadersPartial() throws ExecutionException, InterruptedException {
     final CompletableFuture<Void> done = new CompletableFuture<>();
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final long startBlock = blockchain.getChainHeadBlockNumber() - 1L;
       final int blockCount = 5;
       final MessageData messageData =
@@ -381,7 +397,8 @@ public final class EthProtocolManagerTest {
   @Test
   public void respondToGetHeadersEmpty() throws ExecutionException, InterruptedException {
     final CompletableFuture<Void> done = new CompletableFuture<>();
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final long startBlock = blockchain.getChainHeadBlockNumber() + 1;
       final int blockCount = 5;
       final MessageData messageData =
@@ -409,7 +426,8 @@ public final class EthProtocolManagerTest {
   @Test
   public void respondToGetBodies() throws ExecutionException, InterruptedException {
     final CompletableFuture<Void> done = new CompletableFuture<>();
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       // Setup blocks query
       final long startBlock = blockchain.getChainHeadBlockNumber() - 5;
       final int blockCount = 2;
@@ -454,7 +472,7 @@ public final class EthProtocolManagerTest {
     final CompletableFuture<Void> done = new CompletableFuture<>();
     final int limit = 5;
     try (final EthProtocolManager ethManager =
-        new EthProtocolManager(blockchain, 1, true, 1, limit)) {
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1, limit)) {
       // Setup blocks query
       final int blockCount = 10;
       final long startBlock = blockchain.getChainHeadBlockNumber() - blockCount;
@@ -497,7 +515,8 @@ public final class EthProtocolManagerTest {
   @Test
   public void respondToGetBodiesPartial() throws ExecutionException, InterruptedException {
     final CompletableFuture<Void> done = new CompletableFuture<>();
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       // Setup blocks query
       final long expectedBlockNumber = blockchain.getChainHeadBlockNumber() - 1;
       final BlockHeader header = blockchain.getBlockHeader(expectedBlockNumber).get();
@@ -534,7 +553,8 @@ public final class EthProtocolManagerTest {
   @Test
   public void respondToGetReceipts() throws ExecutionException, InterruptedException {
     final CompletableFuture<Void> done = new CompletableFuture<>();
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       // Setup blocks query
       final long startBlock = blockchain.getChainHeadBlockNumber() - 5;
       final int blockCount = 2;
@@ -578,7 +598,7 @@ public final class EthProtocolManagerTest {
     final CompletableFuture<Void> done = new CompletableFuture<>();
     final int limit = 5;
     try (final EthProtocolManager ethManager =
-        new EthProtocolManager(blockchain, 1, true, 1, limit)) {
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1, limit)) {
       // Setup blocks query
       final int blockCount = 10;
       final long startBlock = blockchain.getChainHeadBlockNumber() - blockCount;
@@ -620,7 +640,8 @@ public final class EthProtocolManagerTest {
   @Test
   public void respondToGetReceiptsPartial() throws ExecutionException, InterruptedException {
     final CompletableFuture<Void> done = new CompletableFuture<>();
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       // Setup blocks query
       final long blockNumber = blockchain.getChainHeadBlockNumber() - 5;
       final int blockCount = 2;
@@ -655,9 +676,74 @@ public final class EthProtocolManagerTest {
     }
   }
 
+  @Test
+  public void respondToGetNodeData() throws ExecutionException, InterruptedException {
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
+      // Setup node data query
+      final long startBlock = blockchain.getChainHeadBlockNumber() - 5;
+      final int blockCount = 2;
+      final List<BytesValue> expectedNodeData = new ArrayList<>(blockCount);
+      final List<Hash> nodeHashes = new ArrayList<>(blockCount + 1);
+      for (int i = 0; i < blockCount; i++) {
+        final Hash stateRoot = blockchain.getBlockHeader(startBlock + i).get().getStateRoot();
+        expectedNodeData.add(
+            worldStateArchive.getNodeData(Collections.singletonList(stateRoot)).get(0).get());
+        nodeHashes.add(stateRoot);
+      }
+      nodeHashes.add(gen.hash());
+      final MessageData messageData = GetNodeDataMessage.create(nodeHashes);
+
+      // Define handler to validate response
+      final PeerSendHandler onSend =
+          (cap, message, conn) -> {
+            if (message.getCode() == EthPV62.STATUS) {
+              // Ignore status message
+              return;
+            }
+            assertThat(message.getCode()).isEqualTo(EthPV63.NODE_DATA);
+            final NodeDataMessage nodeDataMessage = NodeDataMessage.readFrom(message);
+            final List<BytesValue> nodeData = Lists.newArrayList(nodeDataMessage.nodeData());
+            assertThat(nodeData).isEqualTo(expectedNodeData);
+            message.release();
+            done.complete(null);
+          };
+
+      // Run test
+      final PeerConnection peer = setupPeer(ethManager, onSend);
+      ethManager.processMessage(EthProtocol.ETH63, new DefaultMessage(peer, messageData));
+      done.get();
+    }
+  }
+
+  @Test
+  public void respondToGetNodeDataWithinByteBudget() {
+    final List<Hash> nodeHashes = new ArrayList<>();
+    for (long i = 1; i <= 10; i++) {
+      nodeHashes.add(blockchain.getBlockHeader(i).get().getStateRoot());
+    }
+    final List<BytesValue> allNodeData = new ArrayList<>();
+    worldStateArchive.getNodeData(nodeHashes).forEach(data -> allNodeData.add(data.get()));
+    final long budget = allNodeData.get(0).size() + allNodeData.get(1).size();
+
+    final MessageData response =
+        EthServer.constructGetNodeDataResponse(
+            worldStateArchive, GetNodeDataMessage.create(nodeHashes), 200, budget);
+
+    final NodeDataMessage nodeDataMessage = NodeDataMessage.readFrom(response);
+    assertThat(nodeDataMessage.nodeData()).containsExactly(allNodeData.get(0), allNodeData.get(1));
+
+    final MessageData emptyResponse =
+        EthServer.constructGetNodeDataResponse(
+            worldStateArchive, GetNodeDataMessage.create(nodeHashes), 200, 0);
+    assertThat(NodeDataMessage.readFrom(emptyResponse).nodeData()).isEmpty();
+  }
+
   @Test
   public void newBlockMinedSendsNewBlockMessageToAllPeers() {
-    final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1);
+    final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1);
 
     // Define handler to validate response
     final PeerSendHandler onSend = mock(PeerSendHandler.class);
@@ -720,7 +806,8 @@ public final class EthProtocolManagerTest {
     blockchain.appendBlock(block, receipts);
 
     final CompletableFuture<Void> done = new CompletableFuture<>();
-    try (final EthProtocolManager ethManager = new EthProtocolManager(blockchain, 1, true, 1)) {
+    try (final EthProtocolManager ethManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, true, 1)) {
       final long startBlock = 1L;
       final int requestedBlockCount = 13;
       final int receivedBlockCount = 2;
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static tech.pegasys.pantheon.ethereum.eth.manager.PeerPerformance.MIN_REQUEST_SIZE;
+import static tech.pegasys.pantheon.ethereum.eth.messages.EthPV62.GET_BLOCK_BODIES;
+import static tech.pegasys.pantheon.ethereum.eth.messages.EthPV62.GET_BLOCK_HEADERS;
+
+import org.junit.Test;
+
+public class PeerPerformanceTest {
+
+  private final PeerPerformance performance = new PeerPerformance();
+
+  @Test
+  public void shouldHaveNoEstimatesBeforeFirstResponse() {
+    assertThat(performance.latencyMillis(GET_BLOCK_BODIES)).isEmpty();
+    assertThat(performance.bytesPerSecond(GET_BLOCK_BODIES)).isEmpty();
+    assertThat(performance.requestSize(GET_BLOCK_BODIES, 128)).isEqualTo(128);
+  }
+
+  @Test
+  public void shouldEstimateFromFirstResponse() {
+    performance.recordResponse(GET_BLOCK_BODIES, 500, 50_000, 10);
+
+    assertThat(performance.latencyMillis(GET_BLOCK_BODIES).getAsDouble())
+        .isCloseTo(500, within(0.001));
+    assertThat(performance.bytesPerSecond(GET_BLOCK_BODIES).getAsDouble())
+        .isCloseTo(100_000, within(0.001));
+  }
+
+  @Test
+  public void shouldSmoothLaterResponses() {
+    performance.recordResponse(GET_BLOCK_BODIES, 500, 50_000, 10);
+    performance.recordResponse(GET_BLOCK_BODIES, 1000, 0, 0);
+
+    assertThat(performance.latencyMillis(GET_BLOCK_BODIES).getAsDouble())
+        .isCloseTo(600, within(0.001));
+    assertThat(performance.bytesPerSecond(GET_BLOCK_BODIES).getAsDouble())
+        .isCloseTo(80_000, within(0.001));
+  }
+
+  @Test
+  public void shouldTrackRequestTypesSeparately() {
+    performance.recordResponse(GET_BLOCK_BODIES, 500, 50_000, 10);
+
+    assertThat(performance.bytesPerSecond(GET_BLOCK_HEADERS)).isEmpty();
+    assertThat(performance.requestSize(GET_BLOCK_HEADERS, 192)).isEqualTo(192);
+  }
+
+  @Test
+  public void shouldSizeRequestsToTargetResponseTime() {
+    // 10 items per second, so 20 fit in two seconds.
+    performance.recordResponse(GET_BLOCK_BODIES, 1000, 10_000, 10);
+
+    assertThat(performance.requestSize(GET_BLOCK_BODIES, 128, 2000)).isEqualTo(20);
+    assertThat(performance.requestSize(GET_BLOCK_BODIES, 15, 2000)).isEqualTo(15);
+  }
+
+  @Test
+  public void shouldNotShrinkRequestsBelowMinimumSize() {
+    performance.recordResponse(GET_BLOCK_BODIES, 10_000, 1_000, 1);
+
+    assertThat(performance.requestSize(GET_BLOCK_BODIES, 128, 2000)).isEqualTo(MIN_REQUEST_SIZE);
+    assertThat(performance.requestSize(GET_BLOCK_BODIES, 2, 2000)).isEqualTo(2);
+  }
+}
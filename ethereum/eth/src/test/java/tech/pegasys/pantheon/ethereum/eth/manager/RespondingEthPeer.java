@@ -13,12 +13,14 @@
 package tech.pegasys.pantheon.ethereum.eth.manager;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static tech.pegasys.pantheon.ethereum.core.InMemoryTestFixture.createInMemoryWorldStateArchive;
 
 import tech.pegasys.pantheon.ethereum.chain.Blockchain;
 import tech.pegasys.pantheon.ethereum.core.BlockBody;
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.ethereum.db.WorldStateArchive;
 import tech.pegasys.pantheon.ethereum.eth.EthProtocol;
 import tech.pegasys.pantheon.ethereum.eth.messages.BlockBodiesMessage;
 import tech.pegasys.pantheon.ethereum.eth.messages.BlockHeadersMessage;
@@ -186,6 +188,11 @@ public class RespondingEthPeer {
   }
 
   public static Responder blockchainResponder(final Blockchain blockchain) {
+    return blockchainResponder(blockchain, createInMemoryWorldStateArchive());
+  }
+
+  public static Responder blockchainResponder(
+      final Blockchain blockchain, final WorldStateArchive worldStateArchive) {
     return (cap, msg) -> {
       MessageData response = null;
       switch (msg.getCode()) {
@@ -199,7 +206,9 @@ public class RespondingEthPeer {
           response = EthServer.constructGetReceiptsResponse(blockchain, msg, 200);
           break;
         case EthPV63.GET_NODE_DATA:
-          response = EthServer.constructGetNodeDataResponse(msg, 200);
+          response =
+              EthServer.constructGetNodeDataResponse(
+                  worldStateArchive, msg, 200, EthServer.MAX_NODE_DATA_RESPONSE_BYTES);
           break;
       }
       return Optional.ofNullable(response);
@@ -215,9 +224,23 @@ public class RespondingEthPeer {
       final Blockchain blockchain,
       final ProtocolSchedule<C> protocolSchedule,
       final float portion) {
+    return partialResponder(
+        blockchain, createInMemoryWorldStateArchive(), protocolSchedule, portion);
+  }
+
+  /**
+   * Create a responder that only responds with a fixed portion of the available data.
+   *
+   * @param portion The portion of the available data to return, from 0 to 1
+   */
+  public static <C> Responder partialResponder(
+      final Blockchain blockchain,
+      final WorldStateArchive worldStateArchive,
+      final ProtocolSchedule<C> protocolSchedule,
+      final float portion) {
     checkArgument(portion >= 0.0 && portion <= 1.0, "Portion is in the range [0.0..1.0]");
 
-    final Responder fullResponder = blockchainResponder(blockchain);
+    final Responder fullResponder = blockchainResponder(blockchain, worldStateArchive);
     return (cap, msg) -> {
       final Optional<MessageData> maybeResponse = fullResponder.respond(cap, msg);
       if (!maybeResponse.isPresent()) {
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class ServingAllowanceTest {
+
+  private final ServingAllowance allowance = new ServingAllowance(1000, 2000);
+
+  @Test
+  public void shouldStartWithFullBurst() {
+    assertThat(allowance.available(1000)).isEqualTo(2000);
+  }
+
+  @Test
+  public void shouldDeductServedBytes() {
+    allowance.available(1000);
+    allowance.recordServed(1500);
+    assertThat(allowance.available(1000)).isEqualTo(500);
+  }
+
+  @Test
+  public void shouldGoNegativeWhenResponseOvershoots() {
+    allowance.available(1000);
+    allowance.recordServed(2500);
+    assertThat(allowance.available(1000)).isEqualTo(-500);
+    assertThat(allowance.available(1500)).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldRefillAtSteadyRate() {
+    allowance.available(1000);
+    allowance.recordServed(2000);
+    assertThat(allowance.available(1250)).isEqualTo(250);
+    assertThat(allowance.available(2000)).isEqualTo(1000);
+  }
+
+  @Test
+  public void shouldNotRefillBeyondMaximumBurst() {
+    allowance.available(1000);
+    allowance.recordServed(100);
+    assertThat(allowance.available(100_000)).isEqualTo(2000);
+  }
+
+  @Test
+  public void shouldIgnoreTimeGoingBackwards() {
+    allowance.available(1000);
+    allowance.recordServed(2000);
+    assertThat(allowance.available(500)).isEqualTo(0);
+    assertThat(allowance.available(1500)).isEqualTo(500);
+  }
+}
@@ -16,6 +16,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import tech.pegasys.pantheon.ethereum.ProtocolContext;
 import tech.pegasys.pantheon.ethereum.chain.Blockchain;
+import tech.pegasys.pantheon.ethereum.db.WorldStateArchive;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthPeer;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthProtocolManager;
@@ -41,6 +42,7 @@ import org.junit.Test;
  */
 public abstract class AbstractMessageTaskTest<T, R> {
   protected static Blockchain blockchain;
+  protected static WorldStateArchive worldStateArchive;
   protected static ProtocolSchedule<Void> protocolSchedule;
   protected static ProtocolContext<Void> protocolContext;
   protected EthProtocolManager ethProtocolManager;
@@ -53,6 +55,7 @@ public abstract class AbstractMessageTaskTest<T, R> {
     final BlockchainSetupUtil<Void> blockchainSetupUtil = BlockchainSetupUtil.forTesting();
     blockchainSetupUtil.importAllBlocks();
     blockchain = blockchainSetupUtil.getBlockchain();
+    worldStateArchive = blockchainSetupUtil.getWorldArchive();
     protocolSchedule = blockchainSetupUtil.getProtocolSchedule();
     protocolContext = blockchainSetupUtil.getProtocolContext();
     assert (blockchainSetupUtil.getMaxBlockNumber() >= 20L);
@@ -78,7 +81,8 @@ public abstract class AbstractMessageTaskTest<T, R> {
   @Test
   public void completesWhenPeersAreResponsive() throws ExecutionException, InterruptedException {
     // Setup a responsive peer
-    final Responder responder = RespondingEthPeer.blockchainResponder(blockchain);
+    final Responder responder =
+        RespondingEthPeer.blockchainResponder(blockchain, worldStateArchive);
     final RespondingEthPeer respondingPeer =
         EthProtocolManagerTestUtil.createPeer(ethProtocolManager, 1000);
 
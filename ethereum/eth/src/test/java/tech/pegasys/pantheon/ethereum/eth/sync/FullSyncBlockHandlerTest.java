@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.ProtocolContext;
+import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
+import tech.pegasys.pantheon.ethereum.core.Block;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.BlockHeaderBuilder;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthProtocolManagerTestUtil;
+import tech.pegasys.pantheon.ethereum.eth.manager.ethtaskutils.BlockchainSetupUtil;
+import tech.pegasys.pantheon.ethereum.mainnet.MainnetBlockHashFunction;
+import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.awaitility.Awaitility;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FullSyncBlockHandlerTest {
+
+  private BlockchainSetupUtil<Void> blockchainUtil;
+  private ProtocolSchedule<Void> protocolSchedule;
+  private ProtocolContext<Void> protocolContext;
+  private MutableBlockchain blockchain;
+  private EthContext ethContext;
+
+  @Before
+  public void setup() {
+    blockchainUtil = BlockchainSetupUtil.forTesting();
+    protocolSchedule = blockchainUtil.getProtocolSchedule();
+    protocolContext = blockchainUtil.getProtocolContext();
+    blockchain = blockchainUtil.getBlockchain();
+    ethContext = EthProtocolManagerTestUtil.create(blockchain).ethContext();
+    blockchainUtil.importFirstBlocks(3);
+  }
+
+  @Test
+  public void importsBlocksWhenOnlyASampleOfHeadersHadTheirProofOfWorkChecked()
+      throws Exception {
+    final Block block = blockchainUtil.getBlock(3);
+    final FullSyncBlockHandler<Void> blockHandler =
+        new FullSyncBlockHandler<>(protocolSchedule, protocolContext, ethContext, 0f);
+
+    final CompletableFuture<List<Block>> result =
+        blockHandler.validateAndImportBlocks(singletonList(block));
+
+    Awaitility.await().atMost(30, SECONDS).until(result::isDone);
+    assertThat(result.get()).containsExactly(block);
+    assertThat(blockchain.contains(block.getHash())).isTrue();
+  }
+
+  @Test
+  public void rejectsForgedProofOfWorkWhenOnlyASampleOfHeadersHadTheirProofOfWorkChecked() {
+    // A header that wasn't sampled during the download has only had light-weight validation.
+    final Block forgedBlock = withForgedProofOfWork(blockchainUtil.getBlock(3));
+    final FullSyncBlockHandler<Void> blockHandler =
+        new FullSyncBlockHandler<>(protocolSchedule, protocolContext, ethContext, 0f);
+
+    final CompletableFuture<List<Block>> result =
+        blockHandler.validateAndImportBlocks(singletonList(forgedBlock));
+
+    Awaitility.await().atMost(30, SECONDS).until(result::isDone);
+    assertThat(result.isCompletedExceptionally()).isTrue();
+    assertThat(blockchain.contains(forgedBlock.getHash())).isFalse();
+  }
+
+  private Block withForgedProofOfWork(final Block block) {
+    // The test chain's difficulty makes a nonce other than the mined one all but certain to fail.
+    final BlockHeader header = block.getHeader();
+    final BlockHeader forgedHeader =
+        BlockHeaderBuilder.fromHeader(header)
+            .nonce(header.getNonce() + 1)
+            .blockHashFunction(MainnetBlockHashFunction::createHash)
+            .buildBlockHeader();
+    return new Block(forgedHeader, block.getBody());
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.fastsync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import tech.pegasys.pantheon.ethereum.ProtocolContext;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.eth.EthProtocol;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthMessages;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthPeers;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthScheduler;
+import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
+import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.WorldStateDownloader;
+import tech.pegasys.pantheon.ethereum.mainnet.MainnetProtocolSchedule;
+import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+
+public class FastSyncDownloaderTest {
+
+  private final BlockHeader pivotHeader = new BlockDataGenerator().header(1000);
+  private final EthScheduler scheduler = mock(EthScheduler.class);
+  private final EthContext ethContext =
+      new EthContext(
+          EthProtocol.NAME, new EthPeers(EthProtocol.NAME), new EthMessages(), scheduler);
+  private final FastSyncStateStorage fastSyncStateStorage = mock(FastSyncStateStorage.class);
+  private final WorldStateDownloader worldStateDownloader = mock(WorldStateDownloader.class);
+
+  @SuppressWarnings("unchecked")
+  private final ProtocolContext<Void> protocolContext = mock(ProtocolContext.class);
+
+  @SuppressWarnings("unchecked")
+  private final FastSyncChainDownloader<Void> chainDownloader = mock(FastSyncChainDownloader.class);
+
+  private final FastSyncDownloader<Void> downloader =
+      new FastSyncDownloader<>(
+          SynchronizerConfiguration.builder().build(),
+          MainnetProtocolSchedule.create(),
+          protocolContext,
+          ethContext,
+          fastSyncStateStorage,
+          worldStateDownloader,
+          chainDownloader);
+
+  @Before
+  public void setUp() {
+    when(fastSyncStateStorage.loadPivotBlockHeader()).thenReturn(Optional.of(pivotHeader));
+    // Hold back retries, such as waiting for a peer to select a new pivot from.
+    when(scheduler.scheduleFutureTask(
+            ArgumentMatchers.<Supplier<CompletableFuture<Optional<BlockHeader>>>>any(),
+            any(Duration.class)))
+        .thenReturn(new CompletableFuture<>());
+  }
+
+  @Test
+  public void completesOnceChainAndWorldStateAreDownloaded() {
+    when(chainDownloader.downloadChain(pivotHeader))
+        .thenReturn(CompletableFuture.completedFuture(null));
+    when(worldStateDownloader.run(pivotHeader)).thenReturn(CompletableFuture.completedFuture(null));
+
+    final CompletableFuture<Optional<BlockHeader>> result = downloader.start();
+
+    assertThat(result).isCompletedWithValue(Optional.of(pivotHeader));
+    verify(fastSyncStateStorage).clear();
+  }
+
+  @Test
+  public void changesPivotWithoutWaitingForWorldStateWhenChainDownloadFails() {
+    final CompletableFuture<Void> chainDownload = new CompletableFuture<>();
+    final CompletableFuture<Void> worldStateDownload = new CompletableFuture<>();
+    when(chainDownloader.downloadChain(pivotHeader)).thenReturn(chainDownload);
+    when(worldStateDownloader.run(pivotHeader)).thenReturn(worldStateDownload);
+
+    final CompletableFuture<Optional<BlockHeader>> result = downloader.start();
+    chainDownload.completeExceptionally(new RuntimeException("Chain download failed"));
+
+    assertThat(worldStateDownload).isCancelled();
+    // No peers are connected, so selecting the new pivot is retried later.
+    verify(scheduler)
+        .scheduleFutureTask(
+            ArgumentMatchers.<Supplier<CompletableFuture<Optional<BlockHeader>>>>any(),
+            any(Duration.class));
+    assertThat(result).isNotDone();
+    verify(fastSyncStateStorage, never()).clear();
+  }
+
+  @Test
+  public void changesPivotWithoutWaitingForChainWhenWorldStateDownloadFails() {
+    final CompletableFuture<Void> chainDownload = new CompletableFuture<>();
+    final CompletableFuture<Void> worldStateDownload = new CompletableFuture<>();
+    when(chainDownloader.downloadChain(pivotHeader)).thenReturn(chainDownload);
+    when(worldStateDownloader.run(pivotHeader)).thenReturn(worldStateDownload);
+
+    final CompletableFuture<Optional<BlockHeader>> result = downloader.start();
+    worldStateDownload.completeExceptionally(new RuntimeException("World state download failed"));
+
+    assertThat(chainDownload).isCancelled();
+    verify(scheduler)
+        .scheduleFutureTask(
+            ArgumentMatchers.<Supplier<CompletableFuture<Optional<BlockHeader>>>>any(),
+            any(Duration.class));
+    assertThat(result).isNotDone();
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.fastsync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.mainnet.MainnetProtocolSchedule;
+import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+
+import org.junit.Test;
+
+public class FastSyncStateStorageTest {
+
+  private final KeyValueStorage storage = new InMemoryKeyValueStorage();
+  private final FastSyncStateStorage stateStorage =
+      new FastSyncStateStorage(storage, MainnetProtocolSchedule.create());
+
+  @Test
+  public void noPivotBlockWhenFastSyncHasNotStarted() {
+    assertThat(stateStorage.isFastSyncInProgress()).isFalse();
+    assertThat(stateStorage.loadPivotBlockHeader()).isEmpty();
+  }
+
+  @Test
+  public void pivotBlockHeaderSurvivesRestart() {
+    final BlockHeader pivotBlockHeader = new BlockDataGenerator().header(1000);
+    stateStorage.storePivotBlockHeader(pivotBlockHeader);
+
+    final FastSyncStateStorage restartedStateStorage =
+        new FastSyncStateStorage(storage, MainnetProtocolSchedule.create());
+    assertThat(restartedStateStorage.isFastSyncInProgress()).isTrue();
+    assertThat(restartedStateStorage.loadPivotBlockHeader()).contains(pivotBlockHeader);
+  }
+
+  @Test
+  public void clearMarksFastSyncComplete() {
+    stateStorage.storePivotBlockHeader(new BlockDataGenerator().header(1000));
+    stateStorage.clear();
+
+    assertThat(stateStorage.isFastSyncInProgress()).isFalse();
+    assertThat(stateStorage.loadPivotBlockHeader()).isEmpty();
+  }
+}
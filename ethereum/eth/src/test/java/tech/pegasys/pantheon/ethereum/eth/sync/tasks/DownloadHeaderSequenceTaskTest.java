@@ -12,12 +12,26 @@
  */
 package tech.pegasys.pantheon.ethereum.eth.sync.tasks;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthProtocolManagerTestUtil;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthTask;
+import tech.pegasys.pantheon.ethereum.eth.manager.RespondingEthPeer;
 import tech.pegasys.pantheon.ethereum.eth.manager.ethtaskutils.RetryingMessageTaskTest;
+import tech.pegasys.pantheon.ethereum.eth.messages.BlockHeadersMessage;
+import tech.pegasys.pantheon.ethereum.eth.sync.tasks.exceptions.InvalidBlockException;
+import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
 
 public class DownloadHeaderSequenceTaskTest extends RetryingMessageTaskTest<List<BlockHeader>> {
 
@@ -44,4 +58,50 @@ public class DownloadHeaderSequenceTaskTest extends RetryingMessageTaskTest<List
         requestedData.size(),
         maxRetries);
   }
+
+  @Test
+  public void completesWhenCheckingProofOfWorkOfNoHeaders()
+      throws ExecutionException, InterruptedException {
+    final RespondingEthPeer respondingPeer =
+        EthProtocolManagerTestUtil.createPeer(ethProtocolManager);
+
+    final List<BlockHeader> requestedData = generateDataToBeRequested();
+    final BlockHeader referenceHeader = blockchain.getBlockHeader(13).get();
+    final CompletableFuture<List<BlockHeader>> future =
+        DownloadHeaderSequenceTask.endingAtHeader(
+                protocolSchedule,
+                protocolContext,
+                ethContext,
+                referenceHeader,
+                requestedData.size(),
+                0f)
+            .run();
+
+    respondingPeer.respond(RespondingEthPeer.blockchainResponder(blockchain));
+
+    assertThat(future.isDone()).isTrue();
+    assertThat(future.get()).isEqualTo(requestedData);
+  }
+
+  @Test
+  public void failsWhenHeadersDoNotLinkToTheirChildren() {
+    final RespondingEthPeer respondingPeer =
+        EthProtocolManagerTestUtil.createPeer(ethProtocolManager);
+
+    final List<BlockHeader> requestedData = generateDataToBeRequested();
+    final EthTask<List<BlockHeader>> task = createTask(requestedData);
+    final CompletableFuture<List<BlockHeader>> future = task.run();
+
+    // Replace block 11 with one from another chain, which is not the parent of block 12
+    final List<BlockHeader> response =
+        Arrays.asList(
+            blockchain.getBlockHeader(13).get(),
+            blockchain.getBlockHeader(12).get(),
+            new BlockDataGenerator().header(11),
+            blockchain.getBlockHeader(10).get());
+    respondingPeer.respond((cap, msg) -> Optional.of(BlockHeadersMessage.create(response)));
+
+    assertThat(future.isCompletedExceptionally()).isTrue();
+    assertThatThrownBy(future::get).hasCauseInstanceOf(InvalidBlockException.class);
+  }
 }
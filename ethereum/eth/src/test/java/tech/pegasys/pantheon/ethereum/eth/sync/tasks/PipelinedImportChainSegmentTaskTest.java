@@ -35,8 +35,10 @@ import tech.pegasys.pantheon.ethereum.p2p.wire.Capability;
 import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator;
 import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator.BlockOptions;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -366,6 +368,63 @@ public class PipelinedImportChainSegmentTaskTest
     assertResultMatchesExpectation(expectedResult, actualResult.get(), respondingPeer.getEthPeer());
   }
 
+  @Test
+  public void shouldContinueImportingCheckpointsFromSource() {
+    // Setup a responsive peer
+    final Responder responder = RespondingEthPeer.blockchainResponder(blockchain);
+    final RespondingEthPeer respondingPeer =
+        EthProtocolManagerTestUtil.createPeer(ethProtocolManager);
+
+    // Setup task with one chunk, and a source with two more
+    final List<BlockHeader> checkpointHeaders =
+        LongStream.of(0, 4)
+            .mapToObj(this::getBlockAtNumber)
+            .map(Block::getHeader)
+            .collect(Collectors.toList());
+    final Deque<List<BlockHeader>> furtherCheckpoints = new ArrayDeque<>();
+    furtherCheckpoints.add(
+        LongStream.of(8, 12)
+            .mapToObj(this::getBlockAtNumber)
+            .map(Block::getHeader)
+            .collect(Collectors.toList()));
+    final List<BlockHeader> requestedAfter = new ArrayList<>();
+    final List<Block> expectedResult =
+        LongStream.range(1, 13).mapToObj(this::getBlockAtNumber).collect(Collectors.toList());
+    final MutableBlockchain shortBlockchain = createShortChain(0);
+    final ProtocolContext<Void> modifiedContext =
+        new ProtocolContext<>(
+            shortBlockchain,
+            protocolContext.getWorldStateArchive(),
+            protocolContext.getConsensusState());
+    final PipelinedImportChainSegmentTask<Void, Block> task =
+        PipelinedImportChainSegmentTask.forCheckpointsWithSource(
+            protocolSchedule,
+            modifiedContext,
+            ethContext,
+            2,
+            1f,
+            checkpointHeaders,
+            lastCheckpoint -> {
+              requestedAfter.add(lastCheckpoint);
+              return CompletableFuture.completedFuture(
+                  furtherCheckpoints.isEmpty()
+                      ? Collections.emptyList()
+                      : furtherCheckpoints.removeFirst());
+            });
+
+    final CompletableFuture<List<Block>> future = task.run();
+    // Two chunks are waiting for headers and the third is queued behind them
+    assertThat(task.queuedChunkCount()).isEqualTo(1);
+    assertThat(task.stageDepths()).containsExactly(2, 0, 0, 0);
+
+    respondingPeer.respondTimes(responder, 20);
+
+    assertThat(future).isDone();
+    assertThat(requestedAfter)
+        .containsExactly(checkpointHeaders.get(1), getBlockAtNumber(12).getHeader());
+    assertResultMatchesExpectation(expectedResult, future.join(), respondingPeer.getEthPeer());
+  }
+
   private MutableBlockchain createShortChain(final long lastBlockToInclude) {
     final BlockHeader genesisHeader =
         blockchain.getBlockHeader(BlockHeader.GENESIS_BLOCK_NUMBER).get();
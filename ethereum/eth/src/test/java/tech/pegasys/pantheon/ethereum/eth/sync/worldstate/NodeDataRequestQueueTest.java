@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.worldstate;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NodeDataRequestQueueTest {
+
+  private final KeyValueStorage storage = new InMemoryKeyValueStorage();
+
+  @Test
+  public void takesRequestsInTheOrderTheyWereQueued() {
+    final NodeDataRequestQueue queue = new NodeDataRequestQueue(storage, 2);
+    final List<NodeDataRequest> requests = requests(5);
+    queue.enqueue(requests);
+
+    assertThat(queue.take(3)).containsExactlyElementsOf(requests.subList(0, 3));
+    assertThat(queue.take(3)).containsExactlyElementsOf(requests.subList(3, 5));
+    assertThat(queue.isEmpty()).isTrue();
+    assertThat(queue.pendingCount()).isEqualTo(5);
+  }
+
+  @Test
+  public void ignoresRequestsThatAreAlreadyPending() {
+    final NodeDataRequestQueue queue = new NodeDataRequestQueue(storage);
+    final List<NodeDataRequest> requests = requests(3);
+    queue.enqueue(asList(requests.get(0), requests.get(1), requests.get(0)));
+    queue.take(1);
+    queue.enqueue(requests);
+
+    assertThat(queue.pendingCount()).isEqualTo(3);
+    assertThat(queue.take(10)).containsExactly(requests.get(1), requests.get(2));
+  }
+
+  @Test
+  public void queuesCompletedRequestsAgain() {
+    final NodeDataRequestQueue queue = new NodeDataRequestQueue(storage);
+    final List<NodeDataRequest> requests = requests(1);
+    queue.enqueue(requests);
+    queue.complete(queue.take(1));
+    assertThat(queue.pendingCount()).isZero();
+
+    queue.enqueue(requests);
+    assertThat(queue.take(1)).containsExactlyElementsOf(requests);
+  }
+
+  @Test
+  public void requeuedRequestsAreTakenFirst() {
+    final NodeDataRequestQueue queue = new NodeDataRequestQueue(storage);
+    final List<NodeDataRequest> requests = requests(4);
+    queue.enqueue(requests);
+    final List<NodeDataRequest> taken = queue.take(2);
+    queue.requeue(taken);
+
+    assertThat(queue.take(4)).containsExactlyElementsOf(requests);
+  }
+
+  @Test
+  public void requeuesAllTakenRequestsInOrder() {
+    final NodeDataRequestQueue queue = new NodeDataRequestQueue(storage, 2);
+    final List<NodeDataRequest> requests = requests(5);
+    queue.enqueue(requests);
+    queue.take(1);
+    queue.take(2);
+    queue.requeueTaken();
+
+    assertThat(queue.take(10)).containsExactlyElementsOf(requests);
+  }
+
+  @Test
+  public void resumesFromTheFirstRequestNotCompleted() {
+    final NodeDataRequestQueue queue = new NodeDataRequestQueue(storage, 2);
+    final List<NodeDataRequest> requests = requests(6);
+    queue.enqueue(requests);
+    final List<NodeDataRequest> taken = queue.take(4);
+    queue.complete(asList(taken.get(0), taken.get(2)));
+
+    final NodeDataRequestQueue restarted = new NodeDataRequestQueue(storage, 2);
+    assertThat(restarted.pendingCount()).isEqualTo(4);
+    assertThat(restarted.take(10))
+        .containsExactly(requests.get(1), requests.get(3), requests.get(4), requests.get(5));
+  }
+
+  @Test
+  public void isEmptyOnceAllRequestsAreCompleted() {
+    final NodeDataRequestQueue queue = new NodeDataRequestQueue(storage, 2);
+    queue.enqueue(requests(5));
+    while (!queue.isEmpty()) {
+      queue.complete(queue.take(1));
+    }
+
+    assertThat(queue.pendingCount()).isZero();
+    assertThat(new NodeDataRequestQueue(storage).isEmpty()).isTrue();
+    queue.enqueue(singletonList(NodeDataRequest.createCodeRequest(Hash.ZERO)));
+    assertThat(new NodeDataRequestQueue(storage).take(10)).hasSize(1);
+  }
+
+  @Test
+  public void clearsRequestsUntilADownloadFromANewRootCompletes() {
+    final NodeDataRequestQueue queue = new NodeDataRequestQueue(storage, 2);
+    final List<NodeDataRequest> requests = requests(5);
+    queue.enqueue(requests);
+    queue.take(3);
+    queue.clear();
+
+    assertThat(queue.isEmpty()).isTrue();
+    assertThat(queue.pendingCount()).isZero();
+    assertThat(queue.storedSubtreesMayBeIncomplete()).isTrue();
+    final NodeDataRequestQueue restarted = new NodeDataRequestQueue(storage, 2);
+    assertThat(restarted.isEmpty()).isTrue();
+    assertThat(restarted.storedSubtreesMayBeIncomplete()).isTrue();
+
+    // Requests that were pending when the queue was cleared are queued again.
+    restarted.enqueue(requests.subList(0, 1));
+    assertThat(restarted.pendingCount()).isEqualTo(1);
+    restarted.complete(restarted.take(10));
+    assertThat(restarted.storedSubtreesMayBeIncomplete()).isFalse();
+    assertThat(new NodeDataRequestQueue(storage).storedSubtreesMayBeIncomplete()).isFalse();
+  }
+
+  private List<NodeDataRequest> requests(final int count) {
+    final List<NodeDataRequest> requests = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      requests.add(NodeDataRequest.createAccountTrieNodeRequest(Hash.hash(BytesValue.of(i))));
+    }
+    return requests;
+  }
+}
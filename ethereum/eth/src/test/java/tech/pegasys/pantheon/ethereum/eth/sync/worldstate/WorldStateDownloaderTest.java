@@ -0,0 +1,280 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.worldstate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import tech.pegasys.pantheon.ethereum.core.Account;
+import tech.pegasys.pantheon.ethereum.core.Address;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.MutableAccount;
+import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
+import tech.pegasys.pantheon.ethereum.core.Wei;
+import tech.pegasys.pantheon.ethereum.core.WorldState;
+import tech.pegasys.pantheon.ethereum.core.WorldUpdater;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthProtocolManager;
+import tech.pegasys.pantheon.ethereum.eth.manager.EthProtocolManagerTestUtil;
+import tech.pegasys.pantheon.ethereum.eth.manager.RespondingEthPeer;
+import tech.pegasys.pantheon.ethereum.eth.manager.RespondingEthPeer.Responder;
+import tech.pegasys.pantheon.ethereum.eth.messages.EthPV63;
+import tech.pegasys.pantheon.ethereum.eth.messages.GetNodeDataMessage;
+import tech.pegasys.pantheon.ethereum.eth.messages.NodeDataMessage;
+import tech.pegasys.pantheon.ethereum.p2p.api.MessageData;
+import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator;
+import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator.BlockOptions;
+import tech.pegasys.pantheon.ethereum.worldstate.DefaultMutableWorldState;
+import tech.pegasys.pantheon.ethereum.worldstate.KeyValueStorageWorldStateStorage;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage.StorageException;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorldStateDownloaderTest {
+
+  private static final int MAX_RESPONSE_CYCLES = 1000;
+
+  private final BlockDataGenerator gen = new BlockDataGenerator();
+  private final KeyValueStorage remoteStorage = new InMemoryKeyValueStorage();
+  private final AtomicBoolean failNextUpdate = new AtomicBoolean();
+  private final WorldStateStorage localStorage =
+      new KeyValueStorageWorldStateStorage(
+          new InMemoryKeyValueStorage() {
+            @Override
+            public Transaction getStartTransaction() {
+              if (failNextUpdate.getAndSet(false)) {
+                throw new StorageException(new IllegalStateException("Storage failure"));
+              }
+              return super.getStartTransaction();
+            }
+          });
+  private final KeyValueStorage queueStorage = new InMemoryKeyValueStorage();
+  private final List<Address> addresses = new ArrayList<>();
+  private final List<Hash> requestedHashes = new ArrayList<>();
+
+  private EthProtocolManager ethProtocolManager;
+  private RespondingEthPeer peer;
+  private BlockHeader header;
+
+  @Before
+  public void setUp() {
+    final MutableWorldState worldState =
+        new DefaultMutableWorldState(new KeyValueStorageWorldStateStorage(remoteStorage));
+    final WorldUpdater updater = worldState.updater();
+    for (int i = 0; i < 50; i++) {
+      final Address address = gen.address();
+      final MutableAccount account = updater.getOrCreate(address);
+      account.setBalance(Wei.of(i + 1));
+      if (i % 5 == 0) {
+        account.setCode(BytesValue.of(1, 2, i));
+        account.setStorageValue(UInt256.of(i), UInt256.of(i + 1));
+        account.setStorageValue(UInt256.of(i + 100), UInt256.of(i + 2));
+      }
+      addresses.add(address);
+    }
+    updater.commit();
+    worldState.persist();
+    header = gen.header(10, BlockOptions.create().setStateRoot(worldState.rootHash()));
+
+    ethProtocolManager = EthProtocolManagerTestUtil.create();
+    peer = EthProtocolManagerTestUtil.createPeer(ethProtocolManager);
+  }
+
+  private WorldStateDownloader createDownloader(final int hashCountPerRequest) {
+    return createDownloader(ethProtocolManager, hashCountPerRequest);
+  }
+
+  private WorldStateDownloader createDownloader(
+      final EthProtocolManager ethProtocolManager, final int hashCountPerRequest) {
+    return createDownloader(
+        ethProtocolManager,
+        hashCountPerRequest,
+        WorldStateDownloader.DEFAULT_MAX_RESPONSES_WITHOUT_PROGRESS);
+  }
+
+  private WorldStateDownloader createDownloader(
+      final EthProtocolManager ethProtocolManager,
+      final int hashCountPerRequest,
+      final int maxResponsesWithoutProgress) {
+    return new WorldStateDownloader(
+        ethProtocolManager.ethContext(),
+        localStorage,
+        new NodeDataRequestQueue(queueStorage),
+        hashCountPerRequest,
+        WorldStateDownloader.DEFAULT_MAX_OUTSTANDING_REQUESTS,
+        maxResponsesWithoutProgress);
+  }
+
+  private Responder nodeDataResponder() {
+    return (cap, msg) -> {
+      if (msg.getCode() != EthPV63.GET_NODE_DATA) {
+        return Optional.empty();
+      }
+      final List<BytesValue> nodeData = new ArrayList<>();
+      for (final Hash hash : GetNodeDataMessage.readFrom(msg).hashes()) {
+        requestedHashes.add(hash);
+        remoteStorage.get(hash).ifPresent(nodeData::add);
+      }
+      return Optional.<MessageData>of(NodeDataMessage.create(nodeData));
+    };
+  }
+
+  private void assertWorldStateDownloaded() {
+    assertWorldStateDownloaded(header);
+  }
+
+  private void assertWorldStateDownloaded(final BlockHeader header) {
+    final WorldState expected =
+        new DefaultMutableWorldState(
+            header.getStateRoot(), new KeyValueStorageWorldStateStorage(remoteStorage));
+    final WorldState actual = new DefaultMutableWorldState(header.getStateRoot(), localStorage);
+    for (final Address address : addresses) {
+      final Account expectedAccount = expected.get(address);
+      final Account actualAccount = actual.get(address);
+      assertThat(actualAccount.getBalance()).isEqualTo(expectedAccount.getBalance());
+      assertThat(actualAccount.getCode()).isEqualTo(expectedAccount.getCode());
+      assertThat(actualAccount.storageEntriesFrom(Hash.ZERO, 10))
+          .isEqualTo(expectedAccount.storageEntriesFrom(Hash.ZERO, 10));
+    }
+    assertThat(new NodeDataRequestQueue(queueStorage).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void downloadsWholeWorldState() {
+    final CompletableFuture<Void> result = createDownloader(10).run(header);
+    peer.respondTimes(nodeDataResponder(), MAX_RESPONSE_CYCLES);
+
+    assertThat(result).isCompleted();
+    assertWorldStateDownloaded();
+  }
+
+  @Test
+  public void completesImmediatelyWhenWorldStateIsAlreadyStored() {
+    final CompletableFuture<Void> firstResult = createDownloader(10).run(header);
+    peer.respondTimes(nodeDataResponder(), MAX_RESPONSE_CYCLES);
+    assertThat(firstResult).isCompleted();
+
+    final CompletableFuture<Void> result = createDownloader(10).run(header);
+    assertThat(result).isCompleted();
+    assertThat(peer.hasOutstandingRequests()).isFalse();
+  }
+
+  @Test
+  public void resumesFromPendingRequests() {
+    createDownloader(10).run(header);
+    peer.respondTimes(nodeDataResponder(), 3);
+    assertThat(new NodeDataRequestQueue(queueStorage).pendingCount()).isGreaterThan(0);
+
+    // A new downloader picks up where the first left off, as it would after a restart.
+    final EthProtocolManager newEthProtocolManager = EthProtocolManagerTestUtil.create();
+    final RespondingEthPeer newPeer = EthProtocolManagerTestUtil.createPeer(newEthProtocolManager);
+    final CompletableFuture<Void> result = createDownloader(newEthProtocolManager, 10).run(header);
+    newPeer.respondTimes(nodeDataResponder(), MAX_RESPONSE_CYCLES);
+
+    assertThat(result).isCompleted();
+    assertWorldStateDownloaded();
+  }
+
+  @Test
+  public void requeuesMissingNodes() {
+    final List<Hash> withheld = new ArrayList<>();
+    final Responder responder = nodeDataResponder();
+    final Responder forgetfulResponder =
+        (cap, msg) -> {
+          if (msg.getCode() == EthPV63.GET_NODE_DATA && withheld.isEmpty()) {
+            // Withhold the first node the first time it's asked for.
+            GetNodeDataMessage.readFrom(msg).hashes().forEach(withheld::add);
+            return Optional.of(NodeDataMessage.create(new ArrayList<>()));
+          }
+          return responder.respond(cap, msg);
+        };
+
+    final CompletableFuture<Void> result = createDownloader(10).run(header);
+    peer.respondTimes(forgetfulResponder, MAX_RESPONSE_CYCLES);
+
+    assertThat(withheld).containsExactly(header.getStateRoot());
+    assertThat(result).isCompleted();
+    assertWorldStateDownloaded();
+  }
+
+  @Test
+  public void retriesRequestsWhenRunAgainAfterFailing() {
+    final WorldStateDownloader downloader = createDownloader(10);
+    failNextUpdate.set(true);
+    final CompletableFuture<Void> failedResult = downloader.run(header);
+    peer.respondTimes(nodeDataResponder(), MAX_RESPONSE_CYCLES);
+    assertThat(failedResult).isCompletedExceptionally();
+
+    final CompletableFuture<Void> result = downloader.run(header);
+    peer.respondTimes(nodeDataResponder(), MAX_RESPONSE_CYCLES);
+
+    assertThat(result).isCompleted();
+    assertWorldStateDownloaded();
+  }
+
+  @Test
+  public void failsOnceResponsesStopProvidingData() {
+    final Responder emptyResponder =
+        (cap, msg) -> Optional.of(NodeDataMessage.create(new ArrayList<>()));
+
+    final CompletableFuture<Void> result = createDownloader(ethProtocolManager, 10, 3).run(header);
+    peer.respondTimes(emptyResponder, MAX_RESPONSE_CYCLES);
+
+    assertThat(result).isCompletedExceptionally();
+    assertThatThrownBy(result::get).hasCauseInstanceOf(StalledDownloadException.class);
+  }
+
+  @Test
+  public void downloadsNewWorldStateWithoutRequestingStoredNodesAgain() {
+    final WorldStateDownloader downloader = createDownloader(10);
+    downloader.run(header);
+    peer.respondTimes(nodeDataResponder(), 3);
+    final Set<Hash> requestedBeforeRestart = new HashSet<>(requestedHashes);
+
+    // Stored nodes from the abandoned world state are shared with the new one, but parts of their
+    // subtrees may not have been downloaded yet.
+    final MutableWorldState worldState =
+        new DefaultMutableWorldState(
+            header.getStateRoot(), new KeyValueStorageWorldStateStorage(remoteStorage));
+    final WorldUpdater updater = worldState.updater();
+    updater.getOrCreate(addresses.get(0)).setBalance(Wei.of(1000));
+    updater.commit();
+    worldState.persist();
+    final BlockHeader newHeader =
+        gen.header(20, BlockOptions.create().setStateRoot(worldState.rootHash()));
+
+    downloader.discardPendingRequests();
+    requestedHashes.clear();
+    final CompletableFuture<Void> result = downloader.run(newHeader);
+    peer.respondTimes(nodeDataResponder(), MAX_RESPONSE_CYCLES);
+
+    assertThat(result).isCompleted();
+    assertWorldStateDownloaded(newHeader);
+    assertThat(requestedHashes).doesNotContainAnyElementsOf(requestedBeforeRestart);
+    assertThat(new NodeDataRequestQueue(queueStorage).storedSubtreesMayBeIncomplete()).isFalse();
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.transactions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import tech.pegasys.pantheon.ethereum.core.Transaction;
+import tech.pegasys.pantheon.ethereum.eth.manager.DeterministicEthScheduler;
+import tech.pegasys.pantheon.ethereum.testutil.BlockDataGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+public class SenderRecoveryTest {
+
+  private final BlockDataGenerator generator = new BlockDataGenerator();
+  private final SenderRecovery senderRecovery =
+      new SenderRecovery(new DeterministicEthScheduler(), 2);
+
+  @Test
+  public void recoversTheSenderOfEveryTransaction() {
+    final List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      transactions.add(spy(generator.transaction()));
+    }
+
+    final CompletableFuture<Void> result = senderRecovery.recoverSenders(transactions);
+
+    assertThat(result).isCompleted();
+    transactions.forEach(transaction -> verify(transaction).getSender());
+  }
+
+  @Test
+  public void unrecoverableSendersAreLeftForValidation() {
+    final Transaction invalid = spy(generator.transaction());
+    when(invalid.getSender()).thenThrow(new IllegalStateException("Invalid signature"));
+    final Transaction valid = spy(generator.transaction());
+
+    final CompletableFuture<Void> result =
+        senderRecovery.recoverSenders(Arrays.asList(invalid, valid));
+
+    assertThat(result).isCompleted();
+    assertThat(result.isCompletedExceptionally()).isFalse();
+    verify(valid).getSender();
+  }
+
+  @Test
+  public void completesImmediatelyWithoutTransactions() {
+    assertThat(senderRecovery.recoverSenders(Collections.emptyList())).isCompleted();
+  }
+}
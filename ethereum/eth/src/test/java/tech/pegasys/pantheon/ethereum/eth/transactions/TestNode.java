@@ -94,7 +94,8 @@ public class TestNode implements Closeable {
     genesisConfig.writeStateTo(worldStateArchive.getMutable());
     final ProtocolContext<Void> protocolContext =
         new ProtocolContext<>(blockchain, worldStateArchive, null);
-    final EthProtocolManager ethProtocolManager = new EthProtocolManager(blockchain, 1, false, 1);
+    final EthProtocolManager ethProtocolManager =
+        new EthProtocolManager(blockchain, worldStateArchive, 1, false, 1);
 
     final NetworkRunner networkRunner =
         NetworkRunner.builder()
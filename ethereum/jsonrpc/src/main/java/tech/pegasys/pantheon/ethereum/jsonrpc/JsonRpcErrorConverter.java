@@ -32,6 +32,8 @@ public class JsonRpcErrorConverter {
         return JsonRpcError.TRANSACTION_UPFRONT_COST_EXCEEDS_BALANCE;
       case EXCEEDS_BLOCK_GAS_LIMIT:
         return JsonRpcError.EXCEEDS_BLOCK_GAS_LIMIT;
+      case CHAIN_HEAD_WORLD_STATE_NOT_AVAILABLE:
+        return JsonRpcError.CHAIN_HEAD_WORLD_STATE_NOT_AVAILABLE;
 
       default:
         return JsonRpcError.INVALID_PARAMS;
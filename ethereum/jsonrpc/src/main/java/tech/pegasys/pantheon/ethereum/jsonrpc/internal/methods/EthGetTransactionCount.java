@@ -52,7 +52,7 @@ public class EthGetTransactionCount extends AbstractBlockParameterMethod {
     final Address address = parameters().required(request.getParams(), 0, Address.class);
     final AtomicReference<Optional<Transaction>> pendingTransaction =
         new AtomicReference<>(Optional.empty());
-    final OptionalLong pendingNonce = pendingTransactions.getNextNonceForSender(address);
+    final OptionalLong pendingNonce = pendingTransactions.getNextReadyNonceForSender(address);
     if (pendingNonce.isPresent()) {
       return Quantity.create(pendingNonce.getAsLong());
     } else {
@@ -40,7 +40,8 @@ public class EthGetTransactionCountTest {
 
   @Test
   public void shouldUsePendingTransactionsWhenToldTo() {
-    when(pendingTransactions.getNextNonceForSender(Address.fromHexString(pendingTransactionString)))
+    when(pendingTransactions.getNextReadyNonceForSender(
+            Address.fromHexString(pendingTransactionString)))
         .thenReturn(OptionalLong.of(12));
     final JsonRpcRequest request =
         new JsonRpcRequest("1", "eth_getTransactionCount", pendingParams);
@@ -52,7 +53,7 @@ public class EthGetTransactionCountTest {
   @Test
   public void shouldUseLatestTransactionsWhenNoPendingTransactions() {
     final Address address = Address.fromHexString(pendingTransactionString);
-    when(pendingTransactions.getNextNonceForSender(address)).thenReturn(OptionalLong.empty());
+    when(pendingTransactions.getNextReadyNonceForSender(address)).thenReturn(OptionalLong.empty());
     when(blockchain.headBlockNumber()).thenReturn(1L);
     when(blockchain.getTransactionCount(address, 1L)).thenReturn(7L);
     final JsonRpcRequest request =
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.trie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the hashes of the modified nodes of a trie, hashing the modified subtrees below the top
+ * branches concurrently on the common fork join pool. Hashes are cached by the nodes themselves, so
+ * once this returns computing the root hash or committing the trie only hashes the top nodes.
+ */
+class ParallelHasher {
+
+  // Forking below the first two levels of branches rarely pays for itself: with 16 children per
+  // branch this already allows up to 256 concurrent subtrees.
+  private static final int MAX_FORK_DEPTH = 2;
+
+  static <V> void hash(final Node<V> root) {
+    if (root.isDirty()) {
+      new HashTask<>(root, 0).invoke();
+    }
+  }
+
+  private static class HashTask<V> extends RecursiveAction {
+    private final Node<V> node;
+    private final int depth;
+
+    private HashTask(final Node<V> node, final int depth) {
+      this.node = node;
+      this.depth = depth;
+    }
+
+    @Override
+    protected void compute() {
+      if (depth < MAX_FORK_DEPTH) {
+        final List<HashTask<V>> subtasks = new ArrayList<>();
+        collectDirtySubtrees(node, subtasks);
+        if (subtasks.size() > 1) {
+          ForkJoinTask.invokeAll(subtasks);
+        } else {
+          subtasks.forEach(HashTask::compute);
+        }
+      }
+      node.getHash();
+    }
+
+    private void collectDirtySubtrees(final Node<V> node, final List<HashTask<V>> subtasks) {
+      if (node instanceof ExtensionNode) {
+        final Node<V> child = ((ExtensionNode<V>) node).getChild();
+        if (child.isDirty()) {
+          collectDirtySubtrees(child, subtasks);
+        }
+      } else if (node instanceof BranchNode) {
+        final BranchNode<V> branch = (BranchNode<V>) node;
+        for (byte i = 0; i < BranchNode.RADIX; ++i) {
+          final Node<V> child = branch.child(i);
+          if (child.isDirty()) {
+            subtasks.add(new HashTask<>(child, depth + 1));
+          }
+        }
+      }
+    }
+  }
+}
@@ -20,7 +20,9 @@ import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * A {@link MerklePatriciaTrie} that persists trie nodes to a {@link MerkleStorage} key/value store.
@@ -90,6 +92,8 @@ public class StoredMerklePatriciaTrie<K extends BytesValue, V> implements Merkle
 
   @Override
   public void commit(final NodeUpdater nodeUpdater) {
+    // Hash concurrently first, so the commit visitor only has to look the hashes up.
+    ParallelHasher.hash(root);
     final CommitVisitor<V> commitVisitor = new CommitVisitor<>(nodeUpdater);
     root.accept(commitVisitor);
     // Make sure root node was stored
@@ -109,8 +113,27 @@ public class StoredMerklePatriciaTrie<K extends BytesValue, V> implements Merkle
     return StorageEntriesCollector.collectEntries(root, startKeyHash, limit);
   }
 
+  /**
+   * Visits the nodes of this trie that are held in storage, depth first from the root. Nodes whose
+   * RLP is shorter than a hash are embedded in their parent and are not visited on their own.
+   *
+   * <p>Only the committed state of the trie is visited.
+   *
+   * @param storedNodeHandler Called with the hash of each stored node, returning false skips the
+   *     node's descendants.
+   * @param valueHandler Called with each value stored in the visited nodes.
+   */
+  public void visitStoredNodes(
+      final Predicate<Bytes32> storedNodeHandler, final Consumer<V> valueHandler) {
+    if (root.isDirty()) {
+      throw new IllegalStateException("Cannot visit the stored nodes of an uncommitted trie");
+    }
+    new StoredNodesVisitor<>(storedNodeHandler, valueHandler).visitNode(root);
+  }
+
   @Override
   public Bytes32 getRootHash() {
+    ParallelHasher.hash(root);
     return root.getHash();
   }
 
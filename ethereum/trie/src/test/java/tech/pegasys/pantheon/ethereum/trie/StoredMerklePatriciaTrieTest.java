@@ -21,7 +21,11 @@ import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 
 import org.junit.Before;
@@ -419,4 +423,76 @@ public class StoredMerklePatriciaTrieTest {
 
     newTrie.get(BytesValue.fromHexString("0x0401"));
   }
+
+  @Test
+  public void visitsEveryStoredNode() {
+    final Set<String> values = new HashSet<>();
+    for (int i = 0; i < 100; i++) {
+      final String value = "a value that is long enough not to be inlined " + i;
+      trie.put(BytesValue.of(i, i + 1), value);
+      values.add(value);
+    }
+    trie.commit(merkleStorage::put);
+    merkleStorage.commit();
+
+    final StoredMerklePatriciaTrie<BytesValue, String> storedTrie =
+        new StoredMerklePatriciaTrie<>(
+            merkleStorage::get, trie.getRootHash(), valueSerializer, valueDeserializer);
+    final Set<BytesValue> visitedNodes = new HashSet<>();
+    final Set<String> visitedValues = new HashSet<>();
+    storedTrie.visitStoredNodes(visitedNodes::add, visitedValues::add);
+
+    final Set<BytesValue> storedNodes = new HashSet<>();
+    keyValueStore.entries().forEach(entry -> storedNodes.add(entry.getKey()));
+    assertThat(visitedNodes).isEqualTo(storedNodes);
+    assertThat(visitedValues).isEqualTo(values);
+  }
+
+  @Test
+  public void skipsDescendantsOfDeclinedNodes() {
+    for (int i = 0; i < 100; i++) {
+      trie.put(BytesValue.of(i, i + 1), "a value that is long enough not to be inlined " + i);
+    }
+    trie.commit(merkleStorage::put);
+    merkleStorage.commit();
+
+    final StoredMerklePatriciaTrie<BytesValue, String> storedTrie =
+        new StoredMerklePatriciaTrie<>(
+            merkleStorage::get, trie.getRootHash(), valueSerializer, valueDeserializer);
+    final List<Bytes32> visitedNodes = new ArrayList<>();
+    final List<String> visitedValues = new ArrayList<>();
+    storedTrie.visitStoredNodes(
+        hash -> {
+          visitedNodes.add(hash);
+          return false;
+        },
+        visitedValues::add);
+
+    assertThat(visitedNodes).containsExactly(trie.getRootHash());
+    assertThat(visitedValues).isEmpty();
+  }
+
+  @Test
+  public void largeUpdatesHashLikeASimpleTrie() {
+    final MerklePatriciaTrie<BytesValue, String> simpleTrie =
+        new SimpleMerklePatriciaTrie<>(valueSerializer);
+    for (int i = 0; i < 2000; i++) {
+      final BytesValue key = BytesValue.of((i >> 8) & 0xff, i & 0xff, (i * 7) & 0xff);
+      trie.put(key, "value" + i);
+      simpleTrie.put(key, "value" + i);
+    }
+    assertThat(trie.getRootHash()).isEqualTo(simpleTrie.getRootHash());
+    trie.commit(merkleStorage::put);
+    merkleStorage.commit();
+
+    final StoredMerklePatriciaTrie<BytesValue, String> storedTrie =
+        new StoredMerklePatriciaTrie<>(
+            merkleStorage::get, trie.getRootHash(), valueSerializer, valueDeserializer);
+    for (int i = 0; i < 2000; i += 3) {
+      final BytesValue key = BytesValue.of((i >> 8) & 0xff, i & 0xff, (i * 7) & 0xff);
+      storedTrie.put(key, "updated" + i);
+      simpleTrie.put(key, "updated" + i);
+    }
+    assertThat(storedTrie.getRootHash()).isEqualTo(simpleTrie.getRootHash());
+  }
 }
@@ -25,6 +25,7 @@ import org.apache.logging.log4j.Logger;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.ExecutionException;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.ParentCommand;
 
@@ -42,6 +43,15 @@ class ImportSubCommand implements Runnable {
   @Parameters(arity = "1..1", paramLabel = "PATH", description = "File containing blocks to import")
   private final Path blocksImportPath = null;
 
+  // Negative option for the same reason as --no-discovery in PantheonCommand.
+  @Option(
+    names = {"--no-write-ahead-log"},
+    description =
+        "Skip the database write-ahead log while importing. Faster, but the database must be "
+            + "discarded if the import does not finish cleanly (default: ${DEFAULT-VALUE})"
+  )
+  private final Boolean noWriteAheadLog = false;
+
   private final BlockImporter blockImporter;
 
   ImportSubCommand(final BlockImporter blockImporter) {
@@ -56,7 +66,13 @@ class ImportSubCommand implements Runnable {
     checkNotNull(blockImporter);
 
     try {
-      blockImporter.importBlockchain(blocksImportPath, parentCommand.buildController());
+      blockImporter.importBlockchain(
+          blocksImportPath,
+          parentCommand.buildController(
+              parentCommand
+                  .rocksDbConfigurationBuilder()
+                  .writeAheadLogEnabled(!noWriteAheadLog)
+                  .build()));
     } catch (final FileNotFoundException e) {
       throw new ExecutionException(
           new CommandLine(this), "Could not find file to import: " + blocksImportPath);
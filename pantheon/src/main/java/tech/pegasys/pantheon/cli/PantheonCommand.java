@@ -32,6 +32,9 @@ import tech.pegasys.pantheon.ethereum.jsonrpc.RpcApis;
 import tech.pegasys.pantheon.ethereum.jsonrpc.websocket.WebSocketConfiguration;
 import tech.pegasys.pantheon.ethereum.p2p.peers.DefaultPeer;
 import tech.pegasys.pantheon.ethereum.util.InvalidConfigurationException;
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration.Compression;
 import tech.pegasys.pantheon.util.BlockImporter;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
@@ -97,6 +100,8 @@ public class PantheonCommand implements Runnable {
 
   private static final String CONFIG_FILE_OPTION_NAME = "--config";
 
+  private static final long BYTES_PER_MIB = 1024 * 1024L;
+
   public static class RpcApisConverter implements ITypeConverter<RpcApi> {
     @Override
     public RpcApi convert(final String name) throws RpcApisConversionException {
@@ -357,6 +362,100 @@ public class PantheonCommand implements Runnable {
   )
   private final BytesValue extraData = DEFAULT_EXTRA_DATA;
 
+  @Option(
+    names = {"--rocksdb-cache-size-mb"},
+    paramLabel = MANDATORY_INTEGER_FORMAT_HELP,
+    description = "Size in MiB of the database block cache (default: ${DEFAULT-VALUE})",
+    arity = "1"
+  )
+  private final Integer rocksDbBlockCacheSizeMb =
+      (int) (RocksDbConfiguration.DEFAULT_BLOCK_CACHE_SIZE / BYTES_PER_MIB);
+
+  @Option(
+    names = {"--rocksdb-bloom-filter-bits"},
+    paramLabel = MANDATORY_INTEGER_FORMAT_HELP,
+    description =
+        "Bloom filter bits per key for world state lookups, 0 disables the filters "
+            + "(default: ${DEFAULT-VALUE})",
+    arity = "1"
+  )
+  private final Integer rocksDbBloomFilterBitsPerKey =
+      RocksDbConfiguration.DEFAULT_BLOOM_FILTER_BITS_PER_KEY;
+
+  @Option(
+    names = {"--rocksdb-max-open-files"},
+    paramLabel = MANDATORY_INTEGER_FORMAT_HELP,
+    description =
+        "Maximum number of database files kept open, -1 for unlimited (default: ${DEFAULT-VALUE})",
+    arity = "1"
+  )
+  private final Integer rocksDbMaxOpenFiles = RocksDbConfiguration.DEFAULT_MAX_OPEN_FILES;
+
+  @Option(
+    names = {"--rocksdb-background-jobs"},
+    paramLabel = MANDATORY_INTEGER_FORMAT_HELP,
+    description =
+        "Maximum number of concurrent database flush and compaction jobs "
+            + "(default: half the available processors, currently ${DEFAULT-VALUE})",
+    arity = "1"
+  )
+  private final Integer rocksDbBackgroundJobs = RocksDbConfiguration.DEFAULT_BACKGROUND_JOBS;
+
+  @Option(
+    names = {"--rocksdb-compression-per-level"},
+    paramLabel = "<compression>",
+    split = ",",
+    arity = "1..*",
+    description =
+        "Comma separated database compression for each level starting at level 0, one of "
+            + "${COMPLETION-CANDIDATES} (default: chosen per kind of data)"
+  )
+  private final List<Compression> rocksDbCompressionPerLevel = null;
+
+  @Option(
+    names = {"--rocksdb-write-buffer-size-mb"},
+    paramLabel = MANDATORY_INTEGER_FORMAT_HELP,
+    description = "Size in MiB of a single database memtable (default: ${DEFAULT-VALUE})",
+    arity = "1"
+  )
+  private final Integer rocksDbWriteBufferSizeMb =
+      (int) (RocksDbConfiguration.DEFAULT_WRITE_BUFFER_SIZE / BYTES_PER_MIB);
+
+  @Option(
+    names = {"--rocksdb-max-write-buffers"},
+    paramLabel = MANDATORY_INTEGER_FORMAT_HELP,
+    description =
+        "Number of database memtables that can fill before writes stall (default: ${DEFAULT-VALUE})",
+    arity = "1"
+  )
+  private final Integer rocksDbMaxWriteBufferNumber =
+      RocksDbConfiguration.DEFAULT_MAX_WRITE_BUFFER_NUMBER;
+
+  @Option(
+    names = {"--pruning-enabled"},
+    description =
+        "Remove the world state of old blocks from the database, states older than the retained blocks can no longer be queried (default: ${DEFAULT-VALUE})"
+  )
+  private final Boolean isPruningEnabled = false;
+
+  @Option(
+    names = {"--pruning-blocks-retained"},
+    paramLabel = MANDATORY_INTEGER_FORMAT_HELP,
+    description =
+        "Number of recent blocks whose world state is kept when pruning (default: ${DEFAULT-VALUE})",
+    arity = "1"
+  )
+  private final Integer pruningBlocksRetained = PrunerConfiguration.DEFAULT_BLOCKS_RETAINED;
+
+  @Option(
+    names = {"--pruning-block-confirmations"},
+    paramLabel = MANDATORY_INTEGER_FORMAT_HELP,
+    description =
+        "Number of blocks added on top of a block before its world state is marked for pruning (default: ${DEFAULT-VALUE})",
+    arity = "1"
+  )
+  private final Integer pruningBlockConfirmations = PrunerConfiguration.DEFAULT_BLOCK_CONFIRMATIONS;
+
   public PantheonCommand(
       final BlockImporter blockImporter,
       final RunnerBuilder runnerBuilder,
@@ -381,6 +480,7 @@ public class PantheonCommand implements Runnable {
 
     commandLine.registerConverter(Address.class, Address::fromHexString);
     commandLine.registerConverter(BytesValue.class, BytesValue::fromHexString);
+    commandLine.registerConverter(Compression.class, Compression::fromString);
     commandLine.registerConverter(HostAndPort.class, HostAndPort::fromString);
     commandLine.registerConverter(Level.class, Level::valueOf);
     commandLine.registerConverter(SyncMode.class, SyncMode::fromString);
@@ -426,9 +526,47 @@ public class PantheonCommand implements Runnable {
   }
 
   PantheonController<?> buildController() {
+    return buildController(rocksDbConfigurationBuilder().build());
+  }
+
+  RocksDbConfiguration.Builder rocksDbConfigurationBuilder() {
+    try {
+      final RocksDbConfiguration.Builder builder =
+          RocksDbConfiguration.builder()
+              .blockCacheSize(rocksDbBlockCacheSizeMb * BYTES_PER_MIB)
+              .bloomFilterBitsPerKey(rocksDbBloomFilterBitsPerKey)
+              .maxOpenFiles(rocksDbMaxOpenFiles)
+              .backgroundJobs(rocksDbBackgroundJobs)
+              .writeBufferSize(rocksDbWriteBufferSizeMb * BYTES_PER_MIB)
+              .maxWriteBufferNumber(rocksDbMaxWriteBufferNumber);
+      if (rocksDbCompressionPerLevel != null) {
+        builder.compressionPerLevel(rocksDbCompressionPerLevel);
+      }
+      return builder;
+    } catch (final IllegalArgumentException e) {
+      throw new ParameterException(new CommandLine(this), e.getMessage());
+    }
+  }
+
+  private PrunerConfiguration prunerConfiguration() {
+    try {
+      return PrunerConfiguration.builder()
+          .enabled(isPruningEnabled)
+          .blocksRetained(pruningBlocksRetained)
+          .blockConfirmations(pruningBlockConfirmations)
+          .build();
+    } catch (final IllegalArgumentException e) {
+      throw new ParameterException(new CommandLine(this), e.getMessage());
+    }
+  }
+
+  PantheonController<?> buildController(final RocksDbConfiguration rocksDbConfiguration) {
+    final PrunerConfiguration prunerConfiguration = prunerConfiguration();
     try {
       return controllerBuilder.build(
           buildSyncConfig(syncMode),
+          rocksDbConfiguration,
+          prunerConfiguration,
           dataDir,
           ethNetworkConfig(),
           syncWithOttoman,
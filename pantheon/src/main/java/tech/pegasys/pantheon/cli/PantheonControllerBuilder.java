@@ -21,6 +21,8 @@ import tech.pegasys.pantheon.crypto.SECP256K1.KeyPair;
 import tech.pegasys.pantheon.ethereum.chain.GenesisConfig;
 import tech.pegasys.pantheon.ethereum.core.MiningParameters;
 import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -31,6 +33,8 @@ public class PantheonControllerBuilder {
 
   public PantheonController<?> build(
       final SynchronizerConfiguration synchronizerConfiguration,
+      final RocksDbConfiguration rocksDbConfiguration,
+      final PrunerConfiguration prunerConfiguration,
       final Path homePath,
       final EthNetworkConfig ethNetworkConfig,
       final boolean syncWithOttoman,
@@ -45,6 +49,8 @@ public class PantheonControllerBuilder {
           homePath,
           GenesisConfig.development(),
           synchronizerConfiguration,
+          rocksDbConfiguration,
+          prunerConfiguration,
           miningParameters,
           nodeKeys);
     } else {
@@ -52,6 +58,8 @@ public class PantheonControllerBuilder {
           Resources.toString(ethNetworkConfig.getGenesisConfig().toURL(), UTF_8);
       return PantheonController.fromConfig(
           synchronizerConfiguration,
+          rocksDbConfiguration,
+          prunerConfiguration,
           genesisConfig,
           homePath,
           syncWithOttoman,
@@ -28,14 +28,13 @@ import tech.pegasys.pantheon.ethereum.ProtocolContext;
 import tech.pegasys.pantheon.ethereum.blockcreation.MiningCoordinator;
 import tech.pegasys.pantheon.ethereum.chain.GenesisConfig;
 import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
-import tech.pegasys.pantheon.ethereum.core.BlockHashFunction;
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.MiningParameters;
 import tech.pegasys.pantheon.ethereum.core.Synchronizer;
 import tech.pegasys.pantheon.ethereum.core.TransactionPool;
 import tech.pegasys.pantheon.ethereum.core.Util;
+import tech.pegasys.pantheon.ethereum.db.BlockchainStorage;
 import tech.pegasys.pantheon.ethereum.db.DefaultMutableBlockchain;
-import tech.pegasys.pantheon.ethereum.db.KeyValueStoragePrefixedKeyBlockchainStorage;
 import tech.pegasys.pantheon.ethereum.db.WorldStateArchive;
 import tech.pegasys.pantheon.ethereum.eth.EthProtocol;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthProtocolManager;
@@ -45,17 +44,22 @@ import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
 import tech.pegasys.pantheon.ethereum.eth.sync.state.SyncState;
 import tech.pegasys.pantheon.ethereum.eth.transactions.TransactionPoolFactory;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
-import tech.pegasys.pantheon.ethereum.mainnet.ScheduleBasedBlockHashFunction;
 import tech.pegasys.pantheon.ethereum.p2p.api.ProtocolManager;
 import tech.pegasys.pantheon.ethereum.p2p.config.SubProtocolConfiguration;
-import tech.pegasys.pantheon.ethereum.worldstate.KeyValueStorageWorldStateStorage;
-import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
-import tech.pegasys.pantheon.services.kvstore.RocksDbKeyValueStorage;
+import tech.pegasys.pantheon.ethereum.storage.StorageProvider;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.RocksDbStorageProvider;
+import tech.pegasys.pantheon.ethereum.worldstate.CachingWorldStateStorage;
+import tech.pegasys.pantheon.ethereum.worldstate.MarkSweepPruner;
+import tech.pegasys.pantheon.ethereum.worldstate.Pruner;
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStatePrefetcher;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Clock;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -99,6 +103,8 @@ public class CliquePantheonController implements PantheonController<CliqueContex
       final Path home,
       final GenesisConfig<CliqueContext> genesisConfig,
       final SynchronizerConfiguration taintedSyncConfig,
+      final RocksDbConfiguration rocksDbConfiguration,
+      final PrunerConfiguration prunerConfiguration,
       final MiningParameters miningParams,
       final CliqueConfigOptions cliqueConfig,
       final int networkId,
@@ -108,22 +114,35 @@ public class CliquePantheonController implements PantheonController<CliqueContex
     final long secondsBetweenBlocks = cliqueConfig.getBlockPeriodSeconds();
 
     final EpochManager epochManger = new EpochManager(blocksPerEpoch);
-    final KeyValueStorage kv =
-        RocksDbKeyValueStorage.create(Files.createDirectories(home.resolve(DATABASE_PATH)));
+    final StorageProvider storageProvider =
+        RocksDbStorageProvider.create(home.resolve(DATABASE_PATH), rocksDbConfiguration);
     final ProtocolSchedule<CliqueContext> protocolSchedule = genesisConfig.getProtocolSchedule();
 
-    final BlockHashFunction blockHashFunction =
-        ScheduleBasedBlockHashFunction.create(protocolSchedule);
-    final KeyValueStoragePrefixedKeyBlockchainStorage blockchainStorage =
-        new KeyValueStoragePrefixedKeyBlockchainStorage(kv, blockHashFunction);
+    final BlockchainStorage blockchainStorage =
+        storageProvider.createBlockchainStorage(protocolSchedule);
     final MutableBlockchain blockchain =
         new DefaultMutableBlockchain(genesisConfig.getBlock(), blockchainStorage);
 
-    final KeyValueStorageWorldStateStorage worldStateStorage =
-        new KeyValueStorageWorldStateStorage(kv);
-    final WorldStateArchive worldStateArchive = new WorldStateArchive(worldStateStorage);
+    final WorldStateStorage uncachedWorldStateStorage = storageProvider.createWorldStateStorage();
+    final WorldStateStorage worldStateStorage =
+        new CachingWorldStateStorage(uncachedWorldStateStorage);
+    final WorldStatePrefetcher worldStatePrefetcher = new WorldStatePrefetcher();
+    final WorldStateArchive worldStateArchive =
+        new WorldStateArchive(
+            worldStateStorage,
+            storageProvider.createWorldStateSnapshot(),
+            Optional.of(worldStatePrefetcher));
     genesisConfig.writeStateTo(worldStateArchive.getMutable(Hash.EMPTY_TRIE_HASH));
 
+    final Optional<Pruner> pruner =
+        prunerConfiguration.enabled()
+            ? Optional.of(
+                new Pruner(
+                    new MarkSweepPruner(worldStateStorage, uncachedWorldStateStorage),
+                    blockchain,
+                    prunerConfiguration))
+            : Optional.empty();
+
     final ProtocolContext<CliqueContext> protocolContext =
         new ProtocolContext<>(
             blockchain,
@@ -139,23 +158,31 @@ public class CliquePantheonController implements PantheonController<CliqueContex
     final EthProtocolManager ethProtocolManager =
         new EthProtocolManager(
             protocolContext.getBlockchain(),
+            protocolContext.getWorldStateArchive(),
             genesisConfig.getChainId(),
             fastSyncEnabled,
             networkId);
     final SyncState syncState =
         new SyncState(
             protocolContext.getBlockchain(), ethProtocolManager.ethContext().getEthPeers());
-    final Synchronizer synchronizer =
+    final DefaultSynchronizer<CliqueContext> synchronizer =
         new DefaultSynchronizer<>(
             syncConfig,
             protocolSchedule,
             protocolContext,
+            worldStateStorage,
+            storageProvider.createFastSyncStorage(),
             ethProtocolManager.ethContext(),
             syncState);
+    // Fast synced blocks don't have their world state, so there's nothing to prune until then.
+    pruner.ifPresent(p -> synchronizer.fullSyncStarted().thenRun(p::start));
 
     final TransactionPool transactionPool =
         TransactionPoolFactory.createTransactionPool(
-            protocolSchedule, protocolContext, ethProtocolManager.ethContext());
+            protocolSchedule,
+            protocolContext,
+            ethProtocolManager.ethContext(),
+            synchronizer.fullSyncStarted());
 
     final ExecutorService minerThreadPool = Executors.newCachedThreadPool();
     final CliqueMinerExecutor miningExecutor =
@@ -195,10 +222,22 @@ public class CliquePantheonController implements PantheonController<CliqueContex
           } catch (final InterruptedException e) {
             LOG.error("Failed to shutdown miner executor");
           }
+          if (pruner.isPresent()) {
+            try {
+              pruner.get().close();
+            } catch (final InterruptedException e) {
+              LOG.error("Failed to shutdown world state pruner");
+            }
+          }
+          try {
+            worldStatePrefetcher.close();
+          } catch (final InterruptedException e) {
+            LOG.error("Failed to shutdown world state prefetcher");
+          }
           try {
-            kv.close();
+            storageProvider.close();
           } catch (final IOException e) {
-            LOG.error("Failed to close key value storage", e);
+            LOG.error("Failed to close storage provider", e);
           }
         });
   }
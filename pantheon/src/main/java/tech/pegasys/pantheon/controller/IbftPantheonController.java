@@ -34,12 +34,11 @@ import tech.pegasys.pantheon.ethereum.ProtocolContext;
 import tech.pegasys.pantheon.ethereum.blockcreation.MiningCoordinator;
 import tech.pegasys.pantheon.ethereum.chain.GenesisConfig;
 import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
-import tech.pegasys.pantheon.ethereum.core.BlockHashFunction;
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.Synchronizer;
 import tech.pegasys.pantheon.ethereum.core.TransactionPool;
+import tech.pegasys.pantheon.ethereum.db.BlockchainStorage;
 import tech.pegasys.pantheon.ethereum.db.DefaultMutableBlockchain;
-import tech.pegasys.pantheon.ethereum.db.KeyValueStoragePrefixedKeyBlockchainStorage;
 import tech.pegasys.pantheon.ethereum.db.WorldStateArchive;
 import tech.pegasys.pantheon.ethereum.eth.EthProtocol;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthProtocolManager;
@@ -49,17 +48,22 @@ import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
 import tech.pegasys.pantheon.ethereum.eth.sync.state.SyncState;
 import tech.pegasys.pantheon.ethereum.eth.transactions.TransactionPoolFactory;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
-import tech.pegasys.pantheon.ethereum.mainnet.ScheduleBasedBlockHashFunction;
 import tech.pegasys.pantheon.ethereum.p2p.api.ProtocolManager;
 import tech.pegasys.pantheon.ethereum.p2p.config.SubProtocolConfiguration;
 import tech.pegasys.pantheon.ethereum.p2p.wire.SubProtocol;
-import tech.pegasys.pantheon.ethereum.worldstate.KeyValueStorageWorldStateStorage;
-import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
-import tech.pegasys.pantheon.services.kvstore.RocksDbKeyValueStorage;
+import tech.pegasys.pantheon.ethereum.storage.StorageProvider;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.RocksDbStorageProvider;
+import tech.pegasys.pantheon.ethereum.worldstate.CachingWorldStateStorage;
+import tech.pegasys.pantheon.ethereum.worldstate.MarkSweepPruner;
+import tech.pegasys.pantheon.ethereum.worldstate.Pruner;
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStatePrefetcher;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -108,27 +112,42 @@ public class IbftPantheonController implements PantheonController<IbftContext> {
       final Path home,
       final GenesisConfig<IbftContext> genesisConfig,
       final SynchronizerConfiguration taintedSyncConfig,
+      final RocksDbConfiguration rocksDbConfiguration,
+      final PrunerConfiguration prunerConfiguration,
       final boolean ottomanTestnetOperation,
       final IbftConfigOptions ibftConfig,
       final int networkId,
       final KeyPair nodeKeys)
       throws IOException {
-    final KeyValueStorage kv =
-        RocksDbKeyValueStorage.create(Files.createDirectories(home.resolve(DATABASE_PATH)));
+    final StorageProvider storageProvider =
+        RocksDbStorageProvider.create(home.resolve(DATABASE_PATH), rocksDbConfiguration);
     final ProtocolSchedule<IbftContext> protocolSchedule = genesisConfig.getProtocolSchedule();
 
-    final BlockHashFunction blockHashFunction =
-        ScheduleBasedBlockHashFunction.create(protocolSchedule);
-    final KeyValueStoragePrefixedKeyBlockchainStorage blockchainStorage =
-        new KeyValueStoragePrefixedKeyBlockchainStorage(kv, blockHashFunction);
+    final BlockchainStorage blockchainStorage =
+        storageProvider.createBlockchainStorage(protocolSchedule);
     final MutableBlockchain blockchain =
         new DefaultMutableBlockchain(genesisConfig.getBlock(), blockchainStorage);
 
-    final KeyValueStorageWorldStateStorage worldStateStorage =
-        new KeyValueStorageWorldStateStorage(kv);
-    final WorldStateArchive worldStateArchive = new WorldStateArchive(worldStateStorage);
+    final WorldStateStorage uncachedWorldStateStorage = storageProvider.createWorldStateStorage();
+    final WorldStateStorage worldStateStorage =
+        new CachingWorldStateStorage(uncachedWorldStateStorage);
+    final WorldStatePrefetcher worldStatePrefetcher = new WorldStatePrefetcher();
+    final WorldStateArchive worldStateArchive =
+        new WorldStateArchive(
+            worldStateStorage,
+            storageProvider.createWorldStateSnapshot(),
+            Optional.of(worldStatePrefetcher));
     genesisConfig.writeStateTo(worldStateArchive.getMutable(Hash.EMPTY_TRIE_HASH));
 
+    final Optional<Pruner> pruner =
+        prunerConfiguration.enabled()
+            ? Optional.of(
+                new Pruner(
+                    new MarkSweepPruner(worldStateStorage, uncachedWorldStateStorage),
+                    blockchain,
+                    prunerConfiguration))
+            : Optional.empty();
+
     final EpochManager epochManager = new EpochManager(ibftConfig.getEpochLength());
 
     final VoteTally voteTally =
@@ -149,22 +168,35 @@ public class IbftPantheonController implements PantheonController<IbftContext> {
       ethSubProtocol = Istanbul64Protocol.get();
       ethProtocolManager =
           new Istanbul64ProtocolManager(
-              protocolContext.getBlockchain(), networkId, fastSyncEnabled, 1);
+              protocolContext.getBlockchain(),
+              protocolContext.getWorldStateArchive(),
+              networkId,
+              fastSyncEnabled,
+              1);
     } else {
       ethSubProtocol = EthProtocol.get();
       ethProtocolManager =
-          new EthProtocolManager(protocolContext.getBlockchain(), networkId, fastSyncEnabled, 1);
+          new EthProtocolManager(
+              protocolContext.getBlockchain(),
+              protocolContext.getWorldStateArchive(),
+              networkId,
+              fastSyncEnabled,
+              1);
     }
     final SyncState syncState =
         new SyncState(
             protocolContext.getBlockchain(), ethProtocolManager.ethContext().getEthPeers());
-    final Synchronizer synchronizer =
+    final DefaultSynchronizer<IbftContext> synchronizer =
         new DefaultSynchronizer<>(
             syncConfig,
             protocolSchedule,
             protocolContext,
+            worldStateStorage,
+            storageProvider.createFastSyncStorage(),
             ethProtocolManager.ethContext(),
             syncState);
+    // Fast synced blocks don't have their world state, so there's nothing to prune until then.
+    pruner.ifPresent(p -> synchronizer.fullSyncStarted().thenRun(p::start));
 
     final IbftEventQueue ibftEventQueue = new IbftEventQueue();
 
@@ -185,16 +217,31 @@ public class IbftPantheonController implements PantheonController<IbftContext> {
           } catch (final InterruptedException e) {
             LOG.error("Failed to shutdown ibft processor executor");
           }
+          if (pruner.isPresent()) {
+            try {
+              pruner.get().close();
+            } catch (final InterruptedException e) {
+              LOG.error("Failed to shutdown world state pruner");
+            }
+          }
+          try {
+            worldStatePrefetcher.close();
+          } catch (final InterruptedException e) {
+            LOG.error("Failed to shutdown world state prefetcher");
+          }
           try {
-            kv.close();
+            storageProvider.close();
           } catch (final IOException e) {
-            LOG.error("Failed to close key value storage", e);
+            LOG.error("Failed to close storage provider", e);
           }
         };
 
     final TransactionPool transactionPool =
         TransactionPoolFactory.createTransactionPool(
-            protocolSchedule, protocolContext, ethProtocolManager.ethContext());
+            protocolSchedule,
+            protocolContext,
+            ethProtocolManager.ethContext(),
+            synchronizer.fullSyncStarted());
 
     final IbftNetworkPeers peers =
         new IbftNetworkPeers(protocolContext.getConsensusState().getVoteTally());
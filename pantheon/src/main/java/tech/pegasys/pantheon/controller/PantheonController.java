@@ -26,6 +26,8 @@ import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
 import tech.pegasys.pantheon.ethereum.mainnet.MainnetProtocolSchedule;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
 import tech.pegasys.pantheon.ethereum.p2p.config.SubProtocolConfiguration;
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -39,6 +41,8 @@ public interface PantheonController<C> extends Closeable {
 
   static PantheonController<?> fromConfig(
       final SynchronizerConfiguration syncConfig,
+      final RocksDbConfiguration rocksDbConfiguration,
+      final PrunerConfiguration prunerConfiguration,
       final String configContents,
       final Path pantheonHome,
       final boolean ottomanTestnetOperation,
@@ -55,6 +59,8 @@ public interface PantheonController<C> extends Closeable {
           pantheonHome,
           GenesisConfig.fromConfig(config, MainnetProtocolSchedule.fromConfig(configOptions)),
           syncConfig,
+          rocksDbConfiguration,
+          prunerConfiguration,
           miningParameters,
           nodeKeys);
     } else if (configOptions.isIbft()) {
@@ -62,6 +68,8 @@ public interface PantheonController<C> extends Closeable {
           pantheonHome,
           GenesisConfig.fromConfig(config, IbftProtocolSchedule.create(configOptions)),
           syncConfig,
+          rocksDbConfiguration,
+          prunerConfiguration,
           ottomanTestnetOperation,
           configOptions.getIbftConfigOptions(),
           networkId,
@@ -71,6 +79,8 @@ public interface PantheonController<C> extends Closeable {
           pantheonHome,
           GenesisConfig.fromConfig(config, CliqueProtocolSchedule.create(configOptions, nodeKeys)),
           syncConfig,
+          rocksDbConfiguration,
+          prunerConfiguration,
           miningParameters,
           configOptions.getCliqueConfigOptions(),
           networkId,
@@ -32,6 +32,8 @@ import tech.pegasys.pantheon.ethereum.mainnet.HeaderValidationMode;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSpec;
 import tech.pegasys.pantheon.ethereum.p2p.peers.DefaultPeer;
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
 import java.net.InetAddress;
@@ -83,10 +85,7 @@ public final class RunnerTest {
     final SynchronizerConfiguration fastSyncConfig =
         SynchronizerConfiguration.builder()
             .syncMode(mode)
-            // TODO: Disable switch from fast to full sync via configuration for now, set pivot to
-            // realistic value when world state persistence is added.
-            //        .fastSyncPivotDistance(blockCount / 2).build();
-            .fastSyncPivotDistance(0)
+            .fastSyncPivotDistance(blockCount / 2)
             .build();
 
     // Setup state with block data
@@ -95,6 +94,8 @@ public final class RunnerTest {
             dbAhead,
             GenesisConfig.mainnet(),
             fastSyncConfig,
+            RocksDbConfiguration.builder().build(),
+            PrunerConfiguration.builder().build(),
             new MiningParametersTestBuilder().enabled(false).build(),
             aheadDbNodeKeys)) {
       setupState(blockCount, controller.getProtocolSchedule(), controller.getProtocolContext());
@@ -106,6 +107,8 @@ public final class RunnerTest {
             dbAhead,
             GenesisConfig.mainnet(),
             fastSyncConfig,
+            RocksDbConfiguration.builder().build(),
+            PrunerConfiguration.builder().build(),
             new MiningParametersTestBuilder().enabled(false).build(),
             aheadDbNodeKeys);
     final String listenHost = InetAddress.getLoopbackAddress().getHostAddress();
@@ -139,6 +142,8 @@ public final class RunnerTest {
               temp.newFolder().toPath(),
               GenesisConfig.mainnet(),
               fastSyncConfig,
+              RocksDbConfiguration.builder().build(),
+              PrunerConfiguration.builder().build(),
               new MiningParametersTestBuilder().enabled(false).build(),
               behindDbNodeKeys);
       final Runner runnerBehind =
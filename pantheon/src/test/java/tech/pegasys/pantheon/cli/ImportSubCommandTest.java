@@ -14,8 +14,11 @@ package tech.pegasys.pantheon.cli;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.verify;
 
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
+
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -33,7 +36,7 @@ public class ImportSubCommandTest extends CommandTestAbstract {
   @Test
   public void callingImportSubCommandHelpMustDisplayImportUsage() {
     parseCommand("import", "--help");
-    final String expectedOutputStart = "Usage: pantheon import [-hV] PATH";
+    final String expectedOutputStart = "Usage: pantheon import [-hV] [--no-write-ahead-log] PATH";
     assertThat(commandOutput.toString()).startsWith(expectedOutputStart);
     assertThat(commandErrorOutput.toString()).isEmpty();
   }
@@ -50,4 +53,33 @@ public class ImportSubCommandTest extends CommandTestAbstract {
     assertThat(commandOutput.toString()).isEmpty();
     assertThat(commandErrorOutput.toString()).isEmpty();
   }
+
+  @Test
+  public void importUsesWriteAheadLogByDefault() throws Exception {
+    parseCommand("import", Paths.get(".").toString());
+
+    assertThat(capturedRocksDbConfiguration().writeAheadLogEnabled()).isTrue();
+  }
+
+  @Test
+  public void noWriteAheadLogOptionDisablesWriteAheadLog() throws Exception {
+    parseCommand("import", "--no-write-ahead-log", Paths.get(".").toString());
+
+    assertThat(capturedRocksDbConfiguration().writeAheadLogEnabled()).isFalse();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  private RocksDbConfiguration capturedRocksDbConfiguration() throws Exception {
+    verify(mockControllerBuilder)
+        .build(
+            any(),
+            rocksDbConfigArgumentCaptor.capture(),
+            any(),
+            any(),
+            any(),
+            anyBoolean(),
+            any(),
+            anyBoolean());
+    return rocksDbConfigArgumentCaptor.getValue();
+  }
 }
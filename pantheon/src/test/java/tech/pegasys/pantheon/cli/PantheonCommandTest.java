@@ -37,6 +37,9 @@ import tech.pegasys.pantheon.ethereum.eth.sync.SyncMode;
 import tech.pegasys.pantheon.ethereum.jsonrpc.JsonRpcConfiguration;
 import tech.pegasys.pantheon.ethereum.jsonrpc.RpcApis;
 import tech.pegasys.pantheon.ethereum.jsonrpc.websocket.WebSocketConfiguration;
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration.Compression;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.io.File;
@@ -142,7 +145,15 @@ public class PantheonCommandTest extends CommandTestAbstract {
     final ArgumentCaptor<EthNetworkConfig> networkArg =
         ArgumentCaptor.forClass(EthNetworkConfig.class);
     verify(mockControllerBuilder)
-        .build(any(), isNotNull(), networkArg.capture(), eq(false), miningArg.capture(), eq(false));
+        .build(
+            any(),
+            any(),
+            any(),
+            isNotNull(),
+            networkArg.capture(),
+            eq(false),
+            miningArg.capture(),
+            eq(false));
 
     verify(mockSyncConfBuilder).syncMode(ArgumentMatchers.eq(SyncMode.FULL));
 
@@ -275,12 +286,18 @@ public class PantheonCommandTest extends CommandTestAbstract {
             .build();
     verify(mockControllerBuilder)
         .build(
+            any(),
+            rocksDbConfigArgumentCaptor.capture(),
             any(),
             eq(Paths.get("~/pantheondata")),
             eq(networkConfig),
             eq(false),
             any(),
             anyBoolean());
+    assertThat(rocksDbConfigArgumentCaptor.getValue().blockCacheSize())
+        .isEqualTo(512 * 1024 * 1024L);
+    assertThat(rocksDbConfigArgumentCaptor.getValue().compressionPerLevel())
+        .containsExactly(Compression.NONE, Compression.LZ4, Compression.ZSTD);
 
     // TODO: Re-enable as per NC-1057/NC-1681
     // verify(mockSyncConfBuilder).syncMode(ArgumentMatchers.eq(SyncMode.FAST));
@@ -317,7 +334,8 @@ public class PantheonCommandTest extends CommandTestAbstract {
             eq(webSocketConfiguration),
             any());
 
-    verify(mockControllerBuilder).build(any(), any(), any(), eq(false), any(), eq(false));
+    verify(mockControllerBuilder)
+        .build(any(), any(), any(), any(), any(), eq(false), any(), eq(false));
 
     // TODO: Re-enable as per NC-1057/NC-1681
     // verify(mockSyncConfBuilder).syncMode(ArgumentMatchers.eq(SyncMode.FULL));
@@ -335,7 +353,15 @@ public class PantheonCommandTest extends CommandTestAbstract {
     parseCommand("--datadir", path.toString());
 
     verify(mockControllerBuilder)
-        .build(any(), pathArgumentCaptor.capture(), any(), eq(false), any(), anyBoolean());
+        .build(
+            any(),
+            any(),
+            any(),
+            pathArgumentCaptor.capture(),
+            any(),
+            eq(false),
+            any(),
+            anyBoolean());
 
     assertThat(pathArgumentCaptor.getValue()).isEqualByComparingTo(path);
 
@@ -352,7 +378,7 @@ public class PantheonCommandTest extends CommandTestAbstract {
     parseCommand("--genesis", path.toString());
 
     verify(mockControllerBuilder)
-        .build(any(), any(), networkArg.capture(), anyBoolean(), any(), anyBoolean());
+        .build(any(), any(), any(), any(), networkArg.capture(), anyBoolean(), any(), anyBoolean());
 
     assertThat(networkArg.getValue().getGenesisConfig()).isEqualTo(path.toUri());
 
@@ -841,7 +867,7 @@ public class PantheonCommandTest extends CommandTestAbstract {
         ArgumentCaptor.forClass(MiningParameters.class);
 
     verify(mockControllerBuilder)
-        .build(any(), any(), any(), anyBoolean(), miningArg.capture(), anyBoolean());
+        .build(any(), any(), any(), any(), any(), anyBoolean(), miningArg.capture(), anyBoolean());
     assertThat(commandOutput.toString()).isEmpty();
     assertThat(commandErrorOutput.toString()).isEmpty();
     assertThat(miningArg.getValue().isMiningEnabled()).isTrue();
@@ -863,7 +889,7 @@ public class PantheonCommandTest extends CommandTestAbstract {
         ArgumentCaptor.forClass(MiningParameters.class);
 
     verify(mockControllerBuilder)
-        .build(any(), any(), any(), anyBoolean(), miningArg.capture(), anyBoolean());
+        .build(any(), any(), any(), any(), any(), anyBoolean(), miningArg.capture(), anyBoolean());
     assertThat(commandOutput.toString()).isEmpty();
     assertThat(commandErrorOutput.toString()).isEmpty();
     assertThat(miningArg.getValue().getCoinbase()).isEqualTo(Optional.of(requestedCoinbase));
@@ -875,11 +901,138 @@ public class PantheonCommandTest extends CommandTestAbstract {
   @Test
   public void devModeOptionMustBeUsed() throws Exception {
     parseCommand("--dev-mode");
-    verify(mockControllerBuilder).build(any(), any(), any(), anyBoolean(), any(), eq(true));
+    verify(mockControllerBuilder)
+        .build(any(), any(), any(), any(), any(), anyBoolean(), any(), eq(true));
     assertThat(commandOutput.toString()).isEmpty();
     assertThat(commandErrorOutput.toString()).isEmpty();
   }
 
+  @Test
+  public void rocksDbDefaultValuesAreUsed() throws Exception {
+    parseCommand();
+
+    verify(mockControllerBuilder)
+        .build(
+            any(),
+            rocksDbConfigArgumentCaptor.capture(),
+            any(),
+            any(),
+            any(),
+            anyBoolean(),
+            any(),
+            anyBoolean());
+    final RocksDbConfiguration rocksDbConfiguration = rocksDbConfigArgumentCaptor.getValue();
+    assertThat(rocksDbConfiguration.writeAheadLogEnabled()).isTrue();
+    assertThat(rocksDbConfiguration.blockCacheSize())
+        .isEqualTo(RocksDbConfiguration.DEFAULT_BLOCK_CACHE_SIZE);
+    assertThat(rocksDbConfiguration.backgroundJobs())
+        .isEqualTo(RocksDbConfiguration.DEFAULT_BACKGROUND_JOBS);
+    assertThat(rocksDbConfiguration.compressionPerLevel()).isEmpty();
+  }
+
+  @Test
+  public void rocksDbOptionsAreCaptured() throws Exception {
+    parseCommand(
+        "--rocksdb-cache-size-mb=1024",
+        "--rocksdb-bloom-filter-bits=0",
+        "--rocksdb-max-open-files=-1",
+        "--rocksdb-background-jobs=16",
+        "--rocksdb-compression-per-level=none,none,lz4,zstd",
+        "--rocksdb-write-buffer-size-mb=128",
+        "--rocksdb-max-write-buffers=6");
+
+    verify(mockControllerBuilder)
+        .build(
+            any(),
+            rocksDbConfigArgumentCaptor.capture(),
+            any(),
+            any(),
+            any(),
+            anyBoolean(),
+            any(),
+            anyBoolean());
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+    final RocksDbConfiguration rocksDbConfiguration = rocksDbConfigArgumentCaptor.getValue();
+    assertThat(rocksDbConfiguration.blockCacheSize()).isEqualTo(1024 * 1024 * 1024L);
+    assertThat(rocksDbConfiguration.bloomFilterBitsPerKey()).isEqualTo(0);
+    assertThat(rocksDbConfiguration.maxOpenFiles()).isEqualTo(-1);
+    assertThat(rocksDbConfiguration.backgroundJobs()).isEqualTo(16);
+    assertThat(rocksDbConfiguration.compressionPerLevel())
+        .containsExactly(Compression.NONE, Compression.NONE, Compression.LZ4, Compression.ZSTD);
+    assertThat(rocksDbConfiguration.writeBufferSize()).isEqualTo(128 * 1024 * 1024L);
+    assertThat(rocksDbConfiguration.maxWriteBufferNumber()).isEqualTo(6);
+  }
+
+  @Test
+  public void invalidRocksDbOptionMustDisplayError() throws Exception {
+    parseCommand("--rocksdb-background-jobs=0");
+
+    verifyZeroInteractions(mockControllerBuilder);
+    assertThat(commandErrorOutput.toString()).startsWith("Background jobs must be positive.");
+  }
+
+  @Test
+  public void pruningIsDisabledByDefault() throws Exception {
+    parseCommand();
+
+    verify(mockControllerBuilder)
+        .build(
+            any(),
+            any(),
+            prunerConfigArgumentCaptor.capture(),
+            any(),
+            any(),
+            anyBoolean(),
+            any(),
+            anyBoolean());
+    assertThat(prunerConfigArgumentCaptor.getValue().enabled()).isFalse();
+    assertThat(prunerConfigArgumentCaptor.getValue().blocksRetained())
+        .isEqualTo(PrunerConfiguration.DEFAULT_BLOCKS_RETAINED);
+    assertThat(prunerConfigArgumentCaptor.getValue().blockConfirmations())
+        .isEqualTo(PrunerConfiguration.DEFAULT_BLOCK_CONFIRMATIONS);
+  }
+
+  @Test
+  public void pruningOptionsAreCaptured() throws Exception {
+    parseCommand(
+        "--pruning-enabled", "--pruning-blocks-retained=128", "--pruning-block-confirmations=20");
+
+    verify(mockControllerBuilder)
+        .build(
+            any(),
+            any(),
+            prunerConfigArgumentCaptor.capture(),
+            any(),
+            any(),
+            anyBoolean(),
+            any(),
+            anyBoolean());
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+    assertThat(prunerConfigArgumentCaptor.getValue().enabled()).isTrue();
+    assertThat(prunerConfigArgumentCaptor.getValue().blocksRetained()).isEqualTo(128);
+    assertThat(prunerConfigArgumentCaptor.getValue().blockConfirmations()).isEqualTo(20);
+  }
+
+  @Test
+  public void invalidPruningOptionMustDisplayError() throws Exception {
+    parseCommand("--pruning-enabled", "--pruning-blocks-retained=0");
+
+    verifyZeroInteractions(mockControllerBuilder);
+    assertThat(commandErrorOutput.toString()).startsWith("Blocks retained must be positive.");
+  }
+
+  @Test
+  public void pruningBlockConfirmationsMustBeLessThanBlocksRetained() throws Exception {
+    parseCommand(
+        "--pruning-enabled", "--pruning-blocks-retained=10", "--pruning-block-confirmations=10");
+
+    verifyZeroInteractions(mockControllerBuilder);
+    assertThat(commandErrorOutput.toString())
+        .startsWith("Block confirmations must be less than the blocks retained.");
+  }
+
   @Test
   public void rinkebyValuesAreUsed() throws Exception {
     parseCommand("--rinkeby");
@@ -887,7 +1040,7 @@ public class PantheonCommandTest extends CommandTestAbstract {
     final ArgumentCaptor<EthNetworkConfig> networkArg =
         ArgumentCaptor.forClass(EthNetworkConfig.class);
     verify(mockControllerBuilder)
-        .build(any(), any(), networkArg.capture(), anyBoolean(), any(), anyBoolean());
+        .build(any(), any(), any(), any(), networkArg.capture(), anyBoolean(), any(), anyBoolean());
     assertThat(commandOutput.toString()).isEmpty();
     assertThat(commandErrorOutput.toString()).isEmpty();
     assertThat(networkArg.getValue()).isEqualTo(EthNetworkConfig.rinkeby());
@@ -909,7 +1062,7 @@ public class PantheonCommandTest extends CommandTestAbstract {
     final ArgumentCaptor<EthNetworkConfig> networkArg =
         ArgumentCaptor.forClass(EthNetworkConfig.class);
     verify(mockControllerBuilder)
-        .build(any(), any(), networkArg.capture(), anyBoolean(), any(), anyBoolean());
+        .build(any(), any(), any(), any(), networkArg.capture(), anyBoolean(), any(), anyBoolean());
     assertThat(commandOutput.toString()).isEmpty();
     assertThat(commandErrorOutput.toString()).isEmpty();
     assertThat(networkArg.getValue().getGenesisConfig()).isEqualTo(path.toUri());
@@ -20,6 +20,8 @@ import tech.pegasys.pantheon.controller.PantheonController;
 import tech.pegasys.pantheon.crypto.SECP256K1.KeyPair;
 import tech.pegasys.pantheon.ethereum.core.MiningParametersTestBuilder;
 import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
 import tech.pegasys.pantheon.testutil.BlockTestUtil;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
@@ -70,6 +72,8 @@ public final class BlockImporterTest {
     final PantheonController<?> controller =
         PantheonController.fromConfig(
             SynchronizerConfiguration.builder().build(),
+            RocksDbConfiguration.builder().build(),
+            PrunerConfiguration.builder().build(),
             config,
             target,
             false,
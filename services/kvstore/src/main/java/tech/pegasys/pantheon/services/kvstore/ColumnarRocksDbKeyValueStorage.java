@@ -0,0 +1,274 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.services.kvstore;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage.Entry;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage.StorageException;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+/**
+ * RocksDB backed {@link SegmentedKeyValueStorage} that stores each segment in its own column
+ * family. Every column family gets table options chosen from the segment's {@link
+ * SegmentedKeyValueStorage.AccessPattern}, so unrelated data no longer shares one LSM tree and
+ * compaction schedule. The block cache is shared and sized by the {@link RocksDbConfiguration}.
+ */
+public class ColumnarRocksDbKeyValueStorage
+    implements SegmentedKeyValueStorage<ColumnFamilyHandle>, Closeable {
+
+  private static final Logger LOG = LogManager.getLogger();
+  private static final int MIGRATION_BATCH_SIZE = 10_000;
+
+  private final RocksDbOptionsFactory optionsFactory;
+  private final WriteOptions writeOptions;
+  private final RocksDB db;
+  private final ColumnFamilyHandle defaultHandle;
+  private final Map<String, ColumnFamilyHandle> columnHandlesByName = new HashMap<>();
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  static {
+    RocksDB.loadLibrary();
+  }
+
+  public static ColumnarRocksDbKeyValueStorage create(
+      final Path storageDirectory, final List<SegmentIdentifier> segments) throws StorageException {
+    return create(storageDirectory, segments, RocksDbConfiguration.builder().build());
+  }
+
+  public static ColumnarRocksDbKeyValueStorage create(
+      final Path storageDirectory,
+      final List<SegmentIdentifier> segments,
+      final RocksDbConfiguration configuration)
+      throws StorageException {
+    return new ColumnarRocksDbKeyValueStorage(storageDirectory, segments, configuration);
+  }
+
+  private ColumnarRocksDbKeyValueStorage(
+      final Path storageDirectory,
+      final List<SegmentIdentifier> segments,
+      final RocksDbConfiguration configuration) {
+    optionsFactory = new RocksDbOptionsFactory(configuration);
+    try {
+      final DBOptions options = optionsFactory.createDbOptions();
+      writeOptions = optionsFactory.createWriteOptions();
+
+      final List<ColumnFamilyDescriptor> descriptors = new ArrayList<>(segments.size() + 1);
+      descriptors.add(
+          new ColumnFamilyDescriptor(
+              RocksDB.DEFAULT_COLUMN_FAMILY, optionsFactory.track(new ColumnFamilyOptions())));
+      for (final SegmentIdentifier segment : segments) {
+        descriptors.add(
+            new ColumnFamilyDescriptor(
+                segment.getName().getBytes(UTF_8),
+                optionsFactory.createColumnFamilyOptions(segment.getAccessPattern())));
+      }
+
+      final List<ColumnFamilyHandle> handles = new ArrayList<>(descriptors.size());
+      db = RocksDB.open(options, storageDirectory.toString(), descriptors, handles);
+      defaultHandle = handles.get(0);
+      for (int i = 0; i < handles.size(); i++) {
+        columnHandlesByName.put(new String(descriptors.get(i).getName(), UTF_8), handles.get(i));
+      }
+    } catch (final RocksDBException e) {
+      optionsFactory.close();
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public ColumnFamilyHandle getSegmentIdentifierByName(final SegmentIdentifier segment) {
+    final ColumnFamilyHandle handle = columnHandlesByName.get(segment.getName());
+    if (handle == null) {
+      throw new IllegalArgumentException("Unknown segment: " + segment.getName());
+    }
+    return handle;
+  }
+
+  @Override
+  public Optional<BytesValue> get(final ColumnFamilyHandle segment, final BytesValue key)
+      throws StorageException {
+    throwIfClosed();
+    try {
+      return Optional.ofNullable(db.get(segment, key.extractArray())).map(BytesValue::wrap);
+    } catch (final RocksDBException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public List<Optional<BytesValue>> getAll(
+      final ColumnFamilyHandle segment, final List<BytesValue> keys) throws StorageException {
+    throwIfClosed();
+    if (keys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<byte[]> rawKeys = keys.stream().map(BytesValue::extractArray).collect(toList());
+    try {
+      return RocksDbKeyValueStorage.toValues(
+          rawKeys, db.multiGet(Collections.nCopies(rawKeys.size(), segment), rawKeys));
+    } catch (final RocksDBException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public void put(final ColumnFamilyHandle segment, final BytesValue key, final BytesValue value)
+      throws StorageException {
+    throwIfClosed();
+    try {
+      db.put(segment, writeOptions, key.extractArray(), value.extractArray());
+    } catch (final RocksDBException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public void remove(final ColumnFamilyHandle segment, final BytesValue key)
+      throws StorageException {
+    throwIfClosed();
+    try {
+      db.delete(segment, writeOptions, key.extractArray());
+    } catch (final RocksDBException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public Transaction<ColumnFamilyHandle> getStartTransaction() throws StorageException {
+    throwIfClosed();
+    return new RocksDbTransaction();
+  }
+
+  @Override
+  public Stream<Entry> entries(final ColumnFamilyHandle segment) {
+    throwIfClosed();
+    final RocksIterator rocksIt = db.newIterator(segment);
+    rocksIt.seekToFirst();
+    return new RocksDbEntryIterator(rocksIt).toStream();
+  }
+
+  /**
+   * Moves the entries in the default column family into segments. Databases created before data was
+   * split into segments keep everything in the default column family, where it would otherwise be
+   * ignored.
+   *
+   * @param segmentForKey chooses the segment an entry belongs in from its key
+   * @return the number of entries moved
+   */
+  public long migrateDefaultColumnFamily(
+      final Function<BytesValue, SegmentIdentifier> segmentForKey) throws StorageException {
+    throwIfClosed();
+    long migrated = 0;
+    try (final RocksIterator rocksIt = db.newIterator(defaultHandle)) {
+      rocksIt.seekToFirst();
+      while (rocksIt.isValid()) {
+        try (final WriteBatch batch = new WriteBatch()) {
+          for (int i = 0; i < MIGRATION_BATCH_SIZE && rocksIt.isValid(); i++) {
+            final byte[] key = rocksIt.key();
+            final ColumnFamilyHandle segment =
+                getSegmentIdentifierByName(segmentForKey.apply(BytesValue.wrap(key)));
+            batch.put(segment, key, rocksIt.value());
+            batch.delete(defaultHandle, key);
+            rocksIt.next();
+            migrated++;
+          }
+          db.write(writeOptions, batch);
+        }
+      }
+    } catch (final RocksDBException e) {
+      throw new StorageException(e);
+    }
+    return migrated;
+  }
+
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      columnHandlesByName.values().forEach(ColumnFamilyHandle::close);
+      db.close();
+      optionsFactory.close();
+    }
+  }
+
+  private void throwIfClosed() {
+    if (closed.get()) {
+      LOG.error("Attempting to use a closed ColumnarRocksDbKeyValueStorage");
+      throw new IllegalStateException("Storage has been closed");
+    }
+  }
+
+  private class RocksDbTransaction extends AbstractTransaction<ColumnFamilyHandle> {
+    private final WriteBatch innerTx = new WriteBatch();
+
+    @Override
+    protected void doPut(
+        final ColumnFamilyHandle segment, final BytesValue key, final BytesValue value) {
+      try {
+        innerTx.put(segment, key.extractArray(), value.extractArray());
+      } catch (final RocksDBException e) {
+        throw new StorageException(e);
+      }
+    }
+
+    @Override
+    protected void doRemove(final ColumnFamilyHandle segment, final BytesValue key) {
+      try {
+        innerTx.delete(segment, key.extractArray());
+      } catch (final RocksDBException e) {
+        throw new StorageException(e);
+      }
+    }
+
+    @Override
+    protected void doCommit() throws StorageException {
+      try {
+        db.write(writeOptions, innerTx);
+      } catch (final RocksDBException e) {
+        throw new StorageException(e);
+      } finally {
+        innerTx.close();
+      }
+    }
+
+    @Override
+    protected void doRollback() {
+      innerTx.close();
+    }
+  }
+}
@@ -14,8 +14,10 @@ package tech.pegasys.pantheon.services.kvstore;
 
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -41,6 +43,21 @@ public class InMemoryKeyValueStorage implements KeyValueStorage {
     }
   }
 
+  @Override
+  public List<Optional<BytesValue>> getAll(final List<BytesValue> keys) {
+    final Lock lock = rwLock.readLock();
+    try {
+      lock.lock();
+      final List<Optional<BytesValue>> values = new ArrayList<>(keys.size());
+      for (final BytesValue key : keys) {
+        values.add(Optional.ofNullable(hashValueStore.get(key)));
+      }
+      return values;
+    } finally {
+      lock.unlock();
+    }
+  }
+
   @Override
   public void put(final BytesValue key, final BytesValue value) {
     final Lock lock = rwLock.writeLock();
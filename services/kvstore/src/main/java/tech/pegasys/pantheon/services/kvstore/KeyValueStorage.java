@@ -17,6 +17,7 @@ import static com.google.common.base.Preconditions.checkState;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.io.Closeable;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -30,6 +31,15 @@ public interface KeyValueStorage extends Closeable {
    */
   Optional<BytesValue> get(BytesValue key) throws StorageException;
 
+  /**
+   * Looks up several keys at once, which backends can serve with fewer round trips than a {@link
+   * #get(BytesValue)} per key.
+   *
+   * @param keys Indexes into persistent data repository.
+   * @return The values persisted at each key index, in the same order as the keys.
+   */
+  List<Optional<BytesValue>> getAll(List<BytesValue> keys) throws StorageException;
+
   /**
    * @param key Index into persistent data repository.
    * @param value The value persisted at the key index.
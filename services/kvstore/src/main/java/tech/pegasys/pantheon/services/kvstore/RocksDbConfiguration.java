@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.services.kvstore;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+public class RocksDbConfiguration {
+
+  public static final long DEFAULT_BLOCK_CACHE_SIZE = 256 * 1024 * 1024L;
+  public static final int DEFAULT_BLOOM_FILTER_BITS_PER_KEY = 10;
+  public static final int DEFAULT_MAX_OPEN_FILES = 1024;
+  public static final int DEFAULT_BACKGROUND_JOBS =
+      Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+  public static final long DEFAULT_WRITE_BUFFER_SIZE = 64 * 1024 * 1024L;
+  public static final int DEFAULT_MAX_WRITE_BUFFER_NUMBER = 4;
+
+  private final boolean writeAheadLogEnabled;
+  private final long blockCacheSize;
+  private final int bloomFilterBitsPerKey;
+  private final int maxOpenFiles;
+  private final int backgroundJobs;
+  private final List<Compression> compressionPerLevel;
+  private final long writeBufferSize;
+  private final int maxWriteBufferNumber;
+
+  private RocksDbConfiguration(
+      final boolean writeAheadLogEnabled,
+      final long blockCacheSize,
+      final int bloomFilterBitsPerKey,
+      final int maxOpenFiles,
+      final int backgroundJobs,
+      final List<Compression> compressionPerLevel,
+      final long writeBufferSize,
+      final int maxWriteBufferNumber) {
+    this.writeAheadLogEnabled = writeAheadLogEnabled;
+    this.blockCacheSize = blockCacheSize;
+    this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+    this.maxOpenFiles = maxOpenFiles;
+    this.backgroundJobs = backgroundJobs;
+    this.compressionPerLevel = compressionPerLevel;
+    this.writeBufferSize = writeBufferSize;
+    this.maxWriteBufferNumber = maxWriteBufferNumber;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Whether writes go through the write-ahead log. Disabling it speeds up bulk imports, but any
+   * writes not yet flushed to disk are lost if the process does not shut down cleanly.
+   *
+   * @return true if the write-ahead log is used
+   */
+  public boolean writeAheadLogEnabled() {
+    return writeAheadLogEnabled;
+  }
+
+  /**
+   * The size in bytes of the block cache. A single cache is shared by everything in the database.
+   *
+   * @return the block cache size in bytes
+   */
+  public long blockCacheSize() {
+    return blockCacheSize;
+  }
+
+  /**
+   * Bits per key used by the bloom filters of data read by point lookups, 0 disables them.
+   *
+   * @return the number of bloom filter bits per key
+   */
+  public int bloomFilterBitsPerKey() {
+    return bloomFilterBitsPerKey;
+  }
+
+  /**
+   * The number of files RocksDB keeps open, -1 means no limit.
+   *
+   * @return the maximum number of open files
+   */
+  public int maxOpenFiles() {
+    return maxOpenFiles;
+  }
+
+  /**
+   * The number of concurrent flush and compaction jobs.
+   *
+   * @return the number of background jobs
+   */
+  public int backgroundJobs() {
+    return backgroundJobs;
+  }
+
+  /**
+   * The compression to use for each level of the LSM tree, starting at level 0. Levels beyond the
+   * end of the list use its last entry. An empty list keeps the compression chosen for each
+   * segment's access pattern.
+   *
+   * @return the compression for each level
+   */
+  public List<Compression> compressionPerLevel() {
+    return compressionPerLevel;
+  }
+
+  /**
+   * The size in bytes of a single memtable.
+   *
+   * @return the write buffer size in bytes
+   */
+  public long writeBufferSize() {
+    return writeBufferSize;
+  }
+
+  /**
+   * The number of memtables that can be filled before writes stall waiting for a flush.
+   *
+   * @return the maximum number of write buffers
+   */
+  public int maxWriteBufferNumber() {
+    return maxWriteBufferNumber;
+  }
+
+  public enum Compression {
+    NONE,
+    SNAPPY,
+    ZLIB,
+    LZ4,
+    LZ4HC,
+    ZSTD;
+
+    public static Compression fromString(final String str) {
+      for (final Compression compression : Compression.values()) {
+        if (compression.name().equalsIgnoreCase(str)) {
+          return compression;
+        }
+      }
+      throw new IllegalArgumentException("Unknown compression: " + str);
+    }
+  }
+
+  public static class Builder {
+    private boolean writeAheadLogEnabled = true;
+    private long blockCacheSize = DEFAULT_BLOCK_CACHE_SIZE;
+    private int bloomFilterBitsPerKey = DEFAULT_BLOOM_FILTER_BITS_PER_KEY;
+    private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+    private int backgroundJobs = DEFAULT_BACKGROUND_JOBS;
+    private List<Compression> compressionPerLevel = Collections.emptyList();
+    private long writeBufferSize = DEFAULT_WRITE_BUFFER_SIZE;
+    private int maxWriteBufferNumber = DEFAULT_MAX_WRITE_BUFFER_NUMBER;
+
+    public Builder writeAheadLogEnabled(final boolean writeAheadLogEnabled) {
+      this.writeAheadLogEnabled = writeAheadLogEnabled;
+      return this;
+    }
+
+    public Builder blockCacheSize(final long blockCacheSize) {
+      checkArgument(blockCacheSize > 0, "Block cache size must be positive.");
+      this.blockCacheSize = blockCacheSize;
+      return this;
+    }
+
+    public Builder bloomFilterBitsPerKey(final int bloomFilterBitsPerKey) {
+      checkArgument(bloomFilterBitsPerKey >= 0, "Bloom filter bits per key must not be negative.");
+      this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+      return this;
+    }
+
+    public Builder maxOpenFiles(final int maxOpenFiles) {
+      checkArgument(
+          maxOpenFiles == -1 || maxOpenFiles > 0, "Max open files must be positive or -1.");
+      this.maxOpenFiles = maxOpenFiles;
+      return this;
+    }
+
+    public Builder backgroundJobs(final int backgroundJobs) {
+      checkArgument(backgroundJobs > 0, "Background jobs must be positive.");
+      this.backgroundJobs = backgroundJobs;
+      return this;
+    }
+
+    public Builder compressionPerLevel(final List<Compression> compressionPerLevel) {
+      this.compressionPerLevel = ImmutableList.copyOf(compressionPerLevel);
+      return this;
+    }
+
+    public Builder writeBufferSize(final long writeBufferSize) {
+      checkArgument(writeBufferSize > 0, "Write buffer size must be positive.");
+      this.writeBufferSize = writeBufferSize;
+      return this;
+    }
+
+    public Builder maxWriteBufferNumber(final int maxWriteBufferNumber) {
+      checkArgument(maxWriteBufferNumber > 1, "Max write buffer number must be at least 2.");
+      this.maxWriteBufferNumber = maxWriteBufferNumber;
+      return this;
+    }
+
+    public RocksDbConfiguration build() {
+      return new RocksDbConfiguration(
+          writeAheadLogEnabled,
+          blockCacheSize,
+          bloomFilterBitsPerKey,
+          maxOpenFiles,
+          backgroundJobs,
+          compressionPerLevel,
+          writeBufferSize,
+          maxWriteBufferNumber);
+    }
+  }
+}
@@ -12,18 +12,20 @@
  */
 package tech.pegasys.pantheon.services.kvstore;
 
+import static java.util.stream.Collectors.toList;
+
+import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage.AccessPattern;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.io.Closeable;
 import java.nio.file.Path;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Spliterator;
-import java.util.Spliterators;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -31,17 +33,17 @@ import org.rocksdb.Options;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
-import org.rocksdb.TransactionDB;
-import org.rocksdb.TransactionDBOptions;
+import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 
 public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
 
   private static final Logger LOG = LogManager.getLogger();
 
+  private final RocksDbOptionsFactory optionsFactory;
   private final Options options;
-  private final TransactionDBOptions txOptions;
-  private final TransactionDB db;
+  private final WriteOptions writeOptions;
+  private final RocksDB db;
   private final AtomicBoolean closed = new AtomicBoolean(false);
 
   static {
@@ -49,15 +51,29 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
   }
 
   public static KeyValueStorage create(final Path storageDirectory) throws StorageException {
-    return new RocksDbKeyValueStorage(storageDirectory);
+    return create(storageDirectory, RocksDbConfiguration.builder().build());
+  }
+
+  public static KeyValueStorage create(
+      final Path storageDirectory, final RocksDbConfiguration configuration)
+      throws StorageException {
+    return new RocksDbKeyValueStorage(storageDirectory, configuration);
   }
 
-  private RocksDbKeyValueStorage(final Path storageDirectory) {
+  private RocksDbKeyValueStorage(
+      final Path storageDirectory, final RocksDbConfiguration configuration) {
+    optionsFactory = new RocksDbOptionsFactory(configuration);
+    // Everything shares one key space here, and world state hashes dominate it.
+    options =
+        new Options(
+            optionsFactory.createDbOptions(),
+            optionsFactory.createColumnFamilyOptions(AccessPattern.POINT_LOOKUP));
     try {
-      options = new Options().setCreateIfMissing(true);
-      txOptions = new TransactionDBOptions();
-      db = TransactionDB.open(options, txOptions, storageDirectory.toString());
+      writeOptions = optionsFactory.createWriteOptions();
+      db = RocksDB.open(options, storageDirectory.toString());
     } catch (final RocksDBException e) {
+      options.close();
+      optionsFactory.close();
       throw new StorageException(e);
     }
   }
@@ -72,11 +88,38 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
     }
   }
 
+  @Override
+  public List<Optional<BytesValue>> getAll(final List<BytesValue> keys) throws StorageException {
+    throwIfClosed();
+    if (keys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<byte[]> rawKeys = keys.stream().map(BytesValue::extractArray).collect(toList());
+    try {
+      return toValues(rawKeys, db.multiGet(rawKeys));
+    } catch (final RocksDBException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  /**
+   * Orders the result of a RocksDB multi-get by its keys. The result is keyed by the very arrays
+   * that were passed in, and omits keys without a value.
+   */
+  static List<Optional<BytesValue>> toValues(
+      final List<byte[]> rawKeys, final Map<byte[], byte[]> rawValues) {
+    final List<Optional<BytesValue>> values = new ArrayList<>(rawKeys.size());
+    for (final byte[] rawKey : rawKeys) {
+      values.add(Optional.ofNullable(rawValues.get(rawKey)).map(BytesValue::wrap));
+    }
+    return values;
+  }
+
   @Override
   public void put(final BytesValue key, final BytesValue value) throws StorageException {
     throwIfClosed();
     try {
-      db.put(key.extractArray(), value.extractArray());
+      db.put(writeOptions, key.extractArray(), value.extractArray());
     } catch (final RocksDBException e) {
       throw new StorageException(e);
     }
@@ -86,7 +129,7 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
   public void remove(final BytesValue key) throws StorageException {
     throwIfClosed();
     try {
-      db.delete(key.extractArray());
+      db.delete(writeOptions, key.extractArray());
     } catch (final RocksDBException e) {
       throw new StorageException(e);
     }
@@ -95,8 +138,7 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
   @Override
   public Transaction getStartTransaction() throws StorageException {
     throwIfClosed();
-    final WriteOptions options = new WriteOptions();
-    return new RocksDbTransaction(db.beginTransaction(options), options);
+    return new RocksDbTransaction();
   }
 
   @Override
@@ -110,9 +152,9 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
   @Override
   public void close() {
     if (closed.compareAndSet(false, true)) {
-      txOptions.close();
-      options.close();
       db.close();
+      options.close();
+      optionsFactory.close();
     }
   }
 
@@ -124,68 +166,11 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
   }
 
   /**
-   * Iterates over rocksDB key-value entries. Reads from a db snapshot implicitly taken when the
-   * RocksIterator passed to the constructor was created.
-   *
-   * <p>Implements {@link AutoCloseable} and can be used with try-with-resources construct. When
-   * transformed to a stream (see {@link #toStream}), iterator is automatically closed when the
-   * stream is closed.
+   * Buffers updates in a {@link WriteBatch} which is applied atomically on commit. Nothing is
+   * locked or read back before the commit, so concurrent transactions never block each other.
    */
-  private static class RocksDbEntryIterator implements Iterator<Entry>, AutoCloseable {
-    private final RocksIterator rocksIt;
-    private volatile boolean closed = false;
-
-    RocksDbEntryIterator(final RocksIterator rocksIt) {
-      this.rocksIt = rocksIt;
-    }
-
-    @Override
-    public boolean hasNext() {
-      return rocksIt.isValid();
-    }
-
-    @Override
-    public Entry next() {
-      if (closed) {
-        throw new IllegalStateException("Attempt to read from a closed RocksDbEntryIterator.");
-      }
-      try {
-        rocksIt.status();
-      } catch (final RocksDBException e) {
-        LOG.error("RocksDbEntryIterator encountered a problem while iterating.", e);
-      }
-      if (!hasNext()) {
-        throw new NoSuchElementException();
-      }
-      final Entry entry =
-          Entry.create(BytesValue.wrap(rocksIt.key()), BytesValue.wrap(rocksIt.value()));
-      rocksIt.next();
-      return entry;
-    }
-
-    public Stream<Entry> toStream() {
-      final Spliterator<Entry> split =
-          Spliterators.spliteratorUnknownSize(
-              this, Spliterator.IMMUTABLE | Spliterator.DISTINCT | Spliterator.NONNULL);
-
-      return StreamSupport.stream(split, false).onClose(this::close);
-    }
-
-    @Override
-    public void close() {
-      rocksIt.close();
-      closed = true;
-    }
-  }
-
-  private static class RocksDbTransaction extends AbstractTransaction {
-    private final org.rocksdb.Transaction innerTx;
-    private final WriteOptions options;
-
-    RocksDbTransaction(final org.rocksdb.Transaction innerTx, final WriteOptions options) {
-      this.innerTx = innerTx;
-      this.options = options;
-    }
+  private class RocksDbTransaction extends AbstractTransaction {
+    private final WriteBatch innerTx = new WriteBatch();
 
     @Override
     protected void doPut(final BytesValue key, final BytesValue value) {
@@ -208,28 +193,17 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
     @Override
     protected void doCommit() throws StorageException {
       try {
-        innerTx.commit();
+        db.write(writeOptions, innerTx);
       } catch (final RocksDBException e) {
         throw new StorageException(e);
       } finally {
-        close();
+        innerTx.close();
       }
     }
 
     @Override
     protected void doRollback() {
-      try {
-        innerTx.rollback();
-      } catch (final RocksDBException e) {
-        throw new StorageException(e);
-      } finally {
-        close();
-      }
-    }
-
-    private void close() {
       innerTx.close();
-      options.close();
     }
   }
 }
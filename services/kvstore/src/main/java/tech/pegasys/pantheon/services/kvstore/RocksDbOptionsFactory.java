@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.services.kvstore;
+
+import static java.util.stream.Collectors.toList;
+
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration.Compression;
+import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage.AccessPattern;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.rocksdb.AbstractNativeReference;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.DBOptions;
+import org.rocksdb.LRUCache;
+import org.rocksdb.WriteOptions;
+
+/**
+ * Translates a {@link RocksDbConfiguration} into native RocksDB options. Every native object it
+ * creates is owned by the factory and released by {@link #close()}, which must only be called once
+ * the database using them has been closed.
+ */
+class RocksDbOptionsFactory implements AutoCloseable {
+
+  private static final long POINT_LOOKUP_BLOCK_SIZE = 4 * 1024L;
+  private static final long SEQUENTIAL_BLOCK_SIZE = 16 * 1024L;
+
+  private final RocksDbConfiguration configuration;
+  private final List<AbstractNativeReference> resources = new ArrayList<>();
+  private final Cache blockCache;
+
+  RocksDbOptionsFactory(final RocksDbConfiguration configuration) {
+    this.configuration = configuration;
+    this.blockCache = track(new LRUCache(configuration.blockCacheSize()));
+  }
+
+  DBOptions createDbOptions() {
+    return track(new DBOptions())
+        .setCreateIfMissing(true)
+        .setCreateMissingColumnFamilies(true)
+        .setMaxOpenFiles(configuration.maxOpenFiles())
+        .setMaxBackgroundJobs(configuration.backgroundJobs());
+  }
+
+  WriteOptions createWriteOptions() {
+    return track(new WriteOptions()).setDisableWAL(!configuration.writeAheadLogEnabled());
+  }
+
+  ColumnFamilyOptions createColumnFamilyOptions(final AccessPattern accessPattern) {
+    final BlockBasedTableConfig tableConfig = new BlockBasedTableConfig().setBlockCache(blockCache);
+    final ColumnFamilyOptions columnOptions =
+        track(new ColumnFamilyOptions())
+            .setLevelCompactionDynamicLevelBytes(true)
+            .setWriteBufferSize(configuration.writeBufferSize())
+            .setMaxWriteBufferNumber(configuration.maxWriteBufferNumber());
+    switch (accessPattern) {
+      case POINT_LOOKUP:
+        // Keys are hashes: bloom filters avoid touching levels that can't hold the key, and the
+        // values are mostly hashes too, so compressing them only costs CPU. The filters are kept
+        // on the last level as well, as looking up missing keys is common, e.g. during fast sync.
+        tableConfig
+            .setBlockSize(POINT_LOOKUP_BLOCK_SIZE)
+            .setCacheIndexAndFilterBlocks(true)
+            .setPinL0FilterAndIndexBlocksInCache(true);
+        if (configuration.bloomFilterBitsPerKey() > 0) {
+          tableConfig.setFilter(
+              track(new BloomFilter(configuration.bloomFilterBitsPerKey(), false)));
+        }
+        columnOptions.setCompressionType(CompressionType.NO_COMPRESSION);
+        break;
+      case SEQUENTIAL:
+        tableConfig.setBlockSize(SEQUENTIAL_BLOCK_SIZE);
+        columnOptions.setCompressionType(CompressionType.LZ4_COMPRESSION);
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported access pattern: " + accessPattern);
+    }
+    if (!configuration.compressionPerLevel().isEmpty()) {
+      columnOptions.setCompressionPerLevel(
+          configuration
+              .compressionPerLevel()
+              .stream()
+              .map(RocksDbOptionsFactory::toCompressionType)
+              .collect(toList()));
+    }
+    columnOptions.setTableFormatConfig(tableConfig);
+    return columnOptions;
+  }
+
+  private static CompressionType toCompressionType(final Compression compression) {
+    switch (compression) {
+      case NONE:
+        return CompressionType.NO_COMPRESSION;
+      case SNAPPY:
+        return CompressionType.SNAPPY_COMPRESSION;
+      case ZLIB:
+        return CompressionType.ZLIB_COMPRESSION;
+      case LZ4:
+        return CompressionType.LZ4_COMPRESSION;
+      case LZ4HC:
+        return CompressionType.LZ4HC_COMPRESSION;
+      case ZSTD:
+        return CompressionType.ZSTD_COMPRESSION;
+      default:
+        throw new IllegalArgumentException("Unsupported compression: " + compression);
+    }
+  }
+
+  <T extends AbstractNativeReference> T track(final T resource) {
+    resources.add(resource);
+    return resource;
+  }
+
+  @Override
+  public void close() {
+    resources.forEach(AbstractNativeReference::close);
+    resources.clear();
+  }
+}
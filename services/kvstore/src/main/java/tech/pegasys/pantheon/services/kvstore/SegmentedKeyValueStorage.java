@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.services.kvstore;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage.Entry;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage.StorageException;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Service provided by pantheon to facilitate persistent data storage split into independent
+ * segments. Each segment has its own key space and may be tuned independently by the backing store.
+ *
+ * @param <S> the segment identifier type
+ */
+public interface SegmentedKeyValueStorage<S> extends Closeable {
+
+  /**
+   * Resolves the backend specific handle for the given segment.
+   *
+   * @param segment The segment to resolve.
+   * @return The handle used to address the segment in other calls.
+   */
+  S getSegmentIdentifierByName(SegmentIdentifier segment);
+
+  /**
+   * @param segment The segment to read from.
+   * @param key Index into persistent data repository.
+   * @return The value persisted at the key index.
+   */
+  Optional<BytesValue> get(S segment, BytesValue key) throws StorageException;
+
+  /**
+   * @param segment The segment to read from.
+   * @param keys Indexes into persistent data repository.
+   * @return The values persisted at each key index, in the same order as the keys.
+   */
+  List<Optional<BytesValue>> getAll(S segment, List<BytesValue> keys) throws StorageException;
+
+  /**
+   * @param segment The segment to write to.
+   * @param key Index into persistent data repository.
+   * @param value The value persisted at the key index.
+   */
+  void put(S segment, BytesValue key, BytesValue value) throws StorageException;
+
+  /**
+   * Remove the data corresponding to the given key.
+   *
+   * @param segment The segment to remove from.
+   * @param key Index into persistent data repository.
+   */
+  void remove(S segment, BytesValue key) throws StorageException;
+
+  /**
+   * Begins a transaction. The transaction may span multiple segments and is committed atomically.
+   *
+   * @return An object representing the transaction.
+   */
+  Transaction<S> getStartTransaction() throws StorageException;
+
+  /**
+   * Stream all key-value pairs stored in a segment.
+   *
+   * @param segment The segment to stream.
+   * @return A stream of the contained key-value pairs.
+   */
+  Stream<Entry> entries(S segment);
+
+  /** Names a segment and describes how it is accessed so backends can tune its storage. */
+  interface SegmentIdentifier {
+
+    String getName();
+
+    AccessPattern getAccessPattern();
+  }
+
+  enum AccessPattern {
+    /** Keys are effectively random, such as hashes, and are read one at a time. */
+    POINT_LOOKUP,
+    /** Data is mostly appended and read back in key order. */
+    SEQUENTIAL
+  }
+
+  /**
+   * Represents a set of changes across one or more segments to be committed atomically. A single
+   * transaction is not thread-safe, but multiple transactions can execute concurrently.
+   *
+   * @param <S> the segment identifier type
+   */
+  interface Transaction<S> {
+
+    void put(S segment, BytesValue key, BytesValue value);
+
+    void remove(S segment, BytesValue key);
+
+    void commit() throws StorageException;
+
+    void rollback();
+  }
+
+  abstract class AbstractTransaction<S> implements Transaction<S> {
+
+    private boolean active = true;
+
+    @Override
+    public final void put(final S segment, final BytesValue key, final BytesValue value) {
+      checkState(active, "Cannot invoke put() on a completed transaction.");
+      doPut(segment, key, value);
+    }
+
+    @Override
+    public final void remove(final S segment, final BytesValue key) {
+      checkState(active, "Cannot invoke remove() on a completed transaction.");
+      doRemove(segment, key);
+    }
+
+    @Override
+    public final void commit() throws StorageException {
+      checkState(active, "Cannot commit a completed transaction.");
+      active = false;
+      doCommit();
+    }
+
+    @Override
+    public final void rollback() {
+      checkState(active, "Cannot rollback a completed transaction.");
+      active = false;
+      doRollback();
+    }
+
+    protected abstract void doPut(S segment, BytesValue key, BytesValue value);
+
+    protected abstract void doRemove(S segment, BytesValue key);
+
+    protected abstract void doCommit() throws StorageException;
+
+    protected abstract void doRollback();
+  }
+}
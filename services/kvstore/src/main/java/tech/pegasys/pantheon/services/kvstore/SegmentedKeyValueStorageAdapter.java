@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.services.kvstore;
+
+import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage.SegmentIdentifier;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/** Exposes a single segment of a {@link SegmentedKeyValueStorage} as a {@link KeyValueStorage}. */
+public class SegmentedKeyValueStorageAdapter<S> implements KeyValueStorage {
+
+  private final S segmentHandle;
+  private final SegmentedKeyValueStorage<S> storage;
+
+  public SegmentedKeyValueStorageAdapter(
+      final SegmentIdentifier segment, final SegmentedKeyValueStorage<S> storage) {
+    this.segmentHandle = storage.getSegmentIdentifierByName(segment);
+    this.storage = storage;
+  }
+
+  @Override
+  public Optional<BytesValue> get(final BytesValue key) throws StorageException {
+    return storage.get(segmentHandle, key);
+  }
+
+  @Override
+  public List<Optional<BytesValue>> getAll(final List<BytesValue> keys) throws StorageException {
+    return storage.getAll(segmentHandle, keys);
+  }
+
+  @Override
+  public void put(final BytesValue key, final BytesValue value) throws StorageException {
+    storage.put(segmentHandle, key, value);
+  }
+
+  @Override
+  public void remove(final BytesValue key) throws StorageException {
+    storage.remove(segmentHandle, key);
+  }
+
+  @Override
+  public Transaction getStartTransaction() throws StorageException {
+    final SegmentedKeyValueStorage.Transaction<S> transaction = storage.getStartTransaction();
+    return new AbstractTransaction() {
+
+      @Override
+      protected void doPut(final BytesValue key, final BytesValue value) {
+        transaction.put(segmentHandle, key, value);
+      }
+
+      @Override
+      protected void doRemove(final BytesValue key) {
+        transaction.remove(segmentHandle, key);
+      }
+
+      @Override
+      protected void doCommit() throws StorageException {
+        transaction.commit();
+      }
+
+      @Override
+      protected void doRollback() {
+        transaction.rollback();
+      }
+    };
+  }
+
+  @Override
+  public Stream<Entry> entries() {
+    return storage.entries(segmentHandle);
+  }
+
+  @Override
+  public void close() throws IOException {
+    storage.close();
+  }
+}
@@ -23,6 +23,7 @@ import tech.pegasys.pantheon.util.bytes.BytesValues;
 
 import java.io.Closeable;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
@@ -61,6 +62,34 @@ public abstract class AbstractKeyValueStorageTest {
         Optional.of(BytesValue.fromHexString("0DEF")), store.get(BytesValue.fromHexString("0F")));
   }
 
+  @Test
+  public void getAll() throws Exception {
+    final KeyValueStorage store = createStore();
+    store.put(BytesValue.fromHexString("01"), BytesValue.fromHexString("0ABC"));
+    store.put(BytesValue.fromHexString("03"), BytesValue.fromHexString("0DEF"));
+
+    final List<Optional<BytesValue>> values =
+        store.getAll(
+            Arrays.asList(
+                BytesValue.fromHexString("03"),
+                BytesValue.fromHexString("02"),
+                BytesValue.fromHexString("01"),
+                BytesValue.fromHexString("03")));
+    assertEquals(
+        Arrays.asList(
+            Optional.of(BytesValue.fromHexString("0DEF")),
+            Optional.empty(),
+            Optional.of(BytesValue.fromHexString("0ABC")),
+            Optional.of(BytesValue.fromHexString("0DEF"))),
+        values);
+  }
+
+  @Test
+  public void getAllWithoutKeys() throws Exception {
+    final KeyValueStorage store = createStore();
+    assertEquals(Collections.emptyList(), store.getAll(Collections.emptyList()));
+  }
+
   @Test
   public void removeExisting() throws Exception {
     final KeyValueStorage store = createStore();
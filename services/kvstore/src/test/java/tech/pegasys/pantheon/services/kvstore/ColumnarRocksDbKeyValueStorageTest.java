@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.services.kvstore;
+
+import static org.junit.Assert.assertEquals;
+
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration.Compression;
+import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage.AccessPattern;
+import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage.SegmentIdentifier;
+import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage.Transaction;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+
+public class ColumnarRocksDbKeyValueStorageTest extends AbstractKeyValueStorageTest {
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void segmentsAreIndependent() throws Exception {
+    final SegmentedKeyValueStorage<ColumnFamilyHandle> store = createSegmentedStore();
+    final ColumnFamilyHandle foo = store.getSegmentIdentifierByName(TestSegment.FOO);
+    final ColumnFamilyHandle bar = store.getSegmentIdentifierByName(TestSegment.BAR);
+
+    store.put(foo, BytesValue.fromHexString("0001"), BytesValue.fromHexString("0FFF"));
+
+    assertEquals(
+        Optional.of(BytesValue.fromHexString("0FFF")),
+        store.get(foo, BytesValue.fromHexString("0001")));
+    assertEquals(Optional.empty(), store.get(bar, BytesValue.fromHexString("0001")));
+    assertEquals(0, store.entries(bar).count());
+    store.close();
+  }
+
+  @Test
+  public void transactionSpansSegments() throws Exception {
+    final SegmentedKeyValueStorage<ColumnFamilyHandle> store = createSegmentedStore();
+    final ColumnFamilyHandle foo = store.getSegmentIdentifierByName(TestSegment.FOO);
+    final ColumnFamilyHandle bar = store.getSegmentIdentifierByName(TestSegment.BAR);
+
+    final Transaction<ColumnFamilyHandle> tx = store.getStartTransaction();
+    tx.put(foo, BytesValue.of(1), BytesValue.of(1));
+    tx.put(bar, BytesValue.of(1), BytesValue.of(2));
+    assertEquals(Optional.empty(), store.get(foo, BytesValue.of(1)));
+    tx.commit();
+
+    assertEquals(Optional.of(BytesValue.of(1)), store.get(foo, BytesValue.of(1)));
+    assertEquals(Optional.of(BytesValue.of(2)), store.get(bar, BytesValue.of(1)));
+    store.close();
+  }
+
+  @Test
+  public void tunedConfigurationIsUsable() throws Exception {
+    final RocksDbConfiguration configuration =
+        RocksDbConfiguration.builder()
+            .blockCacheSize(8 * 1024 * 1024L)
+            .bloomFilterBitsPerKey(0)
+            .maxOpenFiles(64)
+            .backgroundJobs(4)
+            .compressionPerLevel(Arrays.asList(Compression.NONE, Compression.SNAPPY))
+            .writeBufferSize(1024 * 1024L)
+            .maxWriteBufferNumber(3)
+            .build();
+    final SegmentedKeyValueStorage<ColumnFamilyHandle> store =
+        ColumnarRocksDbKeyValueStorage.create(
+            folder.newFolder().toPath(),
+            Arrays.asList(TestSegment.FOO, TestSegment.BAR),
+            configuration);
+    final ColumnFamilyHandle foo = store.getSegmentIdentifierByName(TestSegment.FOO);
+    final ColumnFamilyHandle bar = store.getSegmentIdentifierByName(TestSegment.BAR);
+
+    store.put(foo, BytesValue.of(1), BytesValue.of(1));
+    store.put(bar, BytesValue.of(1), BytesValue.of(2));
+
+    assertEquals(Optional.of(BytesValue.of(1)), store.get(foo, BytesValue.of(1)));
+    assertEquals(Optional.of(BytesValue.of(2)), store.get(bar, BytesValue.of(1)));
+    store.close();
+  }
+
+  @Test
+  public void migratesEntriesFromTheDefaultColumnFamily() throws Exception {
+    final Path storageDirectory = folder.newFolder().toPath();
+    try (final Options options = new Options().setCreateIfMissing(true);
+        final RocksDB db = RocksDB.open(options, storageDirectory.toString())) {
+      db.put(BytesValue.of(1).extractArray(), BytesValue.of(1).extractArray());
+      db.put(BytesValue.of(2, 2).extractArray(), BytesValue.of(2).extractArray());
+    }
+
+    final ColumnarRocksDbKeyValueStorage store =
+        ColumnarRocksDbKeyValueStorage.create(
+            storageDirectory, Arrays.asList(TestSegment.FOO, TestSegment.BAR));
+    final ColumnFamilyHandle foo = store.getSegmentIdentifierByName(TestSegment.FOO);
+    final ColumnFamilyHandle bar = store.getSegmentIdentifierByName(TestSegment.BAR);
+
+    assertEquals(
+        2,
+        store.migrateDefaultColumnFamily(
+            key -> key.size() == 1 ? TestSegment.FOO : TestSegment.BAR));
+    assertEquals(Optional.of(BytesValue.of(1)), store.get(foo, BytesValue.of(1)));
+    assertEquals(Optional.of(BytesValue.of(2)), store.get(bar, BytesValue.of(2, 2)));
+    assertEquals(1, store.entries(foo).count());
+    assertEquals(1, store.entries(bar).count());
+    assertEquals(0, store.migrateDefaultColumnFamily(key -> TestSegment.FOO));
+    store.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownSegmentIsRejected() throws Exception {
+    final SegmentedKeyValueStorage<ColumnFamilyHandle> store =
+        ColumnarRocksDbKeyValueStorage.create(
+            folder.newFolder().toPath(), Arrays.asList(TestSegment.FOO));
+    try {
+      store.getSegmentIdentifierByName(TestSegment.BAR);
+    } finally {
+      store.close();
+    }
+  }
+
+  @Override
+  protected KeyValueStorage createStore() throws Exception {
+    return new SegmentedKeyValueStorageAdapter<>(TestSegment.FOO, createSegmentedStore());
+  }
+
+  private SegmentedKeyValueStorage<ColumnFamilyHandle> createSegmentedStore() throws Exception {
+    return ColumnarRocksDbKeyValueStorage.create(
+        folder.newFolder().toPath(), Arrays.asList(TestSegment.FOO, TestSegment.BAR));
+  }
+
+  private enum TestSegment implements SegmentIdentifier {
+    FOO("foo", AccessPattern.POINT_LOOKUP),
+    BAR("bar", AccessPattern.SEQUENTIAL);
+
+    private final String name;
+    private final AccessPattern accessPattern;
+
+    TestSegment(final String name, final AccessPattern accessPattern) {
+      this.name = name;
+      this.accessPattern = accessPattern;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public AccessPattern getAccessPattern() {
+      return accessPattern;
+    }
+  }
+}
@@ -12,7 +12,16 @@
  */
 package tech.pegasys.pantheon.services.kvstore;
 
+import static org.junit.Assert.assertEquals;
+
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage.Transaction;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
 import org.junit.Rule;
+import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 public class RocksDbKeyValueStorageTest extends AbstractKeyValueStorageTest {
@@ -23,4 +32,24 @@ public class RocksDbKeyValueStorageTest extends AbstractKeyValueStorageTest {
   protected KeyValueStorage createStore() throws Exception {
     return RocksDbKeyValueStorage.create(folder.newFolder().toPath());
   }
+
+  @Test
+  public void writesWithoutWriteAheadLogSurviveCleanClose() throws Exception {
+    final Path path = folder.newFolder().toPath();
+    final RocksDbConfiguration noWal =
+        RocksDbConfiguration.builder().writeAheadLogEnabled(false).build();
+    try (final KeyValueStorage store = RocksDbKeyValueStorage.create(path, noWal)) {
+      store.put(BytesValue.fromHexString("0001"), BytesValue.fromHexString("0a"));
+      final Transaction tx = store.getStartTransaction();
+      tx.put(BytesValue.fromHexString("0002"), BytesValue.fromHexString("0b"));
+      tx.commit();
+    }
+
+    try (final KeyValueStorage store = RocksDbKeyValueStorage.create(path)) {
+      assertEquals(
+          Optional.of(BytesValue.fromHexString("0a")), store.get(BytesValue.fromHexString("0001")));
+      assertEquals(
+          Optional.of(BytesValue.fromHexString("0b")), store.get(BytesValue.fromHexString("0002")));
+    }
+  }
 }
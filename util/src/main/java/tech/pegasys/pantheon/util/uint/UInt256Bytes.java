@@ -21,7 +21,6 @@ import tech.pegasys.pantheon.util.bytes.BytesValues;
 import tech.pegasys.pantheon.util.bytes.MutableBytes32;
 
 import java.math.BigInteger;
-import java.util.function.BinaryOperator;
 
 import com.google.common.annotations.VisibleForTesting;
 
@@ -56,8 +55,6 @@ public abstract class UInt256Bytes {
 
   private static final int SIZE = Bytes32.SIZE;
 
-  private static final BigInteger P256 = BigInteger.valueOf(2).pow(8 * 32);
-
   /** The number of ints a word contains. */
   private static final int INT_SIZE = 32 / 4;
 
@@ -69,6 +66,11 @@ public abstract class UInt256Bytes {
   /** This mask is used to obtain the value of an int as if it were unsigned. */
   private static final long LONG_MASK = 0xffffffffL;
 
+  // The limbs of up to three operands, reused by every operation done on limbs. The operations
+  // never call back into this class, so a thread only ever uses its buffer for one at a time.
+  private static final ThreadLocal<long[]> LIMBS =
+      ThreadLocal.withInitial(() -> new long[3 * UInt256Limbs.LIMBS]);
+
   static void copyPadded(
       final BytesValue toCopy, final MutableBytes32 destination, final byte padByte) {
     final int copySize = toCopy.size();
@@ -83,36 +85,46 @@ public abstract class UInt256Bytes {
     }
   }
 
-  private static void copy(final BigInteger result, final MutableBytes32 destination) {
-    copyPadded(BytesValue.wrap(result.toByteArray()), destination, ALL_ZERO_BYTE);
-  }
-
-  private interface TriOperator<T> {
-    T apply(T op1, T op2, T op3);
-  }
-
-  private static void doOnBigInteger(
+  private static void doOnLimbs(
       final Bytes32 v1,
       final Bytes32 v2,
       final MutableBytes32 dest,
-      final BinaryOperator<BigInteger> operator) {
-    final BigInteger i1 = BytesValues.asUnsignedBigInteger(v1);
-    final BigInteger i2 = BytesValues.asUnsignedBigInteger(v2);
-    final BigInteger result = operator.apply(i1, i2);
-    copy(result, dest);
+      final UInt256Limbs.BinaryOperation operator) {
+    final long[] limbs = LIMBS.get();
+    UInt256Limbs.fromBytes(v1, limbs, 0);
+    UInt256Limbs.fromBytes(v2, limbs, UInt256Limbs.LIMBS);
+    operator.apply(limbs, 0, limbs, UInt256Limbs.LIMBS, limbs, 0);
+    UInt256Limbs.toBytes(limbs, 0, dest);
   }
 
-  private static void doOnBigInteger(
+  private static void doOnLimbs(
+      final Bytes32 v1,
+      final long v2,
+      final MutableBytes32 dest,
+      final UInt256Limbs.BinaryOperation operator) {
+    checkArgument(v2 >= 0, "Argument must be positive, got %s", v2);
+    final long[] limbs = LIMBS.get();
+    UInt256Limbs.fromBytes(v1, limbs, 0);
+    limbs[UInt256Limbs.LIMBS] = 0;
+    limbs[UInt256Limbs.LIMBS + 1] = 0;
+    limbs[UInt256Limbs.LIMBS + 2] = 0;
+    limbs[UInt256Limbs.LIMBS + 3] = v2;
+    operator.apply(limbs, 0, limbs, UInt256Limbs.LIMBS, limbs, 0);
+    UInt256Limbs.toBytes(limbs, 0, dest);
+  }
+
+  private static void doOnLimbs(
       final Bytes32 v1,
       final Bytes32 v2,
       final Bytes32 v3,
       final MutableBytes32 dest,
-      final TriOperator<BigInteger> operator) {
-    final BigInteger i1 = BytesValues.asUnsignedBigInteger(v1);
-    final BigInteger i2 = BytesValues.asUnsignedBigInteger(v2);
-    final BigInteger i3 = BytesValues.asUnsignedBigInteger(v3);
-    final BigInteger result = operator.apply(i1, i2, i3);
-    copy(result, dest);
+      final UInt256Limbs.TernaryOperation operator) {
+    final long[] limbs = LIMBS.get();
+    UInt256Limbs.fromBytes(v1, limbs, 0);
+    UInt256Limbs.fromBytes(v2, limbs, UInt256Limbs.LIMBS);
+    UInt256Limbs.fromBytes(v3, limbs, 2 * UInt256Limbs.LIMBS);
+    operator.apply(limbs, 0, limbs, UInt256Limbs.LIMBS, limbs, 2 * UInt256Limbs.LIMBS, limbs, 0);
+    UInt256Limbs.toBytes(limbs, 0, dest);
   }
 
   public static void add(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
@@ -147,7 +159,7 @@ public abstract class UInt256Bytes {
     if (modulo.isZero()) {
       result.clear();
     } else {
-      doOnBigInteger(v1, v2, modulo, result, (op1, op2, mod) -> op1.add(op2).mod(mod));
+      doOnLimbs(v1, v2, modulo, result, UInt256Limbs::addModulo);
     }
   }
 
@@ -227,7 +239,7 @@ public abstract class UInt256Bytes {
   }
 
   public static void multiply(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
-    doOnBigInteger(v1, v2, result, BigInteger::multiply);
+    doOnLimbs(v1, v2, result, UInt256Limbs::multiply);
   }
 
   public static void multiply(final Bytes32 v1, final long v2, final MutableBytes32 result) {
@@ -237,12 +249,12 @@ public abstract class UInt256Bytes {
       final int shifts = log2(v2);
       // We have to be careful with overflowing operation.
       if (bitLength(v1) >= SIZE - 1 - shifts) {
-        doOnBigInteger(v1, of(v2), result, BigInteger::multiply);
+        doOnLimbs(v1, v2, result, UInt256Limbs::multiply);
       } else {
         shiftLeft(v1, shifts, result);
       }
     } else {
-      doOnBigInteger(v1, of(v2), result, BigInteger::multiply);
+      doOnLimbs(v1, v2, result, UInt256Limbs::multiply);
     }
   }
 
@@ -251,7 +263,7 @@ public abstract class UInt256Bytes {
     if (modulo.isZero()) {
       result.clear();
     } else {
-      doOnBigInteger(v1, v2, modulo, result, (op1, op2, mod) -> op1.multiply(op2).mod(mod));
+      doOnLimbs(v1, v2, modulo, result, UInt256Limbs::multiplyModulo);
     }
   }
 
@@ -259,7 +271,7 @@ public abstract class UInt256Bytes {
     if (v2.isZero()) {
       result.clear();
     } else {
-      doOnBigInteger(v1, v2, result, BigInteger::divide);
+      doOnLimbs(v1, v2, result, UInt256Limbs::divide);
     }
   }
 
@@ -308,19 +320,19 @@ public abstract class UInt256Bytes {
     } else if (v2 > 0 && isPowerOf2(v2)) {
       shiftRight(v1, log2(v2), result);
     } else {
-      doOnBigInteger(v1, of(v2), result, BigInteger::divide);
+      doOnLimbs(v1, v2, result, UInt256Limbs::divide);
     }
   }
 
   public static void exponent(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
-    doOnBigInteger(v1, v2, result, (val, pow) -> val.modPow(pow, P256));
+    doOnLimbs(v1, v2, result, UInt256Limbs::exponent);
   }
 
   public static void modulo(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
     if (v2.isZero()) {
       result.clear();
     } else {
-      doOnBigInteger(v1, v2, result, BigInteger::mod);
+      doOnLimbs(v1, v2, result, UInt256Limbs::modulo);
     }
   }
 
@@ -340,7 +352,7 @@ public abstract class UInt256Bytes {
         result.set(SIZE - 1 - i, (byte) 0);
       }
     } else {
-      doOnBigInteger(v1, of(v2), result, BigInteger::mod);
+      doOnLimbs(v1, v2, result, UInt256Limbs::modulo);
     }
   }
 
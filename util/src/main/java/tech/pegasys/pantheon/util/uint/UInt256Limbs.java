@@ -0,0 +1,746 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.util.uint;
+
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.MutableBytes32;
+
+/**
+ * Static operations on 256 bits unsigned integers held as four {@code long} limbs in an array.
+ *
+ * <p>A value occupies {@link #LIMBS} consecutive elements of an array starting at some offset, most
+ * significant limb first, so that many values can share a single array. None of the operations
+ * allocate: they work on the limbs held in local variables and only write to the result limbs.
+ *
+ * <p>As with {@link UInt256Bytes}, all operations are modulo 2^256, a division or modulo by zero
+ * results in zero, and the result may be the same limbs as one or more of the operands.
+ */
+public final class UInt256Limbs {
+
+  /** The number of limbs a value occupies. */
+  public static final int LIMBS = 4;
+
+  private static final long INT_MASK = 0xffffffffL;
+
+  // Division works on 32 bits digits, in a scratch space laid out as a dividend of up to 16
+  // digits plus one for normalization, a divisor of up to 8 digits and a quotient of up to 16.
+  private static final int DIVIDEND = 0;
+  private static final int DIVISOR = DIVIDEND + 17;
+  private static final int QUOTIENT = DIVISOR + 8;
+  private static final ThreadLocal<int[]> SCRATCH =
+      ThreadLocal.withInitial(() -> new int[QUOTIENT + 16]);
+
+  private UInt256Limbs() {}
+
+  /** An operation on two values, such as {@link #multiply}. */
+  @FunctionalInterface
+  public interface BinaryOperation {
+    void apply(long[] v1, int v1Offset, long[] v2, int v2Offset, long[] result, int resultOffset);
+  }
+
+  /** An operation on three values, such as {@link #addModulo}. */
+  @FunctionalInterface
+  public interface TernaryOperation {
+    void apply(
+        long[] v1,
+        int v1Offset,
+        long[] v2,
+        int v2Offset,
+        long[] v3,
+        int v3Offset,
+        long[] result,
+        int resultOffset);
+  }
+
+  /**
+   * Reads a value from its bytes.
+   *
+   * @param bytes the value to read
+   * @param limbs the array to write the limbs to
+   * @param offset the offset of the first limb
+   */
+  public static void fromBytes(final Bytes32 bytes, final long[] limbs, final int offset) {
+    limbs[offset] = bytes.getLong(0);
+    limbs[offset + 1] = bytes.getLong(8);
+    limbs[offset + 2] = bytes.getLong(16);
+    limbs[offset + 3] = bytes.getLong(24);
+  }
+
+  /**
+   * Writes a value to bytes.
+   *
+   * @param limbs the array holding the value
+   * @param offset the offset of the first limb
+   * @param bytes the bytes to write the value to
+   */
+  public static void toBytes(final long[] limbs, final int offset, final MutableBytes32 bytes) {
+    bytes.setLong(0, limbs[offset]);
+    bytes.setLong(8, limbs[offset + 1]);
+    bytes.setLong(16, limbs[offset + 2]);
+    bytes.setLong(24, limbs[offset + 3]);
+  }
+
+  public static boolean isZero(final long[] limbs, final int offset) {
+    return (limbs[offset] | limbs[offset + 1] | limbs[offset + 2] | limbs[offset + 3]) == 0;
+  }
+
+  public static int compare(final long[] a, final int aOffset, final long[] b, final int bOffset) {
+    for (int i = 0; i < LIMBS; i++) {
+      final int cmp = Long.compareUnsigned(a[aOffset + i], b[bOffset + i]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  public static void add(
+      final long[] a,
+      final int aOffset,
+      final long[] b,
+      final int bOffset,
+      final long[] result,
+      final int resultOffset) {
+    final long a0 = a[aOffset + 3];
+    final long a1 = a[aOffset + 2];
+    final long a2 = a[aOffset + 1];
+    final long a3 = a[aOffset];
+    final long b0 = b[bOffset + 3];
+    final long b1 = b[bOffset + 2];
+    final long b2 = b[bOffset + 1];
+    final long b3 = b[bOffset];
+
+    final long r0 = a0 + b0;
+    long carry = carry(a0, b0, r0);
+    final long r1 = a1 + b1 + carry;
+    carry = carry(a1, b1, r1);
+    final long r2 = a2 + b2 + carry;
+    carry = carry(a2, b2, r2);
+    // Discard the final carry since we work modulo 256.
+    final long r3 = a3 + b3 + carry;
+    set(result, resultOffset, r3, r2, r1, r0);
+  }
+
+  public static void subtract(
+      final long[] a,
+      final int aOffset,
+      final long[] b,
+      final int bOffset,
+      final long[] result,
+      final int resultOffset) {
+    final long a0 = a[aOffset + 3];
+    final long a1 = a[aOffset + 2];
+    final long a2 = a[aOffset + 1];
+    final long a3 = a[aOffset];
+    final long b0 = b[bOffset + 3];
+    final long b1 = b[bOffset + 2];
+    final long b2 = b[bOffset + 1];
+    final long b3 = b[bOffset];
+
+    final long r0 = a0 - b0;
+    long borrow = borrow(a0, b0, r0);
+    final long r1 = a1 - b1 - borrow;
+    borrow = borrow(a1, b1, r1);
+    final long r2 = a2 - b2 - borrow;
+    borrow = borrow(a2, b2, r2);
+    // Discard the final borrow, so that negative results wrap around.
+    final long r3 = a3 - b3 - borrow;
+    set(result, resultOffset, r3, r2, r1, r0);
+  }
+
+  public static void multiply(
+      final long[] a,
+      final int aOffset,
+      final long[] b,
+      final int bOffset,
+      final long[] result,
+      final int resultOffset) {
+    multiply(
+        a[aOffset],
+        a[aOffset + 1],
+        a[aOffset + 2],
+        a[aOffset + 3],
+        b[bOffset],
+        b[bOffset + 1],
+        b[bOffset + 2],
+        b[bOffset + 3],
+        result,
+        resultOffset);
+  }
+
+  public static void divide(
+      final long[] a,
+      final int aOffset,
+      final long[] b,
+      final int bOffset,
+      final long[] result,
+      final int resultOffset) {
+    divide(
+        a[aOffset],
+        a[aOffset + 1],
+        a[aOffset + 2],
+        a[aOffset + 3],
+        b[bOffset],
+        b[bOffset + 1],
+        b[bOffset + 2],
+        b[bOffset + 3],
+        result,
+        resultOffset,
+        null,
+        0);
+  }
+
+  public static void modulo(
+      final long[] a,
+      final int aOffset,
+      final long[] b,
+      final int bOffset,
+      final long[] result,
+      final int resultOffset) {
+    divide(
+        a[aOffset],
+        a[aOffset + 1],
+        a[aOffset + 2],
+        a[aOffset + 3],
+        b[bOffset],
+        b[bOffset + 1],
+        b[bOffset + 2],
+        b[bOffset + 3],
+        null,
+        0,
+        result,
+        resultOffset);
+  }
+
+  public static void addModulo(
+      final long[] a,
+      final int aOffset,
+      final long[] b,
+      final int bOffset,
+      final long[] modulo,
+      final int moduloOffset,
+      final long[] result,
+      final int resultOffset) {
+    final long a0 = a[aOffset + 3];
+    final long a1 = a[aOffset + 2];
+    final long a2 = a[aOffset + 1];
+    final long a3 = a[aOffset];
+    final long b0 = b[bOffset + 3];
+    final long b1 = b[bOffset + 2];
+    final long b2 = b[bOffset + 1];
+    final long b3 = b[bOffset];
+
+    // The sum may not fit 256 bits, so keep the carry as a ninth digit of the dividend.
+    final long s0 = a0 + b0;
+    long carry = carry(a0, b0, s0);
+    final long s1 = a1 + b1 + carry;
+    carry = carry(a1, b1, s1);
+    final long s2 = a2 + b2 + carry;
+    carry = carry(a2, b2, s2);
+    final long s3 = a3 + b3 + carry;
+    carry = carry(a3, b3, s3);
+
+    final int[] scratch = SCRATCH.get();
+    setDigits(scratch, DIVIDEND, s3, s2, s1, s0);
+    scratch[DIVIDEND + 8] = (int) carry;
+    remainder(scratch, 9, modulo, moduloOffset, result, resultOffset);
+  }
+
+  public static void multiplyModulo(
+      final long[] a,
+      final int aOffset,
+      final long[] b,
+      final int bOffset,
+      final long[] modulo,
+      final int moduloOffset,
+      final long[] result,
+      final int resultOffset) {
+    // Compute the full 512 bits product, one 32 bits digit at a time, using the space of the
+    // quotient for the operands.
+    final int[] scratch = SCRATCH.get();
+    setDigits(scratch, QUOTIENT, a[aOffset], a[aOffset + 1], a[aOffset + 2], a[aOffset + 3]);
+    setDigits(scratch, QUOTIENT + 8, b[bOffset], b[bOffset + 1], b[bOffset + 2], b[bOffset + 3]);
+    for (int i = 0; i < 16; i++) {
+      scratch[DIVIDEND + i] = 0;
+    }
+    for (int i = 0; i < 8; i++) {
+      final long x = scratch[QUOTIENT + i] & INT_MASK;
+      if (x == 0) {
+        continue;
+      }
+      long carry = 0;
+      for (int j = 0; j < 8; j++) {
+        final long t =
+            x * (scratch[QUOTIENT + 8 + j] & INT_MASK)
+                + (scratch[DIVIDEND + i + j] & INT_MASK)
+                + carry;
+        scratch[DIVIDEND + i + j] = (int) t;
+        carry = t >>> 32;
+      }
+      scratch[DIVIDEND + i + 8] = (int) carry;
+    }
+    remainder(scratch, 16, modulo, moduloOffset, result, resultOffset);
+  }
+
+  /** Writes the remainder of the division of the dividend digits in the scratch space. */
+  private static void remainder(
+      final int[] scratch,
+      final int dividendLength,
+      final long[] modulo,
+      final int moduloOffset,
+      final long[] result,
+      final int resultOffset) {
+    final long m3 = modulo[moduloOffset];
+    final long m2 = modulo[moduloOffset + 1];
+    final long m1 = modulo[moduloOffset + 2];
+    final long m0 = modulo[moduloOffset + 3];
+    if ((m3 | m2 | m1 | m0) == 0) {
+      set(result, resultOffset, 0, 0, 0, 0);
+      return;
+    }
+    setDigits(scratch, DIVISOR, m3, m2, m1, m0);
+    divideDigits(
+        scratch, digitLength(scratch, DIVIDEND, dividendLength), digitLength(scratch, DIVISOR, 8));
+    set(
+        result,
+        resultOffset,
+        getLimb(scratch, DIVIDEND + 6),
+        getLimb(scratch, DIVIDEND + 4),
+        getLimb(scratch, DIVIDEND + 2),
+        getLimb(scratch, DIVIDEND));
+  }
+
+  public static void exponent(
+      final long[] base,
+      final int baseOffset,
+      final long[] exponent,
+      final int exponentOffset,
+      final long[] result,
+      final int resultOffset) {
+    final long x3 = base[baseOffset];
+    final long x2 = base[baseOffset + 1];
+    final long x1 = base[baseOffset + 2];
+    final long x0 = base[baseOffset + 3];
+    final long e3 = exponent[exponentOffset];
+    final long e2 = exponent[exponentOffset + 1];
+    final long e1 = exponent[exponentOffset + 2];
+    final long e0 = exponent[exponentOffset + 3];
+
+    // Square and multiply, from the most significant bit of the exponent down.
+    set(result, resultOffset, 0, 0, 0, 1);
+    for (int i = bitLength(e3, e2, e1, e0) - 1; i >= 0; i--) {
+      long r3 = result[resultOffset];
+      long r2 = result[resultOffset + 1];
+      long r1 = result[resultOffset + 2];
+      long r0 = result[resultOffset + 3];
+      square(r3, r2, r1, r0, result, resultOffset);
+      if (testBit(e3, e2, e1, e0, i)) {
+        r3 = result[resultOffset];
+        r2 = result[resultOffset + 1];
+        r1 = result[resultOffset + 2];
+        r0 = result[resultOffset + 3];
+        multiply(r3, r2, r1, r0, x3, x2, x1, x0, result, resultOffset);
+      }
+    }
+  }
+
+  private static void multiply(
+      final long a3,
+      final long a2,
+      final long a1,
+      final long a0,
+      final long b3,
+      final long b2,
+      final long b1,
+      final long b0,
+      final long[] result,
+      final int resultOffset) {
+    // Schoolbook multiplication, dropping every partial product that lands above 256 bits.
+    long low = a0 * b0;
+    long high = unsignedMultiplyHigh(a0, b0);
+    final long r0 = low;
+
+    low = a0 * b1;
+    long sum = low + high;
+    high = unsignedMultiplyHigh(a0, b1) + overflow(sum, low);
+    long r1 = sum;
+
+    low = a0 * b2;
+    sum = low + high;
+    high = unsignedMultiplyHigh(a0, b2) + overflow(sum, low);
+    long r2 = sum;
+
+    long r3 = a0 * b3 + high;
+
+    low = a1 * b0;
+    sum = r1 + low;
+    high = unsignedMultiplyHigh(a1, b0) + overflow(sum, low);
+    r1 = sum;
+
+    low = a1 * b1;
+    sum = low + high;
+    high = unsignedMultiplyHigh(a1, b1) + overflow(sum, low);
+    low = sum;
+    sum = r2 + low;
+    high += overflow(sum, low);
+    r2 = sum;
+
+    r3 += a1 * b2 + high;
+
+    low = a2 * b0;
+    sum = r2 + low;
+    high = unsignedMultiplyHigh(a2, b0) + overflow(sum, low);
+    r2 = sum;
+
+    r3 += a2 * b1 + high;
+
+    r3 += a3 * b0;
+
+    set(result, resultOffset, r3, r2, r1, r0);
+  }
+
+  private static void square(
+      final long a3,
+      final long a2,
+      final long a1,
+      final long a0,
+      final long[] result,
+      final int resultOffset) {
+    // As multiply, but every cross product appears twice so is only computed once and doubled.
+    final long low01 = a0 * a1;
+    final long high01 = unsignedMultiplyHigh(a0, a1);
+    final long low02 = a0 * a2;
+    final long high02 = unsignedMultiplyHigh(a0, a2);
+
+    final long r0 = a0 * a0;
+    final long high00 = unsignedMultiplyHigh(a0, a0);
+
+    final long double01 = low01 << 1;
+    final long r1 = high00 + double01;
+    final long carry = overflow(r1, double01);
+
+    final long double01High = (high01 << 1) | (low01 >>> 63);
+    long r2 = double01High + carry;
+    long r3 = (high01 >>> 63) + overflow(r2, double01High);
+    final long double02 = low02 << 1;
+    r2 += double02;
+    r3 += overflow(r2, double02);
+    final long low11 = a1 * a1;
+    r2 += low11;
+    r3 += overflow(r2, low11);
+
+    r3 +=
+        ((high02 << 1) | (low02 >>> 63))
+            + unsignedMultiplyHigh(a1, a1)
+            + ((a0 * a3 + a1 * a2) << 1);
+
+    set(result, resultOffset, r3, r2, r1, r0);
+  }
+
+  /** Divides u by v, writing the quotient and the remainder to whichever array isn't null. */
+  private static void divide(
+      final long u3,
+      final long u2,
+      final long u1,
+      final long u0,
+      final long v3,
+      final long v2,
+      final long v1,
+      final long v0,
+      final long[] quotient,
+      final int quotientOffset,
+      final long[] remainder,
+      final int remainderOffset) {
+    if ((v3 | v2 | v1 | v0) == 0) {
+      setIfPresent(quotient, quotientOffset, 0, 0, 0, 0);
+      setIfPresent(remainder, remainderOffset, 0, 0, 0, 0);
+      return;
+    }
+    if (lessThan(u3, u2, u1, u0, v3, v2, v1, v0)) {
+      setIfPresent(quotient, quotientOffset, 0, 0, 0, 0);
+      setIfPresent(remainder, remainderOffset, u3, u2, u1, u0);
+      return;
+    }
+    if ((u3 | u2 | u1 | v3 | v2 | v1) == 0) {
+      setIfPresent(quotient, quotientOffset, 0, 0, 0, Long.divideUnsigned(u0, v0));
+      setIfPresent(remainder, remainderOffset, 0, 0, 0, Long.remainderUnsigned(u0, v0));
+      return;
+    }
+
+    final int[] scratch = SCRATCH.get();
+    setDigits(scratch, DIVIDEND, u3, u2, u1, u0);
+    setDigits(scratch, DIVISOR, v3, v2, v1, v0);
+    final int dividendLength = digitLength(scratch, DIVIDEND, 8);
+    final int divisorLength = digitLength(scratch, DIVISOR, 8);
+    divideDigits(scratch, dividendLength, divisorLength);
+    if (quotient != null) {
+      for (int i = dividendLength - divisorLength + 1; i < 8; i++) {
+        scratch[QUOTIENT + i] = 0;
+      }
+      set(
+          quotient,
+          quotientOffset,
+          getLimb(scratch, QUOTIENT + 6),
+          getLimb(scratch, QUOTIENT + 4),
+          getLimb(scratch, QUOTIENT + 2),
+          getLimb(scratch, QUOTIENT));
+    }
+    if (remainder != null) {
+      set(
+          remainder,
+          remainderOffset,
+          getLimb(scratch, DIVIDEND + 6),
+          getLimb(scratch, DIVIDEND + 4),
+          getLimb(scratch, DIVIDEND + 2),
+          getLimb(scratch, DIVIDEND));
+    }
+  }
+
+  /**
+   * Long division of the dividend digits in the scratch space by the divisor digits, following
+   * Knuth's Algorithm D (The Art of Computer Programming, Volume 2, 4.3.1).
+   *
+   * <p>The dividend must be at least as long as the divisor, and the most significant digit of the
+   * divisor must not be zero. The quotient is written to its own digits and the remainder replaces
+   * the dividend, with all digits past the length of the divisor cleared.
+   */
+  private static void divideDigits(final int[] scratch, final int m, final int n) {
+    if (m < n) {
+      // The dividend is the remainder.
+      return;
+    }
+    if (n == 1) {
+      final long divisor = scratch[DIVISOR] & INT_MASK;
+      long rem = 0;
+      for (int j = m - 1; j >= 0; j--) {
+        final long digits = (rem << 32) | (scratch[DIVIDEND + j] & INT_MASK);
+        final long q = Long.divideUnsigned(digits, divisor);
+        scratch[QUOTIENT + j] = (int) q;
+        rem = digits - q * divisor;
+        scratch[DIVIDEND + j] = 0;
+      }
+      scratch[DIVIDEND] = (int) rem;
+      return;
+    }
+
+    // Normalize, so that the most significant digit of the divisor has its top bit set. The
+    // dividend gains an extra digit for the bits shifted out of it.
+    final int s = Integer.numberOfLeadingZeros(scratch[DIVISOR + n - 1]);
+    scratch[DIVIDEND + m] = s == 0 ? 0 : scratch[DIVIDEND + m - 1] >>> (32 - s);
+    for (int i = m - 1; i > 0; i--) {
+      scratch[DIVIDEND + i] = shiftLeft(scratch[DIVIDEND + i], scratch[DIVIDEND + i - 1], s);
+    }
+    scratch[DIVIDEND] <<= s;
+    for (int i = n - 1; i > 0; i--) {
+      scratch[DIVISOR + i] = shiftLeft(scratch[DIVISOR + i], scratch[DIVISOR + i - 1], s);
+    }
+    scratch[DIVISOR] <<= s;
+
+    final long vTop = scratch[DIVISOR + n - 1] & INT_MASK;
+    final long vNext = scratch[DIVISOR + n - 2] & INT_MASK;
+    for (int j = m - n; j >= 0; j--) {
+      // Estimate the quotient digit from the top digits, it is at most two too large.
+      final long top =
+          ((scratch[DIVIDEND + j + n] & INT_MASK) << 32)
+              | (scratch[DIVIDEND + j + n - 1] & INT_MASK);
+      long qhat = Long.divideUnsigned(top, vTop);
+      long rhat = top - qhat * vTop;
+      while ((qhat >>> 32) != 0
+          || Long.compareUnsigned(
+                  qhat * vNext, (rhat << 32) | (scratch[DIVIDEND + j + n - 2] & INT_MASK))
+              > 0) {
+        qhat--;
+        rhat += vTop;
+        if ((rhat >>> 32) != 0) {
+          break;
+        }
+      }
+
+      // Multiply and subtract.
+      long borrow = 0;
+      for (int i = 0; i < n; i++) {
+        final long product = qhat * (scratch[DIVISOR + i] & INT_MASK);
+        final long t = (scratch[DIVIDEND + i + j] & INT_MASK) - borrow - (product & INT_MASK);
+        scratch[DIVIDEND + i + j] = (int) t;
+        borrow = (product >>> 32) - (t >> 32);
+      }
+      final long t = (scratch[DIVIDEND + j + n] & INT_MASK) - borrow;
+      scratch[DIVIDEND + j + n] = (int) t;
+
+      if (t < 0) {
+        // The estimate was one too large, add the divisor back.
+        qhat--;
+        long carry = 0;
+        for (int i = 0; i < n; i++) {
+          final long sum =
+              (scratch[DIVIDEND + i + j] & INT_MASK) + (scratch[DIVISOR + i] & INT_MASK) + carry;
+          scratch[DIVIDEND + i + j] = (int) sum;
+          carry = sum >>> 32;
+        }
+        scratch[DIVIDEND + j + n] += (int) carry;
+      }
+      scratch[QUOTIENT + j] = (int) qhat;
+    }
+
+    // Denormalize the remainder.
+    for (int i = 0; i < n - 1; i++) {
+      scratch[DIVIDEND + i] =
+          s == 0
+              ? scratch[DIVIDEND + i]
+              : (scratch[DIVIDEND + i] >>> s) | (scratch[DIVIDEND + i + 1] << (32 - s));
+    }
+    scratch[DIVIDEND + n - 1] >>>= s;
+    for (int i = n; i <= m; i++) {
+      scratch[DIVIDEND + i] = 0;
+    }
+  }
+
+  private static int shiftLeft(final int digit, final int lowerDigit, final int s) {
+    return s == 0 ? digit : (digit << s) | (lowerDigit >>> (32 - s));
+  }
+
+  /** Writes a value as 8 digits of 32 bits, least significant first. */
+  private static void setDigits(
+      final int[] digits,
+      final int offset,
+      final long x3,
+      final long x2,
+      final long x1,
+      final long x0) {
+    digits[offset] = (int) x0;
+    digits[offset + 1] = (int) (x0 >>> 32);
+    digits[offset + 2] = (int) x1;
+    digits[offset + 3] = (int) (x1 >>> 32);
+    digits[offset + 4] = (int) x2;
+    digits[offset + 5] = (int) (x2 >>> 32);
+    digits[offset + 6] = (int) x3;
+    digits[offset + 7] = (int) (x3 >>> 32);
+  }
+
+  private static long getLimb(final int[] digits, final int offset) {
+    return ((long) digits[offset + 1] << 32) | (digits[offset] & INT_MASK);
+  }
+
+  /** @return the number of digits up to and including the most significant non-zero digit */
+  private static int digitLength(final int[] digits, final int offset, final int maxLength) {
+    int length = maxLength;
+    while (length > 0 && digits[offset + length - 1] == 0) {
+      length--;
+    }
+    return length;
+  }
+
+  private static boolean lessThan(
+      final long a3,
+      final long a2,
+      final long a1,
+      final long a0,
+      final long b3,
+      final long b2,
+      final long b1,
+      final long b0) {
+    if (a3 != b3) {
+      return Long.compareUnsigned(a3, b3) < 0;
+    }
+    if (a2 != b2) {
+      return Long.compareUnsigned(a2, b2) < 0;
+    }
+    if (a1 != b1) {
+      return Long.compareUnsigned(a1, b1) < 0;
+    }
+    return Long.compareUnsigned(a0, b0) < 0;
+  }
+
+  private static int bitLength(final long x3, final long x2, final long x1, final long x0) {
+    if (x3 != 0) {
+      return 256 - Long.numberOfLeadingZeros(x3);
+    } else if (x2 != 0) {
+      return 192 - Long.numberOfLeadingZeros(x2);
+    } else if (x1 != 0) {
+      return 128 - Long.numberOfLeadingZeros(x1);
+    } else {
+      return 64 - Long.numberOfLeadingZeros(x0);
+    }
+  }
+
+  private static boolean testBit(
+      final long x3, final long x2, final long x1, final long x0, final int bit) {
+    final long limb;
+    switch (bit >>> 6) {
+      case 0:
+        limb = x0;
+        break;
+      case 1:
+        limb = x1;
+        break;
+      case 2:
+        limb = x2;
+        break;
+      default:
+        limb = x3;
+        break;
+    }
+    return (limb & (1L << (bit & 63))) != 0;
+  }
+
+  /** @return the carry out of {@code sum = a + b + carryIn} */
+  private static long carry(final long a, final long b, final long sum) {
+    return ((a & b) | ((a | b) & ~sum)) >>> 63;
+  }
+
+  /** @return one if {@code sum}, the result of adding {@code addend} to something, overflowed */
+  private static long overflow(final long sum, final long addend) {
+    return Long.compareUnsigned(sum, addend) < 0 ? 1 : 0;
+  }
+
+  /** @return the borrow out of {@code difference = a - b - borrowIn} */
+  private static long borrow(final long a, final long b, final long difference) {
+    return ((~a & b) | (~(a ^ b) & difference)) >>> 63;
+  }
+
+  /** @return the high 64 bits of the unsigned 128 bits product of x and y */
+  private static long unsignedMultiplyHigh(final long x, final long y) {
+    final long x0 = x & INT_MASK;
+    final long x1 = x >>> 32;
+    final long y0 = y & INT_MASK;
+    final long y1 = y >>> 32;
+    final long t = x1 * y0 + ((x0 * y0) >>> 32);
+    final long w1 = x0 * y1 + (t & INT_MASK);
+    return x1 * y1 + (t >>> 32) + (w1 >>> 32);
+  }
+
+  private static void set(
+      final long[] limbs,
+      final int offset,
+      final long x3,
+      final long x2,
+      final long x1,
+      final long x0) {
+    limbs[offset] = x3;
+    limbs[offset + 1] = x2;
+    limbs[offset + 2] = x1;
+    limbs[offset + 3] = x0;
+  }
+
+  private static void setIfPresent(
+      final long[] limbs,
+      final int offset,
+      final long x3,
+      final long x2,
+      final long x1,
+      final long x0) {
+    if (limbs != null) {
+      set(limbs, offset, x3, x2, x1, x0);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.util.uint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValues;
+import tech.pegasys.pantheon.util.bytes.MutableBytes32;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BinaryOperator;
+
+import org.junit.Test;
+
+public class UInt256LimbsTest {
+
+  private static final BigInteger P256 = BigInteger.ONE.shiftLeft(256);
+
+  private final Random random = new Random(42);
+
+  private interface BinaryOp {
+    void apply(long[] v1, int v1Offset, long[] v2, int v2Offset, long[] result, int offset);
+  }
+
+  private interface TernaryOp {
+    void apply(
+        long[] v1,
+        int v1Offset,
+        long[] v2,
+        int v2Offset,
+        long[] v3,
+        int v3Offset,
+        long[] result,
+        int offset);
+  }
+
+  private interface TernaryOperator<T> {
+    T apply(T v1, T v2, T v3);
+  }
+
+  /** Values of every length, with a bias to the edge cases. */
+  private List<BigInteger> values() {
+    final List<BigInteger> values = new ArrayList<>();
+    values.add(BigInteger.ZERO);
+    values.add(BigInteger.ONE);
+    values.add(BigInteger.valueOf(2));
+    values.add(P256.subtract(BigInteger.ONE));
+    values.add(BigInteger.ONE.shiftLeft(255));
+    values.add(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE));
+    values.add(BigInteger.ONE.shiftLeft(64));
+    values.add(BigInteger.ONE.shiftLeft(32).subtract(BigInteger.ONE));
+    for (int bits = 1; bits <= 256; bits += 7) {
+      values.add(new BigInteger(bits, random));
+      values.add(BigInteger.ONE.shiftLeft(bits - 1).or(new BigInteger(bits, random)));
+    }
+    return values;
+  }
+
+  private static long[] limbs(final BigInteger... values) {
+    final long[] limbs = new long[values.length * UInt256Limbs.LIMBS];
+    for (int i = 0; i < values.length; i++) {
+      UInt256Limbs.fromBytes(UInt256Bytes.of(values[i]), limbs, i * UInt256Limbs.LIMBS);
+    }
+    return limbs;
+  }
+
+  private static BigInteger value(final long[] limbs, final int offset) {
+    final MutableBytes32 bytes = MutableBytes32.create();
+    UInt256Limbs.toBytes(limbs, offset, bytes);
+    return BytesValues.asUnsignedBigInteger(bytes);
+  }
+
+  private void checkBinary(final BinaryOp op, final BinaryOperator<BigInteger> expected) {
+    for (final BigInteger v1 : values()) {
+      for (final BigInteger v2 : values()) {
+        final long[] limbs = limbs(v1, v2, BigInteger.ZERO);
+        op.apply(limbs, 0, limbs, 4, limbs, 8);
+        assertThat(value(limbs, 8))
+            .describedAs("%s, %s", v1, v2)
+            .isEqualTo(expected.apply(v1, v2).mod(P256));
+
+        // The result may overwrite an operand.
+        final long[] aliased = limbs(v1, v2);
+        op.apply(aliased, 0, aliased, 4, aliased, 0);
+        assertThat(value(aliased, 0)).isEqualTo(value(limbs, 8));
+      }
+    }
+  }
+
+  private void checkTernary(final TernaryOp op, final TernaryOperator<BigInteger> expected) {
+    final List<BigInteger> values = values();
+    for (final BigInteger v1 : values) {
+      for (final BigInteger v2 : values) {
+        for (int i = 0; i < 8; i++) {
+          final BigInteger v3 = values.get(random.nextInt(values.size()));
+          final long[] limbs = limbs(v1, v2, v3);
+          op.apply(limbs, 0, limbs, 4, limbs, 8, limbs, 8);
+          assertThat(value(limbs, 8))
+              .describedAs("%s, %s, %s", v1, v2, v3)
+              .isEqualTo(v3.signum() == 0 ? BigInteger.ZERO : expected.apply(v1, v2, v3));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void add() {
+    checkBinary(UInt256Limbs::add, BigInteger::add);
+  }
+
+  @Test
+  public void subtract() {
+    checkBinary(UInt256Limbs::subtract, BigInteger::subtract);
+  }
+
+  @Test
+  public void multiply() {
+    checkBinary(UInt256Limbs::multiply, BigInteger::multiply);
+  }
+
+  @Test
+  public void divide() {
+    checkBinary(
+        UInt256Limbs::divide, (v1, v2) -> v2.signum() == 0 ? BigInteger.ZERO : v1.divide(v2));
+  }
+
+  @Test
+  public void modulo() {
+    checkBinary(UInt256Limbs::modulo, (v1, v2) -> v2.signum() == 0 ? BigInteger.ZERO : v1.mod(v2));
+  }
+
+  @Test
+  public void divideWithOverestimatedQuotientDigit() {
+    // The first estimate of the quotient digit is one too large, so the divisor must be added back.
+    final BigInteger dividend = new BigInteger("7fffffff800000000000000000000000", 16);
+    final BigInteger divisor = new BigInteger("800000000000000000000001", 16);
+    final long[] limbs = limbs(dividend, divisor, BigInteger.ZERO);
+    UInt256Limbs.divide(limbs, 0, limbs, 4, limbs, 8);
+    assertThat(value(limbs, 8)).isEqualTo(dividend.divide(divisor));
+    UInt256Limbs.modulo(limbs, 0, limbs, 4, limbs, 8);
+    assertThat(value(limbs, 8)).isEqualTo(dividend.mod(divisor));
+  }
+
+  @Test
+  public void exponent() {
+    checkBinary(UInt256Limbs::exponent, (v1, v2) -> v1.modPow(v2, P256));
+  }
+
+  @Test
+  public void addModulo() {
+    checkTernary(UInt256Limbs::addModulo, (v1, v2, mod) -> v1.add(v2).mod(mod));
+  }
+
+  @Test
+  public void multiplyModulo() {
+    checkTernary(UInt256Limbs::multiplyModulo, (v1, v2, mod) -> v1.multiply(v2).mod(mod));
+  }
+
+  @Test
+  public void compare() {
+    for (final BigInteger v1 : values()) {
+      for (final BigInteger v2 : values()) {
+        assertThat(Integer.signum(UInt256Limbs.compare(limbs(v1), 0, limbs(v2), 0)))
+            .isEqualTo(v1.compareTo(v2));
+      }
+    }
+  }
+
+  @Test
+  public void bytesRoundTrip() {
+    final Bytes32 bytes =
+        Bytes32.fromHexString("0x0102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f20");
+    final long[] limbs = new long[UInt256Limbs.LIMBS];
+    UInt256Limbs.fromBytes(bytes, limbs, 0);
+    final MutableBytes32 result = MutableBytes32.create();
+    UInt256Limbs.toBytes(limbs, 0, result);
+    assertThat(result).isEqualTo(bytes);
+    assertThat(UInt256Limbs.isZero(limbs, 0)).isFalse();
+    assertThat(UInt256Limbs.isZero(new long[UInt256Limbs.LIMBS], 0)).isTrue();
+  }
+}